@@ -0,0 +1,93 @@
+package ast;
+
+import environment.Environment;
+
+/**
+ * Represents an assignment to an array element in the AST, of the form name[index] := expression.
+ * 
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class ArrayAssignment extends Statement
+{
+    private final String name;
+    private Expression index;
+    private Expression expr;
+
+    /**
+     * Constructs an ArrayAssignment with the given array name, index, and expression.
+     * 
+     * @param name the name of the array
+     * @param index the expression for the index
+     * @param expr the expression to assign
+     */
+    public ArrayAssignment(String name, Expression index, Expression expr)
+    {
+        this.name = name;
+        this.index = NodeParent.adopt(this, index);
+        this.expr = NodeParent.adopt(this, expr);
+    }
+
+    /**
+     * Returns the name of the array.
+     * 
+     * @return the array name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the index expression.
+     * 
+     * @return the index expression
+     */
+    public Expression getIndex()
+    {
+        return index;
+    }
+
+    /**
+     * Returns the expression assigned to the element.
+     * 
+     * @return the expression
+     */
+    public Expression getExpr()
+    {
+        return expr;
+    }
+
+    /**
+     * Executes the assignment by storing the value in the array element.
+     * The index is evaluated before the value.
+     * 
+     * @param env the current environment
+     * @param context the context of the run
+     */
+    @Override
+    public void exec(Environment env, ExecutionContext context)
+    {
+        int i = index.eval(env, context);
+        env.getArray(name).set(i, expr.eval(env, context));
+    }
+
+    @Override
+    public void replaceChild(Expression oldChild, Expression newChild)
+    {
+        if (index == oldChild)
+        {
+            index = newChild;
+        }
+        if (expr == oldChild)
+        {
+            expr = newChild;
+        }
+    }
+
+    @Override
+    public <T> T accept(StatementVisitor<T> v)
+    {
+        return v.visitArrayAssignment(this);
+    }
+}
@@ -0,0 +1,76 @@
+package ast;
+
+import environment.Environment;
+import environment.IntArray;
+
+/**
+ * Represents an array declaration statement in the AST, of the form ARRAY name[size].
+ * The elements are indexed from 0 to size - 1 and start out as 0.
+ * 
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class ArrayDeclaration extends Statement
+{
+    private final String name;
+    private Expression size;
+
+    /**
+     * Constructs an ArrayDeclaration with the given name and size.
+     * 
+     * @param name the name of the array
+     * @param size the expression for the number of elements
+     */
+    public ArrayDeclaration(String name, Expression size)
+    {
+        this.name = name;
+        this.size = NodeParent.adopt(this, size);
+    }
+
+    /**
+     * Returns the name of the array.
+     * 
+     * @return the array name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the expression for the number of elements.
+     * 
+     * @return the size expression
+     */
+    public Expression getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Executes the declaration by allocating the array in the given environment.
+     * 
+     * @param env the environment in which to declare the array
+     * @param context the context of the run
+     */
+    @Override
+    public void exec(Environment env, ExecutionContext context)
+    {
+        env.declareArray(name, IntArray.allocate(size.eval(env, context)));
+    }
+
+    @Override
+    public void replaceChild(Expression oldChild, Expression newChild)
+    {
+        if (size == oldChild)
+        {
+            size = newChild;
+        }
+    }
+
+    @Override
+    public <T> T accept(StatementVisitor<T> v)
+    {
+        return v.visitArrayDeclaration(this);
+    }
+}
@@ -0,0 +1,75 @@
+package ast;
+
+import environment.Environment;
+
+/**
+ * Represents an indexed array access expression in the AST, of the form name[index].
+ * 
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class ArrayElement extends Expression
+{
+    private final String name;
+    private Expression index;
+
+    /**
+     * Constructs an ArrayElement with the given array name and index.
+     * 
+     * @param name the name of the array
+     * @param index the expression for the index
+     */
+    public ArrayElement(String name, Expression index)
+    {
+        this.name = name;
+        this.index = NodeParent.adopt(this, index);
+    }
+
+    /**
+     * Returns the name of the array.
+     * 
+     * @return the array name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the index expression.
+     * 
+     * @return the index expression
+     */
+    public Expression getIndex()
+    {
+        return index;
+    }
+
+    /**
+     * Evaluates the element by looking up the array in the environment.
+     * 
+     * @param env the environment in which to evaluate the expression
+     * @param context the context of the run
+     * @return the value of the element
+     */
+    @Override
+    public int eval(Environment env, ExecutionContext context)
+    {
+        return env.getArray(name).get(index.eval(env, context));
+    }
+
+    @Override
+    public void replaceChild(Expression oldChild, Expression newChild)
+    {
+        if (index == oldChild)
+        {
+            index = newChild;
+        }
+    }
+
+    @Override
+    public <T> T accept(ExpressionVisitor<T> v)
+    {
+        return v.visitArrayElement(this);
+    }
+}
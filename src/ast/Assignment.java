@@ -10,8 +10,8 @@ import environment.Environment;
  */
 public class Assignment extends Statement 
 {
-    private final Variable var;
-    private final Expression expr;
+    private Variable var;
+    private Expression expr;
 
     /**
      * Constructs an Assignment with the given variable and expression.
@@ -21,8 +21,8 @@ public class Assignment extends Statement
      */
     public Assignment(Variable var, Expression expr) 
     {
-        this.var = var;
-        this.expr = expr;
+        this.var = NodeParent.adopt(this, var);
+        this.expr = NodeParent.adopt(this, expr);
     }
 
     /**
@@ -49,10 +49,30 @@ public class Assignment extends Statement
      * Executes the variable by adding the appropriate variable to the environment.
      * 
      * @param env the current environment
+     * @param context the context of the run
      */
     @Override
-    public void exec(Environment env)
+    public void exec(Environment env, ExecutionContext context)
     {
-        env.setVariable(var.getName(), expr.eval(env));
+        var.assign(env, expr.eval(env, context));
     }
-}
\ No newline at end of file
+
+    @Override
+    public void replaceChild(Expression oldChild, Expression newChild)
+    {
+        if (var == oldChild)
+        {
+            var = (Variable) newChild;
+        }
+        if (expr == oldChild)
+        {
+            expr = newChild;
+        }
+    }
+
+    @Override
+    public <T> T accept(StatementVisitor<T> v)
+    {
+        return v.visitAssignment(this);
+    }
+}
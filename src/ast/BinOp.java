@@ -6,15 +6,20 @@ import environment.Environment;
  * Represents a binary operation expression node in the AST.
  * Stores two operand expressions and an operator.
  * 
+ * The parser creates generic BinOps. On its first evaluation a BinOp replaces itself in its
+ * parent with the subclass for its operator, such as AddNode, so the operator is not looked
+ * at again.
+ * 
  * @author Vouk
  * @version October 15, 2025
  */
-public class BinOp extends Expression
+public sealed class BinOp extends Expression 
+        permits AddNode, SubtractNode, MultiplyNode, DivideNode
 {
-
-    private final Expression exp1;
-    private final Expression exp2;
+    protected Expression exp1;
+    protected Expression exp2;
     private final String op;
+    private BinOp specialized;
 
     /**
      * Constructs a BinOp with the given left and right expressions and operator.
@@ -25,9 +30,9 @@ public class BinOp extends Expression
      */
     public BinOp(Expression exp1, String op, Expression exp2)
     {
-        this.exp1 = exp1;
+        this.exp1 = NodeParent.adopt(this, exp1);
         this.op = op;
-        this.exp2 = exp2;
+        this.exp2 = NodeParent.adopt(this, exp2);
     }
 
     /**
@@ -57,19 +62,68 @@ public class BinOp extends Expression
         return op;
     }
 
+    /**
+     * Evaluates the operation by way of its specialized node.
+     * 
+     * @param env the environment in which to evaluate the expression
+     * @param context the context of the run
+     * @return the result of the operation
+     */
+    @Override
+    public int eval(Environment env, ExecutionContext context)
+    {
+        BinOp node = specialize();
+        if (node != null)
+        {
+            return node.eval(env, context);
+        }
+        exp1.eval(env, context);
+        exp2.eval(env, context);
+        throw new RuntimeException("Unknown operator '" + op + "'");
+    }
+
+    /**
+     * Creates the node for this operator and puts it in the place of this one, the first
+     * time it is called.
+     * 
+     * @return the specialized node, or null if the operator is unknown
+     */
+    private BinOp specialize()
+    {
+        if (specialized == null)
+        {
+            BinOp node = switch (op)
+            {
+                case "+" -> new AddNode(exp1, exp2);
+                case "-" -> new SubtractNode(exp1, exp2);
+                case "*" -> new MultiplyNode(exp1, exp2);
+                case "/" -> new DivideNode(exp1, exp2);
+                default -> null;
+            };
+            if (node != null)
+            {
+                specialized = replace(node);
+            }
+        }
+        return specialized;
+    }
+
     @Override
-    public int eval(Environment env)
+    public void replaceChild(Expression oldChild, Expression newChild)
     {
-        int l = exp1.eval(env);
-        int r = exp2.eval(env);
-        return switch (op)
+        if (exp1 == oldChild)
         {
-            case "+" -> l + r;
-            case "-" -> l - r;
-            case "*" -> l * r;
-            case "/" -> l / r;
-            default -> throw new RuntimeException("Unknown operator '" + op + "'");
-        };
+            exp1 = newChild;
+        }
+        if (exp2 == oldChild)
+        {
+            exp2 = newChild;
+        }
+    }
+
+    @Override
+    public <T> T accept(ExpressionVisitor<T> v)
+    {
+        return v.visitBinOp(this);
     }
-    
 }
@@ -48,13 +48,53 @@ public class Block extends Statement
      * Executes all statements in this Block
      * 
      * @param env the envirnoment in which the code is being run
+     * @param context the context of the run
      */
     @Override
-    public void exec(Environment env)
+    public void exec(Environment env, ExecutionContext context)
     {
         for (Statement stmt : statements)
         {
-            stmt.exec(env);
+            stmt.exec(env, context);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Records the position of every loop in this Block.
+     * 
+     * @param path the position of this Block
+     */
+    @Override
+    public void locate(int[] path)
+    {
+        for (int i = 0; i < statements.size(); i++)
+        {
+            statements.get(i).locate(childPath(path, i));
+        }
+    }
+
+    /**
+     * Resumes the statement that contains the back-edge, then runs the statements after it.
+     * 
+     * @param env the environment in which the code is being run
+     * @param context the context of the run
+     * @param path the position of the loop back-edge
+     * @param depth the index in path of the statement to resume
+     */
+    @Override
+    public void resume(Environment env, ExecutionContext context, int[] path, int depth)
+    {
+        int start = path[depth];
+        statements.get(start).resume(env, context, path, depth + 1);
+        for (int i = start + 1; i < statements.size(); i++)
+        {
+            statements.get(i).exec(env, context);
+        }
+    }
+
+    @Override
+    public <T> T accept(StatementVisitor<T> v)
+    {
+        return v.visitBlock(this);
+    }
+}
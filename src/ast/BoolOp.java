@@ -0,0 +1,115 @@
+package ast;
+
+import environment.Environment;
+
+/**
+ * Represents an AND or OR of two conditions in the AST. The right operand is only
+ * evaluated when the left one does not decide the result.
+ * 
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class BoolOp extends Expression
+{
+    public static final String AND = "AND";
+    public static final String OR = "OR";
+
+    private Expression exp1;
+    private final String op;
+    private final boolean and;
+    private Expression exp2;
+
+    /**
+     * Constructs a BoolOp with the given operands and operator.
+     * 
+     * @param e1 the left operand
+     * @param op the operator, AND or OR
+     * @param e2 the right operand
+     * @throws IllegalArgumentException if the operator is not AND or OR
+     */
+    public BoolOp(Expression e1, String op, Expression e2)
+    {
+        if (!op.equals(AND) && !op.equals(OR))
+        {
+            throw new IllegalArgumentException("Unknown operator '" + op + "'");
+        }
+        this.exp1 = NodeParent.adopt(this, e1);
+        this.op = op;
+        this.and = op.equals(AND);
+        this.exp2 = NodeParent.adopt(this, e2);
+    }
+
+    /**
+     * Returns the left operand.
+     * @return the left operand
+     */
+    public Expression getExp1()
+    {
+        return exp1;
+    }
+
+    /**
+     * Returns the operator.
+     * @return AND or OR
+     */
+    public String getOp()
+    {
+        return op;
+    }
+
+    /**
+     * Returns the right operand.
+     * @return the right operand
+     */
+    public Expression getExp2()
+    {
+        return exp2;
+    }
+
+    /**
+     * Evaluates the operation in the given environment and returns 1 if true, 0 if false.
+     * 
+     * @param env the environment in which to evaluate the operation
+     * @param context the context of the run
+     * @return 1 if the operation is true, 0 if false
+     */
+    @Override
+    public int eval(Environment env, ExecutionContext context)
+    {
+        return test(env, context) ? 1 : 0;
+    }
+
+    /**
+     * Tests the operation in the given environment, evaluating the right operand only if
+     * the left one does not decide the result.
+     * 
+     * @param env the environment in which to evaluate the operation
+     * @param context the context of the run
+     * @return true if the operation holds
+     */
+    @Override
+    public boolean test(Environment env, ExecutionContext context)
+    {
+        return and ? exp1.test(env, context) && exp2.test(env, context)
+                : exp1.test(env, context) || exp2.test(env, context);
+    }
+
+    @Override
+    public void replaceChild(Expression oldChild, Expression newChild)
+    {
+        if (exp1 == oldChild)
+        {
+            exp1 = newChild;
+        }
+        if (exp2 == oldChild)
+        {
+            exp2 = newChild;
+        }
+    }
+
+    @Override
+    public <T> T accept(ExpressionVisitor<T> v)
+    {
+        return v.visitBoolOp(this);
+    }
+}
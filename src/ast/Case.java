@@ -0,0 +1,226 @@
+package ast;
+
+import environment.Environment;
+import java.util.Arrays;
+
+/**
+ * Represents a CASE statement in the AST, which runs the arm whose label equals the value
+ * of its selector, or else its ELSE statement, if it has one.
+ *
+ * The labels are kept sorted, each with the index of its arm. When they are dense, as
+ * isDense decides, the arm is found through a table indexed by the value minus the smallest
+ * label, and otherwise by a binary search over the labels, so finding it never takes more
+ * than a logarithmic number of comparisons, however many arms there are.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class Case extends Statement
+{
+    private Expression selector;
+    private final int[] labels;
+    private final int[] targets;
+    private final Statement[] arms;
+    private final Statement otherwise;
+    private final int[] table;
+
+    /**
+     * Constructs a CASE statement.
+     *
+     * Precondition: labels is sorted in increasing order without repeats, targets has the
+     * same length, and every target is an index in arms.
+     *
+     * @param selector the expression whose value picks the arm
+     * @param labels the labels of all the arms
+     * @param targets the index of the arm of each label
+     * @param arms the statements of the arms
+     * @param otherwise the statement run when no label matches, or null if there is none
+     */
+    public Case(Expression selector, int[] labels, int[] targets, Statement[] arms,
+            Statement otherwise)
+    {
+        this.selector = NodeParent.adopt(this, selector);
+        this.labels = labels;
+        this.targets = targets;
+        this.arms = arms;
+        this.otherwise = otherwise;
+        if (isDense(labels))
+        {
+            table = new int[labels[labels.length - 1] - labels[0] + 1];
+            Arrays.fill(table, -1);
+            for (int k = 0; k < labels.length; k++)
+            {
+                table[labels[k] - labels[0]] = targets[k];
+            }
+        }
+        else
+        {
+            table = null;
+        }
+    }
+
+    /**
+     * Decides whether a set of labels is dense enough to be dispatched through a table, with
+     * the cost javac uses to choose between tableswitch and lookupswitch: a table costs one
+     * entry per value between the smallest and the largest label and a constant time, a
+     * search costs two entries and one comparison per label.
+     *
+     * @param labels the labels, sorted in increasing order
+     * @return true if a table is no more costly than a search
+     */
+    public static boolean isDense(int[] labels)
+    {
+        if (labels.length == 0)
+        {
+            return false;
+        }
+        long span = (long) labels[labels.length - 1] - labels[0] + 1;
+        long tableCost = 4 + span + 3 * 3;
+        long searchCost = 3 + 2L * labels.length + 3L * labels.length;
+        return tableCost <= searchCost;
+    }
+
+    /**
+     * Returns the expression whose value picks the arm.
+     *
+     * @return the selector
+     */
+    public Expression getSelector()
+    {
+        return selector;
+    }
+
+    /**
+     * Returns the labels of all the arms, sorted in increasing order.
+     *
+     * @return the labels
+     */
+    public int[] getLabels()
+    {
+        return labels;
+    }
+
+    /**
+     * Returns the index of the arm of each label.
+     *
+     * @return the targets, in the order of the labels
+     */
+    public int[] getTargets()
+    {
+        return targets;
+    }
+
+    /**
+     * Returns the statements of the arms.
+     *
+     * @return the arms
+     */
+    public Statement[] getArms()
+    {
+        return arms;
+    }
+
+    /**
+     * Returns the statement run when no label matches.
+     *
+     * @return the ELSE statement, or null if there is none
+     */
+    public Statement getElse()
+    {
+        return otherwise;
+    }
+
+    /**
+     * Returns whether the arm is found through a table rather than a binary search.
+     *
+     * @return true if the labels are dense
+     */
+    public boolean isDense()
+    {
+        return table != null;
+    }
+
+    /**
+     * Finds the arm a value selects, through the table if the labels are dense and by a
+     * binary search otherwise.
+     *
+     * @param value the value of the selector
+     * @return the index of the arm, or -1 if no label equals the value
+     */
+    public int select(int value)
+    {
+        if (table != null)
+        {
+            long offset = (long) value - labels[0];
+            return offset >= 0 && offset < table.length ? table[(int) offset] : -1;
+        }
+        int k = Arrays.binarySearch(labels, value);
+        return k >= 0 ? targets[k] : -1;
+    }
+
+    /**
+     * Executes the arm the value of the selector picks, or the ELSE statement if no label
+     * matches.
+     *
+     * @param env the environment in which to execute the statement
+     * @param context the context of the run
+     */
+    @Override
+    public void exec(Environment env, ExecutionContext context)
+    {
+        int arm = select(selector.eval(env, context));
+        Statement s = arm >= 0 ? arms[arm] : otherwise;
+        if (s != null)
+        {
+            s.exec(env, context);
+        }
+    }
+
+    /**
+     * Records the position of every loop in the arms. The ELSE statement follows the arms.
+     *
+     * @param path the position of this statement
+     */
+    @Override
+    public void locate(int[] path)
+    {
+        for (int k = 0; k < arms.length; k++)
+        {
+            arms[k].locate(childPath(path, k));
+        }
+        if (otherwise != null)
+        {
+            otherwise.locate(childPath(path, arms.length));
+        }
+    }
+
+    /**
+     * Resumes the arm that contains the back-edge without evaluating the selector again.
+     *
+     * @param env the environment in which to execute the statement
+     * @param context the context of the run
+     * @param path the position of the loop back-edge
+     * @param depth the index in path of the arm to resume
+     */
+    @Override
+    public void resume(Environment env, ExecutionContext context, int[] path, int depth)
+    {
+        (path[depth] < arms.length ? arms[path[depth]] : otherwise).resume(env, context, path,
+                depth + 1);
+    }
+
+    @Override
+    public void replaceChild(Expression oldChild, Expression newChild)
+    {
+        if (selector == oldChild)
+        {
+            selector = newChild;
+        }
+    }
+
+    @Override
+    public <T> T accept(StatementVisitor<T> v)
+    {
+        return v.visitCase(this);
+    }
+}
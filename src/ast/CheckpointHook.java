@@ -0,0 +1,20 @@
+package ast;
+
+import environment.Environment;
+
+/**
+ * What loops tell about their back-edges so the state of the program can be saved there.
+ *
+ * @author Vouk
+ * @version October 19, 2026
+ */
+public interface CheckpointHook
+{
+    /**
+     * Called by loops each time they finish an iteration.
+     *
+     * @param env the environment the loop is running in
+     * @param position the position of the loop, or null if it cannot be resumed
+     */
+    void backEdge(Environment env, int[] position);
+}
@@ -0,0 +1,40 @@
+package ast;
+
+import environment.Environment;
+
+/**
+ * What procedure calls tell about the procedures they invoke, so hot procedures can run as
+ * compiled code instead of in the interpreter.
+ *
+ * @author Vouk
+ * @version October 19, 2026
+ */
+public interface CompileHook
+{
+    /**
+     * Records an invocation of a procedure and returns its compiled code, if it has any.
+     *
+     * Precondition: Every procedure of the program is registered in the root of env.
+     * Postcondition: Returns null if the procedure should be interpreted.
+     *
+     * @param p the procedure being invoked
+     * @param env the environment of the caller
+     * @return the compiled code, or null if there is none
+     */
+    Code enter(ProcedureDeclaration p, Environment env);
+
+    /**
+     * The entry point of a compiled procedure.
+     */
+    interface Code
+    {
+        /**
+         * Runs the compiled procedure.
+         *
+         * @param root the root environment of the program
+         * @param args the argument values, in parameter order
+         * @return the value of the procedure's return variable
+         */
+        int call(Environment root, int[] args);
+    }
+}
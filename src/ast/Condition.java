@@ -5,14 +5,19 @@ import environment.Environment;
 /**
  * Represents a condition in the AST.
  * 
+ * Like BinOp, a generic Condition replaces itself on its first evaluation with the subclass
+ * for its operator, such as LessThanNode.
+ * 
  * @author Vouk
  * @version October 15, 2025
  */
-public class Condition extends Expression
+public sealed class Condition extends Expression permits EqualNode, NotEqualNode, 
+        LessThanNode, LessEqualNode, GreaterThanNode, GreaterEqualNode
 {
-    private final Expression exp1;
+    protected Expression exp1;
     private final String op;
-    private final Expression exp2;
+    protected Expression exp2;
+    private Condition specialized;
 
     /**
      * Constructs a Condition with the given expressions and operator.
@@ -23,36 +28,118 @@ public class Condition extends Expression
      */
     public Condition(Expression e1, String op, Expression e2)
     {
-        this.exp1 = e1;
+        this.exp1 = NodeParent.adopt(this, e1);
         this.op = op;
-        this.exp2 = e2;
+        this.exp2 = NodeParent.adopt(this, e2);
+    }
+
+    /**
+     * Returns the left operand expression.
+     * @return the left operand expression
+     */
+    public Expression getExp1()
+    {
+        return exp1;
+    }
+
+    /**
+     * Returns the comparison operator.
+     * @return the operator
+     */
+    public String getOp()
+    {
+        return op;
+    }
+
+    /**
+     * Returns the right operand expression.
+     * @return the right operand expression
+     */
+    public Expression getExp2()
+    {
+        return exp2;
     }
 
     /**
      * Evaluates the condition in the given environment and returns 1 if true, 0 if false.
      * 
      * @param env the environment in which to evaluate the condition
+     * @param context the context of the run
      * @return 1 if the condition is true, 0 if false
      */
     @Override
-    public int eval(Environment env)
+    public int eval(Environment env, ExecutionContext context)
+    {
+        Condition node = specialize();
+        if (node == null)
+        {
+            throw new RuntimeException("Unkown operator '" + op + "'");
+        }
+        return node.eval(env, context);
+    }
+
+    /**
+     * Tests the condition in the given environment.
+     * 
+     * @param env the environment in which to evaluate the condition
+     * @param context the context of the run
+     * @return true if the condition holds
+     */
+    @Override
+    public boolean test(Environment env, ExecutionContext context)
+    {
+        Condition node = specialize();
+        if (node == null)
+        {
+            throw new RuntimeException("Unkown operator '" + op + "'");
+        }
+        return node.test(env, context);
+    }
+
+    /**
+     * Creates the node for this operator and puts it in the place of this one, the first
+     * time it is called.
+     * 
+     * @return the specialized node, or null if the operator is unknown
+     */
+    private Condition specialize()
     {
-        switch (op)
+        if (specialized == null)
         {
-            case "=" :
-                return exp1.eval(env) == exp2.eval(env) ? 1 : 0;
-            case ">" :
-                return exp1.eval(env) > exp2.eval(env) ? 1 : 0;
-            case "<" :
-                return exp1.eval(env) < exp2.eval(env) ? 1 : 0;
-            case ">=" :
-                return exp1.eval(env) >= exp2.eval(env) ? 1 : 0;
-            case "<=" :
-                return exp1.eval(env) <= exp2.eval(env) ? 1 : 0;
-            case "<>" :
-                return exp1.eval(env) != exp2.eval(env) ? 1 : 0;
-            default :
-                throw new RuntimeException("Unkown operator '" + op + "'");
+            Condition node = switch (op)
+            {
+                case "=" -> new EqualNode(exp1, exp2);
+                case "<>" -> new NotEqualNode(exp1, exp2);
+                case "<" -> new LessThanNode(exp1, exp2);
+                case "<=" -> new LessEqualNode(exp1, exp2);
+                case ">" -> new GreaterThanNode(exp1, exp2);
+                case ">=" -> new GreaterEqualNode(exp1, exp2);
+                default -> null;
+            };
+            if (node != null)
+            {
+                specialized = replace(node);
+            }
         }
+        return specialized;
+    }
+
+    @Override
+    public void replaceChild(Expression oldChild, Expression newChild)
+    {
+        if (exp1 == oldChild)
+        {
+            exp1 = newChild;
+        }
+        if (exp2 == oldChild)
+        {
+            exp2 = newChild;
+        }
+    }
+
+    @Override
+    public <T> T accept(ExpressionVisitor<T> v)
+    {
+        return v.visitCondition(this);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,159 @@
+package ast;
+
+/**
+ * What a run of a program uses besides its variables: the hooks installed for the run, which
+ * the other packages implement, and the call in tail position the procedure running last
+ * left to be made once its body has finished. Each backend that runs a program receives one, while the
+ * Environment only stores variables, arrays and procedures.
+ *
+ * @author Vouk
+ * @version October 19, 2026
+ */
+public class ExecutionContext
+{
+    private CheckpointHook checkpointer;
+    private CompileHook compiler;
+    private LoopHook loopCompiler;
+    private MemoHook memoizer;
+    private ProfileHook profile;
+    private ProcedureDeclaration tailProcedure;
+    private int[] tailArgs;
+
+    /**
+     * Installs a checkpointer, so loops in the main body take checkpoints. The root
+     * environment must track its changes while it is installed.
+     *
+     * @param c the checkpointer to use, or null to stop checkpointing
+     */
+    public void setCheckpointer(CheckpointHook c)
+    {
+        checkpointer = c;
+    }
+
+    /**
+     * Returns the checkpointer.
+     *
+     * @return the checkpointer, or null if checkpointing is off
+     */
+    public CheckpointHook getCheckpointer()
+    {
+        return checkpointer;
+    }
+
+    /**
+     * Installs a compiler, so hot procedures run as compiled code.
+     *
+     * @param c the compiler to use, or null to interpret every procedure
+     */
+    public void setCompiler(CompileHook c)
+    {
+        compiler = c;
+    }
+
+    /**
+     * Returns the compiler.
+     *
+     * @return the compiler, or null if there is none
+     */
+    public CompileHook getCompiler()
+    {
+        return compiler;
+    }
+
+    /**
+     * Installs a compiler of loops, so hot loops finish as compiled code.
+     *
+     * @param c the compiler to use, or null to interpret every loop
+     */
+    public void setLoopCompiler(LoopHook c)
+    {
+        loopCompiler = c;
+    }
+
+    /**
+     * Returns the compiler of loops.
+     *
+     * @return the compiler of loops, or null if there is none
+     */
+    public LoopHook getLoopCompiler()
+    {
+        return loopCompiler;
+    }
+
+    /**
+     * Installs a memoizer, so calls to pure procedures remember their results.
+     *
+     * @param m the memoizer to use, or null to run every call
+     */
+    public void setMemoizer(MemoHook m)
+    {
+        memoizer = m;
+    }
+
+    /**
+     * Returns the memoizer.
+     *
+     * @return the memoizer, or null if there is none
+     */
+    public MemoHook getMemoizer()
+    {
+        return memoizer;
+    }
+
+    /**
+     * Installs a profile, so branches, loops and calls record how they run.
+     *
+     * @param p the profile to record into, or null to record nothing
+     */
+    public void setProfile(ProfileHook p)
+    {
+        profile = p;
+    }
+
+    /**
+     * Returns the profile.
+     *
+     * @return the profile, or null if there is none
+     */
+    public ProfileHook getProfile()
+    {
+        return profile;
+    }
+
+    /**
+     * Leaves a call in tail position for the procedure running now to make once its body has
+     * finished. Nothing runs between the call and the end of that body, so one call is left
+     * at a time.
+     *
+     * @param p the procedure to call
+     * @param args the argument values, in parameter order
+     */
+    public void setTailCall(ProcedureDeclaration p, int[] args)
+    {
+        tailProcedure = p;
+        tailArgs = args;
+    }
+
+    /**
+     * Returns the procedure of the call left, and clears it, so the next body that finishes
+     * without leaving one returns.
+     *
+     * @return the procedure, or null if no call was left
+     */
+    public ProcedureDeclaration takeTailProcedure()
+    {
+        ProcedureDeclaration p = tailProcedure;
+        tailProcedure = null;
+        return p;
+    }
+
+    /**
+     * Returns the argument values of the call last left.
+     *
+     * @return the values, in parameter order
+     */
+    public int[] getTailArgs()
+    {
+        return tailArgs;
+    }
+}
@@ -8,13 +8,79 @@ import environment.Environment;
  * @author Vouki
  * @version October 15, 2025
  */
-public abstract class Expression 
+public abstract class Expression implements NodeParent
 {
+    private NodeParent parent;
+
     /**
      * Evaluates the expression in the given environment and returns its numeric value.
      * 
      * @param env the environment in which to evaluate the expression
+     * @param context the context of the run
      * @return the integer of the expression
      */
-    public abstract int eval(Environment env);
-}
\ No newline at end of file
+    public abstract int eval(Environment env, ExecutionContext context);
+
+    /**
+     * Evaluates the expression as the condition of a branch or loop. Conditions override
+     * this to test without producing 0 or 1 first.
+     * 
+     * @param env the environment in which to evaluate the expression
+     * @param context the context of the run
+     * @return true if the expression evaluates to 1
+     */
+    public boolean test(Environment env, ExecutionContext context)
+    {
+        return eval(env, context) == 1;
+    }
+
+    /**
+     * Calls the method of the visitor that handles this kind of expression.
+     * 
+     * @param <T> the type the visitor returns
+     * @param v the visitor
+     * @return the result of the visit
+     */
+    public abstract <T> T accept(ExpressionVisitor<T> v);
+
+    /**
+     * Records the node that holds this expression.
+     * 
+     * @param p the parent
+     */
+    void setParent(NodeParent p)
+    {
+        parent = p;
+    }
+
+    /**
+     * Puts a specialized node in the place of this expression in its parent.
+     * 
+     * Precondition: node computes the same value as this expression.
+     * Postcondition: The parent, if any, holds node instead of this expression.
+     * 
+     * @param <T> the type of the specialized node
+     * @param node the specialized node
+     * @return the specialized node
+     */
+    protected final <T extends Expression> T replace(T node)
+    {
+        if (parent != null)
+        {
+            parent.replaceChild(this, node);
+        }
+        node.setParent(parent);
+        return node;
+    }
+
+    /**
+     * Replaces a child expression. Expressions without children have nothing to replace.
+     * 
+     * @param oldChild the child to replace
+     * @param newChild the node to put in its place
+     */
+    @Override
+    public void replaceChild(Expression oldChild, Expression newChild)
+    {
+    }
+}
@@ -0,0 +1,68 @@
+package ast;
+
+/**
+ * A visitor over the expression nodes of the AST, used by passes and compilers that
+ * walk the tree without adding a method to every node class.
+ * 
+ * @param <T> the type each visit returns
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public interface ExpressionVisitor<T>
+{
+    /**
+     * Visits a numeric literal.
+     * @param n the node
+     * @return the result of the visit
+     */
+    T visitNumber(Number n);
+
+    /**
+     * Visits a variable reference.
+     * @param v the node
+     * @return the result of the visit
+     */
+    T visitVariable(Variable v);
+
+    /**
+     * Visits a binary operation.
+     * @param b the node
+     * @return the result of the visit
+     */
+    T visitBinOp(BinOp b);
+
+    /**
+     * Visits a comparison.
+     * @param c the node
+     * @return the result of the visit
+     */
+    T visitCondition(Condition c);
+
+    /**
+     * Visits a procedure call.
+     * @param p the node
+     * @return the result of the visit
+     */
+    T visitProcedureCall(ProcedureCall p);
+
+    /**
+     * Visits an array element reference.
+     * @param a the node
+     * @return the result of the visit
+     */
+    T visitArrayElement(ArrayElement a);
+
+    /**
+     * Visits an AND or OR of two conditions.
+     * @param b the node
+     * @return the result of the visit
+     */
+    T visitBoolOp(BoolOp b);
+
+    /**
+     * Visits a NOT of a condition.
+     * @param n the node
+     * @return the result of the visit
+     */
+    T visitNot(Not n);
+}
@@ -1,19 +1,31 @@
 package ast;
 
 import environment.Environment;
+import java.util.Collections;
 
 /**
  * Represents a for loop statement in the AST.
  * 
+ * A loop whose variable has a slot that the body cannot assign runs as a counted loop: the
+ * loop variable is kept in a Java local and written back to its slot only when the body or
+ * the bound can read it, when a checkpointer, JIT compiler or profile is watching the
+ * back-edges, and when the loop ends. If the bound cannot change while the loop runs, it is evaluated
+ * once. Every other loop tests its condition and runs its update statement each iteration.
+ * 
  * @author Vouk
- * @version October 15, 2025
+ * @version October 19, 2026
  */
 public class For extends Statement
 {
     private final Assignment initialization;
     private final Statement varUpdate;
-    private final Condition condition;
+    private Condition condition;
     private final Statement body;
+    private final Expression maxVal;
+    private final boolean counted;
+    private final boolean fixedBound;
+    private final boolean observed;
+    private int[] position;
 
     /**
      * Constructs a For statement with the given initialization, maximum number, and body.
@@ -26,25 +38,257 @@ public class For extends Statement
     {
         this.initialization = initialization;
         Variable loopVar = initialization.getVar();
-        this.varUpdate = new Assignment(loopVar, new BinOp(loopVar, "+", new Number(1)));
-        this.condition = new Condition(loopVar, "<", maxVal);
+        // each node gets its own copy of the loop variable, so each copy has one parent
+        this.varUpdate = new Assignment(copy(loopVar), 
+                new BinOp(copy(loopVar), "+", new Number(1)));
+        this.condition = NodeParent.adopt(this, new Condition(copy(loopVar), "<", maxVal));
         this.body = body;
+        this.maxVal = maxVal;
+
+        VariableUses inBody = VariableUses.of(body);
+        VariableUses inBound = VariableUses.of(maxVal);
+        String name = loopVar.getName();
+        // a callee cannot see the caller's frame, but it can assign a global
+        counted = loopVar.getSlot() >= 0 && !inBody.getWrites().contains(name)
+                && (loopVar.isLocal() || !inBody.hasCall());
+        if (inBound.hasCall() || inBound.getReads().contains(name))
+        {
+            fixedBound = false;
+        }
+        else if (inBody.hasCall())
+        {
+            fixedBound = inBound.getReads().isEmpty() && inBound.getArrayReads().isEmpty();
+        }
+        else
+        {
+            fixedBound = Collections.disjoint(inBound.getReads(), inBody.getWrites())
+                    && Collections.disjoint(inBound.getArrayReads(), inBody.getArrayWrites());
+        }
+        observed = !fixedBound || inBody.getReads().contains(name);
+    }
+
+    /**
+     * Returns a new node for the same variable.
+     * 
+     * @param v the variable
+     * @return the copy
+     */
+    private static Variable copy(Variable v)
+    {
+        return new Variable(v.getName(), v.getSlot(), v.isLocal());
+    }
+
+    /**
+     * Returns the assignment that initializes the loop variable.
+     * 
+     * @return the initialization
+     */
+    public Assignment getInitialization()
+    {
+        return initialization;
+    }
+
+    /**
+     * Returns the expression for the bound the loop variable counts up to, exclusive.
+     * 
+     * @return the maximum value expression
+     */
+    public Expression getMaxVal()
+    {
+        return maxVal;
+    }
+
+    /**
+     * Returns the condition tested before each iteration.
+     * 
+     * @return the loop condition
+     */
+    public Condition getCondition()
+    {
+        return condition;
+    }
+
+    /**
+     * Returns the statement that increments the loop variable after each iteration.
+     * 
+     * @return the update statement
+     */
+    public Statement getVarUpdate()
+    {
+        return varUpdate;
+    }
+
+    /**
+     * Returns the body of the loop.
+     * 
+     * @return the body
+     */
+    public Statement getBody()
+    {
+        return body;
     }
 
     /**
      * Executes the for loop in the given environment.
      * 
      * @param env the environment in which to execute the statement
+     * @param context the context of the run
      */
     @Override
-    public void exec(Environment env)
+    public void exec(Environment env, ExecutionContext context)
+    {
+        initialization.exec(env, context);
+        ProfileHook profile = context.getProfile();
+        if (profile != null)
+        {
+            profile.loop(this);
+        }
+        loop(env, context);
+    }
+
+    /**
+     * Runs the remaining iterations of the loop, without initializing the loop variable.
+     * 
+     * @param env the environment in which to execute the statement
+     * @param context the context of the run
+     */
+    private void loop(Environment env, ExecutionContext context)
     {
-        initialization.exec(env);
-        while (condition.eval(env) == 1)
+        if (counted)
         {
-            body.exec(env);
-            varUpdate.exec(env);
+            countedLoop(env, context);
+            return;
         }
+        while (condition.test(env, context))
+        {
+            body.exec(env, context);
+            varUpdate.exec(env, context);
+            if (backEdge(env, context))
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Runs the remaining iterations of a counted loop, with the loop variable in a local.
+     * 
+     * Precondition: The loop variable has a slot and the body cannot assign it.
+     * Postcondition: The slot holds the final value of the loop variable.
+     * 
+     * @param env the environment in which to execute the statement
+     * @param context the context of the run
+     */
+    private void countedLoop(Environment env, ExecutionContext context)
+    {
+        Variable loopVar = initialization.getVar();
+        int slot = loopVar.getSlot();
+        Environment slots = loopVar.isLocal() ? env : env.getRoot();
+        boolean write = observed || context.getCheckpointer() != null || context.getLoopCompiler() != null
+                || context.getProfile() != null;
+        Expression bound = condition.getExp2();
+        int max = fixedBound ? bound.eval(env, context) : 0;
+        int i = slots.getSlot(slot);
+        while (i < (fixedBound ? max : bound.eval(env, context)))
+        {
+            body.exec(env, context);
+            i++;
+            if (write)
+            {
+                slots.setSlot(slot, i);
+                if (backEdge(env, context))
+                {
+                    return;
+                }
+            }
+        }
+        slots.setSlot(slot, i);
+    }
+
+    /**
+     * Lets the profile, if there is one, count the iteration. Lets the checkpointer, if there
+     * is one, know that an iteration has finished. Otherwise lets the JIT compiler, if there
+     * is one, count the back-edge, and once it has compiled the loop runs the remaining
+     * iterations in the compiled code.
+     * 
+     * @param env the environment in which the loop is running
+     * @param context the context of the run
+     * @return true if the compiled code has finished the loop
+     */
+    private boolean backEdge(Environment env, ExecutionContext context)
+    {
+        ProfileHook profile = context.getProfile();
+        if (profile != null)
+        {
+            profile.iteration(this);
+        }
+        CheckpointHook checkpointer = context.getCheckpointer();
+        if (checkpointer != null)
+        {
+            checkpointer.backEdge(env, position);
+            return false;
+        }
+        LoopHook jit = context.getLoopCompiler();
+        if (jit != null)
+        {
+            LoopHook.Code code = jit.backEdge(this, env);
+            if (code != null)
+            {
+                code.resume(env);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Records the position of this loop and of every loop in its body.
+     * 
+     * @param path the position of this loop
+     */
+    @Override
+    public void locate(int[] path)
+    {
+        position = path;
+        body.locate(childPath(path, 0));
+    }
+
+    /**
+     * Resumes the loop, either at its own back-edge or at a back-edge inside its body.
+     * The loop variable is not initialized again.
+     * 
+     * @param env the environment in which to execute the statement
+     * @param context the context of the run
+     * @param path the position of the loop back-edge
+     * @param depth the index in path of the body, or path.length if the back-edge is this loop's
+     */
+    @Override
+    public void resume(Environment env, ExecutionContext context, int[] path, int depth)
+    {
+        if (depth < path.length)
+        {
+            body.resume(env, context, path, depth + 1);
+            varUpdate.exec(env, context);
+            if (backEdge(env, context))
+            {
+                return;
+            }
+        }
+        loop(env, context);
+    }
+
+    @Override
+    public void replaceChild(Expression oldChild, Expression newChild)
+    {
+        if (condition == oldChild)
+        {
+            condition = (Condition) newChild;
+        }
+    }
+
+    @Override
+    public <T> T accept(StatementVisitor<T> v)
+    {
+        return v.visitFor(this);
     }
-    
 }
@@ -0,0 +1,38 @@
+package ast;
+
+import environment.Environment;
+
+/**
+ * A Variable specialized for a variable stored in a slot of the root environment.
+ * 
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class GlobalSlotVariable extends Variable
+{
+    private final int slot;
+
+    /**
+     * Constructs a GlobalSlotVariable.
+     * 
+     * @param name the name of the variable
+     * @param slot the index of the slot
+     */
+    public GlobalSlotVariable(String name, int slot)
+    {
+        super(name, slot, false);
+        this.slot = slot;
+    }
+
+    @Override
+    public int eval(Environment env, ExecutionContext context)
+    {
+        return env.getRoot().getSlot(slot);
+    }
+
+    @Override
+    public void assign(Environment env, int value)
+    {
+        env.getRoot().setSlot(slot, value);
+    }
+}
@@ -0,0 +1,35 @@
+package ast;
+
+import environment.Environment;
+
+/**
+ * A Condition specialized to test whether the left operand is greater than or equal to the right.
+ * 
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class GreaterEqualNode extends Condition
+{
+    /**
+     * Constructs a GreaterEqualNode.
+     * 
+     * @param e1 the left operand expression
+     * @param e2 the right operand expression
+     */
+    public GreaterEqualNode(Expression e1, Expression e2)
+    {
+        super(e1, ">=", e2);
+    }
+
+    @Override
+    public int eval(Environment env, ExecutionContext context)
+    {
+        return test(env, context) ? 1 : 0;
+    }
+
+    @Override
+    public boolean test(Environment env, ExecutionContext context)
+    {
+        return exp1.eval(env, context) >= exp2.eval(env, context);
+    }
+}
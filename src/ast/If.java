@@ -10,7 +10,7 @@ import environment.Environment;
  */
 public class If extends Statement
 {
-    private final Condition condition;
+    private Expression condition;
     private final Statement statement;
     private final Statement elseS;
 
@@ -20,9 +20,9 @@ public class If extends Statement
      * @param c the condition to evaluate
      * @param s the statement to execute if the condition is true
      */
-    public If(Condition c, Statement s)
+    public If(Expression c, Statement s)
     {
-        this.condition = c;
+        this.condition = NodeParent.adopt(this, c);
         this.statement = s;
         this.elseS = null;
     }
@@ -34,28 +34,110 @@ public class If extends Statement
      * @param s1 the statement to execute if the condition is true
      * @param s2 the statement to execute if the condition is false
      */
-    public If(Condition c, Statement s1, Statement s2)
+    public If(Expression c, Statement s1, Statement s2)
     {
-        this.condition = c;
+        this.condition = NodeParent.adopt(this, c);
         this.statement = s1;
         this.elseS = s2;
     }
 
     /**
-     * Executes the if statement in the given environment.
+     * Returns the condition of the if statement.
+     * 
+     * @return the condition
+     */
+    public Expression getCondition()
+    {
+        return condition;
+    }
+
+    /**
+     * Returns the statement executed if the condition is true.
+     * 
+     * @return the then statement
+     */
+    public Statement getStatement()
+    {
+        return statement;
+    }
+
+    /**
+     * Returns the statement executed if the condition is false.
+     * 
+     * @return the else statement, or null if there is none
+     */
+    public Statement getElse()
+    {
+        return elseS;
+    }
+
+    /**
+     * Executes the if statement in the given environment. The condition is evaluated once,
+     * and the branch it takes is recorded in the profile, if there is one.
      * 
      * @param env the environment in which to execute the statement
+     * @param context the context of the run
      */
     @Override
-    public void exec(Environment env)
+    public void exec(Environment env, ExecutionContext context)
     {
-        if (condition.eval(env) == 1)
+        boolean taken = condition.test(env, context);
+        ProfileHook profile = context.getProfile();
+        if (profile != null)
         {
-            statement.exec(env);
+            profile.branch(this, taken);
         }
-        else if (condition.eval(env) == 0 && elseS != null)
+        if (taken)
         {
-            elseS.exec(env);
+            statement.exec(env, context);
         }
+        else if (elseS != null)
+        {
+            elseS.exec(env, context);
+        }
+    }
+
+    /**
+     * Records the position of every loop in either branch.
+     * 
+     * @param path the position of this statement
+     */
+    @Override
+    public void locate(int[] path)
+    {
+        statement.locate(childPath(path, 0));
+        if (elseS != null)
+        {
+            elseS.locate(childPath(path, 1));
+        }
+    }
+
+    /**
+     * Resumes the branch that contains the back-edge without evaluating the condition again.
+     * 
+     * @param env the environment in which to execute the statement
+     * @param context the context of the run
+     * @param path the position of the loop back-edge
+     * @param depth the index in path of the branch to resume
+     */
+    @Override
+    public void resume(Environment env, ExecutionContext context, int[] path, int depth)
+    {
+        (path[depth] == 0 ? statement : elseS).resume(env, context, path, depth + 1);
+    }
+
+    @Override
+    public void replaceChild(Expression oldChild, Expression newChild)
+    {
+        if (condition == oldChild)
+        {
+            condition = newChild;
+        }
+    }
+
+    @Override
+    public <T> T accept(StatementVisitor<T> v)
+    {
+        return v.visitIf(this);
     }
-}
\ No newline at end of file
+}
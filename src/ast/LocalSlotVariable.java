@@ -0,0 +1,38 @@
+package ast;
+
+import environment.Environment;
+
+/**
+ * A Variable specialized for a variable stored in a slot of the procedure frame it is evaluated in.
+ * 
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class LocalSlotVariable extends Variable
+{
+    private final int slot;
+
+    /**
+     * Constructs a LocalSlotVariable.
+     * 
+     * @param name the name of the variable
+     * @param slot the index of the slot
+     */
+    public LocalSlotVariable(String name, int slot)
+    {
+        super(name, slot, true);
+        this.slot = slot;
+    }
+
+    @Override
+    public int eval(Environment env, ExecutionContext context)
+    {
+        return env.getSlot(slot);
+    }
+
+    @Override
+    public void assign(Environment env, int value)
+    {
+        env.setSlot(slot, value);
+    }
+}
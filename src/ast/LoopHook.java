@@ -0,0 +1,38 @@
+package ast;
+
+import environment.Environment;
+
+/**
+ * What loops tell about their back-edges, so a hot loop can run the rest of its iterations
+ * as compiled code instead of in the interpreter.
+ *
+ * @author Vouk
+ * @version October 19, 2026
+ */
+public interface LoopHook
+{
+    /**
+     * Records a back-edge of a loop and returns the compiled rest of the loop, if it has any.
+     *
+     * Precondition: Every procedure of the program is registered in the root of env.
+     * Postcondition: Returns null if the loop should keep running in the interpreter.
+     *
+     * @param loop the While or For loop
+     * @param env the environment the loop is running in
+     * @return the compiled loop, or null if there is none
+     */
+    Code backEdge(Statement loop, Environment env);
+
+    /**
+     * The entry point of a compiled loop.
+     */
+    interface Code
+    {
+        /**
+         * Runs the remaining iterations of the loop, starting with the test of its condition.
+         *
+         * @param env the environment the loop was running in
+         */
+        void resume(Environment env);
+    }
+}
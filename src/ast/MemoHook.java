@@ -0,0 +1,41 @@
+package ast;
+
+/**
+ * Where calls to procedures look up the results they have already computed, so a call with
+ * the same arguments as an earlier one need not run the body again.
+ *
+ * @author Vouk
+ * @version October 19, 2026
+ */
+public interface MemoHook
+{
+    /**
+     * Returns the cache of a procedure.
+     *
+     * @param p the procedure being called
+     * @return the cache, or null if the results of the procedure are not remembered
+     */
+    Cache getCache(ProcedureDeclaration p);
+
+    /**
+     * The remembered results of one procedure.
+     */
+    interface Cache
+    {
+        /**
+         * Looks up the result of a call.
+         *
+         * @param args the values of the arguments
+         * @return the result, or null if it is not remembered
+         */
+        Integer get(int[] args);
+
+        /**
+         * Remembers the result of a call.
+         *
+         * @param args the values of the arguments
+         * @param result the result
+         */
+        void put(int[] args, int result);
+    }
+}
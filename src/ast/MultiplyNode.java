@@ -0,0 +1,29 @@
+package ast;
+
+import environment.Environment;
+
+/**
+ * A BinOp specialized for multiplication.
+ * 
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class MultiplyNode extends BinOp
+{
+    /**
+     * Constructs a MultiplyNode.
+     * 
+     * @param exp1 the left operand expression
+     * @param exp2 the right operand expression
+     */
+    public MultiplyNode(Expression exp1, Expression exp2)
+    {
+        super(exp1, "*", exp2);
+    }
+
+    @Override
+    public int eval(Environment env, ExecutionContext context)
+    {
+        return exp1.eval(env, context) * exp2.eval(env, context);
+    }
+}
@@ -0,0 +1,37 @@
+package ast;
+
+/**
+ * A node that holds expressions as children. An expression that specializes itself on its
+ * first execution asks its parent to put the specialized node in its place, so later
+ * executions go straight to the specialized node.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public interface NodeParent
+{
+    /**
+     * Replaces a child expression of this node. Nothing happens if oldChild is not a child.
+     *
+     * @param oldChild the child to replace
+     * @param newChild the node to put in its place
+     */
+    void replaceChild(Expression oldChild, Expression newChild);
+
+    /**
+     * Makes a node the parent of an expression.
+     *
+     * @param <T> the type of the expression
+     * @param parent the parent
+     * @param child the expression, or null
+     * @return the expression
+     */
+    static <T extends Expression> T adopt(NodeParent parent, T child)
+    {
+        if (child != null)
+        {
+            child.setParent(parent);
+        }
+        return child;
+    }
+}
@@ -0,0 +1,67 @@
+package ast;
+
+import environment.Environment;
+
+/**
+ * Represents the negation of a condition in the AST.
+ * 
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class Not extends Expression
+{
+    private Expression exp;
+
+    /**
+     * Constructs a Not of the given condition.
+     * 
+     * @param exp the condition to negate
+     */
+    public Not(Expression exp)
+    {
+        this.exp = NodeParent.adopt(this, exp);
+    }
+
+    /**
+     * Returns the negated condition.
+     * @return the operand
+     */
+    public Expression getExp()
+    {
+        return exp;
+    }
+
+    /**
+     * Evaluates the negation in the given environment and returns 1 if true, 0 if false.
+     * 
+     * @param env the environment in which to evaluate the negation
+     * @param context the context of the run
+     * @return 1 if the operand is false, 0 if it is true
+     */
+    @Override
+    public int eval(Environment env, ExecutionContext context)
+    {
+        return exp.test(env, context) ? 0 : 1;
+    }
+
+    @Override
+    public boolean test(Environment env, ExecutionContext context)
+    {
+        return !exp.test(env, context);
+    }
+
+    @Override
+    public void replaceChild(Expression oldChild, Expression newChild)
+    {
+        if (exp == oldChild)
+        {
+            exp = newChild;
+        }
+    }
+
+    @Override
+    public <T> T accept(ExpressionVisitor<T> v)
+    {
+        return v.visitNot(this);
+    }
+}
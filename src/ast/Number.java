@@ -75,8 +75,14 @@ public class Number extends Expression
     }
 
     @Override
-    public int eval(Environment env) 
+    public int eval(Environment env, ExecutionContext context) 
     {
         return value;
     }
-}
\ No newline at end of file
+
+    @Override
+    public <T> T accept(ExpressionVisitor<T> v)
+    {
+        return v.visitNumber(this);
+    }
+}
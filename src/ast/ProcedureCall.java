@@ -12,6 +12,7 @@ public class ProcedureCall extends Expression
 {
     private final String name;
     private final Expression[] argVals;
+    private boolean tail; // its value is the last thing its procedure assigns the result
 
     /**
      * Constructs a ProcedureCall with the given environment and body.
@@ -23,16 +24,93 @@ public class ProcedureCall extends Expression
     {
         this.name = n;
         this.argVals = aV;
+        for (Expression a : aV)
+        {
+            NodeParent.adopt(this, a);
+        }
     }
 
     /**
-     * Executes the procedure call in the given environment.
+     * Returns the name of the procedure being called.
+     * 
+     * @return the procedure name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the argument expressions passed to the procedure.
+     * 
+     * @return the argument expressions
+     */
+    public Expression[] getArgVals()
+    {
+        return argVals;
+    }
+
+    /**
+     * Returns whether the call is in tail position: its value is assigned straight to the
+     * return variable of the procedure it is in, and nothing runs after that assignment.
+     * 
+     * @return true if the call is in tail position
+     */
+    public boolean isTail()
+    {
+        return tail;
+    }
+
+    /**
+     * Marks the call as being in tail position. Only ProcedureDeclaration marks calls.
+     */
+    void markTail()
+    {
+        tail = true;
+    }
+
+    /**
+     * Executes the procedure call in the given environment. A call in tail position only
+     * evaluates its arguments and leaves the call for the procedure it is in to make once
+     * its body has finished, so the call does not use another Java stack frame. The call is
+     * counted in the profile, if there is one.
      * 
      * @param env the environment in which to execute the procedure call
+     * @param context the context of the run
+     * @return the value of the procedure, or 0 for a call in tail position
      */
     @Override
-    public int eval(Environment env)
+    public int eval(Environment env, ExecutionContext context)
+    {
+        ProcedureDeclaration p = env.getProcedure(name);
+        ProfileHook profile = context.getProfile();
+        if (profile != null)
+        {
+            profile.call(this);
+        }
+        if (tail)
+        {
+            p.tailCall(argVals, env, context);
+            return 0;
+        }
+        return p.runProcedure(argVals, env, context);
+    }
+
+    @Override
+    public void replaceChild(Expression oldChild, Expression newChild)
+    {
+        for (int i = 0; i < argVals.length; i++)
+        {
+            if (argVals[i] == oldChild)
+            {
+                argVals[i] = newChild;
+            }
+        }
+    }
+
+    @Override
+    public <T> T accept(ExpressionVisitor<T> v)
     {
-        return env.getProcedure(name).runProcedure(argVals, env);
+        return v.visitProcedureCall(this);
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,7 @@
 package ast;
 
 import environment.Environment;
+import java.util.*;
 
 /**
  * Represents a procedure declaration in the AST.
@@ -14,6 +15,11 @@ public class ProcedureDeclaration extends Statement
     private final String name;
     private final Statement body;
     private final String[] args;
+    private final VarDeclaration locals;
+    private final Map<String, Integer> frameLayout;
+    private final int[] argSlots;
+    private final int returnSlot;
+    private final List<ProcedureCall> tailCalls = new ArrayList<>();
 
     /**
      * Constructs a ProcedureDeclaration with the given name, arguments, and body.
@@ -27,26 +33,192 @@ public class ProcedureDeclaration extends Statement
      * @param body the body of the procedure
      */
     public ProcedureDeclaration(String name, String[] args, Statement body) 
+    {
+        this(name, args, null, body);
+    }
+
+    /**
+     * Constructs a ProcedureDeclaration with the given name, arguments, VAR section, and body.
+     *
+     * Precondition: The name, args, and body parameters are not null.
+     * Postcondition: A new ProcedureDeclaration is created whose parameters, return variable
+     * and declared locals are laid out in fixed slots of its frame.
+     *
+     * @param name the name of the procedure
+     * @param args the parameter names for the procedure
+     * @param locals the VAR section of the procedure, or null if it has none
+     * @param body the body of the procedure
+     */
+    public ProcedureDeclaration(String name, String[] args, VarDeclaration locals, Statement body) 
     {
         this.name = name;
         this.body = body;
         this.args = args;
+        this.locals = locals;
+        this.frameLayout = layoutFrame(name, args, locals);
+        this.argSlots = new int[args.length];
+        for (int i = 0; i < args.length; i++)
+        {
+            argSlots[i] = frameLayout.get(args[i]);
+        }
+        this.returnSlot = frameLayout.get(name);
+        markTailCalls(body);
+    }
+
+    /**
+     * Marks the calls in tail position in a statement that is the last to run in the body:
+     * a call that is assigned straight to the return variable as the last statement of a
+     * block, of either branch of an IF, or of any arm of a CASE.
+     *
+     * @param s the statement
+     */
+    private void markTailCalls(Statement s)
+    {
+        if (s instanceof Block b && !b.getStatements().isEmpty())
+        {
+            markTailCalls(b.getStatements().get(b.getStatements().size() - 1));
+        }
+        else if (s instanceof If i)
+        {
+            markTailCalls(i.getStatement());
+            if (i.getElse() != null)
+            {
+                markTailCalls(i.getElse());
+            }
+        }
+        else if (s instanceof Case c)
+        {
+            for (Statement arm : c.getArms())
+            {
+                markTailCalls(arm);
+            }
+            if (c.getElse() != null)
+            {
+                markTailCalls(c.getElse());
+            }
+        }
+        else if (s instanceof Assignment a && a.getExpr() instanceof ProcedureCall call
+                && a.getVar().isLocal() && a.getVar().getSlot() == returnSlot)
+        {
+            call.markTail();
+            tailCalls.add(call);
+        }
+    }
+
+    /**
+     * Lays out the frame of a procedure: the parameters come first, then the return variable,
+     * then the variables declared in the VAR section.
+     *
+     * @param name the name of the procedure
+     * @param args the parameter names for the procedure
+     * @param locals the VAR section of the procedure, or null if it has none
+     * @return a map from each variable name to its slot index
+     */
+    public static Map<String, Integer> layoutFrame(String name, String[] args, VarDeclaration locals)
+    {
+        Map<String, Integer> layout = new HashMap<>();
+        for (String a : args)
+        {
+            layout.putIfAbsent(a, layout.size());
+        }
+        layout.putIfAbsent(name, layout.size());
+        if (locals != null)
+        {
+            for (String n : locals.getNames())
+            {
+                layout.putIfAbsent(n, layout.size());
+            }
+        }
+        return layout;
+    }
+
+    /**
+     * Returns the name of the procedure.
+     *
+     * @return the procedure name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the parameter names of the procedure.
+     *
+     * @return the parameter names
+     */
+    public String[] getArgs()
+    {
+        return args;
+    }
+
+    /**
+     * Returns the VAR section of the procedure.
+     *
+     * @return the VAR section, or null if the procedure has none
+     */
+    public VarDeclaration getLocals()
+    {
+        return locals;
+    }
+
+    /**
+     * Returns the body of the procedure.
+     *
+     * @return the body
+     */
+    public Statement getBody()
+    {
+        return body;
+    }
+
+    /**
+     * Returns the slot of the procedure's return variable.
+     *
+     * @return the slot index
+     */
+    public int getReturnSlot()
+    {
+        return returnSlot;
+    }
+
+    /**
+     * Returns the calls in tail position in the body.
+     *
+     * @return the calls, which are all marked as being in tail position
+     */
+    public List<ProcedureCall> getTailCalls()
+    {
+        return tailCalls;
+    }
+
+    /**
+     * Returns the slot layout of the procedure's frame.
+     *
+     * @return a map from each local variable name to its slot index
+     */
+    public Map<String, Integer> getFrameLayout()
+    {
+        return frameLayout;
     }
 
     /**
      * Sets the argument values for the procedure in the new environment.
      *
-     * Precondition: The argVals, oldEnv, and newEnv parameters are not null.
+     * Precondition: The argVals, oldEnv, and newEnv parameters are not null, and newEnv
+     * was created with the frame layout of this procedure.
      * Postcondition: The argument values are evaluated and stored in the new environment
      * as variables with the parameter names.
      *
      * @param argVals the argument values to set
      * @param oldEnv the environment to evaluate the argument values in
      * @param newEnv the environment to store the argument values in
+     * @param context the context of the run
      * @throws RuntimeException if the number of argument values doesn't match the number of 
      * parameters
      */
-    public void setArgs(Expression[] argVals, Environment oldEnv, Environment newEnv)
+    public void setArgs(Expression[] argVals, Environment oldEnv, Environment newEnv,
+            ExecutionContext context)
     {
         int l = args.length;
         if (argVals.length != l)
@@ -55,9 +227,33 @@ public class ProcedureDeclaration extends Statement
         }
         for (int i = 0; i < l; i++)
         {
-            newEnv.declareVariable(args[i], argVals[i].eval(oldEnv));
+            newEnv.setSlot(argSlots[i], argVals[i].eval(oldEnv, context));
+        }
+        newEnv.setSlot(returnSlot, 0);
+    }
+
+    /**
+     * Evaluates the argument values for a call to compiled code.
+     *
+     * @param argVals the argument values to evaluate
+     * @param env the environment to evaluate the argument values in
+     * @param context the context of the run
+     * @return the values, in parameter order
+     * @throws RuntimeException if the number of argument values doesn't match the number of 
+     * parameters
+     */
+    private int[] evalArgs(Expression[] argVals, Environment env, ExecutionContext context)
+    {
+        if (argVals.length != args.length)
+        {
+            throw new RuntimeException("Invalid number of arguments passed to procedure " + name);
+        }
+        int[] values = new int[argVals.length];
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = argVals[i].eval(env, context);
         }
-        newEnv.declareVariable(name, 0);
+        return values;
     }
 
     /**
@@ -65,18 +261,139 @@ public class ProcedureDeclaration extends Statement
      *
      * Precondition: The argVals and env parameters are not null.
      * Postcondition: The procedure is executed in a new local environment with the
-     * argument values set, and the return value is retrieved.
+     * argument values set, and the return value is retrieved. Once the procedure is hot,
+     * the compiler of the context, if any, runs it as compiled code instead. If the
+     * memoizer of the context remembers the result for these argument values,
+     * the body does not run at all. A call the body makes in tail position runs after the
+     * body in place of this call, on the same Java stack frame, so procedures that recurse
+     * through tail calls run in constant stack space.
      *
      * @param argVals the argument values to pass to the procedure
      * @param env the environment in which to run the procedure
+     * @param context the context of the run
+     * @return the value of the procedure variable after execution
+     */
+    public int runProcedure(Expression[] argVals, Environment env, ExecutionContext context)
+    {
+        MemoHook memoizer = context.getMemoizer();
+        MemoHook.Cache cache = memoizer == null ? null : memoizer.getCache(this);
+        if (cache != null)
+        {
+            int[] values = evalArgs(argVals, env, context);
+            Integer cached = cache.get(values);
+            if (cached != null)
+            {
+                return cached;
+            }
+            int result = runProcedure(values, env, context);
+            cache.put(values, result);
+            return result;
+        }
+        CompileHook jit = context.getCompiler();
+        if (jit != null)
+        {
+            CompileHook.Code code = jit.enter(this, env);
+            if (code != null)
+            {
+                return code.call(env.getRoot(), evalArgs(argVals, env, context));
+            }
+        }
+        Environment localEnv = new Environment(env.getRoot(), frameLayout); // child of root env
+        setArgs(argVals, env, localEnv, context);
+        return run(localEnv, context);
+    }
+
+    /**
+     * Runs the body of the procedure with argument values that are already evaluated.
+     *
+     * @param values the argument values, in parameter order
+     * @param env the environment of the caller
+     * @param context the context of the run
      * @return the value of the procedure variable after execution
      */
-    public int runProcedure(Expression[] argVals, Environment env)
+    private int runProcedure(int[] values, Environment env, ExecutionContext context)
+    {
+        CompileHook jit = context.getCompiler();
+        if (jit != null)
+        {
+            CompileHook.Code code = jit.enter(this, env);
+            if (code != null)
+            {
+                return code.call(env.getRoot(), values);
+            }
+        }
+        return run(frame(values, env.getRoot()), context);
+    }
+
+    /**
+     * Creates a frame for the procedure with argument values that are already evaluated.
+     *
+     * @param values the argument values, in parameter order
+     * @param root the root environment
+     * @return the frame, a child of the root
+     */
+    private Environment frame(int[] values, Environment root)
+    {
+        Environment localEnv = new Environment(root, frameLayout);
+        for (int i = 0; i < values.length; i++)
+        {
+            localEnv.setSlot(argSlots[i], values[i]);
+        }
+        localEnv.setSlot(returnSlot, 0);
+        return localEnv;
+    }
+
+    /**
+     * Runs the body in a frame whose arguments are set. While a body leaves a call in tail
+     * position, the procedure called runs next in a new frame, and its value is the result.
+     *
+     * @param localEnv the frame
+     * @param context the context of the run
+     * @return the value of the procedure variable of the last body that ran
+     */
+    private int run(Environment localEnv, ExecutionContext context)
     {
-        Environment localEnv = new Environment(env.getRoot()); // createing child of root env
-        setArgs(argVals, env, localEnv);
-        body.exec(localEnv);
-        return localEnv.getVariable(name);
+        ProcedureDeclaration p = this;
+        while (true)
+        {
+            if (p.locals != null)
+            {
+                p.locals.declareArrays(localEnv);
+            }
+            p.body.exec(localEnv, context);
+            ProcedureDeclaration next = context.takeTailProcedure();
+            if (next == null)
+            {
+                return localEnv.getSlot(p.returnSlot);
+            }
+            Environment root = localEnv.getRoot();
+            CompileHook jit = context.getCompiler();
+            if (jit != null)
+            {
+                CompileHook.Code code = jit.enter(next, root);
+                if (code != null)
+                {
+                    return code.call(root, context.getTailArgs());
+                }
+            }
+            localEnv = next.frame(context.getTailArgs(), root);
+            p = next;
+        }
+    }
+
+    /**
+     * Evaluates the arguments of a call in tail position and leaves the call in the context
+     * for the procedure making it to make once its body has finished.
+     *
+     * @param argVals the argument values to pass to the procedure
+     * @param env the frame of the procedure making the call
+     * @param context the context of the run
+     * @throws RuntimeException if the number of argument values doesn't match the number of 
+     * parameters
+     */
+    public void tailCall(Expression[] argVals, Environment env, ExecutionContext context)
+    {
+        context.setTailCall(this, evalArgs(argVals, env, context));
     }
 
     /**
@@ -87,10 +404,17 @@ public class ProcedureDeclaration extends Statement
      * Postcondition: The procedure is registered in the environment with its name.
      *
      * @param env the environment in which to execute the procedure declaration
+     * @param context the context of the run
      */
     @Override
-    public void exec(Environment env) 
+    public void exec(Environment env, ExecutionContext context) 
     {
         env.setProcedure(name, this);
     }
+
+    @Override
+    public <T> T accept(StatementVisitor<T> v)
+    {
+        return v.visitProcedureDeclaration(this);
+    }
 }
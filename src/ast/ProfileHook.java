@@ -0,0 +1,40 @@
+package ast;
+
+/**
+ * What branches, loops and calls tell about how they run, so a profile of the run can guide
+ * the optimizers of a later one.
+ *
+ * @author Vouk
+ * @version October 19, 2026
+ */
+public interface ProfileHook
+{
+    /**
+     * Records that an IF ran.
+     *
+     * @param i the IF
+     * @param taken whether it took its THEN branch
+     */
+    void branch(If i, boolean taken);
+
+    /**
+     * Records that a WHILE or FOR was entered.
+     *
+     * @param loop the loop
+     */
+    void loop(Statement loop);
+
+    /**
+     * Records that a WHILE or FOR finished an iteration.
+     *
+     * @param loop the loop
+     */
+    void iteration(Statement loop);
+
+    /**
+     * Records that a call site was called.
+     *
+     * @param call the call
+     */
+    void call(ProcedureCall call);
+}
@@ -1,11 +1,12 @@
 package ast;
 
 import environment.Environment;
+import environment.Snapshot;
 
 /**
  * Represents a program that can contain procedure declarations and a main body.
- * A program can either be a procedure declaration followed by another program,
- * or just a main body statement.
+ * A program can either be a VAR section followed by another program, a procedure 
+ * declaration followed by another program, or just a main body statement.
  * 
  * @author Vouk Praun-Petrovic
  * @version October 2, 2025
@@ -15,6 +16,7 @@ public class Program
     private final ProcedureDeclaration procedure;
     private final Program childProgram;
     private final Statement mainBody;
+    private final VarDeclaration declarations;
 
     /**
      * Constructs a Program with a procedure declaration and a child program.
@@ -30,6 +32,25 @@ public class Program
         this.procedure = procedure;
         this.childProgram = childProgram;
         this.mainBody = null;
+        this.declarations = null;
+    }
+
+    /**
+     * Constructs a Program with a VAR section and a child program.
+     *
+     * Precondition: The declarations and childProgram parameters are not null.
+     * Postcondition: A new Program is created whose global variables are declared ahead of
+     * the child program.
+     *
+     * @param declarations the global VAR section
+     * @param childProgram the program that follows the VAR section
+     */
+    public Program(VarDeclaration declarations, Program childProgram)
+    {
+        this.declarations = declarations;
+        this.childProgram = childProgram;
+        this.procedure = null;
+        this.mainBody = null;
     }
 
     /**
@@ -45,27 +66,107 @@ public class Program
         this.mainBody = mainBody;
         this.childProgram = null;
         this.procedure = null;
+        this.declarations = null;
+        mainBody.locate(new int[0]);
     }
     
+    /**
+     * Returns the procedure declared by this program.
+     *
+     * @return the procedure declaration, or null if this program has none
+     */
+    public ProcedureDeclaration getProcedure()
+    {
+        return procedure;
+    }
+
+    /**
+     * Returns the global VAR section of this program.
+     *
+     * @return the VAR section, or null if this program has none
+     */
+    public VarDeclaration getDeclarations()
+    {
+        return declarations;
+    }
+
+    /**
+     * Returns the program that follows the procedure declaration or VAR section.
+     *
+     * @return the child program, or null if this program is a main body
+     */
+    public Program getChildProgram()
+    {
+        return childProgram;
+    }
+
+    /**
+     * Returns the main body of this program.
+     *
+     * @return the main body, or null if this program has a child program
+     */
+    public Statement getMainBody()
+    {
+        return mainBody;
+    }
+
     /**
      * Executes the program in the given environment.
      * 
      * Precondition: The environment is not null.
-     * Postcondition: If the program contains a procedure declaration, it executes
-     * the procedure and then the child program. Otherwise, it executes the main body.
+     * Postcondition: If the program contains a VAR section or a procedure declaration, it 
+     * executes it and then the child program. Otherwise, it executes the main body.
      *
      * @param env the environment in which to execute the program
+     * @param context the context of the run
      */
-    public void exec(Environment env) 
+    public void exec(Environment env, ExecutionContext context) 
     {
-        if (procedure != null)
+        if (declarations != null)
+        {
+            declarations.exec(env, context);
+            childProgram.exec(env, context);
+        }
+        else if (procedure != null)
+        {
+            procedure.exec(env, context);
+            childProgram.exec(env, context);
+        }
+        else
+        {
+            mainBody.exec(env, context);
+        }
+    }
+
+    /**
+     * Resumes the program from a checkpoint instead of running the main body from its start.
+     *
+     * Precondition: The snapshot was taken while running this program.
+     * Postcondition: The globals are declared, the procedures are registered, the saved 
+     * variables are restored, and execution continues at the loop back-edge where the 
+     * snapshot was taken.
+     *
+     * @param env the environment in which to resume the program
+     * @param context the context of the run
+     * @param snapshot the checkpoint to resume from
+     * @throws IllegalStateException if the snapshot was taken from a different program
+     */
+    public void resume(Environment env, ExecutionContext context, Snapshot snapshot)
+    {
+        if (declarations != null)
+        {
+            declarations.exec(env, context);
+            childProgram.resume(env, context, snapshot);
+        }
+        else if (procedure != null)
         {
-            procedure.exec(env);
-            childProgram.exec(env);
+            procedure.exec(env, context);
+            childProgram.resume(env, context, snapshot);
         }
         else
         {
-            mainBody.exec(env);
+            snapshot.restore(env);
+            mainBody.resume(env, context, snapshot.getPosition(), 0);
         }
     }
 }
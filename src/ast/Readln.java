@@ -13,7 +13,8 @@ import scanner.*;
  */
 public class Readln extends Statement 
 {
-    private final Variable var;
+    private static Scanner stdin;
+    private Variable var;
 
     /** 
      * Constructs a Readln statement with the specified variable.
@@ -22,7 +23,17 @@ public class Readln extends Statement
      */
     public Readln(Variable var) 
     {
-        this.var = var;
+        this.var = NodeParent.adopt(this, var);
+    }
+
+    /**
+     * Returns the variable the input is assigned to.
+     * 
+     * @return the variable
+     */
+    public Variable getVar()
+    {
+        return var;
     }
 
     /** 
@@ -30,22 +41,53 @@ public class Readln extends Statement
      * and assigning it to the specified variable in the given environment.
      * 
      * @param env the environment in which to execute the statement
+     * @param context the context of the run
      */
     @Override
-    public void exec(Environment env)
+    public void exec(Environment env, ExecutionContext context)
+    {
+        var.assign(env, readInt());
+    }
+
+    /** 
+     * Reads an integer token from standard input. Every caller shares one Scanner, so
+     * input that the Scanner has already buffered is not lost between reads.
+     * 
+     * @return the integer that was read
+     * @throws RuntimeException if the next token is not a number
+     */
+    public static int readInt()
     {
-        Scanner scanner = new Scanner(System.in);
+        if (stdin == null)
+        {
+            stdin = new Scanner(System.in);
+        }
         try
         {
-            AbstractMap.SimpleEntry<String, String> token = scanner.nextToken();
+            AbstractMap.SimpleEntry<String, String> token = stdin.nextToken();
             if (!token.getValue().equals(Scanner.NUMBER))
                 throw new ScanErrorException("Expected a number, got: " + token.getKey());
             
-            env.setVariable(var.getName(), Integer.parseInt(token.getKey()));
+            return Integer.parseInt(token.getKey());
         }
         catch (ScanErrorException e)
         {
             throw new RuntimeException("Error reading input: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public void replaceChild(Expression oldChild, Expression newChild)
+    {
+        if (var == oldChild)
+        {
+            var = (Variable) newChild;
+        }
+    }
+
+    @Override
+    public <T> T accept(StatementVisitor<T> v)
+    {
+        return v.visitReadln(this);
+    }
+}
@@ -1,6 +1,7 @@
 package ast;
 
 import environment.Environment;
+import java.util.Arrays;
 
 /**
  * Abstract base class for all statement nodes in the AST.
@@ -8,11 +9,73 @@ import environment.Environment;
  * @author Vouk
  * @version October 15, 2025
  */
-public abstract class Statement 
+public abstract class Statement implements NodeParent
 {
     /**
      * Executes the statement in the given environment.
      * @param env the environment in which to execute the statement
+     * @param context the context of the run
      */
-    public abstract void exec(Environment env);
+    public abstract void exec(Environment env, ExecutionContext context);
+
+    /**
+     * Calls the method of the visitor that handles this kind of statement.
+     * 
+     * @param <T> the type the visitor returns
+     * @param v the visitor
+     * @return the result of the visit
+     */
+    public abstract <T> T accept(StatementVisitor<T> v);
+
+    /**
+     * Records the position of every loop nested in this statement, so loops can tell a
+     * checkpointer where they are. A position is the list of child indices leading from the
+     * main body of the program to the loop.
+     *
+     * @param path the position of this statement
+     */
+    public void locate(int[] path)
+    {
+    }
+
+    /**
+     * Continues executing this statement from a loop back-edge inside it, as recorded by a
+     * checkpoint, instead of from its start.
+     *
+     * @param env the environment in which to execute the statement
+     * @param context the context of the run
+     * @param path the position of the loop back-edge
+     * @param depth the index in path that refers to a child of this statement
+     * @throws IllegalStateException if this statement has no loop to resume at
+     */
+    public void resume(Environment env, ExecutionContext context, int[] path, int depth)
+    {
+        throw new IllegalStateException("Cannot resume execution inside "
+                + getClass().getSimpleName());
+    }
+
+    /**
+     * Returns a copy of the given path with one more child index at its end.
+     *
+     * @param path the path to extend
+     * @param index the child index to add
+     * @return the extended path
+     */
+    protected static int[] childPath(int[] path, int index)
+    {
+        int[] child = Arrays.copyOf(path, path.length + 1);
+        child[path.length] = index;
+        return child;
+    }
+
+    /**
+     * Replaces a child expression. Statements without expressions have nothing to replace.
+     * 
+     * @param oldChild the child to replace
+     * @param newChild the node to put in its place
+     */
+    @Override
+    public void replaceChild(Expression oldChild, Expression newChild)
+    {
+    }
 }
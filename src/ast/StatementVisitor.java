@@ -0,0 +1,96 @@
+package ast;
+
+/**
+ * A visitor over the statement nodes of the AST, used by passes and compilers that
+ * walk the tree without adding a method to every node class.
+ * 
+ * @param <T> the type each visit returns
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public interface StatementVisitor<T>
+{
+    /**
+     * Visits a block.
+     * @param b the node
+     * @return the result of the visit
+     */
+    T visitBlock(Block b);
+
+    /**
+     * Visits an assignment.
+     * @param a the node
+     * @return the result of the visit
+     */
+    T visitAssignment(Assignment a);
+
+    /**
+     * Visits a WRITELN statement.
+     * @param w the node
+     * @return the result of the visit
+     */
+    T visitWriteln(Writeln w);
+
+    /**
+     * Visits a READLN statement.
+     * @param r the node
+     * @return the result of the visit
+     */
+    T visitReadln(Readln r);
+
+    /**
+     * Visits an IF statement.
+     * @param i the node
+     * @return the result of the visit
+     */
+    T visitIf(If i);
+
+    /**
+     * Visits a CASE statement.
+     * @param c the node
+     * @return the result of the visit
+     */
+    T visitCase(Case c);
+
+    /**
+     * Visits a WHILE loop.
+     * @param w the node
+     * @return the result of the visit
+     */
+    T visitWhile(While w);
+
+    /**
+     * Visits a FOR loop.
+     * @param f the node
+     * @return the result of the visit
+     */
+    T visitFor(For f);
+
+    /**
+     * Visits a procedure declaration.
+     * @param p the node
+     * @return the result of the visit
+     */
+    T visitProcedureDeclaration(ProcedureDeclaration p);
+
+    /**
+     * Visits an array declaration.
+     * @param a the node
+     * @return the result of the visit
+     */
+    T visitArrayDeclaration(ArrayDeclaration a);
+
+    /**
+     * Visits an assignment to an array element.
+     * @param a the node
+     * @return the result of the visit
+     */
+    T visitArrayAssignment(ArrayAssignment a);
+
+    /**
+     * Visits a VAR section.
+     * @param v the node
+     * @return the result of the visit
+     */
+    T visitVarDeclaration(VarDeclaration v);
+}
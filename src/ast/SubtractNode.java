@@ -0,0 +1,29 @@
+package ast;
+
+import environment.Environment;
+
+/**
+ * A BinOp specialized for subtraction.
+ * 
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class SubtractNode extends BinOp
+{
+    /**
+     * Constructs a SubtractNode.
+     * 
+     * @param exp1 the left operand expression
+     * @param exp2 the right operand expression
+     */
+    public SubtractNode(Expression exp1, Expression exp2)
+    {
+        super(exp1, "-", exp2);
+    }
+
+    @Override
+    public int eval(Environment env, ExecutionContext context)
+    {
+        return exp1.eval(env, context) - exp2.eval(env, context);
+    }
+}
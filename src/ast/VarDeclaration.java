@@ -0,0 +1,100 @@
+package ast;
+
+import environment.Environment;
+import environment.IntArray;
+import java.util.*;
+
+/**
+ * Represents a VAR section in the AST, which declares INTEGER variables and
+ * ARRAY[size] OF INTEGER arrays ahead of time.
+ * The declared variables are laid out in fixed slots, numbered in declaration order.
+ * 
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class VarDeclaration extends Statement
+{
+    private final List<String> names;
+    private final Map<String, Integer> arrays;
+    private final Map<String, Integer> layout;
+
+    /**
+     * Constructs a VarDeclaration with the given variables and arrays.
+     * 
+     * @param names the names of the declared INTEGER variables, in order
+     * @param arrays a map from the name of each declared array to its size, in order
+     */
+    public VarDeclaration(List<String> names, Map<String, Integer> arrays)
+    {
+        this.names = names;
+        this.arrays = arrays;
+        this.layout = new HashMap<>();
+        for (String n : names)
+        {
+            layout.putIfAbsent(n, layout.size());
+        }
+    }
+
+    /**
+     * Returns the names of the declared INTEGER variables.
+     * 
+     * @return the variable names, in declaration order
+     */
+    public List<String> getNames()
+    {
+        return names;
+    }
+
+    /**
+     * Returns the declared arrays.
+     * 
+     * @return a map from array name to size, in declaration order
+     */
+    public Map<String, Integer> getArrays()
+    {
+        return arrays;
+    }
+
+    /**
+     * Returns the slot layout of the declared variables.
+     * 
+     * @return a map from each variable name to its slot index
+     */
+    public Map<String, Integer> getLayout()
+    {
+        return layout;
+    }
+
+    /**
+     * Allocates the declared arrays in the given environment.
+     * 
+     * @param env the environment in which to declare the arrays
+     */
+    public void declareArrays(Environment env)
+    {
+        for (Map.Entry<String, Integer> a : arrays.entrySet())
+        {
+            env.declareArray(a.getKey(), IntArray.allocate(a.getValue()));
+        }
+    }
+
+    /**
+     * Executes the VAR section by laying out the variables in slots of the environment 
+     * and allocating the arrays.
+     * 
+     * @param env the environment in which to declare the variables
+     * @param context the context of the run
+     */
+    @Override
+    public void exec(Environment env, ExecutionContext context)
+    {
+        env.allocateSlots(layout);
+        declareArrays(env);
+    }
+
+    @Override
+    public <T> T accept(StatementVisitor<T> v)
+    {
+        return v.visitVarDeclaration(this);
+    }
+}
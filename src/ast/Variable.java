@@ -4,22 +4,49 @@ import environment.Environment;
 
 /**
  * Represents a variable in the AST.
+ * A variable that was declared in a VAR section, or is a procedure parameter, is resolved
+ * by the parser to a fixed slot of either the procedure's frame or the root environment,
+ * and is read and written without looking up its name.
+ * 
+ * A slot variable replaces itself on its first use with a LocalSlotVariable or a 
+ * GlobalSlotVariable, which go straight to their slot. Variables looked up by name keep the
+ * generic path, because where they are found depends on which frame is running.
  * 
  * @author Vouk
  * @version October 15, 2025
  */
-public class Variable extends Expression
+public sealed class Variable extends Expression permits LocalSlotVariable, GlobalSlotVariable
 {
     private final String name;
+    private final int slot;
+    private final boolean local;
+    private Variable specialized;
 
     /**
-     * Constructs a Variable with the given name.
+     * Constructs a Variable with the given name, that is looked up by name.
      * 
      * @param name the name of the variable
      */
     public Variable(String name)
     {
         this.name = name;
+        this.slot = -1;
+        this.local = false;
+    }
+
+    /**
+     * Constructs a Variable with the given name that is stored in a fixed slot.
+     * 
+     * @param name the name of the variable
+     * @param slot the index of the slot
+     * @param local true if the slot is in the procedure's frame, false if it is in the 
+     *              root environment
+     */
+    public Variable(String name, int slot, boolean local)
+    {
+        this.name = name;
+        this.slot = slot;
+        this.local = local;
     }
 
     /**
@@ -32,15 +59,82 @@ public class Variable extends Expression
         return name;
     }
 
+    /**
+     * Returns the slot the variable is stored in.
+     * 
+     * @return the slot index, or -1 if the variable is looked up by name
+     */
+    public int getSlot()
+    {
+        return slot;
+    }
+
+    /**
+     * Returns whether the variable's slot is in the procedure's frame.
+     * 
+     * @return true for a frame slot, false for a root slot or a variable looked up by name
+     */
+    public boolean isLocal()
+    {
+        return local;
+    }
+
     /**
      * Evaluates the variable by looking up its value in the environment.
      * 
      * @param env the environment in which to evaluate the variable
+     * @param context the context of the run
      * @return the integer value of the variable
      */
     @Override
-    public int eval(Environment env) 
+    public int eval(Environment env, ExecutionContext context) 
+    {
+        if (slot < 0)
+        {
+            return env.getVariable(name);
+        }
+        return specialize().eval(env, context);
+    }
+
+    /**
+     * Stores a value in the variable.
+     * 
+     * @param env the environment in which to store the variable
+     * @param value the value to store
+     */
+    public void assign(Environment env, int value)
+    {
+        if (slot < 0)
+        {
+            env.setVariable(name, value);
+        }
+        else
+        {
+            specialize().assign(env, value);
+        }
+    }
+
+    /**
+     * Creates the node for this variable's slot and puts it in the place of this one, the 
+     * first time it is called.
+     * 
+     * Precondition: The variable is stored in a slot.
+     * 
+     * @return the specialized node
+     */
+    private Variable specialize()
+    {
+        if (specialized == null)
+        {
+            specialized = replace(local ? new LocalSlotVariable(name, slot) 
+                    : new GlobalSlotVariable(name, slot));
+        }
+        return specialized;
+    }
+
+    @Override
+    public <T> T accept(ExpressionVisitor<T> v)
     {
-        return env.getVariable(name);
+        return v.visitVariable(this);
     }
-}
\ No newline at end of file
+}
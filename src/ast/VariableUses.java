@@ -0,0 +1,309 @@
+package ast;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The variables and arrays a statement or expression reads and writes, and whether it can
+ * call a procedure. Variables are identified by name, so a local and a global with the
+ * same name count as one variable; that only makes the answers more conservative.
+ *
+ * A procedure call may read and write any global or undeclared variable and any array, so
+ * passes that use these sets must treat calls separately.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class VariableUses implements ExpressionVisitor<Void>, StatementVisitor<Void>
+{
+    private final Set<String> reads = new HashSet<>();
+    private final Set<String> writes = new HashSet<>();
+    private final Set<String> arrayReads = new HashSet<>();
+    private final Set<String> arrayWrites = new HashSet<>();
+    private final Set<String> calls = new HashSet<>();
+    private boolean input;
+
+    /**
+     * VariableUses is created by the of methods.
+     */
+    private VariableUses()
+    {
+    }
+
+    /**
+     * Collects the uses in a statement.
+     *
+     * @param s the statement
+     * @return the uses
+     */
+    public static VariableUses of(Statement s)
+    {
+        VariableUses u = new VariableUses();
+        s.accept(u);
+        return u;
+    }
+
+    /**
+     * Collects the uses in an expression.
+     *
+     * @param e the expression
+     * @return the uses
+     */
+    public static VariableUses of(Expression e)
+    {
+        VariableUses u = new VariableUses();
+        e.accept(u);
+        return u;
+    }
+
+    /**
+     * Returns the names of the variables that are read.
+     *
+     * @return the names
+     */
+    public Set<String> getReads()
+    {
+        return reads;
+    }
+
+    /**
+     * Returns the names of the variables that are assigned or read into.
+     *
+     * @return the names
+     */
+    public Set<String> getWrites()
+    {
+        return writes;
+    }
+
+    /**
+     * Returns the names of the arrays whose elements are read.
+     *
+     * @return the names
+     */
+    public Set<String> getArrayReads()
+    {
+        return arrayReads;
+    }
+
+    /**
+     * Returns the names of the arrays that are declared or whose elements are assigned.
+     *
+     * @return the names
+     */
+    public Set<String> getArrayWrites()
+    {
+        return arrayWrites;
+    }
+
+    /**
+     * Returns the names of the procedures that are called directly.
+     *
+     * @return the names
+     */
+    public Set<String> getCalls()
+    {
+        return calls;
+    }
+
+    /**
+     * Returns whether a procedure can be called.
+     *
+     * @return true if there is a procedure call
+     */
+    public boolean hasCall()
+    {
+        return !calls.isEmpty();
+    }
+
+    /**
+     * Returns whether input can be read.
+     *
+     * @return true if there is a READLN
+     */
+    public boolean hasInput()
+    {
+        return input;
+    }
+
+    /**
+     * Returns whether the code changes no variable or array and reads no input, so running
+     * it again gives the same result.
+     *
+     * @return true if the code has no effects
+     */
+    public boolean isReadOnly()
+    {
+        return calls.isEmpty() && !input && writes.isEmpty() && arrayWrites.isEmpty();
+    }
+
+    @Override
+    public Void visitNumber(Number n)
+    {
+        return null;
+    }
+
+    @Override
+    public Void visitVariable(Variable v)
+    {
+        reads.add(v.getName());
+        return null;
+    }
+
+    @Override
+    public Void visitBinOp(BinOp b)
+    {
+        b.getExp1().accept(this);
+        b.getExp2().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitCondition(Condition c)
+    {
+        c.getExp1().accept(this);
+        c.getExp2().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitBoolOp(BoolOp b)
+    {
+        b.getExp1().accept(this);
+        b.getExp2().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitNot(Not n)
+    {
+        n.getExp().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitProcedureCall(ProcedureCall p)
+    {
+        calls.add(p.getName());
+        for (Expression a : p.getArgVals())
+        {
+            a.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitArrayElement(ArrayElement a)
+    {
+        arrayReads.add(a.getName());
+        a.getIndex().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(Block b)
+    {
+        for (Statement s : b.getStatements())
+        {
+            s.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitAssignment(Assignment a)
+    {
+        a.getExpr().accept(this);
+        writes.add(a.getVar().getName());
+        return null;
+    }
+
+    @Override
+    public Void visitWriteln(Writeln w)
+    {
+        w.getExpr().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitReadln(Readln r)
+    {
+        input = true;
+        writes.add(r.getVar().getName());
+        return null;
+    }
+
+    @Override
+    public Void visitIf(If i)
+    {
+        i.getCondition().accept(this);
+        i.getStatement().accept(this);
+        if (i.getElse() != null)
+        {
+            i.getElse().accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitCase(Case c)
+    {
+        c.getSelector().accept(this);
+        for (Statement arm : c.getArms())
+        {
+            arm.accept(this);
+        }
+        if (c.getElse() != null)
+        {
+            c.getElse().accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitWhile(While w)
+    {
+        w.getCondition().accept(this);
+        w.getBody().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitFor(For f)
+    {
+        f.getInitialization().accept(this);
+        f.getCondition().accept(this);
+        f.getBody().accept(this);
+        f.getVarUpdate().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitProcedureDeclaration(ProcedureDeclaration p)
+    {
+        return null;
+    }
+
+    @Override
+    public Void visitArrayDeclaration(ArrayDeclaration a)
+    {
+        a.getSize().accept(this);
+        arrayWrites.add(a.getName());
+        return null;
+    }
+
+    @Override
+    public Void visitArrayAssignment(ArrayAssignment a)
+    {
+        a.getIndex().accept(this);
+        a.getExpr().accept(this);
+        arrayWrites.add(a.getName());
+        return null;
+    }
+
+    @Override
+    public Void visitVarDeclaration(VarDeclaration v)
+    {
+        return null;
+    }
+}
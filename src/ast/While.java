@@ -10,8 +10,9 @@ import environment.Environment;
  */
 public class While extends Statement
 {
-    private final Condition condition;
+    private Expression condition;
     private final Statement body;
+    private int[] position;
 
     /**
      * Constructs a While statement with the given condition and body.
@@ -19,25 +20,138 @@ public class While extends Statement
      * @param condition the condition to evaluate
      * @param body the body of the while loop
      */
-    public While(Condition condition, Statement body) 
+    public While(Expression condition, Statement body) 
     {
-        this.condition = condition;
+        this.condition = NodeParent.adopt(this, condition);
         this.body = body;
     }
 
+    /**
+     * Returns the condition of the loop.
+     * 
+     * @return the condition
+     */
+    public Expression getCondition()
+    {
+        return condition;
+    }
+
+    /**
+     * Returns the body of the loop.
+     * 
+     * @return the body
+     */
+    public Statement getBody()
+    {
+        return body;
+    }
+
     /**
      * Executes the while loop in the given environment.
      * 
      * @param env the environment in which to execute the statement
+     * @param context the context of the run
      */
     @Override
-    public void exec(Environment env)
+    public void exec(Environment env, ExecutionContext context)
     {
-        while (condition.eval(env) == 1)
+        ProfileHook profile = context.getProfile();
+        if (profile != null)
+        {
+            profile.loop(this);
+        }
+        while (condition.test(env, context))
         {
-            body.exec(env);
+            body.exec(env, context);
+            if (backEdge(env, context))
+            {
+                return;
+            }
         }
     }
 
+    /**
+     * Lets the profile, if there is one, count the iteration. Lets the checkpointer, if there
+     * is one, know that an iteration has finished. Otherwise lets the JIT compiler, if there
+     * is one, count the back-edge, and once it has compiled the loop runs the remaining
+     * iterations in the compiled code.
+     * 
+     * @param env the environment in which the loop is running
+     * @param context the context of the run
+     * @return true if the compiled code has finished the loop
+     */
+    private boolean backEdge(Environment env, ExecutionContext context)
+    {
+        ProfileHook profile = context.getProfile();
+        if (profile != null)
+        {
+            profile.iteration(this);
+        }
+        CheckpointHook checkpointer = context.getCheckpointer();
+        if (checkpointer != null)
+        {
+            checkpointer.backEdge(env, position);
+            return false;
+        }
+        LoopHook jit = context.getLoopCompiler();
+        if (jit != null)
+        {
+            LoopHook.Code code = jit.backEdge(this, env);
+            if (code != null)
+            {
+                code.resume(env);
+                return true;
+            }
+        }
+        return false;
+    }
 
-}
\ No newline at end of file
+    /**
+     * Records the position of this loop and of every loop in its body.
+     * 
+     * @param path the position of this loop
+     */
+    @Override
+    public void locate(int[] path)
+    {
+        position = path;
+        body.locate(childPath(path, 0));
+    }
+
+    /**
+     * Resumes the loop, either at its own back-edge or at a back-edge inside its body.
+     * 
+     * @param env the environment in which to execute the statement
+     * @param context the context of the run
+     * @param path the position of the loop back-edge
+     * @param depth the index in path of the body, or path.length if the back-edge is this loop's
+     */
+    @Override
+    public void resume(Environment env, ExecutionContext context, int[] path, int depth)
+    {
+        if (depth < path.length)
+        {
+            body.resume(env, context, path, depth + 1);
+            if (backEdge(env, context))
+            {
+                return;
+            }
+        }
+        exec(env, context);
+    }
+
+    @Override
+    public void replaceChild(Expression oldChild, Expression newChild)
+    {
+        if (condition == oldChild)
+        {
+            condition = newChild;
+        }
+    }
+
+    @Override
+    public <T> T accept(StatementVisitor<T> v)
+    {
+        return v.visitWhile(this);
+    }
+}
@@ -10,7 +10,7 @@ import environment.Environment;
  */
 public class Writeln extends Statement
 {
-    private final Expression expr;
+    private Expression expr;
 
     /**
      * Constructs a Writeln statement with the given expression.
@@ -19,7 +19,7 @@ public class Writeln extends Statement
      */
     public Writeln(Expression expr)
     {
-        this.expr = expr;
+        this.expr = NodeParent.adopt(this, expr);
     }
 
     /**
@@ -36,10 +36,26 @@ public class Writeln extends Statement
      * Executes the writeln statement by evaluating the expression and printing its value.
      * 
      * @param env the environment in which to execute the statement
+     * @param context the context of the run
      */
     @Override
-    public void exec(Environment env)
+    public void exec(Environment env, ExecutionContext context)
     {
-        System.out.println(expr.eval(env));
+        System.out.println(expr.eval(env, context));
     }
-}
\ No newline at end of file
+
+    @Override
+    public void replaceChild(Expression oldChild, Expression newChild)
+    {
+        if (expr == oldChild)
+        {
+            expr = newChild;
+        }
+    }
+
+    @Override
+    public <T> T accept(StatementVisitor<T> v)
+    {
+        return v.visitWriteln(this);
+    }
+}
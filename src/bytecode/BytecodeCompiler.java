@@ -0,0 +1,718 @@
+package bytecode;
+
+import ast.*;
+import ast.Number;
+import java.util.*;
+
+/**
+ * Compiles a Program into bytecode for the VirtualMachine.
+ *
+ * Conditions of IF, WHILE and FOR compile to fused compare-and-jump instructions, loops are
+ * laid out with their test at the bottom so each iteration takes one jump, and procedure
+ * calls compile to CALL and RETURN, except that a call in tail position compiles to a
+ * TAIL_CALL, which replaces the caller's frame. The compiled code behaves like Program.exec, including
+ * the lookup rules for variables that are not declared.
+ *
+ * @author Vouk
+ * @version October 19, 2026
+ */
+public class BytecodeCompiler implements ExpressionVisitor<Void>, StatementVisitor<Void>
+{
+    private int[] code = new int[256];
+    private int size;
+    private int depth;
+    private int maxDepth;
+    private final Map<String, Integer> globals = new LinkedHashMap<>();
+    private final Map<String, Integer> globalArrays = new LinkedHashMap<>();
+    private final Map<String, Integer> procedureIndex = new HashMap<>();
+    private final List<ProcedureDeclaration> declarations = new ArrayList<>();
+    private final List<CompiledProcedure> procedures = new ArrayList<>();
+    private final List<String> messages = new ArrayList<>();
+    private final List<int[]> switches = new ArrayList<>();
+    private ProcedureDeclaration current; // the procedure being compiled, null in the main body
+    private Map<String, Integer> frame;
+    private Map<String, Integer> frameArrays;
+
+    /**
+     * Compiles a program.
+     *
+     * Precondition: The program was produced by the Parser.
+     * Postcondition: Returns code that produces the same output as program.exec.
+     *
+     * @param program the program to compile
+     * @return the compiled program
+     */
+    public static CompiledProgram compile(Program program)
+    {
+        return new BytecodeCompiler().compileProgram(program);
+    }
+
+    /**
+     * Compiles the main body followed by the procedures.
+     *
+     * @param program the program to compile
+     * @return the compiled program
+     */
+    private CompiledProgram compileProgram(Program program)
+    {
+        int declaredGlobals = 0;
+        VarDeclaration varSection = null;
+        Program p = program;
+        while (p.getMainBody() == null)
+        {
+            if (p.getDeclarations() != null)
+            {
+                varSection = p.getDeclarations();
+            }
+            else
+            {
+                ProcedureDeclaration decl = p.getProcedure();
+                Integer existing = procedureIndex.get(decl.getName());
+                if (existing != null)
+                {
+                    declarations.set(existing, decl); // a later declaration replaces it
+                }
+                else
+                {
+                    procedureIndex.put(decl.getName(), declarations.size());
+                    declarations.add(decl);
+                }
+            }
+            p = p.getChildProgram();
+        }
+        if (varSection != null)
+        {
+            String[] slotNames = new String[varSection.getLayout().size()];
+            for (Map.Entry<String, Integer> slot : varSection.getLayout().entrySet())
+            {
+                slotNames[slot.getValue()] = slot.getKey();
+            }
+            for (String n : slotNames)
+            {
+                globals.put(n, globals.size());
+            }
+            declaredGlobals = slotNames.length;
+        }
+        for (ProcedureDeclaration decl : declarations)
+        {
+            procedures.add(new CompiledProcedure(decl.getName(), argSlots(decl),
+                    decl.getReturnSlot(), decl.getFrameLayout().size()));
+        }
+
+        if (varSection != null)
+        {
+            declareArrays(varSection);
+        }
+        p.getMainBody().accept(this);
+        emit(Opcode.HALT);
+        int mainMaxStack = maxDepth;
+
+        for (int i = 0; i < declarations.size(); i++)
+        {
+            compileProcedure(declarations.get(i), procedures.get(i));
+        }
+        return new CompiledProgram(Arrays.copyOf(code, size), mainMaxStack,
+                new ArrayList<>(globals.keySet()), declaredGlobals,
+                new ArrayList<>(globalArrays.keySet()), procedures, messages, switches);
+    }
+
+    /**
+     * Returns the frame slot of each parameter of a procedure.
+     *
+     * @param decl the procedure
+     * @return the parameter slots, in order
+     */
+    private static int[] argSlots(ProcedureDeclaration decl)
+    {
+        String[] args = decl.getArgs();
+        int[] slots = new int[args.length];
+        for (int i = 0; i < args.length; i++)
+        {
+            slots[i] = decl.getFrameLayout().get(args[i]);
+        }
+        return slots;
+    }
+
+    /**
+     * Compiles the body of a procedure.
+     *
+     * @param decl the procedure declaration
+     * @param compiled the descriptor to fill in
+     */
+    private void compileProcedure(ProcedureDeclaration decl, CompiledProcedure compiled)
+    {
+        current = decl;
+        frame = new HashMap<>(decl.getFrameLayout());
+        frameArrays = new HashMap<>();
+        depth = 0;
+        maxDepth = 0;
+        int entry = size;
+        if (decl.getLocals() != null)
+        {
+            declareArrays(decl.getLocals());
+        }
+        decl.getBody().accept(this);
+        emit(Opcode.RETURN);
+        compiled.setCode(entry, frame.size(), frameArrays.size(), maxDepth);
+        current = null;
+    }
+
+    /**
+     * Emits the allocation of the arrays of a VAR section.
+     *
+     * @param vars the VAR section
+     */
+    private void declareArrays(VarDeclaration vars)
+    {
+        for (Map.Entry<String, Integer> a : vars.getArrays().entrySet())
+        {
+            emit(Opcode.CONST, a.getValue());
+            newArray(a.getKey());
+        }
+    }
+
+    /**
+     * Emits the declaration of an array whose size is on the stack.
+     *
+     * @param name the array name
+     */
+    private void newArray(String name)
+    {
+        if (current == null)
+        {
+            emit(Opcode.NEW_ARRAY_GLOBAL, globalArray(name));
+        }
+        else
+        {
+            emit(Opcode.NEW_ARRAY, frameArrays.computeIfAbsent(name, n -> frameArrays.size()));
+        }
+    }
+
+    /**
+     * Returns the global slot of a name, adding one if needed.
+     *
+     * @param name the variable name
+     * @return the global slot
+     */
+    private int global(String name)
+    {
+        return globals.computeIfAbsent(name, n -> globals.size());
+    }
+
+    /**
+     * Returns the global array slot of a name, adding one if needed.
+     *
+     * @param name the array name
+     * @return the global array slot
+     */
+    private int globalArray(String name)
+    {
+        return globalArrays.computeIfAbsent(name, n -> globalArrays.size());
+    }
+
+    /**
+     * Appends an instruction to the code and tracks the operand stack depth.
+     *
+     * @param op the opcode
+     * @param operands the operands
+     */
+    private void emit(int op, int... operands)
+    {
+        if (size + 1 + operands.length > code.length)
+        {
+            code = Arrays.copyOf(code, code.length * 2);
+        }
+        code[size++] = op;
+        for (int o : operands)
+        {
+            code[size++] = o;
+        }
+        depth += Opcode.STACK_EFFECT[op];
+        maxDepth = Math.max(maxDepth, depth);
+    }
+
+    /**
+     * Emits a jump whose target is filled in later with patch.
+     *
+     * @param op the jump opcode
+     * @return the index of the operand to patch
+     */
+    private int emitJump(int op)
+    {
+        emit(op, -1);
+        return size - 1;
+    }
+
+    /**
+     * Points a jump emitted by emitJump at the current end of the code.
+     *
+     * @param operand the index of the jump operand
+     */
+    private void patch(int operand)
+    {
+        code[operand] = size;
+    }
+
+    /**
+     * Points jumps emitted with a target of -1 at the current end of the code.
+     *
+     * @param operands the indices of the jump operands
+     */
+    private void patch(List<Integer> operands)
+    {
+        for (int operand : operands)
+        {
+            patch(operand);
+        }
+    }
+
+    /**
+     * Emits an instruction that throws a RuntimeException.
+     *
+     * @param op FAIL or FAIL_MISSING
+     * @param message the exception message
+     */
+    private void fail(int op, String message)
+    {
+        messages.add(message);
+        emit(op, messages.size() - 1);
+    }
+
+    /**
+     * Emits code that evaluates a condition and jumps to target when it has the given truth
+     * value. AND and OR jump past their right operand when the left one decides the result.
+     *
+     * @param e the condition
+     * @param when the truth value on which to jump
+     * @param target the jump target, or -1 to patch it later
+     * @param pending receives the indices of the jump operands when target is -1
+     */
+    private void jumpIf(Expression e, boolean when, int target, List<Integer> pending)
+    {
+        if (e instanceof BoolOp b)
+        {
+            boolean and = b.getOp().equals(BoolOp.AND);
+            if (and == when)
+            {
+                // the left operand alone can only decide the opposite of when
+                List<Integer> skip = new ArrayList<>();
+                jumpIf(b.getExp1(), !when, -1, skip);
+                jumpIf(b.getExp2(), when, target, pending);
+                patch(skip);
+            }
+            else
+            {
+                jumpIf(b.getExp1(), when, target, pending);
+                jumpIf(b.getExp2(), when, target, pending);
+            }
+            return;
+        }
+        if (e instanceof Not n)
+        {
+            jumpIf(n.getExp(), !when, target, pending);
+            return;
+        }
+        int op;
+        if (e instanceof Condition c)
+        {
+            c.getExp1().accept(this);
+            c.getExp2().accept(this);
+            op = switch (c.getOp())
+            {
+                case "=" -> when ? Opcode.JUMP_EQ : Opcode.JUMP_NE;
+                case "<>" -> when ? Opcode.JUMP_NE : Opcode.JUMP_EQ;
+                case "<" -> when ? Opcode.JUMP_LT : Opcode.JUMP_GE;
+                case "<=" -> when ? Opcode.JUMP_LE : Opcode.JUMP_GT;
+                case ">" -> when ? Opcode.JUMP_GT : Opcode.JUMP_LE;
+                case ">=" -> when ? Opcode.JUMP_GE : Opcode.JUMP_LT;
+                default -> -1;
+            };
+            if (op < 0)
+            {
+                fail(Opcode.FAIL, "Unkown operator '" + c.getOp() + "'");
+                depth -= 2;
+                op = Opcode.JUMP;
+            }
+        }
+        else
+        {
+            e.accept(this);
+            emit(Opcode.CONST, 1);
+            op = when ? Opcode.JUMP_EQ : Opcode.JUMP_NE;
+        }
+        emit(op, target);
+        if (target < 0)
+        {
+            pending.add(size - 1);
+        }
+    }
+
+    /**
+     * Emits code that pushes 1 if a condition holds and 0 otherwise.
+     *
+     * @param e the AND, OR or NOT
+     */
+    private void test(Expression e)
+    {
+        List<Integer> yes = new ArrayList<>();
+        jumpIf(e, true, -1, yes);
+        emit(Opcode.CONST, 0);
+        int toEnd = emitJump(Opcode.JUMP);
+        depth--;
+        patch(yes);
+        emit(Opcode.CONST, 1);
+        patch(toEnd);
+    }
+
+    /**
+     * Emits a load of a variable.
+     *
+     * @param v the variable
+     */
+    private void load(Variable v)
+    {
+        if (v.getSlot() >= 0)
+        {
+            emit(v.isLocal() ? Opcode.LOAD : Opcode.LOAD_GLOBAL, v.getSlot());
+        }
+        else if (current == null)
+        {
+            emit(Opcode.LOAD_GLOBAL, global(v.getName()));
+        }
+        else if (current.getFrameLayout().containsKey(v.getName()))
+        {
+            emit(Opcode.LOAD, frame.get(v.getName()));
+        }
+        else
+        {
+            emit(Opcode.LOAD_DYN, frameSlot(v.getName()), global(v.getName()));
+        }
+    }
+
+    /**
+     * Emits a store into a variable of the value on top of the stack.
+     *
+     * @param v the variable
+     */
+    private void store(Variable v)
+    {
+        if (v.getSlot() >= 0)
+        {
+            emit(v.isLocal() ? Opcode.STORE : Opcode.STORE_GLOBAL, v.getSlot());
+        }
+        else if (current == null)
+        {
+            emit(Opcode.STORE_GLOBAL, global(v.getName()));
+        }
+        else if (current.getFrameLayout().containsKey(v.getName()))
+        {
+            emit(Opcode.STORE, frame.get(v.getName()));
+        }
+        else
+        {
+            emit(Opcode.STORE_DYN, frameSlot(v.getName()), global(v.getName()));
+        }
+    }
+
+    /**
+     * Returns the frame slot of an undeclared name, adding one if needed.
+     *
+     * @param name the variable name
+     * @return the frame slot
+     */
+    private int frameSlot(String name)
+    {
+        return frame.computeIfAbsent(name, n -> frame.size());
+    }
+
+    /**
+     * Returns the frame array slot of a name, or -1 in the main body.
+     *
+     * @param name the array name
+     * @return the frame array slot, or -1
+     */
+    private int frameArray(String name)
+    {
+        if (current == null)
+        {
+            return -1;
+        }
+        return frameArrays.computeIfAbsent(name, n -> frameArrays.size());
+    }
+
+    @Override
+    public Void visitNumber(Number n)
+    {
+        emit(Opcode.CONST, n.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visitVariable(Variable v)
+    {
+        load(v);
+        return null;
+    }
+
+    @Override
+    public Void visitBinOp(BinOp b)
+    {
+        b.getExp1().accept(this);
+        b.getExp2().accept(this);
+        switch (b.getOp())
+        {
+            case "+" -> emit(Opcode.ADD);
+            case "-" -> emit(Opcode.SUB);
+            case "*" -> emit(Opcode.MUL);
+            case "/" -> emit(Opcode.DIV);
+            default ->
+            {
+                fail(Opcode.FAIL, "Unknown operator '" + b.getOp() + "'");
+                depth--;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitCondition(Condition c)
+    {
+        c.getExp1().accept(this);
+        c.getExp2().accept(this);
+        switch (c.getOp())
+        {
+            case "=" -> emit(Opcode.CMP_EQ);
+            case "<>" -> emit(Opcode.CMP_NE);
+            case "<" -> emit(Opcode.CMP_LT);
+            case "<=" -> emit(Opcode.CMP_LE);
+            case ">" -> emit(Opcode.CMP_GT);
+            case ">=" -> emit(Opcode.CMP_GE);
+            default ->
+            {
+                fail(Opcode.FAIL, "Unkown operator '" + c.getOp() + "'");
+                depth--;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitBoolOp(BoolOp b)
+    {
+        test(b);
+        return null;
+    }
+
+    @Override
+    public Void visitNot(Not n)
+    {
+        test(n);
+        return null;
+    }
+
+    @Override
+    public Void visitProcedureCall(ProcedureCall p)
+    {
+        Integer index = procedureIndex.get(p.getName());
+        if (index == null)
+        {
+            fail(Opcode.FAIL_MISSING, "Procedure " + p.getName() + " not found.");
+            depth++;
+            return null;
+        }
+        if (declarations.get(index).getArgs().length != p.getArgVals().length)
+        {
+            fail(Opcode.FAIL, "Invalid number of arguments passed to procedure " + p.getName());
+            depth++;
+            return null;
+        }
+        for (Expression arg : p.getArgVals())
+        {
+            arg.accept(this);
+        }
+        emit(Opcode.CALL, index);
+        depth -= p.getArgVals().length;
+        return null;
+    }
+
+    @Override
+    public Void visitArrayElement(ArrayElement a)
+    {
+        a.getIndex().accept(this);
+        emit(Opcode.ARRAY_LOAD, frameArray(a.getName()), globalArray(a.getName()));
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(Block b)
+    {
+        for (Statement s : b.getStatements())
+        {
+            s.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitAssignment(Assignment a)
+    {
+        if (a.getExpr() instanceof ProcedureCall p && p.isTail())
+        {
+            Integer index = procedureIndex.get(p.getName());
+            if (index != null && declarations.get(index).getArgs().length == p.getArgVals().length)
+            {
+                for (Expression arg : p.getArgVals())
+                {
+                    arg.accept(this);
+                }
+                emit(Opcode.TAIL_CALL, index);
+                depth -= p.getArgVals().length;
+                return null;
+            }
+        }
+        a.getExpr().accept(this);
+        store(a.getVar());
+        return null;
+    }
+
+    @Override
+    public Void visitWriteln(Writeln w)
+    {
+        w.getExpr().accept(this);
+        emit(Opcode.PRINT);
+        return null;
+    }
+
+    @Override
+    public Void visitReadln(Readln r)
+    {
+        emit(Opcode.READ);
+        store(r.getVar());
+        return null;
+    }
+
+    @Override
+    public Void visitIf(If i)
+    {
+        List<Integer> toElse = new ArrayList<>();
+        jumpIf(i.getCondition(), false, -1, toElse);
+        i.getStatement().accept(this);
+        if (i.getElse() != null)
+        {
+            int toEnd = emitJump(Opcode.JUMP);
+            patch(toElse);
+            i.getElse().accept(this);
+            patch(toEnd);
+        }
+        else
+        {
+            patch(toElse);
+        }
+        return null;
+    }
+
+    /**
+     * Compiles a CASE statement to a TABLE_SWITCH when its labels are dense and to a
+     * LOOKUP_SWITCH otherwise. The targets in the table are filled in as the arms are
+     * compiled, and each arm jumps past the others when it is done.
+     *
+     * @param c the statement
+     * @return null
+     */
+    @Override
+    public Void visitCase(Case c)
+    {
+        int[] labels = c.getLabels();
+        boolean dense = c.isDense();
+        int[] table = new int[dense ? labels[labels.length - 1] - labels[0] + 3
+                : 2 * labels.length + 1];
+        switches.add(table);
+        c.getSelector().accept(this);
+        emit(dense ? Opcode.TABLE_SWITCH : Opcode.LOOKUP_SWITCH, switches.size() - 1);
+        int[] entries = new int[c.getArms().length];
+        List<Integer> toEnd = new ArrayList<>();
+        for (int k = 0; k < entries.length; k++)
+        {
+            entries[k] = size;
+            c.getArms()[k].accept(this);
+            toEnd.add(emitJump(Opcode.JUMP));
+        }
+        int otherwise = size;
+        if (c.getElse() != null)
+        {
+            c.getElse().accept(this);
+        }
+        patch(toEnd);
+        if (dense)
+        {
+            table[0] = labels[0];
+            Arrays.fill(table, 1, table.length, otherwise);
+        }
+        else
+        {
+            table[0] = otherwise;
+            System.arraycopy(labels, 0, table, 1, labels.length);
+        }
+        for (int k = 0; k < labels.length; k++)
+        {
+            int at = dense ? 2 + labels[k] - labels[0] : 1 + labels.length + k;
+            table[at] = entries[c.getTargets()[k]];
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitWhile(While w)
+    {
+        int toTest = emitJump(Opcode.JUMP);
+        int body = size;
+        w.getBody().accept(this);
+        patch(toTest);
+        jumpIf(w.getCondition(), true, body, null);
+        return null;
+    }
+
+    @Override
+    public Void visitFor(For f)
+    {
+        f.getInitialization().accept(this);
+        int toTest = emitJump(Opcode.JUMP);
+        int body = size;
+        f.getBody().accept(this);
+        f.getVarUpdate().accept(this);
+        patch(toTest);
+        jumpIf(f.getCondition(), true, body, null);
+        return null;
+    }
+
+    @Override
+    public Void visitProcedureDeclaration(ProcedureDeclaration p)
+    {
+        // the parser only accepts procedures at the program level
+        throw new IllegalStateException("unreachable: " + p);
+    }
+
+    @Override
+    public Void visitArrayDeclaration(ArrayDeclaration a)
+    {
+        a.getSize().accept(this);
+        newArray(a.getName());
+        return null;
+    }
+
+    @Override
+    public Void visitArrayAssignment(ArrayAssignment a)
+    {
+        a.getIndex().accept(this);
+        a.getExpr().accept(this);
+        emit(Opcode.ARRAY_STORE, frameArray(a.getName()), globalArray(a.getName()));
+        return null;
+    }
+
+    @Override
+    public Void visitVarDeclaration(VarDeclaration v)
+    {
+        // the parser keeps VAR sections out of program and procedure bodies
+        throw new IllegalStateException("unreachable: " + v);
+    }
+}
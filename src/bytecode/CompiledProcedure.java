@@ -0,0 +1,133 @@
+package bytecode;
+
+/**
+ * Describes a procedure compiled to bytecode: where its code starts and how its frame
+ * is laid out.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class CompiledProcedure
+{
+    private final String name;
+    private final int[] argSlots;
+    private final int returnSlot;
+    private final int declaredSlots;
+    private int entry;
+    private int frameSize;
+    private int arrayCount;
+    private int maxStack;
+
+    /**
+     * Constructs a CompiledProcedure whose code has not been emitted yet.
+     *
+     * @param name the name of the procedure
+     * @param argSlots the frame slot of each parameter, in order
+     * @param returnSlot the frame slot of the return variable
+     * @param declaredSlots the number of frame slots for parameters, the return variable and
+     *                      declared locals, which are always defined
+     */
+    public CompiledProcedure(String name, int[] argSlots, int returnSlot, int declaredSlots)
+    {
+        this.name = name;
+        this.argSlots = argSlots;
+        this.returnSlot = returnSlot;
+        this.declaredSlots = declaredSlots;
+    }
+
+    /**
+     * Records where the code was emitted and how large the frame turned out to be.
+     *
+     * @param entry the index of the first instruction
+     * @param frameSize the total number of frame slots
+     * @param arrayCount the number of frame arrays
+     * @param maxStack the maximum operand stack depth of the body
+     */
+    void setCode(int entry, int frameSize, int arrayCount, int maxStack)
+    {
+        this.entry = entry;
+        this.frameSize = frameSize;
+        this.arrayCount = arrayCount;
+        this.maxStack = maxStack;
+    }
+
+    /**
+     * Returns the name of the procedure.
+     *
+     * @return the name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the frame slot of each parameter.
+     *
+     * @return the parameter slots, in order
+     */
+    public int[] getArgSlots()
+    {
+        return argSlots;
+    }
+
+    /**
+     * Returns the frame slot of the return variable.
+     *
+     * @return the return slot
+     */
+    public int getReturnSlot()
+    {
+        return returnSlot;
+    }
+
+    /**
+     * Returns the number of frame slots that are defined when the frame is created.
+     *
+     * @return the number of declared slots
+     */
+    public int getDeclaredSlots()
+    {
+        return declaredSlots;
+    }
+
+    /**
+     * Returns the index of the first instruction of the procedure.
+     *
+     * @return the entry point
+     */
+    public int getEntry()
+    {
+        return entry;
+    }
+
+    /**
+     * Returns the total number of frame slots.
+     *
+     * @return the frame size
+     */
+    public int getFrameSize()
+    {
+        return frameSize;
+    }
+
+    /**
+     * Returns the number of arrays the procedure declares in its frame.
+     *
+     * @return the number of frame arrays
+     */
+    public int getArrayCount()
+    {
+        return arrayCount;
+    }
+
+    /**
+     * Returns the maximum operand stack depth of the procedure body.
+     *
+     * @return the maximum stack depth
+     */
+    public int getMaxStack()
+    {
+        return maxStack;
+    }
+}
@@ -0,0 +1,162 @@
+package bytecode;
+
+import java.util.*;
+
+/**
+ * A program compiled to bytecode. The code of the main body starts at index 0 of the code
+ * array and ends with HALT; the code of each procedure follows it and ends with RETURN.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class CompiledProgram
+{
+    private final int[] code;
+    private final int mainMaxStack;
+    private final List<String> globals;
+    private final int declaredGlobals;
+    private final List<String> globalArrays;
+    private final List<CompiledProcedure> procedures;
+    private final List<String> messages;
+    private final List<int[]> switches;
+
+    /**
+     * Constructs a CompiledProgram.
+     *
+     * @param code the code array
+     * @param mainMaxStack the maximum operand stack depth of the main body
+     * @param globals the name of each global slot
+     * @param declaredGlobals the number of global slots declared in the program's VAR section
+     * @param globalArrays the name of each global array
+     * @param procedures the compiled procedures, indexed by the operand of CALL
+     * @param messages the error messages, indexed by the operand of FAIL
+     * @param switches the switch tables, indexed by the operand of TABLE_SWITCH and
+     *                 LOOKUP_SWITCH
+     */
+    public CompiledProgram(int[] code, int mainMaxStack, List<String> globals,
+            int declaredGlobals, List<String> globalArrays, List<CompiledProcedure> procedures,
+            List<String> messages, List<int[]> switches)
+    {
+        this.code = code;
+        this.mainMaxStack = mainMaxStack;
+        this.globals = globals;
+        this.declaredGlobals = declaredGlobals;
+        this.globalArrays = globalArrays;
+        this.procedures = procedures;
+        this.messages = messages;
+        this.switches = switches;
+    }
+
+    /**
+     * Returns the code array.
+     *
+     * @return the code
+     */
+    public int[] getCode()
+    {
+        return code;
+    }
+
+    /**
+     * Returns the maximum operand stack depth of the main body.
+     *
+     * @return the maximum stack depth
+     */
+    public int getMainMaxStack()
+    {
+        return mainMaxStack;
+    }
+
+    /**
+     * Returns the name of each global slot.
+     *
+     * @return the global names, indexed by slot
+     */
+    public List<String> getGlobals()
+    {
+        return globals;
+    }
+
+    /**
+     * Returns the number of global slots that are defined before the program starts.
+     *
+     * @return the number of declared globals
+     */
+    public int getDeclaredGlobals()
+    {
+        return declaredGlobals;
+    }
+
+    /**
+     * Returns the name of each global array.
+     *
+     * @return the global array names, indexed by array slot
+     */
+    public List<String> getGlobalArrays()
+    {
+        return globalArrays;
+    }
+
+    /**
+     * Returns the compiled procedures.
+     *
+     * @return the procedures, indexed by the operand of CALL
+     */
+    public List<CompiledProcedure> getProcedures()
+    {
+        return procedures;
+    }
+
+    /**
+     * Returns the error messages used by FAIL instructions.
+     *
+     * @return the messages
+     */
+    public List<String> getMessages()
+    {
+        return messages;
+    }
+
+    /**
+     * Returns the switch tables used by TABLE_SWITCH and LOOKUP_SWITCH.
+     *
+     * @return the tables
+     */
+    public List<int[]> getSwitches()
+    {
+        return switches;
+    }
+
+    /**
+     * Returns a readable listing of the code, one instruction per line.
+     *
+     * @return the listing
+     */
+    public String disassemble()
+    {
+        Map<Integer, String> entries = new HashMap<>();
+        entries.put(0, "main");
+        for (CompiledProcedure p : procedures)
+        {
+            entries.put(p.getEntry(), p.getName());
+        }
+        StringBuilder out = new StringBuilder();
+        int pc = 0;
+        while (pc < code.length)
+        {
+            if (entries.containsKey(pc))
+            {
+                out.append(entries.get(pc)).append(":\n");
+            }
+            int op = code[pc];
+            out.append(String.format("%5d  %s", pc, Opcode.NAMES[op]));
+            for (int i = 1; i <= Opcode.OPERANDS[op]; i++)
+            {
+                out.append(' ').append(code[pc + i]);
+            }
+            out.append('\n');
+            pc += 1 + Opcode.OPERANDS[op];
+        }
+        return out.toString();
+    }
+}
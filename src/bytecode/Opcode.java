@@ -0,0 +1,149 @@
+package bytecode;
+
+/**
+ * The instruction set of the virtual machine. Each instruction is one int in the code array,
+ * followed by the number of int operands listed in OPERANDS.
+ *
+ * Variables are addressed by slot. Frame slots hold the parameters, return variable and
+ * declared locals of the running procedure, followed by the undeclared names it uses.
+ * Global slots hold every variable of the root environment. Undeclared names inside a
+ * procedure are accessed with the _DYN instructions, which follow the same lookup rules as
+ * Environment: the frame if the name is defined there, then the root, and otherwise a new
+ * frame variable.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class Opcode
+{
+    /** push operand */
+    public static final int CONST = 0;
+    /** push frame slot operand */
+    public static final int LOAD = 1;
+    /** pop into frame slot operand */
+    public static final int STORE = 2;
+    /** push global slot operand, defining it */
+    public static final int LOAD_GLOBAL = 3;
+    /** pop into global slot operand, defining it */
+    public static final int STORE_GLOBAL = 4;
+    /** push frame slot operand 1 if defined, else global slot operand 2 if defined, else 0 */
+    public static final int LOAD_DYN = 5;
+    /** pop into frame slot operand 1 if defined, else global slot operand 2 if defined */
+    public static final int STORE_DYN = 6;
+    /** pop b, pop a, push a + b */
+    public static final int ADD = 7;
+    /** pop b, pop a, push a - b */
+    public static final int SUB = 8;
+    /** pop b, pop a, push a * b */
+    public static final int MUL = 9;
+    /** pop b, pop a, push a / b */
+    public static final int DIV = 10;
+    /** pop b, pop a, push 1 if a = b, else 0 */
+    public static final int CMP_EQ = 11;
+    /** pop b, pop a, push 1 if a <> b, else 0 */
+    public static final int CMP_NE = 12;
+    /** pop b, pop a, push 1 if a < b, else 0 */
+    public static final int CMP_LT = 13;
+    /** pop b, pop a, push 1 if a <= b, else 0 */
+    public static final int CMP_LE = 14;
+    /** pop b, pop a, push 1 if a > b, else 0 */
+    public static final int CMP_GT = 15;
+    /** pop b, pop a, push 1 if a >= b, else 0 */
+    public static final int CMP_GE = 16;
+    /** pop b, pop a, jump to operand if a <> b */
+    public static final int JUMP_NE = 17;
+    /** pop b, pop a, jump to operand if a = b */
+    public static final int JUMP_EQ = 18;
+    /** pop b, pop a, jump to operand if a >= b */
+    public static final int JUMP_GE = 19;
+    /** pop b, pop a, jump to operand if a > b */
+    public static final int JUMP_GT = 20;
+    /** pop b, pop a, jump to operand if a <= b */
+    public static final int JUMP_LE = 21;
+    /** pop b, pop a, jump to operand if a < b */
+    public static final int JUMP_LT = 22;
+    /** jump to operand */
+    public static final int JUMP = 23;
+    /** pop a, jump to operand if a = 0 */
+    public static final int JUMP_FALSE = 24;
+    /** pop a, jump to operand if a <> 0 */
+    public static final int JUMP_TRUE = 25;
+    /** call procedure operand with its arguments on the stack, push its result */
+    public static final int CALL = 26;
+    /** return the frame's return variable to the caller */
+    public static final int RETURN = 27;
+    /** pop a, print it */
+    public static final int PRINT = 28;
+    /** read an integer from standard input and push it */
+    public static final int READ = 29;
+    /** pop size, declare frame array operand */
+    public static final int NEW_ARRAY = 30;
+    /** pop size, declare global array operand */
+    public static final int NEW_ARRAY_GLOBAL = 31;
+    /** pop index, push element of frame array operand 1 or global array operand 2 */
+    public static final int ARRAY_LOAD = 32;
+    /** pop value, pop index, store into frame array operand 1 or global array operand 2 */
+    public static final int ARRAY_STORE = 33;
+    /** throw a RuntimeException with message operand */
+    public static final int FAIL = 34;
+    /** throw a NoSuchElementException with message operand */
+    public static final int FAIL_MISSING = 35;
+    /** stop the program */
+    public static final int HALT = 36;
+    /** call procedure operand with its arguments on the stack in place of the running one */
+    public static final int TAIL_CALL = 37;
+    /**
+     * pop a, jump through switch table operand, which holds the lowest value, the default
+     * target and the target of each value from the lowest on
+     */
+    public static final int TABLE_SWITCH = 38;
+    /**
+     * pop a, jump through switch table operand, which holds the default target, the sorted
+     * keys and the target of each key, found by binary search
+     */
+    public static final int LOOKUP_SWITCH = 39;
+
+    /**
+     * The mnemonic of each instruction, indexed by opcode.
+     */
+    public static final String[] NAMES = {
+        "CONST", "LOAD", "STORE", "LOAD_GLOBAL", "STORE_GLOBAL", "LOAD_DYN", "STORE_DYN",
+        "ADD", "SUB", "MUL", "DIV", "CMP_EQ", "CMP_NE", "CMP_LT", "CMP_LE", "CMP_GT", "CMP_GE",
+        "JUMP_NE", "JUMP_EQ", "JUMP_GE", "JUMP_GT", "JUMP_LE", "JUMP_LT", "JUMP", "JUMP_FALSE",
+        "JUMP_TRUE", "CALL", "RETURN", "PRINT", "READ", "NEW_ARRAY", "NEW_ARRAY_GLOBAL",
+        "ARRAY_LOAD", "ARRAY_STORE", "FAIL", "FAIL_MISSING", "HALT", "TAIL_CALL",
+        "TABLE_SWITCH", "LOOKUP_SWITCH"
+    };
+
+    /**
+     * The number of operands of each instruction, indexed by opcode.
+     */
+    public static final int[] OPERANDS = {
+        1, 1, 1, 1, 1, 2, 2,
+        0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+        1, 1, 1, 1, 1, 1, 1, 1,
+        1, 1, 0, 0, 0, 1, 1,
+        2, 2, 1, 1, 0, 1,
+        1, 1
+    };
+
+    /**
+     * The change in operand stack depth caused by each instruction, indexed by opcode.
+     * CALL is listed as +1 and TAIL_CALL as 0, and both pop their arguments separately.
+     */
+    public static final int[] STACK_EFFECT = {
+        1, 1, -1, 1, -1, 1, -1,
+        -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+        -2, -2, -2, -2, -2, -2, 0, -1,
+        -1, 1, 0, -1, 1, -1, -1,
+        0, -2, 0, 0, 0, 0,
+        -1, -1
+    };
+
+    /**
+     * Prevents instantiation.
+     */
+    private Opcode()
+    {
+    }
+}
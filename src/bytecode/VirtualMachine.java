@@ -0,0 +1,428 @@
+package bytecode;
+
+import ast.Readln;
+import environment.IntArray;
+import java.io.*;
+import java.util.*;
+
+/**
+ * Runs a CompiledProgram. The interpreter is a single dispatch loop over the int code array
+ * with an int operand stack. Procedure frames are kept on an explicit call stack instead of
+ * the Java stack, so Pascal recursion does not use a Java frame per call.
+ *
+ * Output from WRITELN is buffered and flushed before each READLN and when the program stops.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class VirtualMachine
+{
+    private final CompiledProgram program;
+    private final int[] globals;
+    private final boolean[] defined;
+    private final IntArray[] globalArrays;
+    private final PrintWriter out;
+
+    /**
+     * A procedure activation on the call stack.
+     */
+    private static final class Frame
+    {
+        private final int[] locals;
+        private final boolean[] defined;
+        private final IntArray[] arrays;
+        private final CompiledProcedure procedure;
+        private final int returnPc;
+
+        /**
+         * Constructs a Frame.
+         *
+         * @param locals the frame slots
+         * @param defined which frame slots are defined
+         * @param arrays the frame arrays
+         * @param procedure the procedure running in this frame, or null for the main body
+         * @param returnPc the instruction to continue at in the caller
+         */
+        Frame(int[] locals, boolean[] defined, IntArray[] arrays, CompiledProcedure procedure,
+                int returnPc)
+        {
+            this.locals = locals;
+            this.defined = defined;
+            this.arrays = arrays;
+            this.procedure = procedure;
+            this.returnPc = returnPc;
+        }
+    }
+
+    /**
+     * Constructs a VirtualMachine for the given program.
+     *
+     * @param program the compiled program
+     */
+    public VirtualMachine(CompiledProgram program)
+    {
+        this.program = program;
+        this.globals = new int[program.getGlobals().size()];
+        this.defined = new boolean[globals.length];
+        Arrays.fill(defined, 0, program.getDeclaredGlobals(), true);
+        this.globalArrays = new IntArray[program.getGlobalArrays().size()];
+        this.out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out)));
+    }
+
+    /**
+     * Returns the current values of the global variables that have been defined.
+     *
+     * @return a map from global name to value
+     */
+    public Map<String, Integer> getGlobals()
+    {
+        Map<String, Integer> values = new HashMap<>();
+        for (int i = 0; i < globals.length; i++)
+        {
+            if (defined[i])
+            {
+                values.put(program.getGlobals().get(i), globals[i]);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Runs the program from the start of the main body until it halts.
+     *
+     * @throws RuntimeException for the same run-time errors as Program.exec
+     */
+    public void run()
+    {
+        try
+        {
+            execute();
+        }
+        finally
+        {
+            out.flush();
+        }
+    }
+
+    /**
+     * The dispatch loop.
+     */
+    private void execute()
+    {
+        final int[] code = program.getCode();
+        final int[] globals = this.globals;
+        final boolean[] gdefined = this.defined;
+        final int[][] switches = program.getSwitches().toArray(new int[0][]);
+        int[] stack = new int[Math.max(16, program.getMainMaxStack() + 1)];
+        int sp = 0;
+        int pc = 0;
+        Frame[] calls = new Frame[64];
+        int depth = 0;
+        int[] locals = new int[0];
+        boolean[] ldefined = new boolean[0];
+        IntArray[] larrays = new IntArray[0];
+        calls[0] = new Frame(locals, ldefined, larrays, null, -1);
+
+        while (true)
+        {
+            switch (code[pc])
+            {
+                case Opcode.CONST ->
+                {
+                    stack[sp++] = code[pc + 1];
+                    pc += 2;
+                }
+                case Opcode.LOAD ->
+                {
+                    stack[sp++] = locals[code[pc + 1]];
+                    pc += 2;
+                }
+                case Opcode.STORE ->
+                {
+                    locals[code[pc + 1]] = stack[--sp];
+                    pc += 2;
+                }
+                case Opcode.LOAD_GLOBAL ->
+                {
+                    int g = code[pc + 1];
+                    gdefined[g] = true;
+                    stack[sp++] = globals[g];
+                    pc += 2;
+                }
+                case Opcode.STORE_GLOBAL ->
+                {
+                    int g = code[pc + 1];
+                    gdefined[g] = true;
+                    globals[g] = stack[--sp];
+                    pc += 2;
+                }
+                case Opcode.LOAD_DYN ->
+                {
+                    int l = code[pc + 1];
+                    int g = code[pc + 2];
+                    if (ldefined[l])
+                    {
+                        stack[sp++] = locals[l];
+                    }
+                    else if (gdefined[g])
+                    {
+                        stack[sp++] = globals[g];
+                    }
+                    else
+                    {
+                        ldefined[l] = true; // undefined variables are created as 0
+                        locals[l] = 0;
+                        stack[sp++] = 0;
+                    }
+                    pc += 3;
+                }
+                case Opcode.STORE_DYN ->
+                {
+                    int l = code[pc + 1];
+                    int g = code[pc + 2];
+                    if (!ldefined[l] && gdefined[g])
+                    {
+                        globals[g] = stack[--sp];
+                    }
+                    else
+                    {
+                        ldefined[l] = true;
+                        locals[l] = stack[--sp];
+                    }
+                    pc += 3;
+                }
+                case Opcode.ADD ->
+                {
+                    sp--;
+                    stack[sp - 1] += stack[sp];
+                    pc++;
+                }
+                case Opcode.SUB ->
+                {
+                    sp--;
+                    stack[sp - 1] -= stack[sp];
+                    pc++;
+                }
+                case Opcode.MUL ->
+                {
+                    sp--;
+                    stack[sp - 1] *= stack[sp];
+                    pc++;
+                }
+                case Opcode.DIV ->
+                {
+                    sp--;
+                    stack[sp - 1] /= stack[sp];
+                    pc++;
+                }
+                case Opcode.CMP_EQ ->
+                {
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] == stack[sp] ? 1 : 0;
+                    pc++;
+                }
+                case Opcode.CMP_NE ->
+                {
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] != stack[sp] ? 1 : 0;
+                    pc++;
+                }
+                case Opcode.CMP_LT ->
+                {
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] < stack[sp] ? 1 : 0;
+                    pc++;
+                }
+                case Opcode.CMP_LE ->
+                {
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] <= stack[sp] ? 1 : 0;
+                    pc++;
+                }
+                case Opcode.CMP_GT ->
+                {
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] > stack[sp] ? 1 : 0;
+                    pc++;
+                }
+                case Opcode.CMP_GE ->
+                {
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1] >= stack[sp] ? 1 : 0;
+                    pc++;
+                }
+                case Opcode.JUMP_NE ->
+                {
+                    sp -= 2;
+                    pc = stack[sp] != stack[sp + 1] ? code[pc + 1] : pc + 2;
+                }
+                case Opcode.JUMP_EQ ->
+                {
+                    sp -= 2;
+                    pc = stack[sp] == stack[sp + 1] ? code[pc + 1] : pc + 2;
+                }
+                case Opcode.JUMP_GE ->
+                {
+                    sp -= 2;
+                    pc = stack[sp] >= stack[sp + 1] ? code[pc + 1] : pc + 2;
+                }
+                case Opcode.JUMP_GT ->
+                {
+                    sp -= 2;
+                    pc = stack[sp] > stack[sp + 1] ? code[pc + 1] : pc + 2;
+                }
+                case Opcode.JUMP_LE ->
+                {
+                    sp -= 2;
+                    pc = stack[sp] <= stack[sp + 1] ? code[pc + 1] : pc + 2;
+                }
+                case Opcode.JUMP_LT ->
+                {
+                    sp -= 2;
+                    pc = stack[sp] < stack[sp + 1] ? code[pc + 1] : pc + 2;
+                }
+                case Opcode.JUMP -> pc = code[pc + 1];
+                case Opcode.TABLE_SWITCH ->
+                {
+                    int[] table = switches[code[pc + 1]];
+                    long offset = (long) stack[--sp] - table[0];
+                    pc = offset >= 0 && offset < table.length - 2 ? table[2 + (int) offset]
+                            : table[1];
+                }
+                case Opcode.LOOKUP_SWITCH ->
+                {
+                    int[] table = switches[code[pc + 1]];
+                    int value = stack[--sp];
+                    int keys = table.length >> 1;
+                    int low = 1;
+                    int high = keys;
+                    pc = table[0];
+                    while (low <= high)
+                    {
+                        int middle = (low + high) >>> 1;
+                        if (table[middle] < value)
+                        {
+                            low = middle + 1;
+                        }
+                        else if (table[middle] > value)
+                        {
+                            high = middle - 1;
+                        }
+                        else
+                        {
+                            pc = table[middle + keys];
+                            break;
+                        }
+                    }
+                }
+                case Opcode.JUMP_FALSE -> pc = stack[--sp] == 0 ? code[pc + 1] : pc + 2;
+                case Opcode.JUMP_TRUE -> pc = stack[--sp] != 0 ? code[pc + 1] : pc + 2;
+                case Opcode.CALL, Opcode.TAIL_CALL ->
+                {
+                    CompiledProcedure callee = program.getProcedures().get(code[pc + 1]);
+                    boolean tail = code[pc] == Opcode.TAIL_CALL;
+                    int[] argSlots = callee.getArgSlots();
+                    locals = new int[callee.getFrameSize()];
+                    ldefined = new boolean[locals.length];
+                    Arrays.fill(ldefined, 0, callee.getDeclaredSlots(), true);
+                    larrays = new IntArray[callee.getArrayCount()];
+                    sp -= argSlots.length;
+                    for (int i = 0; i < argSlots.length; i++)
+                    {
+                        locals[argSlots[i]] = stack[sp + i];
+                    }
+                    locals[callee.getReturnSlot()] = 0;
+                    int returnPc = tail ? calls[depth].returnPc : pc + 2;
+                    if (!tail && ++depth == calls.length)
+                    {
+                        calls = Arrays.copyOf(calls, depth * 2);
+                    }
+                    calls[depth] = new Frame(locals, ldefined, larrays, callee, returnPc);
+                    if (sp + callee.getMaxStack() + 1 >= stack.length)
+                    {
+                        stack = Arrays.copyOf(stack, 2 * (sp + callee.getMaxStack() + 1));
+                    }
+                    pc = callee.getEntry();
+                }
+                case Opcode.RETURN ->
+                {
+                    Frame done = calls[depth];
+                    calls[depth--] = null;
+                    Frame caller = calls[depth];
+                    stack[sp++] = locals[done.procedure.getReturnSlot()];
+                    locals = caller.locals;
+                    ldefined = caller.defined;
+                    larrays = caller.arrays;
+                    pc = done.returnPc;
+                }
+                case Opcode.PRINT ->
+                {
+                    out.println(stack[--sp]);
+                    pc++;
+                }
+                case Opcode.READ ->
+                {
+                    out.flush();
+                    stack[sp++] = Readln.readInt();
+                    pc++;
+                }
+                case Opcode.NEW_ARRAY ->
+                {
+                    larrays[code[pc + 1]] = IntArray.allocate(stack[--sp]);
+                    pc += 2;
+                }
+                case Opcode.NEW_ARRAY_GLOBAL ->
+                {
+                    globalArrays[code[pc + 1]] = IntArray.allocate(stack[--sp]);
+                    pc += 2;
+                }
+                case Opcode.ARRAY_LOAD ->
+                {
+                    IntArray a = array(larrays, code[pc + 1], code[pc + 2]);
+                    stack[sp - 1] = a.get(stack[sp - 1]);
+                    pc += 3;
+                }
+                case Opcode.ARRAY_STORE ->
+                {
+                    IntArray a = array(larrays, code[pc + 1], code[pc + 2]);
+                    sp -= 2;
+                    a.set(stack[sp], stack[sp + 1]);
+                    pc += 3;
+                }
+                case Opcode.FAIL ->
+                    throw new RuntimeException(program.getMessages().get(code[pc + 1]));
+                case Opcode.FAIL_MISSING ->
+                    throw new NoSuchElementException(program.getMessages().get(code[pc + 1]));
+                case Opcode.HALT ->
+                {
+                    return;
+                }
+                default -> throw new IllegalStateException("Bad opcode " + code[pc] + " at " + pc);
+            }
+        }
+    }
+
+    /**
+     * Finds an array in the frame, or in the root if the frame does not declare it.
+     *
+     * @param frameArrays the arrays of the current frame
+     * @param local the frame array slot, or -1 in the main body
+     * @param global the global array slot
+     * @return the array
+     * @throws NoSuchElementException if the array has not been declared
+     */
+    private IntArray array(IntArray[] frameArrays, int local, int global)
+    {
+        IntArray a = local >= 0 ? frameArrays[local] : null;
+        if (a == null)
+        {
+            a = globalArrays[global];
+            if (a == null)
+            {
+                throw new NoSuchElementException("Array " + program.getGlobalArrays().get(global)
+                        + " not found.");
+            }
+        }
+        return a;
+    }
+}
@@ -0,0 +1,628 @@
+package closure;
+
+import ast.*;
+import ast.Number;
+import environment.IntArray;
+import java.util.*;
+
+/**
+ * Compiles each node of a Program once into a tree of specialized closures.
+ *
+ * Operator strings are resolved while compiling, so a BinOp "+" becomes a closure that only
+ * adds, and a Condition becomes a TestNode that branches directly on a boolean. Constant
+ * subexpressions are folded and constant operands are inlined into their parent's closure.
+ * Variables become slot or name accesses depending on how the parser resolved them, and
+ * procedure calls are bound to their target procedure. The closures run against the same
+ * Environment as Program.exec and behave the same way. The calls in tail position they leave
+ * go through an ExecutionContext of their own, since the closures take no context.
+ *
+ * @author Vouk
+ * @version October 19, 2026
+ */
+public class ClosureCompiler implements ExpressionVisitor<IntNode>, StatementVisitor<ExecNode>
+{
+    private final Map<String, ClosureProcedure> procedures = new HashMap<>();
+    private final ExecutionContext context = new ExecutionContext(); // for tail calls
+
+    /**
+     * Compiles a program.
+     *
+     * Precondition: The program was produced by the Parser.
+     * Postcondition: Returns closures that produce the same output as program.exec.
+     *
+     * @param program the program to compile
+     * @return the compiled program
+     */
+    public static ClosureProgram compile(Program program)
+    {
+        return new ClosureCompiler().compileProgram(program);
+    }
+
+    /**
+     * Compiles a set of procedures, binding the calls between them.
+     *
+     * Precondition: The procedures have different names.
+     * Postcondition: A call to a name that is not in the set fails when it runs, as it would
+     * in the interpreter.
+     *
+     * @param declarations the procedures to compile
+     * @return the compiled procedures by name
+     */
+    public static Map<String, ClosureProcedure> compileProcedures(
+            Collection<ProcedureDeclaration> declarations)
+    {
+        ClosureCompiler compiler = new ClosureCompiler();
+        for (ProcedureDeclaration d : declarations)
+        {
+            compiler.procedures.put(d.getName(),
+                    new ClosureProcedure(d, compiler.procedures, compiler.context));
+        }
+        for (ClosureProcedure proc : compiler.procedures.values())
+        {
+            proc.setBody(proc.getDeclaration().getBody().accept(compiler));
+        }
+        return compiler.procedures;
+    }
+
+    /**
+     * Binds every procedure name, then compiles the procedure bodies and the main body.
+     *
+     * @param program the program to compile
+     * @return the compiled program
+     */
+    private ClosureProgram compileProgram(Program program)
+    {
+        VarDeclaration globals = null;
+        List<ProcedureDeclaration> declarations = new ArrayList<>();
+        Program p = program;
+        while (p.getMainBody() == null)
+        {
+            if (p.getDeclarations() != null)
+            {
+                globals = p.getDeclarations();
+            }
+            else
+            {
+                declarations.add(p.getProcedure());
+                // a later declaration with the same name replaces an earlier one
+                procedures.put(p.getProcedure().getName(),
+                        new ClosureProcedure(p.getProcedure(), procedures, context));
+            }
+            p = p.getChildProgram();
+        }
+        for (ClosureProcedure proc : procedures.values())
+        {
+            proc.setBody(proc.getDeclaration().getBody().accept(this));
+        }
+        return new ClosureProgram(globals, declarations, p.getMainBody().accept(this));
+    }
+
+    /**
+     * Returns the value of an expression if it is made only of constants and can be
+     * computed without an error.
+     *
+     * @param e the expression
+     * @return the constant value, or null if it is not constant
+     */
+    private static Integer constant(Expression e)
+    {
+        if (e instanceof Number n)
+        {
+            return n.getValue();
+        }
+        if (e instanceof BinOp b)
+        {
+            Integer l = constant(b.getExp1());
+            Integer r = constant(b.getExp2());
+            if (l == null || r == null)
+            {
+                return null;
+            }
+            return switch (b.getOp())
+            {
+                case "+" -> l + r;
+                case "-" -> l - r;
+                case "*" -> l * r;
+                case "/" -> r == 0 ? null : l / r; // division by zero must fail at run time
+                default -> null;
+            };
+        }
+        return null;
+    }
+
+    @Override
+    public IntNode visitNumber(Number n)
+    {
+        int value = n.getValue();
+        return env -> value;
+    }
+
+    @Override
+    public IntNode visitVariable(Variable v)
+    {
+        int slot = v.getSlot();
+        String name = v.getName();
+        if (slot < 0)
+        {
+            return env -> env.getVariable(name);
+        }
+        if (v.isLocal())
+        {
+            return env -> env.getSlot(slot);
+        }
+        return env -> env.getRoot().getSlot(slot);
+    }
+
+    @Override
+    public IntNode visitBinOp(BinOp b)
+    {
+        Integer folded = constant(b);
+        if (folded != null)
+        {
+            int value = folded;
+            return env -> value;
+        }
+        IntNode l = b.getExp1().accept(this);
+        Integer rc = constant(b.getExp2());
+        if (rc != null && (rc != 0 || !b.getOp().equals("/")))
+        {
+            int c = rc;
+            switch (b.getOp())
+            {
+                case "+" ->
+                {
+                    return env -> l.eval(env) + c;
+                }
+                case "-" ->
+                {
+                    return env -> l.eval(env) - c;
+                }
+                case "*" ->
+                {
+                    return env -> l.eval(env) * c;
+                }
+                case "/" ->
+                {
+                    return env -> l.eval(env) / c;
+                }
+                default ->
+                {
+                }
+            }
+        }
+        IntNode r = b.getExp2().accept(this);
+        Integer lc = constant(b.getExp1());
+        if (lc != null)
+        {
+            int c = lc;
+            switch (b.getOp())
+            {
+                case "+" ->
+                {
+                    return env -> c + r.eval(env);
+                }
+                case "-" ->
+                {
+                    return env -> c - r.eval(env);
+                }
+                case "*" ->
+                {
+                    return env -> c * r.eval(env);
+                }
+                default ->
+                {
+                }
+            }
+        }
+        String op = b.getOp();
+        return switch (op)
+        {
+            case "+" -> env -> l.eval(env) + r.eval(env);
+            case "-" -> env -> l.eval(env) - r.eval(env);
+            case "*" -> env -> l.eval(env) * r.eval(env);
+            case "/" -> env -> l.eval(env) / r.eval(env);
+            default -> env ->
+            {
+                l.eval(env);
+                r.eval(env);
+                throw new RuntimeException("Unknown operator '" + op + "'");
+            };
+        };
+    }
+
+    /**
+     * Compiles the condition of a branch or loop into a closure that tests it directly. AND
+     * and OR only test their right operand when the left one does not decide the result.
+     *
+     * @param e the condition
+     * @return the compiled test
+     */
+    private TestNode test(Expression e)
+    {
+        if (e instanceof Condition c)
+        {
+            return compare(c);
+        }
+        if (e instanceof BoolOp b)
+        {
+            TestNode l = test(b.getExp1());
+            TestNode r = test(b.getExp2());
+            if (b.getOp().equals(BoolOp.AND))
+            {
+                return env -> l.test(env) && r.test(env);
+            }
+            return env -> l.test(env) || r.test(env);
+        }
+        if (e instanceof Not n)
+        {
+            TestNode t = test(n.getExp());
+            return env -> !t.test(env);
+        }
+        IntNode v = e.accept(this);
+        return env -> v.eval(env) == 1;
+    }
+
+    /**
+     * Compiles a comparison into a closure that tests it directly.
+     *
+     * @param c the comparison
+     * @return the compiled test
+     */
+    private TestNode compare(Condition c)
+    {
+        IntNode l = c.getExp1().accept(this);
+        String op = c.getOp();
+        Integer rc = constant(c.getExp2());
+        if (rc != null)
+        {
+            int k = rc;
+            switch (op)
+            {
+                case "=" ->
+                {
+                    return env -> l.eval(env) == k;
+                }
+                case "<>" ->
+                {
+                    return env -> l.eval(env) != k;
+                }
+                case "<" ->
+                {
+                    return env -> l.eval(env) < k;
+                }
+                case "<=" ->
+                {
+                    return env -> l.eval(env) <= k;
+                }
+                case ">" ->
+                {
+                    return env -> l.eval(env) > k;
+                }
+                case ">=" ->
+                {
+                    return env -> l.eval(env) >= k;
+                }
+                default ->
+                {
+                }
+            }
+        }
+        IntNode r = c.getExp2().accept(this);
+        return switch (op)
+        {
+            case "=" -> env -> l.eval(env) == r.eval(env);
+            case "<>" -> env -> l.eval(env) != r.eval(env);
+            case "<" -> env -> l.eval(env) < r.eval(env);
+            case "<=" -> env -> l.eval(env) <= r.eval(env);
+            case ">" -> env -> l.eval(env) > r.eval(env);
+            case ">=" -> env -> l.eval(env) >= r.eval(env);
+            default -> env ->
+            {
+                throw new RuntimeException("Unkown operator '" + op + "'");
+            };
+        };
+    }
+
+    @Override
+    public IntNode visitCondition(Condition c)
+    {
+        TestNode t = test(c);
+        return env -> t.test(env) ? 1 : 0;
+    }
+
+    @Override
+    public IntNode visitBoolOp(BoolOp b)
+    {
+        TestNode t = test(b);
+        return env -> t.test(env) ? 1 : 0;
+    }
+
+    @Override
+    public IntNode visitNot(Not n)
+    {
+        TestNode t = test(n);
+        return env -> t.test(env) ? 1 : 0;
+    }
+
+    @Override
+    public IntNode visitProcedureCall(ProcedureCall p)
+    {
+        String name = p.getName();
+        ClosureProcedure target = procedures.get(name);
+        if (target == null)
+        {
+            return env ->
+            {
+                throw new NoSuchElementException("Procedure " + name + " not found.");
+            };
+        }
+        if (target.getDeclaration().getArgs().length != p.getArgVals().length)
+        {
+            return env ->
+            {
+                throw new RuntimeException("Invalid number of arguments passed to procedure "
+                        + name);
+            };
+        }
+        IntNode[] args = new IntNode[p.getArgVals().length];
+        for (int i = 0; i < args.length; i++)
+        {
+            args[i] = p.getArgVals()[i].accept(this);
+        }
+        if (p.isTail())
+        {
+            ProcedureDeclaration declaration = target.getDeclaration();
+            return env ->
+            {
+                int[] values = new int[args.length];
+                for (int i = 0; i < values.length; i++)
+                {
+                    values[i] = args[i].eval(env);
+                }
+                context.setTailCall(declaration, values);
+                return 0;
+            };
+        }
+        return env -> target.call(args, env);
+    }
+
+    @Override
+    public IntNode visitArrayElement(ArrayElement a)
+    {
+        String name = a.getName();
+        IntNode index = a.getIndex().accept(this);
+        return env -> env.getArray(name).get(index.eval(env));
+    }
+
+    @Override
+    public ExecNode visitBlock(Block b)
+    {
+        ExecNode[] nodes = new ExecNode[b.getStatements().size()];
+        for (int i = 0; i < nodes.length; i++)
+        {
+            nodes[i] = b.getStatements().get(i).accept(this);
+        }
+        if (nodes.length == 1)
+        {
+            return nodes[0];
+        }
+        if (nodes.length == 2)
+        {
+            ExecNode first = nodes[0];
+            ExecNode second = nodes[1];
+            return env ->
+            {
+                first.exec(env);
+                second.exec(env);
+            };
+        }
+        return env ->
+        {
+            for (ExecNode n : nodes)
+            {
+                n.exec(env);
+            }
+        };
+    }
+
+    /**
+     * Compiles a store into a variable, specializing increments of slot variables by a
+     * constant.
+     *
+     * @param v the variable
+     * @param expr the expression whose value is stored, or null if value is given instead
+     * @param value the compiled value
+     * @return the compiled store
+     */
+    private ExecNode assign(Variable v, Expression expr, IntNode value)
+    {
+        int slot = v.getSlot();
+        String name = v.getName();
+        if (slot < 0)
+        {
+            return env -> env.setVariable(name, value.eval(env));
+        }
+        if (expr instanceof BinOp b && b.getOp().equals("+") && b.getExp1() instanceof Variable x
+                && x.getSlot() == slot && x.isLocal() == v.isLocal()
+                && b.getExp2() instanceof Number n)
+        {
+            int step = n.getValue();
+            if (v.isLocal())
+            {
+                return env -> env.setSlot(slot, env.getSlot(slot) + step);
+            }
+            return env ->
+            {
+                environment.Environment root = env.getRoot();
+                root.setSlot(slot, root.getSlot(slot) + step);
+            };
+        }
+        if (v.isLocal())
+        {
+            return env -> env.setSlot(slot, value.eval(env));
+        }
+        return env -> env.getRoot().setSlot(slot, value.eval(env));
+    }
+
+    @Override
+    public ExecNode visitAssignment(Assignment a)
+    {
+        return assign(a.getVar(), a.getExpr(), a.getExpr().accept(this));
+    }
+
+    @Override
+    public ExecNode visitWriteln(Writeln w)
+    {
+        IntNode e = w.getExpr().accept(this);
+        return env -> System.out.println(e.eval(env));
+    }
+
+    @Override
+    public ExecNode visitReadln(Readln r)
+    {
+        return assign(r.getVar(), null, env -> Readln.readInt());
+    }
+
+    @Override
+    public ExecNode visitIf(If i)
+    {
+        TestNode c = test(i.getCondition());
+        ExecNode then = i.getStatement().accept(this);
+        ExecNode otherwise = i.getElse() == null ? null : i.getElse().accept(this);
+        if (otherwise == null)
+        {
+            return env ->
+            {
+                if (c.test(env))
+                {
+                    then.exec(env);
+                }
+            };
+        }
+        return env ->
+        {
+            if (c.test(env))
+            {
+                then.exec(env);
+            }
+            else
+            {
+                otherwise.exec(env);
+            }
+        };
+    }
+
+    /**
+     * Compiles a CASE statement. Dense labels index an array of the compiled arms directly,
+     * with the ELSE, or a statement that does nothing, in the gaps; sparse ones are found by
+     * a binary search, so neither compares the selector against every label.
+     *
+     * @param c the statement
+     * @return the compiled statement
+     */
+    @Override
+    public ExecNode visitCase(Case c)
+    {
+        IntNode selector = c.getSelector().accept(this);
+        ExecNode[] arms = new ExecNode[c.getArms().length];
+        for (int k = 0; k < arms.length; k++)
+        {
+            arms[k] = c.getArms()[k].accept(this);
+        }
+        ExecNode otherwise = c.getElse() == null ? env -> { } : c.getElse().accept(this);
+        int[] labels = c.getLabels();
+        if (c.isDense())
+        {
+            int low = labels[0];
+            ExecNode[] table = new ExecNode[labels[labels.length - 1] - low + 1];
+            Arrays.fill(table, otherwise);
+            for (int k = 0; k < labels.length; k++)
+            {
+                table[labels[k] - low] = arms[c.getTargets()[k]];
+            }
+            return env ->
+            {
+                long offset = (long) selector.eval(env) - low;
+                (offset >= 0 && offset < table.length ? table[(int) offset] : otherwise)
+                        .exec(env);
+            };
+        }
+        ExecNode[] byLabel = new ExecNode[labels.length];
+        for (int k = 0; k < labels.length; k++)
+        {
+            byLabel[k] = arms[c.getTargets()[k]];
+        }
+        return env ->
+        {
+            int k = Arrays.binarySearch(labels, selector.eval(env));
+            (k >= 0 ? byLabel[k] : otherwise).exec(env);
+        };
+    }
+
+    @Override
+    public ExecNode visitWhile(While w)
+    {
+        TestNode c = test(w.getCondition());
+        ExecNode body = w.getBody().accept(this);
+        return env ->
+        {
+            while (c.test(env))
+            {
+                body.exec(env);
+            }
+        };
+    }
+
+    @Override
+    public ExecNode visitFor(For f)
+    {
+        ExecNode init = f.getInitialization().accept(this);
+        TestNode c = test(f.getCondition());
+        ExecNode body = f.getBody().accept(this);
+        ExecNode update = f.getVarUpdate().accept(this);
+        return env ->
+        {
+            init.exec(env);
+            while (c.test(env))
+            {
+                body.exec(env);
+                update.exec(env);
+            }
+        };
+    }
+
+    @Override
+    public ExecNode visitProcedureDeclaration(ProcedureDeclaration p)
+    {
+        // the parser only accepts procedures at the program level
+        throw new IllegalStateException("unreachable: " + p);
+    }
+
+    @Override
+    public ExecNode visitArrayDeclaration(ArrayDeclaration a)
+    {
+        String name = a.getName();
+        IntNode size = a.getSize().accept(this);
+        return env -> env.declareArray(name, IntArray.allocate(size.eval(env)));
+    }
+
+    @Override
+    public ExecNode visitArrayAssignment(ArrayAssignment a)
+    {
+        String name = a.getName();
+        IntNode index = a.getIndex().accept(this);
+        IntNode value = a.getExpr().accept(this);
+        return env ->
+        {
+            int i = index.eval(env);
+            env.getArray(name).set(i, value.eval(env));
+        };
+    }
+
+    @Override
+    public ExecNode visitVarDeclaration(VarDeclaration v)
+    {
+        // the parser keeps VAR sections out of program and procedure bodies
+        throw new IllegalStateException("unreachable: " + v);
+    }
+}
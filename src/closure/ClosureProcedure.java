@@ -0,0 +1,140 @@
+package closure;
+
+import ast.ExecutionContext;
+import ast.ProcedureDeclaration;
+import environment.Environment;
+import java.util.Map;
+
+/**
+ * A procedure whose body has been compiled to closures. Calls to it are bound when the
+ * caller is compiled, so no lookup by name happens at run time.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class ClosureProcedure
+{
+    private final ProcedureDeclaration declaration;
+    private final Map<String, ClosureProcedure> procedures; // what calls are bound to
+    private final ExecutionContext context; // where the body leaves its tail calls
+    private final int[] argSlots;
+    private ExecNode body;
+
+    /**
+     * Constructs a ClosureProcedure whose body is compiled later.
+     *
+     * @param declaration the procedure declaration
+     * @param procedures the procedures calls are bound to, by name, which runs the calls
+     * the body makes in tail position
+     * @param context the context the compiled bodies leave their calls in tail position in
+     */
+    public ClosureProcedure(ProcedureDeclaration declaration,
+            Map<String, ClosureProcedure> procedures, ExecutionContext context)
+    {
+        this.declaration = declaration;
+        this.procedures = procedures;
+        this.context = context;
+        String[] args = declaration.getArgs();
+        this.argSlots = new int[args.length];
+        for (int i = 0; i < args.length; i++)
+        {
+            argSlots[i] = declaration.getFrameLayout().get(args[i]);
+        }
+    }
+
+    /**
+     * Returns the procedure declaration.
+     *
+     * @return the declaration
+     */
+    public ProcedureDeclaration getDeclaration()
+    {
+        return declaration;
+    }
+
+    /**
+     * Sets the compiled body.
+     *
+     * @param body the compiled body
+     */
+    void setBody(ExecNode body)
+    {
+        this.body = body;
+    }
+
+    /**
+     * Calls the procedure in a new frame that is a child of the root environment, like
+     * ProcedureDeclaration.runProcedure.
+     *
+     * @param args the compiled argument expressions
+     * @param env the environment of the caller
+     * @return the value of the return variable
+     */
+    public int call(IntNode[] args, Environment env)
+    {
+        Environment local = new Environment(env.getRoot(), declaration.getFrameLayout());
+        for (int i = 0; i < argSlots.length; i++)
+        {
+            local.setSlot(argSlots[i], args[i].eval(env));
+        }
+        return run(local);
+    }
+
+    /**
+     * Calls the procedure with argument values that have already been evaluated.
+     *
+     * @param root the root environment
+     * @param args the argument values, in parameter order
+     * @return the value of the return variable
+     */
+    public int invoke(Environment root, int[] args)
+    {
+        return run(frame(root, args));
+    }
+
+    /**
+     * Creates a frame for the procedure with argument values that have already been
+     * evaluated.
+     *
+     * @param root the root environment
+     * @param args the argument values, in parameter order
+     * @return the frame
+     */
+    private Environment frame(Environment root, int[] args)
+    {
+        Environment local = new Environment(root, declaration.getFrameLayout());
+        for (int i = 0; i < argSlots.length; i++)
+        {
+            local.setSlot(argSlots[i], args[i]);
+        }
+        return local;
+    }
+
+    /**
+     * Runs the body in a frame whose arguments are set, then, while a body leaves a call in
+     * tail position, the procedure called in a new frame, like
+     * ProcedureDeclaration.runProcedure.
+     *
+     * @param local the frame
+     * @return the value of the return variable of the last body that ran
+     */
+    private int run(Environment local)
+    {
+        ClosureProcedure p = this;
+        while (true)
+        {
+            if (p.declaration.getLocals() != null)
+            {
+                p.declaration.getLocals().declareArrays(local);
+            }
+            p.body.exec(local);
+            ProcedureDeclaration next = context.takeTailProcedure();
+            if (next == null)
+            {
+                return local.getSlot(p.declaration.getReturnSlot());
+            }
+            p = procedures.get(next.getName());
+            local = p.frame(local.getRoot(), context.getTailArgs());
+        }
+    }
+}
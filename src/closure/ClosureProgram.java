@@ -0,0 +1,54 @@
+package closure;
+
+import ast.ExecutionContext;
+import ast.ProcedureDeclaration;
+import ast.VarDeclaration;
+import environment.Environment;
+import java.util.List;
+
+/**
+ * A program whose main body and procedures have been compiled to closures.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class ClosureProgram
+{
+    private final VarDeclaration globals;
+    private final List<ProcedureDeclaration> procedures;
+    private final ExecNode main;
+
+    /**
+     * Constructs a ClosureProgram.
+     *
+     * @param globals the program's VAR section, or null if it has none
+     * @param procedures the procedure declarations, in program order
+     * @param main the compiled main body
+     */
+    public ClosureProgram(VarDeclaration globals, List<ProcedureDeclaration> procedures,
+            ExecNode main)
+    {
+        this.globals = globals;
+        this.procedures = procedures;
+        this.main = main;
+    }
+
+    /**
+     * Runs the program, like Program.exec.
+     *
+     * @param env the environment in which to run the program
+     * @param context the context of the run
+     */
+    public void exec(Environment env, ExecutionContext context)
+    {
+        if (globals != null)
+        {
+            globals.exec(env, context);
+        }
+        for (ProcedureDeclaration p : procedures)
+        {
+            p.exec(env, context);
+        }
+        main.exec(env);
+    }
+}
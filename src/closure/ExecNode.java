@@ -0,0 +1,20 @@
+package closure;
+
+import environment.Environment;
+
+/**
+ * A compiled statement.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+@FunctionalInterface
+public interface ExecNode
+{
+    /**
+     * Executes the statement.
+     *
+     * @param env the environment in which to execute the statement
+     */
+    void exec(Environment env);
+}
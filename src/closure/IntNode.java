@@ -0,0 +1,21 @@
+package closure;
+
+import environment.Environment;
+
+/**
+ * A compiled expression that produces an integer.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+@FunctionalInterface
+public interface IntNode
+{
+    /**
+     * Evaluates the expression.
+     *
+     * @param env the environment in which to evaluate the expression
+     * @return the value of the expression
+     */
+    int eval(Environment env);
+}
@@ -0,0 +1,22 @@
+package closure;
+
+import environment.Environment;
+
+/**
+ * A compiled condition that is tested directly by a branch or loop, without going through
+ * an integer 0 or 1.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+@FunctionalInterface
+public interface TestNode
+{
+    /**
+     * Tests the condition.
+     *
+     * @param env the environment in which to evaluate the condition
+     * @return true if the condition holds
+     */
+    boolean test(Environment env);
+}
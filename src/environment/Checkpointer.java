@@ -0,0 +1,280 @@
+package environment;
+
+import ast.CheckpointHook;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Writes snapshots of the interpreter state to a file at loop back-edges in the main body,
+ * so that a long-running program can be resumed after the process restarts.
+ *
+ * The file is a sequence of length-prefixed records. The first record is a base record that
+ * holds every global variable and array and the registered procedure names. Each later record
+ * is a delta that only holds the variables changed since the previous record and, of each
+ * array, the ranges of pages written since then, so the cost of a checkpoint is proportional
+ * to the amount of changed state. Each array is written as its length and a list of ranges,
+ * each an offset, a length and the values, which a base record has one of covering it all. After MAX_DELTAS deltas
+ * the file is compacted into a new base record. A record that was cut off by a crash is ignored on load.
+ *
+ * @author Vouk
+ * @version October 19, 2026
+ */
+public class Checkpointer implements CheckpointHook
+{
+    /**
+     * The number of delta records written before the file is compacted.
+     */
+    public static final int MAX_DELTAS = 64;
+    private static final byte BASE = 0;
+    private static final byte DELTA = 1;
+
+    private final Path file;
+    private final int interval;
+    private int backEdges;
+    private int deltas;
+    private boolean baseWritten;
+
+    /**
+     * Constructs a Checkpointer that writes to the given file every interval back-edges.
+     *
+     * @param file the snapshot file
+     * @param interval the number of loop back-edges between checkpoints
+     * @throws IllegalArgumentException if interval is not positive
+     */
+    public Checkpointer(Path file, int interval)
+    {
+        if (interval <= 0)
+        {
+            throw new IllegalArgumentException("Checkpoint interval must be positive: " + interval);
+        }
+        this.file = file;
+        this.interval = interval;
+    }
+
+    /**
+     * Called by loops each time they finish an iteration. Takes a checkpoint every interval
+     * calls if the loop is running in the root environment, since no procedure frames are
+     * live there.
+     *
+     * @param env the environment the loop is running in
+     * @param position the position of the loop, or null if it cannot be resumed
+     */
+    @Override
+    public void backEdge(Environment env, int[] position)
+    {
+        if (position == null || env.getRoot() != env || ++backEdges < interval)
+        {
+            return;
+        }
+        backEdges = 0;
+        save(env, position);
+    }
+
+    /**
+     * Writes a checkpoint for the given position.
+     *
+     * Precondition: env is the root environment.
+     * Postcondition: A base or delta record is written to the snapshot file.
+     *
+     * @param env the root environment
+     * @param position the position of the loop back-edge
+     * @throws UncheckedIOException if the snapshot file cannot be written
+     */
+    public void save(Environment env, int[] position)
+    {
+        Map<String, Integer> changed = env.drainChangedVariables();
+        try
+        {
+            if (!baseWritten || changed == null || deltas >= MAX_DELTAS)
+            {
+                Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(tmp))))
+                {
+                    writeRecord(out, BASE, position, env.getProcedureNames(), env.getVariables(),
+                            env.getArrays());
+                }
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                baseWritten = true;
+                deltas = 0;
+            }
+            else
+            {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(file, StandardOpenOption.APPEND))))
+                {
+                    writeRecord(out, DELTA, position, null, changed, env.getArrays());
+                }
+                deltas++;
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Could not write checkpoint to " + file, e);
+        }
+    }
+
+    /**
+     * Writes one length-prefixed record.
+     *
+     * @param out the stream to write to
+     * @param kind BASE or DELTA
+     * @param position the loop position
+     * @param procedures the procedure names, only written for a base record
+     * @param vars the variables to write
+     * @param arrays the arrays to write, of which a delta record only writes the pages
+     * modified since the previous record
+     * @throws IOException if the stream cannot be written
+     */
+    private static void writeRecord(DataOutputStream out, byte kind, int[] position,
+            List<String> procedures, Map<String, Integer> vars, Map<String, IntArray> arrays)
+            throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream rec = new DataOutputStream(bytes);
+        rec.writeByte(kind);
+        rec.writeShort(position.length);
+        for (int p : position)
+        {
+            rec.writeShort(p);
+        }
+        if (kind == BASE)
+        {
+            rec.writeShort(procedures.size());
+            for (String p : procedures)
+            {
+                rec.writeUTF(p);
+            }
+        }
+        rec.writeInt(vars.size());
+        for (Map.Entry<String, Integer> var : vars.entrySet())
+        {
+            rec.writeUTF(var.getKey());
+            rec.writeInt(var.getValue());
+        }
+        Map<String, int[]> written = new LinkedHashMap<>();
+        for (Map.Entry<String, IntArray> a : arrays.entrySet())
+        {
+            int[] ranges = a.getValue().drainModified();
+            if (kind == BASE)
+            {
+                written.put(a.getKey(), new int[] {0, a.getValue().length()});
+            }
+            else if (ranges.length > 0)
+            {
+                written.put(a.getKey(), ranges);
+            }
+        }
+        rec.writeInt(written.size());
+        for (Map.Entry<String, int[]> w : written.entrySet())
+        {
+            IntArray a = arrays.get(w.getKey());
+            int[] ranges = w.getValue();
+            rec.writeUTF(w.getKey());
+            rec.writeInt(a.length());
+            rec.writeInt(ranges.length / 2);
+            for (int r = 0; r < ranges.length; r += 2)
+            {
+                rec.writeInt(ranges[r]);
+                rec.writeInt(ranges[r + 1]);
+                for (int i = ranges[r]; i < ranges[r] + ranges[r + 1]; i++)
+                {
+                    rec.writeInt(a.get(i));
+                }
+            }
+        }
+        rec.flush();
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+    }
+
+    /**
+     * Reads a snapshot file, applying every complete delta record on top of the base record.
+     * The ranges of an array in a delta overwrite those elements of the array as it was, and
+     * an array not seen before, or seen with another length, starts out filled with zeros.
+     *
+     * @param file the snapshot file
+     * @return the latest state stored in the file
+     * @throws UncheckedIOException if the file cannot be read or has no base record
+     */
+    public static Snapshot load(Path file)
+    {
+        int[] position = null;
+        List<String> procedures = null;
+        Map<String, Integer> vars = new HashMap<>();
+        Map<String, int[]> arrays = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(file))))
+        {
+            while (true)
+            {
+                byte[] record;
+                try
+                {
+                    record = new byte[in.readInt()];
+                    in.readFully(record);
+                }
+                catch (EOFException e)
+                {
+                    break; // end of file, or a record that was only partly written
+                }
+                DataInputStream rec = new DataInputStream(new ByteArrayInputStream(record));
+                byte kind = rec.readByte();
+                position = new int[rec.readShort()];
+                for (int i = 0; i < position.length; i++)
+                {
+                    position[i] = rec.readShort();
+                }
+                if (kind == BASE)
+                {
+                    procedures = new ArrayList<>();
+                    int n = rec.readShort();
+                    for (int i = 0; i < n; i++)
+                    {
+                        procedures.add(rec.readUTF());
+                    }
+                    vars.clear();
+                    arrays.clear();
+                }
+                int n = rec.readInt();
+                for (int i = 0; i < n; i++)
+                {
+                    vars.put(rec.readUTF(), rec.readInt());
+                }
+                n = rec.readInt();
+                for (int i = 0; i < n; i++)
+                {
+                    String name = rec.readUTF();
+                    int length = rec.readInt();
+                    int[] values = arrays.get(name);
+                    if (values == null || values.length != length)
+                    {
+                        values = new int[length];
+                        arrays.put(name, values);
+                    }
+                    int ranges = rec.readInt();
+                    for (int r = 0; r < ranges; r++)
+                    {
+                        int offset = rec.readInt();
+                        int end = offset + rec.readInt();
+                        for (int j = offset; j < end; j++)
+                        {
+                            values[j] = rec.readInt();
+                        }
+                    }
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Could not read checkpoint from " + file, e);
+        }
+        if (procedures == null)
+        {
+            throw new UncheckedIOException(new IOException("No checkpoint found in " + file));
+        }
+        return new Snapshot(position, procedures, vars, arrays);
+    }
+}
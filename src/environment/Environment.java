@@ -5,6 +5,8 @@ import java.util.*;
 
 /**
  * Represents the environment in which variables are stored and retrieved.
+ * Variables declared in a VAR section live in fixed slots that the AST can address by index,
+ * and every other variable lives in a map keyed by name.
  * 
  * @author Vouk
  * @version October 10, 2025
@@ -13,7 +15,12 @@ public class Environment
 {
     private final Environment parent;
     private final Map<String, Integer> variables;
+    private final Map<String, IntArray> arrays;
     private final Map<String, ProcedureDeclaration> procedures;
+    private Map<String, Integer> slotLayout; // declared variables, stored in slots
+    private int[] slots;
+    private Set<String> changedVariables; // only tracked on the root while checkpointing
+    private boolean[] changedSlots;
 
     /** 
      * Constructs a new Environment. 
@@ -22,6 +29,7 @@ public class Environment
     {
         parent = null;
         variables = new HashMap<>();
+        arrays = new HashMap<>();
         procedures = new HashMap<>();
     }
 
@@ -34,9 +42,24 @@ public class Environment
     {
         parent = p;
         variables = new HashMap<>();
+        arrays = new HashMap<>();
         procedures = null;
     }
 
+    /**
+     * Constructs an environment with the specified parent, whose declared variables are 
+     * stored in fixed slots given by the layout.
+     * 
+     * @param p the parent of the current environment.
+     * @param layout a map from each declared variable name to its slot index
+     */
+    public Environment(Environment p, Map<String, Integer> layout)
+    {
+        this(p);
+        slotLayout = layout;
+        slots = new int[layout.size()];
+    }
+
     /**
      * Goes up the tree of environments to get a reference to the root environment
      * 
@@ -60,6 +83,16 @@ public class Environment
      */
     public void declareVariable(String n, int v)
     {
+        Integer slot = slotLayout == null ? null : slotLayout.get(n);
+        if (slot != null)
+        {
+            setSlot(slot, v);
+            return;
+        }
+        if (changedVariables != null)
+        {
+            changedVariables.add(n);
+        }
         if (variables.containsKey(n))
         {
             variables.replace(n, v);
@@ -77,11 +110,11 @@ public class Environment
      */
     public void setVariable(String n, int v)
     {
-        if (variables.containsKey(n))
+        if (hasVariable(n))
         {
             declareVariable(n, v);
         }
-        else if (getRoot().variables.containsKey(n))
+        else if (getRoot().hasVariable(n))
         {
             getRoot().declareVariable(n, v);
         }
@@ -99,19 +132,131 @@ public class Environment
      */
     public int getVariable(String n)
     {
-        if (!variables.containsKey(n))
+        if (!hasVariable(n))
         {
             Environment root = getRoot();
-            if (!root.variables.containsKey(n))
+            if (!root.hasVariable(n))
             {
                 this.setVariable(n, 0); // sets undefined variable to 0 automatically
                 return 0;
             }
             return root.getVariable(n);
         }
+        Integer slot = slotLayout == null ? null : slotLayout.get(n);
+        if (slot != null)
+        {
+            return slots[slot];
+        }
         return variables.get(n);
     }
 
+    /**
+     * Checks whether a variable is stored directly in this environment, either in a slot
+     * or in the variable map.
+     * 
+     * @param n the name of the variable
+     * @return true if the variable is stored in this environment
+     */
+    private boolean hasVariable(String n)
+    {
+        return slotLayout != null && slotLayout.containsKey(n) || variables.containsKey(n);
+    }
+
+    /**
+     * Lays out declared variables in fixed slots of this environment. Any value a variable 
+     * already had in the variable map is moved into its slot.
+     * 
+     * @param layout a map from each declared variable name to its slot index
+     */
+    public void allocateSlots(Map<String, Integer> layout)
+    {
+        slotLayout = layout;
+        slots = new int[layout.size()];
+        for (Map.Entry<String, Integer> slot : layout.entrySet())
+        {
+            Integer v = variables.remove(slot.getKey());
+            if (v != null)
+            {
+                slots[slot.getValue()] = v;
+            }
+        }
+        if (changedVariables != null)
+        {
+            changedSlots = new boolean[slots.length];
+            Arrays.fill(changedSlots, true);
+        }
+    }
+
+    /**
+     * Gets the value of the variable stored in the given slot.
+     * 
+     * @param i the slot index
+     * @return the value of the variable
+     */
+    public int getSlot(int i)
+    {
+        return slots[i];
+    }
+
+    /**
+     * Sets the value of the variable stored in the given slot.
+     * 
+     * @param i the slot index
+     * @param v the value to set the variable to
+     */
+    public void setSlot(int i, int v)
+    {
+        slots[i] = v;
+        if (changedSlots != null)
+        {
+            changedSlots[i] = true;
+        }
+    }
+
+    /** 
+     * Declares an array in the environment.
+     * If an array with the same name is already declared here, it will be replaced.
+     * 
+     * @param n the name of the array
+     * @param a the array
+     */
+    public void declareArray(String n, IntArray a)
+    {
+        arrays.put(n, a);
+    }
+
+    /** 
+     * Gets an array from this environment, or from the root environment if it is not 
+     * declared here.
+     * 
+     * @param n the name of the array
+     * @return the array
+     * @throws NoSuchElementException if no array with that name is declared
+     */
+    public IntArray getArray(String n)
+    {
+        IntArray a = arrays.get(n);
+        if (a == null)
+        {
+            a = getRoot().arrays.get(n);
+            if (a == null)
+            {
+                throw new NoSuchElementException("Array " + n + " not found.");
+            }
+        }
+        return a;
+    }
+
+    /**
+     * Returns a copy of the arrays declared directly in this environment.
+     *
+     * @return a map from array name to array
+     */
+    public Map<String, IntArray> getArrays()
+    {
+        return new HashMap<>(arrays);
+    }
+
     /** 
      * Sets the procedure in the environment.
      * If it is already declared, it will be replaced.
@@ -143,4 +288,81 @@ public class Environment
             throw new NoSuchElementException("Procedure " + n + " not found.");
         return rootProcedures.get(n);
     }
+
+    /**
+     * Returns the names of all procedures registered in the root environment.
+     *
+     * @return the procedure names in sorted order
+     */
+    public List<String> getProcedureNames()
+    {
+        return new ArrayList<>(new TreeSet<>(getRoot().procedures.keySet()));
+    }
+
+    /**
+     * Returns a copy of the variables stored directly in this environment.
+     *
+     * @return a map from variable name to value
+     */
+    public Map<String, Integer> getVariables()
+    {
+        Map<String, Integer> all = new HashMap<>(variables);
+        if (slotLayout != null)
+        {
+            for (Map.Entry<String, Integer> slot : slotLayout.entrySet())
+            {
+                all.put(slot.getKey(), slots[slot.getValue()]);
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Returns the variables of this environment that changed since the last call, and starts
+     * a new change set. Returns null if changes are not being tracked.
+     *
+     * @return a map from changed variable name to its current value, or null
+     */
+    public Map<String, Integer> drainChangedVariables()
+    {
+        if (changedVariables == null)
+        {
+            return null;
+        }
+        Map<String, Integer> changed = new HashMap<>();
+        for (String n : changedVariables)
+        {
+            Integer v = variables.get(n);
+            if (v != null) // may have moved into a slot since it changed
+            {
+                changed.put(n, v);
+            }
+        }
+        changedVariables.clear();
+        if (changedSlots != null)
+        {
+            for (Map.Entry<String, Integer> slot : slotLayout.entrySet())
+            {
+                if (changedSlots[slot.getValue()])
+                {
+                    changed.put(slot.getKey(), slots[slot.getValue()]);
+                    changedSlots[slot.getValue()] = false;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Starts or stops tracking which of the root variables change, so each checkpoint only
+     * has to write the changed ones.
+     *
+     * @param on true to track changes while checkpointing, false to stop
+     */
+    public void trackChanges(boolean on)
+    {
+        Environment root = getRoot();
+        root.changedVariables = on ? new HashSet<>() : null;
+        root.changedSlots = !on || root.slots == null ? null : new boolean[root.slots.length];
+    }
 }
@@ -0,0 +1,606 @@
+package environment;
+
+import ast.*;
+import ast.Number;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Records how a program behaved when it ran, so later compilations of the same program can
+ * be guided by it: how often each IF took its THEN branch, how many iterations each WHILE and
+ * FOR ran each time it was entered, and how often each procedure call site was called.
+ *
+ * The nodes are numbered in the order they appear in the program as parsed, so a profile
+ * refers to the same nodes every time the same source is parsed. A hash of the whole AST is
+ * stored with the counts; a profile recorded for a program that has changed since is stale,
+ * and load refuses it. Passes that copy nodes can let a copy share the counts of its original
+ * with follow.
+ *
+ * The file holds a magic number, the hash, the number of nodes and then, for each node that
+ * ran, its number and its two counters.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class ExecutionProfile implements ProfileHook
+{
+    private static final int MAGIC = 0x50474f31; // "PGO1"
+    private static final int IF = 0;
+    private static final int LOOP = 1;
+    private static final int CALL = 2;
+
+    private final Map<Object, Integer> ids = new IdentityHashMap<>();
+    private final List<Integer> kinds = new ArrayList<>();
+    private final List<String> owners = new ArrayList<>(); // the procedure of each node
+    private final List<String> callees = new ArrayList<>(); // the procedure a CALL calls
+    private long[] executions; // runs of an IF or entries of a loop or calls of a site
+    private long[] counts; // THEN branches taken by an IF or iterations of a loop
+    private long hash;
+
+    /**
+     * Numbers the nodes of a program and hashes it. ExecutionProfile is created by of or
+     * load.
+     *
+     * @param program the program as parsed
+     */
+    private ExecutionProfile(Program program)
+    {
+        Indexer indexer = new Indexer();
+        Program p = program;
+        while (p.getMainBody() == null)
+        {
+            if (p.getDeclarations() != null)
+            {
+                p.getDeclarations().accept(indexer);
+            }
+            else
+            {
+                indexer.owner = p.getProcedure().getName();
+                p.getProcedure().accept(indexer);
+            }
+            p = p.getChildProgram();
+        }
+        indexer.owner = null;
+        p.getMainBody().accept(indexer);
+        hash = indexer.hash;
+        executions = new long[kinds.size()];
+        counts = new long[kinds.size()];
+    }
+
+    /**
+     * Creates an empty profile of a program.
+     *
+     * @param program the program as parsed
+     * @return the profile
+     */
+    public static ExecutionProfile of(Program program)
+    {
+        return new ExecutionProfile(program);
+    }
+
+    /**
+     * Reads the profile of a program from a file.
+     *
+     * @param file the profile file
+     * @param program the program as parsed
+     * @return the profile, or null if it was recorded for a different program
+     * @throws UncheckedIOException if the file cannot be read or is not a profile
+     */
+    public static ExecutionProfile load(Path file, Program program)
+    {
+        ExecutionProfile profile = new ExecutionProfile(program);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(file))))
+        {
+            if (in.readInt() != MAGIC)
+            {
+                throw new IOException("not a profile");
+            }
+            if (in.readLong() != profile.hash || in.readInt() != profile.kinds.size())
+            {
+                return null;
+            }
+            int entries = in.readInt();
+            for (int k = 0; k < entries; k++)
+            {
+                int id = in.readInt();
+                profile.executions[id] = in.readLong();
+                profile.counts[id] = in.readLong();
+            }
+        }
+        catch (IOException | IndexOutOfBoundsException e)
+        {
+            throw new UncheckedIOException("Could not read profile " + file,
+                    e instanceof IOException io ? io : new IOException(e));
+        }
+        return profile;
+    }
+
+    /**
+     * Writes the profile to a file, replacing it.
+     *
+     * @param file the profile file
+     * @throws UncheckedIOException if the file cannot be written
+     */
+    public void save(Path file)
+    {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file))))
+        {
+            out.writeInt(MAGIC);
+            out.writeLong(hash);
+            out.writeInt(kinds.size());
+            int entries = 0;
+            for (long e : executions)
+            {
+                entries += e > 0 ? 1 : 0;
+            }
+            out.writeInt(entries);
+            for (int id = 0; id < executions.length; id++)
+            {
+                if (executions[id] > 0)
+                {
+                    out.writeInt(id);
+                    out.writeLong(executions[id]);
+                    out.writeLong(counts[id]);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Could not write profile " + file, e);
+        }
+    }
+
+    /**
+     * @return the hash of the program the profile is for
+     */
+    public long getHash()
+    {
+        return hash;
+    }
+
+    /**
+     * Lets a copy of a node share the counts of the node it was copied from, so the profile
+     * still describes the program after a pass that copies it.
+     *
+     * @param original a node of the program, or of an earlier copy
+     * @param copy the copy
+     */
+    public void follow(Object original, Object copy)
+    {
+        Integer id = ids.get(original);
+        if (id != null)
+        {
+            ids.put(copy, id);
+        }
+    }
+
+    /**
+     * Records that an IF ran.
+     *
+     * @param i the IF
+     * @param taken whether it took its THEN branch
+     */
+    @Override
+    public void branch(If i, boolean taken)
+    {
+        Integer id = ids.get(i);
+        if (id != null)
+        {
+            executions[id]++;
+            counts[id] += taken ? 1 : 0;
+        }
+    }
+
+    /**
+     * Records that a WHILE or FOR was entered.
+     *
+     * @param loop the loop
+     */
+    @Override
+    public void loop(Statement loop)
+    {
+        Integer id = ids.get(loop);
+        if (id != null)
+        {
+            executions[id]++;
+        }
+    }
+
+    /**
+     * Records that a WHILE or FOR finished an iteration.
+     *
+     * @param loop the loop
+     */
+    @Override
+    public void iteration(Statement loop)
+    {
+        Integer id = ids.get(loop);
+        if (id != null)
+        {
+            counts[id]++;
+        }
+    }
+
+    /**
+     * Records that a call site was called.
+     *
+     * @param call the call
+     */
+    @Override
+    public void call(ProcedureCall call)
+    {
+        Integer id = ids.get(call);
+        if (id != null)
+        {
+            executions[id]++;
+        }
+    }
+
+    /**
+     * Returns how often an IF took its THEN branch.
+     *
+     * @param i the IF
+     * @return the share of its runs that took the THEN branch, or NaN if it never ran or is
+     * not in the profile
+     */
+    public double getTakenRatio(If i)
+    {
+        Integer id = ids.get(i);
+        return id == null || executions[id] == 0 ? Double.NaN
+                : (double) counts[id] / executions[id];
+    }
+
+    /**
+     * Returns how often an IF ran.
+     *
+     * @param i the IF
+     * @return the number of runs, or -1 if it is not in the profile
+     */
+    public long getExecutions(If i)
+    {
+        Integer id = ids.get(i);
+        return id == null ? -1 : executions[id];
+    }
+
+    /**
+     * Returns the average number of iterations a loop ran each time it was entered.
+     *
+     * @param loop the WHILE or FOR
+     * @return the trip count, or NaN if it was never entered or is not in the profile
+     */
+    public double getTripCount(Statement loop)
+    {
+        Integer id = ids.get(loop);
+        return id == null || executions[id] == 0 ? Double.NaN
+                : (double) counts[id] / executions[id];
+    }
+
+    /**
+     * Returns how many iterations a loop ran in all.
+     *
+     * @param loop the WHILE or FOR
+     * @return the number of iterations, or -1 if the loop is not in the profile
+     */
+    public long getIterations(Statement loop)
+    {
+        Integer id = ids.get(loop);
+        return id == null ? -1 : counts[id];
+    }
+
+    /**
+     * Returns how often a call site was called.
+     *
+     * @param call the call
+     * @return the number of calls, or -1 if the call is not in the profile
+     */
+    public long getCalls(ProcedureCall call)
+    {
+        Integer id = ids.get(call);
+        return id == null ? -1 : executions[id];
+    }
+
+    /**
+     * Returns how often a procedure was called, from every call site.
+     *
+     * @param procedure the name of the procedure
+     * @return the number of calls
+     */
+    public long getCalls(String procedure)
+    {
+        long calls = 0;
+        for (int id = 0; id < kinds.size(); id++)
+        {
+            if (kinds.get(id) == CALL && callees.get(id).equals(procedure))
+            {
+                calls += executions[id];
+            }
+        }
+        return calls;
+    }
+
+    /**
+     * Returns how many iterations the loops in the body of a procedure ran in all.
+     *
+     * @param procedure the name of the procedure
+     * @return the number of iterations
+     */
+    public long getIterations(String procedure)
+    {
+        long iterations = 0;
+        for (int id = 0; id < kinds.size(); id++)
+        {
+            if (kinds.get(id) == LOOP && procedure.equals(owners.get(id)))
+            {
+                iterations += counts[id];
+            }
+        }
+        return iterations;
+    }
+
+    /**
+     * Describes the profile: the hash of the program, how many of its branches, loops and
+     * call sites ran, and the procedures by number of calls.
+     *
+     * @return the report, one item per line
+     */
+    public String getReport()
+    {
+        int[] ran = new int[3];
+        int[] all = new int[3];
+        Map<String, Long> calls = new TreeMap<>();
+        for (int id = 0; id < kinds.size(); id++)
+        {
+            all[kinds.get(id)]++;
+            ran[kinds.get(id)] += executions[id] > 0 ? 1 : 0;
+            if (kinds.get(id) == CALL)
+            {
+                calls.merge(callees.get(id), executions[id], Long::sum);
+            }
+        }
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("profile: program %016x, %d of %d branches, %d of %d loops, "
+                + "%d of %d call sites ran\n", hash, ran[IF], all[IF], ran[LOOP], all[LOOP],
+                ran[CALL], all[CALL]));
+        for (Map.Entry<String, Long> e : calls.entrySet())
+        {
+            report.append(e.getKey()).append(": ").append(e.getValue()).append(" calls, ")
+                    .append(getIterations(e.getKey())).append(" loop iterations\n");
+        }
+        return report.toString();
+    }
+
+    /**
+     * Numbers the IF, WHILE, FOR and call nodes of a program in the order they appear and
+     * hashes every node, with 64-bit FNV-1a over a description of each.
+     */
+    private final class Indexer implements ExpressionVisitor<Void>, StatementVisitor<Void>
+    {
+        private long hash = 0xcbf29ce484222325L;
+        private String owner;
+
+        /**
+         * Adds a description of a node to the hash.
+         *
+         * @param token the description
+         */
+        private void mix(String token)
+        {
+            for (int k = 0; k < token.length(); k++)
+            {
+                hash = (hash ^ token.charAt(k)) * 0x100000001b3L;
+            }
+            hash = (hash ^ ';') * 0x100000001b3L;
+        }
+
+        /**
+         * Numbers a node.
+         *
+         * @param node the node
+         * @param kind IF, LOOP or CALL
+         * @param callee the procedure a call calls, or null
+         */
+        private void index(Object node, int kind, String callee)
+        {
+            ids.put(node, kinds.size());
+            kinds.add(kind);
+            owners.add(owner);
+            callees.add(callee);
+        }
+
+        @Override
+        public Void visitNumber(Number n)
+        {
+            mix("n" + n.getValue());
+            return null;
+        }
+
+        @Override
+        public Void visitVariable(Variable v)
+        {
+            mix("v" + v.getName() + " " + v.getSlot() + (v.isLocal() ? "L" : "G"));
+            return null;
+        }
+
+        @Override
+        public Void visitBinOp(BinOp b)
+        {
+            mix("b" + b.getOp());
+            b.getExp1().accept(this);
+            b.getExp2().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitCondition(Condition c)
+        {
+            mix("c" + c.getOp());
+            c.getExp1().accept(this);
+            c.getExp2().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitBoolOp(BoolOp b)
+        {
+            mix("o" + b.getOp());
+            b.getExp1().accept(this);
+            b.getExp2().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitNot(Not n)
+        {
+            mix("!");
+            n.getExp().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitProcedureCall(ProcedureCall p)
+        {
+            index(p, CALL, p.getName());
+            mix("p" + p.getName() + " " + p.getArgVals().length);
+            for (Expression a : p.getArgVals())
+            {
+                a.accept(this);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitArrayElement(ArrayElement a)
+        {
+            mix("e" + a.getName());
+            a.getIndex().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitBlock(Block b)
+        {
+            mix("{" + b.getStatements().size());
+            for (Statement s : b.getStatements())
+            {
+                s.accept(this);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitAssignment(Assignment a)
+        {
+            mix(":=");
+            a.getVar().accept(this);
+            a.getExpr().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitWriteln(Writeln w)
+        {
+            mix("w");
+            w.getExpr().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitReadln(Readln r)
+        {
+            mix("r");
+            r.getVar().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitIf(If i)
+        {
+            index(i, IF, null);
+            mix(i.getElse() == null ? "if" : "ifelse");
+            i.getCondition().accept(this);
+            i.getStatement().accept(this);
+            if (i.getElse() != null)
+            {
+                i.getElse().accept(this);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitCase(Case c)
+        {
+            mix("case " + Arrays.toString(c.getLabels()) + Arrays.toString(c.getTargets())
+                    + (c.getElse() == null ? "" : "else"));
+            c.getSelector().accept(this);
+            for (Statement arm : c.getArms())
+            {
+                arm.accept(this);
+            }
+            if (c.getElse() != null)
+            {
+                c.getElse().accept(this);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitWhile(While w)
+        {
+            index(w, LOOP, null);
+            mix("while");
+            w.getCondition().accept(this);
+            w.getBody().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitFor(For f)
+        {
+            index(f, LOOP, null);
+            mix("for");
+            f.getInitialization().accept(this);
+            f.getMaxVal().accept(this);
+            f.getBody().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitProcedureDeclaration(ProcedureDeclaration p)
+        {
+            mix("procedure " + p.getName() + " " + String.join(",", p.getArgs()));
+            if (p.getLocals() != null)
+            {
+                p.getLocals().accept(this);
+            }
+            p.getBody().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitArrayDeclaration(ArrayDeclaration a)
+        {
+            mix("a" + a.getName());
+            a.getSize().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitArrayAssignment(ArrayAssignment a)
+        {
+            mix("e:=" + a.getName());
+            a.getIndex().accept(this);
+            a.getExpr().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitVarDeclaration(VarDeclaration v)
+        {
+            mix("var " + String.join(",", v.getNames()) + " " + new TreeMap<>(v.getArrays()));
+            return null;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package environment;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Represents a fixed-length array of integers stored contiguously.
+ * Small arrays are backed by an int[] on the Java heap, and arrays of at least
+ * OFF_HEAP_THRESHOLD elements are backed by direct memory outside the Java heap.
+ * 
+ * Every access goes through Objects.checkIndex, which HotSpot treats as an intrinsic,
+ * so the bounds check can be hoisted out of counted loops or removed entirely.
+ * 
+ * Each write marks the page of PAGE_SIZE elements it falls in, so a checkpoint only has to
+ * save the pages that changed since the previous one.
+ * 
+ * @author Vouk
+ * @version October 19, 2026
+ */
+public abstract class IntArray
+{
+    /**
+     * The number of elements at which an array is stored outside the Java heap.
+     */
+    public static final int OFF_HEAP_THRESHOLD = 1 << 20;
+
+    /**
+     * The number of elements in each page whose changes are tracked for checkpoints.
+     */
+    public static final int PAGE_SIZE = 1 << 10;
+    private static final int PAGE_SHIFT = 10;
+
+    private final boolean[] dirty; // pages changed since the last checkpoint
+
+    /**
+     * Constructs an array whose pages have all changed, since it has not been checkpointed yet.
+     *
+     * @param length the number of elements
+     */
+    protected IntArray(int length)
+    {
+        dirty = new boolean[(length + PAGE_SIZE - 1) >>> PAGE_SHIFT];
+        Arrays.fill(dirty, true);
+    }
+
+    /**
+     * Allocates a zero-filled array with the given number of elements.
+     * 
+     * @param length the number of elements
+     * @return the new array
+     * @throws IllegalArgumentException if the length is negative or too large to address
+     */
+    public static IntArray allocate(int length)
+    {
+        if (length < 0)
+        {
+            throw new IllegalArgumentException("Invalid array length " + length);
+        }
+        if (length < OFF_HEAP_THRESHOLD)
+        {
+            return new HeapIntArray(length);
+        }
+        if (length > Integer.MAX_VALUE / Integer.BYTES)
+        {
+            throw new IllegalArgumentException("Array length " + length + " is too large");
+        }
+        return new DirectIntArray(length);
+    }
+
+    /**
+     * Returns the number of elements in this array.
+     * 
+     * @return the length
+     */
+    public abstract int length();
+
+    /**
+     * Returns the element at the given index.
+     * 
+     * @param i the index
+     * @return the element
+     * @throws IndexOutOfBoundsException if i is not a valid index
+     */
+    public abstract int get(int i);
+
+    /**
+     * Sets the element at the given index.
+     * 
+     * @param i the index
+     * @param v the value to store
+     * @throws IndexOutOfBoundsException if i is not a valid index
+     */
+    public abstract void set(int i, int v);
+
+    /**
+     * Marks the page of an element as changed since the last checkpoint.
+     *
+     * @param i the index of the element, already checked
+     */
+    protected void markModified(int i)
+    {
+        dirty[i >>> PAGE_SHIFT] = true;
+    }
+
+    /**
+     * Returns the ranges of elements in pages that changed since the last call, and marks
+     * every page as unchanged. Adjacent changed pages form one range.
+     *
+     * @return the offset and length of each range, one pair after the other
+     */
+    public int[] drainModified()
+    {
+        int[] ranges = new int[dirty.length + 1];
+        int n = 0;
+        int page = 0;
+        while (page < dirty.length)
+        {
+            if (!dirty[page])
+            {
+                page++;
+                continue;
+            }
+            int first = page;
+            while (page < dirty.length && dirty[page])
+            {
+                dirty[page++] = false;
+            }
+            int offset = first << PAGE_SHIFT;
+            ranges[n++] = offset;
+            ranges[n++] = Math.min(page << PAGE_SHIFT, length()) - offset;
+        }
+        return Arrays.copyOf(ranges, n);
+    }
+
+    /**
+     * An array stored in an int[] on the Java heap.
+     */
+    private static final class HeapIntArray extends IntArray
+    {
+        private final int[] values;
+
+        /**
+         * Constructs a zero-filled heap array.
+         * 
+         * @param length the number of elements
+         */
+        HeapIntArray(int length)
+        {
+            super(length);
+            values = new int[length];
+        }
+
+        @Override
+        public int length()
+        {
+            return values.length;
+        }
+
+        @Override
+        public int get(int i)
+        {
+            return values[Objects.checkIndex(i, values.length)];
+        }
+
+        @Override
+        public void set(int i, int v)
+        {
+            values[Objects.checkIndex(i, values.length)] = v;
+            markModified(i);
+        }
+    }
+
+    /**
+     * An array stored in direct memory outside the Java heap, so that very large tables
+     * do not have to be scanned or copied by the garbage collector.
+     */
+    private static final class DirectIntArray extends IntArray
+    {
+        private final IntBuffer values;
+        private final int length;
+
+        /**
+         * Constructs a zero-filled direct array.
+         * 
+         * @param length the number of elements
+         */
+        DirectIntArray(int length)
+        {
+            super(length);
+            this.length = length;
+            values = ByteBuffer.allocateDirect(length * Integer.BYTES)
+                    .order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+
+        @Override
+        public int length()
+        {
+            return length;
+        }
+
+        @Override
+        public int get(int i)
+        {
+            return values.get(Objects.checkIndex(i, length));
+        }
+
+        @Override
+        public void set(int i, int v)
+        {
+            values.put(Objects.checkIndex(i, length), v);
+            markModified(i);
+        }
+    }
+}
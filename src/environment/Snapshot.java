@@ -0,0 +1,109 @@
+package environment;
+
+import java.util.*;
+
+/**
+ * Represents a saved interpreter state that execution can be resumed from.
+ * A snapshot holds the global variables, the names of the procedures that were
+ * registered, and the position of the loop back-edge where it was taken.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class Snapshot
+{
+    private final int[] position;
+    private final List<String> procedures;
+    private final Map<String, Integer> variables;
+    private final Map<String, int[]> arrays;
+
+    /**
+     * Constructs a Snapshot with the given position, procedure names, variables, and arrays.
+     *
+     * @param position the child indices leading from the main body to the loop
+     * @param procedures the names of the registered procedures
+     * @param variables the global variables and their values
+     * @param arrays the global arrays and their elements
+     */
+    public Snapshot(int[] position, List<String> procedures, Map<String, Integer> variables,
+            Map<String, int[]> arrays)
+    {
+        this.position = position;
+        this.procedures = procedures;
+        this.variables = variables;
+        this.arrays = arrays;
+    }
+
+    /**
+     * Returns the position of the loop the snapshot was taken in.
+     *
+     * @return the child indices leading from the main body to the loop
+     */
+    public int[] getPosition()
+    {
+        return position;
+    }
+
+    /**
+     * Returns the names of the procedures that were registered.
+     *
+     * @return the procedure names
+     */
+    public List<String> getProcedures()
+    {
+        return procedures;
+    }
+
+    /**
+     * Returns the saved global variables.
+     *
+     * @return a map from variable name to value
+     */
+    public Map<String, Integer> getVariables()
+    {
+        return variables;
+    }
+
+    /**
+     * Returns the saved global arrays.
+     *
+     * @return a map from array name to its elements
+     */
+    public Map<String, int[]> getArrays()
+    {
+        return arrays;
+    }
+
+    /**
+     * Restores the saved variables and arrays into the root of the given environment.
+     *
+     * Precondition: The procedures of the program have already been registered in env.
+     * Postcondition: Every saved variable and array is declared in the root environment.
+     *
+     * @param env the environment to restore into
+     * @throws IllegalStateException if env does not have the same procedures as the snapshot
+     */
+    public void restore(Environment env)
+    {
+        if (!env.getProcedureNames().equals(procedures))
+        {
+            throw new IllegalStateException("Snapshot was taken from a different program, "
+                    + "expected procedures " + procedures);
+        }
+        Environment root = env.getRoot();
+        for (Map.Entry<String, Integer> var : variables.entrySet())
+        {
+            root.declareVariable(var.getKey(), var.getValue());
+        }
+        for (Map.Entry<String, int[]> saved : arrays.entrySet())
+        {
+            int[] values = saved.getValue();
+            IntArray a = IntArray.allocate(values.length);
+            for (int i = 0; i < values.length; i++)
+            {
+                a.set(i, values[i]);
+            }
+            root.declareArray(saved.getKey(), a);
+        }
+    }
+}
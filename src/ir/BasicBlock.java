@@ -0,0 +1,203 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * A basic block: PHIs, then instructions that run in order, the last of which is a JUMP,
+ * BRANCH or RETURN to its successors. Operand i of each PHI is the value that comes from
+ * predecessor i.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class BasicBlock
+{
+    private final int id;
+    private final List<Instruction> phis = new ArrayList<>();
+    private final List<Instruction> instructions = new ArrayList<>();
+    private final List<BasicBlock> predecessors = new ArrayList<>();
+    private final List<BasicBlock> successors = new ArrayList<>();
+
+    /**
+     * Creates an empty block. Function numbers its blocks.
+     *
+     * @param id the number of the block in its function
+     */
+    BasicBlock(int id)
+    {
+        this.id = id;
+    }
+
+    /**
+     * @return the number of the block in its function
+     */
+    public int getId()
+    {
+        return id;
+    }
+
+    /**
+     * @return the PHIs
+     */
+    public List<Instruction> getPhis()
+    {
+        return phis;
+    }
+
+    /**
+     * @return the other instructions, in order
+     */
+    public List<Instruction> getInstructions()
+    {
+        return instructions;
+    }
+
+    /**
+     * @return the blocks that can run just before this one
+     */
+    public List<BasicBlock> getPredecessors()
+    {
+        return predecessors;
+    }
+
+    /**
+     * @return the blocks that can run just after this one, in the order the terminator
+     *         names them
+     */
+    public List<BasicBlock> getSuccessors()
+    {
+        return successors;
+    }
+
+    /**
+     * @return the last instruction, or null while the block is being built
+     */
+    public Instruction getTerminator()
+    {
+        if (instructions.isEmpty())
+        {
+            return null;
+        }
+        Instruction last = instructions.get(instructions.size() - 1);
+        return Opcode.isTerminator(last.getOpcode()) ? last : null;
+    }
+
+    /**
+     * Adds a PHI.
+     *
+     * @param phi the PHI
+     */
+    void addPhi(Instruction phi)
+    {
+        phis.add(phi);
+        phi.setBlock(this);
+    }
+
+    /**
+     * Adds an instruction at the end.
+     *
+     * @param instruction the instruction
+     */
+    void add(Instruction instruction)
+    {
+        instructions.add(instruction);
+        instruction.setBlock(this);
+    }
+
+    /**
+     * Adds an instruction at the start, after the PHIs.
+     *
+     * @param instruction the instruction
+     */
+    void addFirst(Instruction instruction)
+    {
+        instructions.add(0, instruction);
+        instruction.setBlock(this);
+    }
+
+    /**
+     * Makes another block a successor of this one.
+     *
+     * @param successor the block
+     */
+    void link(BasicBlock successor)
+    {
+        successors.add(successor);
+        successor.predecessors.add(this);
+    }
+
+    /**
+     * Removes the edge to a successor, with the operands its PHIs take from this block.
+     *
+     * @param successor the block
+     */
+    public void unlink(BasicBlock successor)
+    {
+        int index = successor.predecessors.indexOf(this);
+        successor.predecessors.remove(index);
+        for (Instruction phi : successor.phis)
+        {
+            phi.getOperands().remove(index);
+        }
+        successors.remove(successor);
+    }
+
+    /**
+     * Removes an instruction or PHI.
+     *
+     * @param instruction the instruction
+     */
+    public void remove(Instruction instruction)
+    {
+        if (!phis.remove(instruction))
+        {
+            instructions.remove(instruction);
+        }
+        instruction.setBlock(null);
+    }
+
+    /**
+     * @return the block's name, b followed by its number
+     */
+    public String label()
+    {
+        return "b" + id;
+    }
+
+    /**
+     * Prints the block, one instruction per line.
+     *
+     * @return the text
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder text = new StringBuilder(label()).append(':');
+        if (!predecessors.isEmpty())
+        {
+            text.append(" from");
+            for (BasicBlock p : predecessors)
+            {
+                text.append(' ').append(p.label());
+            }
+        }
+        text.append('\n');
+        for (Instruction phi : phis)
+        {
+            text.append("    ").append(phi).append('\n');
+        }
+        for (Instruction i : instructions)
+        {
+            text.append("    ").append(i);
+            if (i == getTerminator())
+            {
+                for (BasicBlock s : successors)
+                {
+                    text.append(' ').append(s.label());
+                }
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+}
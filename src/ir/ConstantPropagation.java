@@ -0,0 +1,272 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * Sparse conditional constant propagation, after Wegman and Zadeck. Every value starts
+ * unknown and every block unreached; starting from the entry, the pass follows only the
+ * edges a reached branch can take and raises each value to a constant or to varying as its
+ * operands do, so a value that is constant on every edge that can run is found even when a
+ * branch that never runs would assign it something else.
+ *
+ * Afterwards each value found constant is replaced with its CONSTANT, each branch on a
+ * constant becomes a jump, and the blocks that are never reached are removed.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class ConstantPropagation implements Pass
+{
+    private static final Object VARYING = new Object();
+
+    private Map<Instruction, Object> lattice; // an Integer or VARYING; unknown if absent
+    private Map<BasicBlock, Set<BasicBlock>> edges; // the edges that can run
+    private Deque<Instruction> values;
+    private Deque<BasicBlock[]> flow;
+    private Map<Instruction, List<Instruction>> users;
+
+    @Override
+    public String getName()
+    {
+        return "constant propagation";
+    }
+
+    @Override
+    public int run(Function function)
+    {
+        lattice = new HashMap<>();
+        edges = new HashMap<>();
+        values = new ArrayDeque<>();
+        flow = new ArrayDeque<>();
+        users = function.users();
+        flow.add(new BasicBlock[] {null, function.getEntry()});
+        while (!flow.isEmpty() || !values.isEmpty())
+        {
+            if (!flow.isEmpty())
+            {
+                BasicBlock[] edge = flow.pop();
+                BasicBlock to = edge[1];
+                boolean first = !edges.containsKey(to);
+                if (edge[0] != null && !edges.get(edge[0]).add(to))
+                {
+                    continue;
+                }
+                edges.putIfAbsent(to, new HashSet<>());
+                for (Instruction phi : to.getPhis())
+                {
+                    visit(phi);
+                }
+                if (first)
+                {
+                    for (Instruction i : to.getInstructions())
+                    {
+                        visit(i);
+                    }
+                }
+            }
+            else
+            {
+                Instruction i = values.pop();
+                if (i.getBlock() != null && edges.containsKey(i.getBlock()))
+                {
+                    visit(i);
+                }
+            }
+        }
+        return rewrite(function);
+    }
+
+    /**
+     * Evaluates an instruction over the lattice. A terminator adds the edges it can take.
+     *
+     * @param i the instruction
+     */
+    private void visit(Instruction i)
+    {
+        BasicBlock block = i.getBlock();
+        switch (i.getOpcode())
+        {
+            case Opcode.JUMP -> flow.add(new BasicBlock[] {block, block.getSuccessors().get(0)});
+            case Opcode.BRANCH ->
+            {
+                Object c = lattice.get(i.getOperand(0));
+                if (c == VARYING || c != null && (Integer) c == 1)
+                {
+                    flow.add(new BasicBlock[] {block, block.getSuccessors().get(0)});
+                }
+                if (c == VARYING || c != null && (Integer) c != 1)
+                {
+                    flow.add(new BasicBlock[] {block, block.getSuccessors().get(1)});
+                }
+            }
+            default -> update(i, evaluate(i));
+        }
+    }
+
+    /**
+     * Computes the lattice value of an instruction from those of its operands.
+     *
+     * @param i the instruction
+     * @return an Integer, VARYING, or null while it is unknown
+     */
+    private Object evaluate(Instruction i)
+    {
+        int opcode = i.getOpcode();
+        if (opcode == Opcode.CONSTANT)
+        {
+            return i.getValue();
+        }
+        if (opcode == Opcode.COPY)
+        {
+            return lattice.get(i.getOperand(0));
+        }
+        if (opcode == Opcode.PHI)
+        {
+            Object meet = null;
+            List<BasicBlock> predecessors = i.getBlock().getPredecessors();
+            for (int k = 0; k < predecessors.size(); k++)
+            {
+                Set<BasicBlock> out = edges.get(predecessors.get(k));
+                if (out == null || !out.contains(i.getBlock()))
+                {
+                    continue;
+                }
+                Object v = lattice.get(i.getOperand(k));
+                if (v == VARYING || meet != null && v != null && !meet.equals(v))
+                {
+                    return VARYING;
+                }
+                meet = meet == null ? v : meet;
+            }
+            return meet;
+        }
+        if (opcode == Opcode.NOT)
+        {
+            Object v = lattice.get(i.getOperand(0));
+            return v == null || v == VARYING ? v : (Integer) v == 1 ? 0 : 1;
+        }
+        if (Opcode.isBinary(opcode))
+        {
+            Object a = lattice.get(i.getOperand(0));
+            Object b = lattice.get(i.getOperand(1));
+            if (opcode == Opcode.MUL && (Integer.valueOf(0).equals(a) && b != null
+                    || Integer.valueOf(0).equals(b) && a != null))
+            {
+                return 0;
+            }
+            if (a == null || b == null)
+            {
+                return null;
+            }
+            if (a == VARYING || b == VARYING)
+            {
+                return VARYING;
+            }
+            return fold(opcode, (Integer) a, (Integer) b);
+        }
+        return VARYING;
+    }
+
+    /**
+     * Computes an operation on two constants.
+     *
+     * @param opcode the operation
+     * @param a the first operand
+     * @param b the second operand
+     * @return the result, or VARYING for a division by zero, which fails when it runs
+     */
+    private static Object fold(int opcode, int a, int b)
+    {
+        return switch (opcode)
+        {
+            case Opcode.ADD -> a + b;
+            case Opcode.SUB -> a - b;
+            case Opcode.MUL -> a * b;
+            case Opcode.DIV -> b == 0 ? VARYING : (Object) (a / b);
+            case Opcode.CMP_EQ -> a == b ? 1 : 0;
+            case Opcode.CMP_NE -> a != b ? 1 : 0;
+            case Opcode.CMP_LT -> a < b ? 1 : 0;
+            case Opcode.CMP_LE -> a <= b ? 1 : 0;
+            case Opcode.CMP_GT -> a > b ? 1 : 0;
+            default -> a >= b ? 1 : 0;
+        };
+    }
+
+    /**
+     * Records a new lattice value, revisiting the users when it changed.
+     *
+     * @param i the instruction
+     * @param v the value
+     */
+    private void update(Instruction i, Object v)
+    {
+        if (v != null && !v.equals(lattice.get(i)))
+        {
+            lattice.put(i, v);
+            values.addAll(users.getOrDefault(i, List.of()));
+        }
+    }
+
+    /**
+     * Replaces the constants, folds the branches on them and removes the blocks that are
+     * never reached.
+     *
+     * @param function the function
+     * @return the number of changes
+     */
+    private int rewrite(Function function)
+    {
+        int changes = 0;
+        List<Instruction> constant = new ArrayList<>();
+        for (BasicBlock b : function.getBlocks())
+        {
+            if (!edges.containsKey(b))
+            {
+                continue;
+            }
+            for (Instruction i : b.getPhis())
+            {
+                constant.add(i);
+            }
+            for (Instruction i : b.getInstructions())
+            {
+                if (i.getOpcode() != Opcode.CONSTANT && !Opcode.hasEffect(i.getOpcode()))
+                {
+                    constant.add(i);
+                }
+            }
+        }
+        for (Instruction i : constant)
+        {
+            if (lattice.get(i) instanceof Integer c)
+            {
+                i.replaceWith(function.constant(c));
+                changes++;
+            }
+        }
+        for (BasicBlock b : new ArrayList<>(function.getBlocks()))
+        {
+            Instruction last = b.getTerminator();
+            if (edges.containsKey(b) && last.getOpcode() == Opcode.BRANCH
+                    && lattice.get(last.getOperand(0)) instanceof Integer c)
+            {
+                BasicBlock dead = b.getSuccessors().get(c == 1 ? 1 : 0);
+                b.remove(last);
+                b.unlink(dead);
+                Instruction jump = function.newInstruction(Opcode.JUMP, null, List.of());
+                b.add(jump);
+                changes++;
+            }
+        }
+        for (BasicBlock b : new ArrayList<>(function.getBlocks()))
+        {
+            if (!edges.containsKey(b))
+            {
+                function.removeBlock(b);
+                changes++;
+            }
+        }
+        function.removeReplaced();
+        return changes;
+    }
+}
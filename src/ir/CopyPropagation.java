@@ -0,0 +1,84 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * Replaces each COPY with the value it copies and each PHI whose operands are all one value,
+ * apart from the PHI itself, with that value. Removing a PHI can make others trivial, so the
+ * pass repeats until none is left.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class CopyPropagation implements Pass
+{
+    @Override
+    public String getName()
+    {
+        return "copy propagation";
+    }
+
+    @Override
+    public int run(Function function)
+    {
+        int changes = 0;
+        boolean changed = true;
+        while (changed)
+        {
+            changed = false;
+            for (BasicBlock b : function.getBlocks())
+            {
+                for (Instruction phi : b.getPhis())
+                {
+                    Instruction same = trivialValue(phi);
+                    if (same != null)
+                    {
+                        phi.replaceWith(same);
+                        changed = true;
+                        changes++;
+                    }
+                }
+                for (Instruction i : b.getInstructions())
+                {
+                    if (i.getOpcode() == Opcode.COPY && i.resolve() == i)
+                    {
+                        i.replaceWith(i.getOperand(0).resolve());
+                        changed = true;
+                        changes++;
+                    }
+                }
+            }
+        }
+        function.removeReplaced();
+        return changes;
+    }
+
+    /**
+     * Finds the one value a PHI always has.
+     *
+     * @param phi the PHI
+     * @return the value, or null if the PHI was already replaced or can have two values
+     */
+    private static Instruction trivialValue(Instruction phi)
+    {
+        if (phi.resolve() != phi)
+        {
+            return null;
+        }
+        Instruction same = null;
+        for (Instruction o : phi.getOperands())
+        {
+            Instruction v = o.resolve();
+            if (v == phi || v == same)
+            {
+                continue;
+            }
+            if (same != null)
+            {
+                return null;
+            }
+            same = v;
+        }
+        return same;
+    }
+}
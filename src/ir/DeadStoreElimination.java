@@ -0,0 +1,67 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * Removes the values nothing needs: every COPY and PHI of a variable that no instruction
+ * with an effect can see, directly or through other values, and the arithmetic and
+ * constants only they used. Instructions with effects, divisions that can fail and
+ * terminators are the roots; everything the roots use is kept, and the rest is removed.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class DeadStoreElimination implements Pass
+{
+    @Override
+    public String getName()
+    {
+        return "dead store elimination";
+    }
+
+    @Override
+    public int run(Function function)
+    {
+        Set<Instruction> live = new HashSet<>();
+        Deque<Instruction> work = new ArrayDeque<>();
+        for (BasicBlock b : function.getBlocks())
+        {
+            for (Instruction i : b.getInstructions())
+            {
+                if (!i.isRemovable())
+                {
+                    work.add(i);
+                }
+            }
+        }
+        while (!work.isEmpty())
+        {
+            Instruction i = work.pop();
+            if (live.add(i))
+            {
+                work.addAll(i.getOperands());
+            }
+        }
+        int removed = 0;
+        for (BasicBlock b : function.getBlocks())
+        {
+            for (Instruction i : new ArrayList<>(b.getPhis()))
+            {
+                if (!live.contains(i))
+                {
+                    b.remove(i);
+                    removed++;
+                }
+            }
+            for (Instruction i : new ArrayList<>(b.getInstructions()))
+            {
+                if (!live.contains(i))
+                {
+                    b.remove(i);
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,222 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * The control-flow graph of a procedure body or the main body in SSA form: each value is
+ * defined once, by an Instruction, and its definition comes before every use. The first
+ * block is the entry, and it holds the constants.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class Function
+{
+    private final String name;
+    private final List<BasicBlock> blocks = new ArrayList<>();
+    private final Map<Integer, Instruction> constants = new HashMap<>();
+    private int instructions;
+
+    /**
+     * Creates a function with an empty entry block.
+     *
+     * @param name the procedure, or null for the main body
+     */
+    Function(String name)
+    {
+        this.name = name;
+        newBlock();
+    }
+
+    /**
+     * @return the procedure, or null for the main body
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return the blocks, the entry first
+     */
+    public List<BasicBlock> getBlocks()
+    {
+        return blocks;
+    }
+
+    /**
+     * @return the block that runs first
+     */
+    public BasicBlock getEntry()
+    {
+        return blocks.get(0);
+    }
+
+    /**
+     * Adds an empty block.
+     *
+     * @return the block
+     */
+    BasicBlock newBlock()
+    {
+        BasicBlock block = new BasicBlock(blocks.size());
+        blocks.add(block);
+        return block;
+    }
+
+    /**
+     * Creates an instruction that is not yet in a block.
+     *
+     * @param opcode the operation
+     * @param name the variable, procedure or array, or null
+     * @param arguments the arguments
+     * @return the instruction
+     */
+    Instruction newInstruction(int opcode, String name, List<Instruction> arguments)
+    {
+        return new Instruction(instructions++, opcode, name, 0, arguments, arguments.size());
+    }
+
+    /**
+     * Creates an instruction that also sees the values of some variables by name.
+     *
+     * @param opcode the operation
+     * @param name the variable, procedure or array
+     * @param arguments the arguments
+     * @param seen the values of the variables with slots it can see by name
+     * @return the instruction
+     */
+    Instruction newInstruction(int opcode, String name, List<Instruction> arguments,
+            List<Instruction> seen)
+    {
+        List<Instruction> operands = new ArrayList<>(arguments);
+        operands.addAll(seen);
+        return new Instruction(instructions++, opcode, name, 0, operands, arguments.size());
+    }
+
+    /**
+     * Returns the CONSTANT for an int, adding it to the entry block the first time.
+     *
+     * @param value the int
+     * @return the constant
+     */
+    public Instruction constant(int value)
+    {
+        Instruction c = constants.get(value);
+        if (c == null || c.getBlock() == null)
+        {
+            c = new Instruction(instructions++, Opcode.CONSTANT, null, value, List.of(), 0);
+            getEntry().addFirst(c);
+            constants.put(value, c);
+        }
+        return c;
+    }
+
+    /**
+     * Removes a block and its edges.
+     *
+     * @param block the block
+     */
+    public void removeBlock(BasicBlock block)
+    {
+        for (BasicBlock s : new ArrayList<>(block.getSuccessors()))
+        {
+            block.unlink(s);
+        }
+        for (BasicBlock p : new ArrayList<>(block.getPredecessors()))
+        {
+            p.unlink(block);
+        }
+        for (Instruction i : new ArrayList<>(block.getPhis()))
+        {
+            block.remove(i);
+        }
+        for (Instruction i : new ArrayList<>(block.getInstructions()))
+        {
+            block.remove(i);
+        }
+        blocks.remove(block);
+    }
+
+    /**
+     * Finds the instructions that use each value.
+     *
+     * @return the users of each value that has any, once per use
+     */
+    public Map<Instruction, List<Instruction>> users()
+    {
+        Map<Instruction, List<Instruction>> users = new HashMap<>();
+        for (BasicBlock b : blocks)
+        {
+            for (Instruction i : b.getPhis())
+            {
+                for (Instruction o : i.getOperands())
+                {
+                    users.computeIfAbsent(o, k -> new ArrayList<>()).add(i);
+                }
+            }
+            for (Instruction i : b.getInstructions())
+            {
+                for (Instruction o : i.getOperands())
+                {
+                    users.computeIfAbsent(o, k -> new ArrayList<>()).add(i);
+                }
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Makes every operand the value it resolves to, and removes the instructions that were
+     * replaced with other values.
+     */
+    public void removeReplaced()
+    {
+        for (BasicBlock b : blocks)
+        {
+            List<Instruction> all = new ArrayList<>(b.getPhis());
+            all.addAll(b.getInstructions());
+            for (Instruction i : all)
+            {
+                i.getOperands().replaceAll(Instruction::resolve);
+            }
+            for (Instruction i : all)
+            {
+                if (i.resolve() != i)
+                {
+                    b.remove(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of instructions and PHIs in the blocks
+     */
+    public int size()
+    {
+        int size = 0;
+        for (BasicBlock b : blocks)
+        {
+            size += b.getPhis().size() + b.getInstructions().size();
+        }
+        return size;
+    }
+
+    /**
+     * Prints the function, block by block.
+     *
+     * @return the text
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder text = new StringBuilder("function ")
+                .append(name == null ? "main" : name).append('\n');
+        for (BasicBlock b : blocks)
+        {
+            text.append(b);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,210 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * An instruction of the intermediate representation, which is also the value it produces.
+ * Every value is defined by exactly one instruction, so an operand is the instruction that
+ * defines it.
+ *
+ * Variables with slots are not stored anywhere: each assignment to one is a COPY and each
+ * place control flow merges two of its values is a PHI, both named after the variable.
+ * Variables without slots, arrays, input and output, and calls are instructions with
+ * effects, named after what they use. The values of the variables with slots that one of
+ * them can see through a name follow its arguments as operands, so it keeps them alive.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class Instruction
+{
+    private final int id;
+    private final int opcode;
+    private final String name; // the variable, procedure or array, if any
+    private final int value; // the int of a CONSTANT
+    private final int arguments; // the operands that are not values it can see by name
+    private final List<Instruction> operands;
+    private BasicBlock block;
+    private Instruction replacement; // the value a pass found this one always equals
+
+    /**
+     * Creates an instruction. Function numbers its instructions.
+     *
+     * @param id the number of the instruction in its function
+     * @param opcode the operation
+     * @param name the variable, procedure or array, or null
+     * @param value the int of a CONSTANT
+     * @param operands the arguments followed by the values seen by name
+     * @param arguments the number of arguments
+     */
+    Instruction(int id, int opcode, String name, int value, List<Instruction> operands,
+            int arguments)
+    {
+        this.id = id;
+        this.opcode = opcode;
+        this.name = name;
+        this.value = value;
+        this.operands = new ArrayList<>(operands);
+        this.arguments = arguments;
+    }
+
+    /**
+     * @return the number of the instruction in its function
+     */
+    public int getId()
+    {
+        return id;
+    }
+
+    /**
+     * @return the operation
+     */
+    public int getOpcode()
+    {
+        return opcode;
+    }
+
+    /**
+     * @return the variable, procedure or array the instruction is about, or null
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return the int of a CONSTANT
+     */
+    public int getValue()
+    {
+        return value;
+    }
+
+    /**
+     * Returns the operands: the arguments, then the values of the variables with slots the
+     * instruction can see by name. A PHI has one operand per predecessor of its block.
+     *
+     * @return the operands, which passes may change
+     */
+    public List<Instruction> getOperands()
+    {
+        return operands;
+    }
+
+    /**
+     * @param i the index of an operand
+     * @return the operand
+     */
+    public Instruction getOperand(int i)
+    {
+        return operands.get(i);
+    }
+
+    /**
+     * @return the number of operands that are arguments
+     */
+    public int getArgumentCount()
+    {
+        return arguments;
+    }
+
+    /**
+     * @return the block the instruction is in, or null once it is removed
+     */
+    public BasicBlock getBlock()
+    {
+        return block;
+    }
+
+    /**
+     * Sets the block the instruction is in.
+     *
+     * @param block the block, or null when it is removed
+     */
+    void setBlock(BasicBlock block)
+    {
+        this.block = block;
+    }
+
+    /**
+     * Records that this value always equals another, so whatever used this one can use the
+     * other instead.
+     *
+     * @param other the value
+     */
+    public void replaceWith(Instruction other)
+    {
+        replacement = other;
+    }
+
+    /**
+     * Returns the value this one was last found to equal.
+     *
+     * @return this value, or the end of the chain of replacements
+     */
+    public Instruction resolve()
+    {
+        Instruction v = this;
+        while (v.replacement != null)
+        {
+            v = v.replacement;
+        }
+        return v;
+    }
+
+    /**
+     * Returns whether the value can be dropped when nothing uses it: it has no effect and
+     * cannot fail.
+     *
+     * @return true if the instruction can be removed
+     */
+    public boolean isRemovable()
+    {
+        if (opcode == Opcode.DIV)
+        {
+            Instruction divisor = operands.get(1).resolve();
+            return divisor.opcode == Opcode.CONSTANT && divisor.value != 0;
+        }
+        return !Opcode.hasEffect(opcode);
+    }
+
+    /**
+     * @return the value's name, v followed by its number
+     */
+    public String label()
+    {
+        return "v" + id;
+    }
+
+    /**
+     * Prints the instruction, as in v3 = add v1 v2.
+     *
+     * @return the text
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder text = new StringBuilder();
+        if (!Opcode.isTerminator(opcode) && opcode != Opcode.WRITE
+                && opcode != Opcode.STORE && opcode != Opcode.ARRAY_STORE
+                && opcode != Opcode.ARRAY_DECLARE)
+        {
+            text.append(label()).append(" = ");
+        }
+        text.append(Opcode.NAMES[opcode]);
+        if (opcode == Opcode.CONSTANT)
+        {
+            text.append(' ').append(value);
+        }
+        if (name != null)
+        {
+            text.append(' ').append(name);
+        }
+        for (int i = 0; i < operands.size(); i++)
+        {
+            boolean seen = i == arguments && (opcode == Opcode.CALL || opcode == Opcode.LOAD);
+            text.append(seen ? " |" : "").append(' ').append(operands.get(i).label());
+        }
+        return text.toString();
+    }
+}
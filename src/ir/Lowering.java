@@ -0,0 +1,976 @@
+package ir;
+
+import ast.*;
+import ast.Number;
+import java.util.*;
+import optimizer.Purity;
+import optimizer.Rewriter;
+
+/**
+ * Lowers the procedure bodies and the main body of a program to Functions in SSA form.
+ *
+ * The SSA form is built while the statements are lowered, as described by Braun et al. in
+ * "Simple and Efficient Construction of Static Single Assignment Form": each block records
+ * the last value of each variable it assigns, and a variable read in a block that does not
+ * assign it is looked up in its predecessors, through a PHI when there are several. A loop
+ * header is only sealed once its back edge exists, so the PHIs it needs before then are
+ * completed at that point.
+ *
+ * Only variables with slots are values. A call is taken to read and assign the global slots
+ * whose names Purity finds its procedure can read and assign, and an assignment or READLN
+ * through a name to assign every variable with that name.
+ *
+ * Lowering also records what SsaOptimizer needs to carry the results of the passes back to
+ * the AST: the value of each expression, the COPY of each assignment, and each read of a
+ * variable with a slot, together with the other variables that hold the value it was copied
+ * from at that point.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class Lowering implements ExpressionVisitor<Instruction>, StatementVisitor<Void>
+{
+    /**
+     * A read of a variable with a slot: in the program, or implied by a call, a read through
+     * a name, a FOR loop or the end of a procedure, which returns its result and the global
+     * slots its caller can see.
+     */
+    static final class Read
+    {
+        final Instruction value;
+        final Variable variable; // the node, or null if the read is implied
+        final Assignment owner; // the assignment whose value contains the read, or null
+        final List<Read> aliases = new ArrayList<>(); // variables holding the same value
+        final Set<Instruction> stores = new HashSet<>(); // the COPYs whose value it reads
+
+        /**
+         * Describes a read.
+         *
+         * @param value the value read
+         * @param variable the variable read, or null
+         * @param owner the assignment containing the read, or null
+         */
+        Read(Instruction value, Variable variable, Assignment owner)
+        {
+            this.value = value;
+            this.variable = variable;
+            this.owner = owner;
+        }
+    }
+
+    private final Purity purity;
+    private final List<Function> functions = new ArrayList<>();
+    private final Map<Expression, Instruction> values = new IdentityHashMap<>();
+    private final Map<Assignment, Instruction> stores = new IdentityHashMap<>();
+    private final Map<Instruction, Assignment> assignments = new HashMap<>();
+    private final Map<Variable, Read> reads = new IdentityHashMap<>();
+    private final List<Read> allReads = new ArrayList<>();
+    private final Map<Instruction, Variable> copied = new HashMap<>(); // COPY of a variable
+
+    private ProcedureDeclaration procedure;
+    private Function function;
+    private BasicBlock current;
+    private Assignment owner;
+    private Map<String, List<Variable>> variables; // the variables with slots of each name
+    private final Map<BasicBlock, Map<String, Instruction>> definitions = new HashMap<>();
+    private final Map<BasicBlock, Map<String, Instruction>> incomplete = new HashMap<>();
+    private final Set<BasicBlock> sealed = new HashSet<>();
+
+    /**
+     * Lowering is created by the of method.
+     *
+     * @param purity what the procedures of the program read and assign
+     */
+    private Lowering(Purity purity)
+    {
+        this.purity = purity;
+    }
+
+    /**
+     * Lowers every procedure body and the main body of a program.
+     *
+     * @param program the program
+     * @return the lowering, with one Function per body
+     */
+    public static Lowering of(Program program)
+    {
+        Lowering lowering = new Lowering(Purity.of(program));
+        Program p = program;
+        while (p.getMainBody() == null)
+        {
+            if (p.getProcedure() != null)
+            {
+                lowering.lower(p.getProcedure(), p.getProcedure().getBody());
+            }
+            p = p.getChildProgram();
+        }
+        lowering.lower(null, p.getMainBody());
+        return lowering;
+    }
+
+    /**
+     * @return the functions, the procedures in program order and then the main body
+     */
+    public List<Function> getFunctions()
+    {
+        return functions;
+    }
+
+    /**
+     * @param e an expression of the program
+     * @return the value it computes, or null if it was not lowered
+     */
+    Instruction valueOf(Expression e)
+    {
+        return values.get(e);
+    }
+
+    /**
+     * @param a an assignment to a variable with a slot, other than that of a FOR loop
+     * @return its COPY, or null if there is none
+     */
+    Instruction storeOf(Assignment a)
+    {
+        return stores.get(a);
+    }
+
+    /**
+     * @param copy a COPY
+     * @return the assignment it lowers, or null
+     */
+    Assignment assignmentOf(Instruction copy)
+    {
+        return assignments.get(copy);
+    }
+
+    /**
+     * @param v a variable node of the program
+     * @return the read, or null if the variable has no slot
+     */
+    Read readOf(Variable v)
+    {
+        return reads.get(v);
+    }
+
+    /**
+     * @return every read, including those implied
+     */
+    List<Read> getReads()
+    {
+        return allReads;
+    }
+
+    /**
+     * Lowers one body.
+     *
+     * @param procedure the procedure, or null for the main body
+     * @param body the body
+     */
+    private void lower(ProcedureDeclaration procedure, Statement body)
+    {
+        this.procedure = procedure;
+        function = new Function(procedure == null ? null : procedure.getName());
+        functions.add(function);
+        variables = new HashMap<>();
+        Rewriter collector = new Rewriter()
+        {
+            @Override
+            public Expression visitVariable(Variable v)
+            {
+                addVariable(v);
+                return super.visitVariable(v);
+            }
+
+            @Override
+            public Statement visitAssignment(Assignment a)
+            {
+                addVariable(a.getVar());
+                return super.visitAssignment(a);
+            }
+
+            @Override
+            public Statement visitReadln(Readln r)
+            {
+                addVariable(r.getVar());
+                return super.visitReadln(r);
+            }
+        };
+        body.accept(collector);
+        if (procedure != null)
+        {
+            addVariable(new Variable(procedure.getName(), procedure.getReturnSlot(), true));
+        }
+        current = function.getEntry();
+        sealed.add(current);
+        int first = allReads.size();
+        body.accept(this);
+        if (procedure == null)
+        {
+            emit(Opcode.RETURN, null);
+        }
+        else
+        {
+            Variable result = new Variable(procedure.getName(), procedure.getReturnSlot(), true);
+            List<Instruction> returned = new ArrayList<>();
+            returned.add(implied(read(key(result), current)));
+            for (List<Variable> named : variables.values())
+            {
+                for (Variable v : named)
+                {
+                    if (!v.isLocal())
+                    {
+                        returned.add(implied(read(key(v), current)));
+                    }
+                }
+            }
+            emit(Opcode.RETURN, null, returned.toArray(new Instruction[0]));
+        }
+        for (Read r : allReads.subList(first, allReads.size()))
+        {
+            reachingStores(r);
+        }
+    }
+
+    /**
+     * Records a variable with a slot that the body uses.
+     *
+     * @param v the variable
+     */
+    private void addVariable(Variable v)
+    {
+        if (v.getSlot() >= 0)
+        {
+            List<Variable> named = variables.computeIfAbsent(v.getName(), k -> new ArrayList<>());
+            if (named.stream().noneMatch(w -> key(w).equals(key(v))))
+            {
+                named.add(v);
+            }
+        }
+    }
+
+    /**
+     * Finds the COPYs of assignments whose value a read and its aliases can see, following
+     * PHIs. It runs before any pass changes the PHIs.
+     *
+     * @param r the read
+     */
+    private void reachingStores(Read r)
+    {
+        Deque<Instruction> work = new ArrayDeque<>(List.of(r.value));
+        Set<Instruction> seen = new HashSet<>();
+        while (!work.isEmpty())
+        {
+            Instruction v = work.pop();
+            if (!seen.add(v))
+            {
+                continue;
+            }
+            if (v.getOpcode() == Opcode.PHI)
+            {
+                work.addAll(v.getOperands());
+            }
+            else if (assignments.containsKey(v))
+            {
+                r.stores.add(v);
+            }
+        }
+        for (Read alias : r.aliases)
+        {
+            reachingStores(alias);
+        }
+    }
+
+    /**
+     * @param v a variable with a slot
+     * @return the name SSA values of the variable carry
+     */
+    private static String key(Variable v)
+    {
+        return Rewriter.identity(v);
+    }
+
+    /**
+     * Adds an instruction to the current block.
+     *
+     * @param opcode the operation
+     * @param name the variable, procedure or array, or null
+     * @param arguments the arguments
+     * @return the instruction
+     */
+    private Instruction emit(int opcode, String name, Instruction... arguments)
+    {
+        Instruction i = function.newInstruction(opcode, name, List.of(arguments));
+        current.add(i);
+        return i;
+    }
+
+    /**
+     * Ends the current block with a jump.
+     *
+     * @param target the next block
+     */
+    private void jump(BasicBlock target)
+    {
+        emit(Opcode.JUMP, null);
+        current.link(target);
+    }
+
+    /**
+     * Ends the current block with a branch.
+     *
+     * @param condition the value tested
+     * @param then the block if it is 1
+     * @param otherwise the block if it is not
+     */
+    private void branch(Instruction condition, BasicBlock then, BasicBlock otherwise)
+    {
+        emit(Opcode.BRANCH, null, condition);
+        current.link(then);
+        current.link(otherwise);
+    }
+
+    /**
+     * Records the value of a variable at the end of a block so far.
+     *
+     * @param key the variable
+     * @param block the block
+     * @param value the value
+     */
+    private void write(String key, BasicBlock block, Instruction value)
+    {
+        definitions.computeIfAbsent(block, k -> new HashMap<>()).put(key, value);
+    }
+
+    /**
+     * Finds the value of a variable at the end of a block so far.
+     *
+     * @param key the variable
+     * @param block the block
+     * @return the value
+     */
+    private Instruction read(String key, BasicBlock block)
+    {
+        Instruction v = definitions.computeIfAbsent(block, k -> new HashMap<>()).get(key);
+        if (v != null)
+        {
+            return v;
+        }
+        if (!sealed.contains(block))
+        {
+            v = phi(key, block);
+            incomplete.computeIfAbsent(block, k -> new HashMap<>()).put(key, v);
+        }
+        else if (block == function.getEntry())
+        {
+            v = entry(key);
+        }
+        else if (block.getPredecessors().size() == 1)
+        {
+            v = read(key, block.getPredecessors().get(0));
+        }
+        else
+        {
+            v = phi(key, block);
+            write(key, block, v);
+            addOperands(key, v);
+        }
+        write(key, block, v);
+        return v;
+    }
+
+    /**
+     * Creates an empty PHI for a variable.
+     *
+     * @param key the variable
+     * @param block the block
+     * @return the PHI
+     */
+    private Instruction phi(String key, BasicBlock block)
+    {
+        Instruction phi = function.newInstruction(Opcode.PHI, key, List.of());
+        block.addPhi(phi);
+        return phi;
+    }
+
+    /**
+     * Gives a PHI the value of its variable from each predecessor.
+     *
+     * @param key the variable
+     * @param phi the PHI
+     */
+    private void addOperands(String key, Instruction phi)
+    {
+        for (BasicBlock p : phi.getBlock().getPredecessors())
+        {
+            phi.getOperands().add(read(key, p));
+        }
+    }
+
+    /**
+     * Records that a block has all its predecessors, completing its PHIs.
+     *
+     * @param block the block
+     */
+    private void seal(BasicBlock block)
+    {
+        sealed.add(block);
+        Map<String, Instruction> phis = incomplete.remove(block);
+        if (phis != null)
+        {
+            phis.forEach(this::addOperands);
+        }
+    }
+
+    /**
+     * Returns the value a variable has when the body starts. A frame slot other than a
+     * parameter, including the return variable, starts at 0.
+     *
+     * @param key the variable
+     * @return the value
+     */
+    private Instruction entry(String key)
+    {
+        Variable v = variableOf(key);
+        if (v.isLocal())
+        {
+            boolean parameter = false;
+            for (String arg : procedure.getArgs())
+            {
+                parameter |= procedure.getFrameLayout().get(arg) == v.getSlot();
+            }
+            if (!parameter || v.getSlot() == procedure.getReturnSlot())
+            {
+                return function.constant(0);
+            }
+        }
+        Instruction i = function.newInstruction(Opcode.ENTRY, key, List.of());
+        function.getEntry().addFirst(i);
+        return i;
+    }
+
+    /**
+     * @param key the SSA name of a variable with a slot
+     * @return a variable with that name
+     */
+    private Variable variableOf(String key)
+    {
+        for (List<Variable> named : variables.values())
+        {
+            for (Variable v : named)
+            {
+                if (key(v).equals(key))
+                {
+                    return v;
+                }
+            }
+        }
+        throw new RuntimeException("Unknown variable " + key);
+    }
+
+    /**
+     * Records a read implied by the program.
+     *
+     * @param value the value read
+     * @return the value
+     */
+    private Instruction implied(Instruction value)
+    {
+        allReads.add(new Read(value, null, null));
+        return value;
+    }
+
+    /**
+     * Reads the values of the variables with slots of some names, as an instruction that
+     * can see them by name does.
+     *
+     * @param names the names
+     * @param globalOnly whether only global slots can be seen
+     * @return the values
+     */
+    private List<Instruction> seen(Collection<String> names, boolean globalOnly)
+    {
+        List<Instruction> values = new ArrayList<>();
+        for (String name : names)
+        {
+            for (Variable v : variables.getOrDefault(name, List.of()))
+            {
+                if (!globalOnly || !v.isLocal())
+                {
+                    values.add(implied(read(key(v), current)));
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Gives the variables with slots of some names values the IR cannot know.
+     *
+     * @param names the names
+     * @param globalOnly whether only global slots change
+     */
+    private void clobber(Collection<String> names, boolean globalOnly)
+    {
+        for (String name : names)
+        {
+            for (Variable v : variables.getOrDefault(name, List.of()))
+            {
+                if (!globalOnly || !v.isLocal())
+                {
+                    write(key(v), current, emit(Opcode.UNKNOWN, key(v)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Assigns a value to a variable.
+     *
+     * @param v the variable
+     * @param value the value
+     * @return the COPY if the variable has a slot, else null
+     */
+    private Instruction assign(Variable v, Instruction value)
+    {
+        if (v.getSlot() < 0)
+        {
+            emit(Opcode.STORE, v.getName(), value);
+            clobber(List.of(v.getName()), false);
+            return null;
+        }
+        Instruction copy = emit(Opcode.COPY, key(v), value);
+        write(key(v), current, copy);
+        return copy;
+    }
+
+    @Override
+    public Instruction visitNumber(Number n)
+    {
+        Instruction c = function.constant(n.getValue());
+        values.put(n, c);
+        return c;
+    }
+
+    /**
+     * Reads a variable. A variable with a slot is the value it was last assigned, and the
+     * variables it was copied from that still hold that value are recorded with the read.
+     *
+     * @param v the variable
+     * @return the value
+     */
+    @Override
+    public Instruction visitVariable(Variable v)
+    {
+        Instruction value;
+        if (v.getSlot() < 0)
+        {
+            List<Instruction> seen = seen(List.of(v.getName()), false);
+            value = function.newInstruction(Opcode.LOAD, v.getName(), List.of(), seen);
+            current.add(value);
+        }
+        else
+        {
+            value = read(key(v), current);
+            Read r = new Read(value, v, owner);
+            for (Instruction c = value; copied.containsKey(c); c = c.getOperand(0))
+            {
+                Variable source = copied.get(c);
+                r.aliases.add(new Read(read(key(source), current), source, owner));
+            }
+            reads.put(v, r);
+            allReads.add(r);
+        }
+        values.put(v, value);
+        return value;
+    }
+
+    @Override
+    public Instruction visitBinOp(BinOp b)
+    {
+        Instruction left = b.getExp1().accept(this);
+        Instruction right = b.getExp2().accept(this);
+        int opcode = switch (b.getOp())
+        {
+            case "+" -> Opcode.ADD;
+            case "-" -> Opcode.SUB;
+            case "*" -> Opcode.MUL;
+            case "/" -> Opcode.DIV;
+            default -> throw new RuntimeException("Unknown operator " + b.getOp());
+        };
+        Instruction value = emit(opcode, null, left, right);
+        values.put(b, value);
+        return value;
+    }
+
+    @Override
+    public Instruction visitCondition(Condition c)
+    {
+        Instruction left = c.getExp1().accept(this);
+        Instruction right = c.getExp2().accept(this);
+        int opcode = switch (c.getOp())
+        {
+            case "=" -> Opcode.CMP_EQ;
+            case "<>" -> Opcode.CMP_NE;
+            case "<" -> Opcode.CMP_LT;
+            case "<=" -> Opcode.CMP_LE;
+            case ">" -> Opcode.CMP_GT;
+            case ">=" -> Opcode.CMP_GE;
+            default -> throw new RuntimeException("Unknown comparison " + c.getOp());
+        };
+        Instruction value = emit(opcode, null, left, right);
+        values.put(c, value);
+        return value;
+    }
+
+    /**
+     * Lowers an AND or OR to a branch around its right operand, which joins in a PHI of the
+     * result the left operand decides and the truth of the right operand.
+     *
+     * @param b the operation
+     * @return the PHI
+     */
+    @Override
+    public Instruction visitBoolOp(BoolOp b)
+    {
+        boolean and = b.getOp().equals(BoolOp.AND);
+        Instruction left = truth(b.getExp1(), b.getExp1().accept(this));
+        BasicBlock right = function.newBlock();
+        BasicBlock join = function.newBlock();
+        BasicBlock decided = current;
+        if (and)
+        {
+            branch(left, right, join);
+        }
+        else
+        {
+            branch(left, join, right);
+        }
+        seal(right);
+        current = right;
+        Instruction value = truth(b.getExp2(), b.getExp2().accept(this));
+        jump(join);
+        seal(join);
+        current = join;
+        Instruction phi = function.newInstruction(Opcode.PHI, null, List.of());
+        join.addPhi(phi);
+        for (BasicBlock p : join.getPredecessors())
+        {
+            phi.getOperands().add(p == decided ? function.constant(and ? 0 : 1) : value);
+        }
+        values.put(b, phi);
+        return phi;
+    }
+
+    /**
+     * Turns a value into 1 if it is 1 and 0 otherwise, as a condition sees it.
+     *
+     * @param e the expression
+     * @param value its value
+     * @return the truth value
+     */
+    private Instruction truth(Expression e, Instruction value)
+    {
+        if (e instanceof Condition || e instanceof BoolOp || e instanceof Not)
+        {
+            return value;
+        }
+        return emit(Opcode.CMP_EQ, null, value, function.constant(1));
+    }
+
+    @Override
+    public Instruction visitNot(Not n)
+    {
+        Instruction value = emit(Opcode.NOT, null, n.getExp().accept(this));
+        values.put(n, value);
+        return value;
+    }
+
+    /**
+     * Lowers a call, which can see the global slots its procedure can read and leaves
+     * unknown values in those it can assign. A procedure may assign a slot on only some of
+     * its paths, so the call also sees the slots it can assign, and stores to them before
+     * the call stay live.
+     *
+     * @param p the call
+     * @return the result
+     */
+    @Override
+    public Instruction visitProcedureCall(ProcedureCall p)
+    {
+        List<Instruction> args = new ArrayList<>();
+        for (Expression a : p.getArgVals())
+        {
+            args.add(a.accept(this));
+        }
+        Set<String> used = new HashSet<>(purity.getGlobalReads(p.getName()));
+        used.addAll(purity.getGlobalWrites(p.getName()));
+        List<Instruction> seen = seen(used, true);
+        Instruction call = function.newInstruction(Opcode.CALL, p.getName(), args, seen);
+        current.add(call);
+        clobber(purity.getGlobalWrites(p.getName()), true);
+        values.put(p, call);
+        return call;
+    }
+
+    @Override
+    public Instruction visitArrayElement(ArrayElement a)
+    {
+        Instruction value = emit(Opcode.ARRAY_LOAD, a.getName(), a.getIndex().accept(this));
+        values.put(a, value);
+        return value;
+    }
+
+    @Override
+    public Void visitBlock(Block b)
+    {
+        for (Statement s : b.getStatements())
+        {
+            s.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitAssignment(Assignment a)
+    {
+        Variable v = a.getVar();
+        owner = v.getSlot() < 0 ? null : a;
+        Instruction value = a.getExpr().accept(this);
+        owner = null;
+        Instruction copy = assign(v, value);
+        if (copy != null)
+        {
+            stores.put(a, copy);
+            assignments.put(copy, a);
+            if (a.getExpr() instanceof Variable source && source.getSlot() >= 0)
+            {
+                copied.put(copy, source);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitWriteln(Writeln w)
+    {
+        emit(Opcode.WRITE, null, w.getExpr().accept(this));
+        return null;
+    }
+
+    @Override
+    public Void visitReadln(Readln r)
+    {
+        Variable v = r.getVar();
+        Instruction read = emit(Opcode.READ, key(v));
+        if (v.getSlot() < 0)
+        {
+            clobber(List.of(v.getName()), false);
+        }
+        else
+        {
+            write(key(v), current, read);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitIf(If i)
+    {
+        Instruction condition = i.getCondition().accept(this);
+        BasicBlock then = function.newBlock();
+        BasicBlock otherwise = i.getElse() == null ? null : function.newBlock();
+        BasicBlock join = function.newBlock();
+        branch(condition, then, otherwise == null ? join : otherwise);
+        seal(then);
+        current = then;
+        i.getStatement().accept(this);
+        jump(join);
+        if (otherwise != null)
+        {
+            seal(otherwise);
+            current = otherwise;
+            i.getElse().accept(this);
+            jump(join);
+        }
+        seal(join);
+        current = join;
+        return null;
+    }
+
+    /**
+     * Lowers a CASE statement as a binary search over its labels that branches to the arm
+     * of the label equal to the selector, so a selector that is a constant leaves only that
+     * arm reachable.
+     *
+     * @param c the statement
+     * @return null
+     */
+    @Override
+    public Void visitCase(Case c)
+    {
+        Instruction selector = c.getSelector().accept(this);
+        BasicBlock[] arms = new BasicBlock[c.getArms().length];
+        for (int k = 0; k < arms.length; k++)
+        {
+            arms[k] = function.newBlock();
+        }
+        BasicBlock join = function.newBlock();
+        BasicBlock otherwise = c.getElse() == null ? join : function.newBlock();
+        search(selector, c, 0, c.getLabels().length, arms, otherwise);
+        for (int k = 0; k < arms.length; k++)
+        {
+            seal(arms[k]);
+            current = arms[k];
+            c.getArms()[k].accept(this);
+            jump(join);
+        }
+        if (c.getElse() != null)
+        {
+            seal(otherwise);
+            current = otherwise;
+            c.getElse().accept(this);
+            jump(join);
+        }
+        seal(join);
+        current = join;
+        return null;
+    }
+
+    /**
+     * Ends the current block with the search for a selector among some of the labels of a
+     * CASE statement.
+     *
+     * @param selector the value of the selector
+     * @param c the statement
+     * @param from the index of the first label to search
+     * @param to the index after the last label to search
+     * @param arms the first block of each arm
+     * @param otherwise the block if no label matches
+     */
+    private void search(Instruction selector, Case c, int from, int to, BasicBlock[] arms,
+            BasicBlock otherwise)
+    {
+        if (from == to)
+        {
+            jump(otherwise);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        Instruction label = function.constant(c.getLabels()[middle]);
+        BasicBlock unequal = function.newBlock();
+        branch(emit(Opcode.CMP_EQ, null, selector, label), arms[c.getTargets()[middle]],
+                unequal);
+        seal(unequal);
+        current = unequal;
+        if (middle == from)
+        {
+            search(selector, c, middle + 1, to, arms, otherwise);
+            return;
+        }
+        BasicBlock below = function.newBlock();
+        BasicBlock above = function.newBlock();
+        branch(emit(Opcode.CMP_LT, null, selector, label), below, above);
+        seal(below);
+        seal(above);
+        current = below;
+        search(selector, c, from, middle, arms, otherwise);
+        current = above;
+        search(selector, c, middle + 1, to, arms, otherwise);
+    }
+
+    @Override
+    public Void visitWhile(While w)
+    {
+        BasicBlock header = function.newBlock();
+        jump(header);
+        current = header;
+        Instruction condition = w.getCondition().accept(this);
+        BasicBlock body = function.newBlock();
+        BasicBlock exit = function.newBlock();
+        branch(condition, body, exit);
+        seal(body);
+        current = body;
+        w.getBody().accept(this);
+        jump(header);
+        seal(header);
+        seal(exit);
+        current = exit;
+        return null;
+    }
+
+    /**
+     * Lowers a FOR loop as its variable's assignment, a header that tests it against the
+     * bound, the body, and the increment. The test and the increment read the variable.
+     *
+     * @param f the loop
+     * @return null
+     */
+    @Override
+    public Void visitFor(For f)
+    {
+        Variable v = f.getInitialization().getVar();
+        assign(v, f.getInitialization().getExpr().accept(this));
+        BasicBlock header = function.newBlock();
+        jump(header);
+        current = header;
+        Instruction value = readLoopVariable(v);
+        Instruction condition = emit(Opcode.CMP_LT, null, value, f.getMaxVal().accept(this));
+        BasicBlock body = function.newBlock();
+        BasicBlock exit = function.newBlock();
+        branch(condition, body, exit);
+        seal(body);
+        current = body;
+        f.getBody().accept(this);
+        assign(v, emit(Opcode.ADD, null, readLoopVariable(v), function.constant(1)));
+        jump(header);
+        seal(header);
+        seal(exit);
+        current = exit;
+        return null;
+    }
+
+    /**
+     * Reads the variable of a FOR loop where the loop itself reads it.
+     *
+     * @param v the variable
+     * @return the value
+     */
+    private Instruction readLoopVariable(Variable v)
+    {
+        if (v.getSlot() < 0)
+        {
+            List<Instruction> seen = seen(List.of(v.getName()), false);
+            Instruction load = function.newInstruction(Opcode.LOAD, v.getName(), List.of(), seen);
+            current.add(load);
+            return load;
+        }
+        return implied(read(key(v), current));
+    }
+
+    @Override
+    public Void visitProcedureDeclaration(ProcedureDeclaration p)
+    {
+        return null;
+    }
+
+    @Override
+    public Void visitArrayDeclaration(ArrayDeclaration a)
+    {
+        emit(Opcode.ARRAY_DECLARE, a.getName(), a.getSize().accept(this));
+        return null;
+    }
+
+    @Override
+    public Void visitArrayAssignment(ArrayAssignment a)
+    {
+        Instruction index = a.getIndex().accept(this);
+        emit(Opcode.ARRAY_STORE, a.getName(), index, a.getExpr().accept(this));
+        return null;
+    }
+
+    @Override
+    public Void visitVarDeclaration(VarDeclaration v)
+    {
+        return null;
+    }
+}
@@ -0,0 +1,114 @@
+package ir;
+
+/**
+ * The operations of the intermediate representation. Each Instruction has one of them.
+ * Truth values are ints: a condition holds when it is 1, and comparisons produce 1 or 0.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class Opcode
+{
+    /** the int in the instruction */
+    public static final int CONSTANT = 0;
+    /** the value a parameter or global variable has when the body starts */
+    public static final int ENTRY = 1;
+    /** a value a call or an assignment through a name left in a variable */
+    public static final int UNKNOWN = 2;
+    /** operand i if control came from predecessor i of the block */
+    public static final int PHI = 3;
+    /** operand 0, the value assigned to a variable */
+    public static final int COPY = 4;
+    /** operand 0 + operand 1, wrapping */
+    public static final int ADD = 5;
+    /** operand 0 - operand 1, wrapping */
+    public static final int SUB = 6;
+    /** operand 0 * operand 1, wrapping */
+    public static final int MUL = 7;
+    /** operand 0 / operand 1, failing if operand 1 is 0 */
+    public static final int DIV = 8;
+    /** 1 if operand 0 = operand 1, else 0 */
+    public static final int CMP_EQ = 9;
+    /** 1 if operand 0 <> operand 1, else 0 */
+    public static final int CMP_NE = 10;
+    /** 1 if operand 0 < operand 1, else 0 */
+    public static final int CMP_LT = 11;
+    /** 1 if operand 0 <= operand 1, else 0 */
+    public static final int CMP_LE = 12;
+    /** 1 if operand 0 > operand 1, else 0 */
+    public static final int CMP_GT = 13;
+    /** 1 if operand 0 >= operand 1, else 0 */
+    public static final int CMP_GE = 14;
+    /** 0 if operand 0 is 1, else 1 */
+    public static final int NOT = 15;
+    /** the result of calling the named procedure with the operands */
+    public static final int CALL = 16;
+    /** the named variable without a slot, declaring it */
+    public static final int LOAD = 17;
+    /** assigns operand 0 to the named variable without a slot */
+    public static final int STORE = 18;
+    /** element operand 0 of the named array */
+    public static final int ARRAY_LOAD = 19;
+    /** assigns operand 1 to element operand 0 of the named array */
+    public static final int ARRAY_STORE = 20;
+    /** declares the named array with operand 0 elements */
+    public static final int ARRAY_DECLARE = 21;
+    /** a line of input, also assigned to the named variable if it has no slot */
+    public static final int READ = 22;
+    /** prints operand 0 */
+    public static final int WRITE = 23;
+    /** continues at the only successor */
+    public static final int JUMP = 24;
+    /** continues at successor 0 if operand 0 is 1, else at successor 1 */
+    public static final int BRANCH = 25;
+    /** ends the body, returning operand 0 if there is one */
+    public static final int RETURN = 26;
+
+    /** the name of each opcode, for printing */
+    public static final String[] NAMES = {
+        "const", "entry", "unknown", "phi", "copy", "add", "sub", "mul", "div",
+        "eq", "ne", "lt", "le", "gt", "ge", "not", "call", "load", "store",
+        "aload", "astore", "adeclare", "read", "write", "jump", "branch", "return"
+    };
+
+    /**
+     * Opcode only holds constants.
+     */
+    private Opcode()
+    {
+    }
+
+    /**
+     * Returns whether an operation does more than produce its value, so it runs even when
+     * the value is unused. A division can also fail, which Instruction checks.
+     *
+     * @param opcode the operation
+     * @return true if the operation has an effect
+     */
+    public static boolean hasEffect(int opcode)
+    {
+        return opcode >= CALL;
+    }
+
+    /**
+     * Returns whether an operation ends a block.
+     *
+     * @param opcode the operation
+     * @return true for JUMP, BRANCH and RETURN
+     */
+    public static boolean isTerminator(int opcode)
+    {
+        return opcode >= JUMP;
+    }
+
+    /**
+     * Returns whether an operation takes two ints and produces one without any effect.
+     *
+     * @param opcode the operation
+     * @return true for the arithmetic and the comparisons
+     */
+    public static boolean isBinary(int opcode)
+    {
+        return opcode >= ADD && opcode <= CMP_GE;
+    }
+}
@@ -0,0 +1,25 @@
+package ir;
+
+/**
+ * A transformation of Functions that the PassManager runs.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public interface Pass
+{
+    /**
+     * @return the name the PassManager reports the pass under
+     */
+    String getName();
+
+    /**
+     * Transforms a function.
+     *
+     * Postcondition: The function computes the same values and has the same effects.
+     *
+     * @param function the function
+     * @return the number of changes made
+     */
+    int run(Function function);
+}
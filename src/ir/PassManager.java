@@ -0,0 +1,166 @@
+package ir;
+
+import java.util.*;
+
+/**
+ * Runs a sequence of passes over every function, timing each pass and checking after it
+ * that the functions are still well formed, so a broken pass fails at once instead of
+ * miscompiling the program.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class PassManager
+{
+    private final List<Pass> passes = new ArrayList<>();
+    private final Map<Pass, Long> times = new LinkedHashMap<>();
+    private final Map<Pass, Integer> changes = new LinkedHashMap<>();
+    private int sizeBefore;
+    private int sizeAfter;
+
+    /**
+     * Adds a pass to the end of the sequence.
+     *
+     * @param pass the pass
+     * @return this manager
+     */
+    public PassManager add(Pass pass)
+    {
+        passes.add(pass);
+        return this;
+    }
+
+    /**
+     * Runs each pass over every function in turn.
+     *
+     * @param functions the functions
+     * @throws RuntimeException if a pass leaves a function malformed
+     */
+    public void run(List<Function> functions)
+    {
+        sizeBefore = size(functions);
+        for (Pass pass : passes)
+        {
+            long start = System.nanoTime();
+            int changed = 0;
+            for (Function f : functions)
+            {
+                changed += pass.run(f);
+            }
+            times.merge(pass, System.nanoTime() - start, Long::sum);
+            changes.merge(pass, changed, Integer::sum);
+            for (Function f : functions)
+            {
+                verify(f, pass);
+            }
+        }
+        sizeAfter = size(functions);
+    }
+
+    /**
+     * Counts the instructions of some functions.
+     *
+     * @param functions the functions
+     * @return the number of instructions and PHIs
+     */
+    private static int size(List<Function> functions)
+    {
+        int size = 0;
+        for (Function f : functions)
+        {
+            size += f.size();
+        }
+        return size;
+    }
+
+    /**
+     * Checks that the edges of a function agree, that each block ends in one terminator
+     * with as many successors as it names, that each PHI has one operand per predecessor,
+     * and that every operand is still in the function.
+     *
+     * @param f the function
+     * @param pass the pass that just ran
+     * @throws RuntimeException if the function is malformed
+     */
+    private static void verify(Function f, Pass pass)
+    {
+        Set<BasicBlock> blocks = new HashSet<>(f.getBlocks());
+        for (BasicBlock b : f.getBlocks())
+        {
+            Instruction last = b.getTerminator();
+            int expected = last == null ? -1 : switch (last.getOpcode())
+            {
+                case Opcode.JUMP -> 1;
+                case Opcode.BRANCH -> 2;
+                default -> 0;
+            };
+            check(expected == b.getSuccessors().size(), pass, f, b.label() + " ends badly");
+            for (BasicBlock s : b.getSuccessors())
+            {
+                check(blocks.contains(s) && s.getPredecessors().contains(b), pass, f,
+                        b.label() + " -> " + s.label());
+            }
+            for (BasicBlock p : b.getPredecessors())
+            {
+                check(blocks.contains(p) && p.getSuccessors().contains(b), pass, f,
+                        p.label() + " -> " + b.label());
+            }
+            for (Instruction phi : b.getPhis())
+            {
+                check(phi.getOperands().size() == b.getPredecessors().size(), pass, f,
+                        phi.label() + " has the wrong number of operands");
+            }
+            List<Instruction> all = new ArrayList<>(b.getPhis());
+            all.addAll(b.getInstructions());
+            for (Instruction i : all)
+            {
+                check(i.getBlock() == b, pass, f, i.label() + " is in the wrong block");
+                check(i == last || !Opcode.isTerminator(i.getOpcode()), pass, f,
+                        i.label() + " ends its block early");
+                for (Instruction o : i.getOperands())
+                {
+                    check(o.getBlock() != null && blocks.contains(o.getBlock()), pass, f,
+                            i.label() + " uses the removed " + o.label());
+                }
+            }
+        }
+    }
+
+    /**
+     * Fails if a property of a function does not hold.
+     *
+     * @param holds whether it holds
+     * @param pass the pass that just ran
+     * @param f the function
+     * @param problem what is wrong
+     * @throws RuntimeException if it does not hold
+     */
+    private static void check(boolean holds, Pass pass, Function f, String problem)
+    {
+        if (!holds)
+        {
+            throw new RuntimeException("After " + pass.getName() + ", "
+                    + (f.getName() == null ? "main" : f.getName()) + ": " + problem);
+        }
+    }
+
+    /**
+     * Describes the last run: the size of the functions before and after, and for each
+     * pass the changes it made and how long it took.
+     *
+     * @return the report, one item per line
+     */
+    public String getReport()
+    {
+        StringBuilder report = new StringBuilder();
+        report.append("instructions: ").append(sizeBefore).append(" -> ").append(sizeAfter)
+                .append('\n');
+        for (Pass pass : passes)
+        {
+            report.append(pass.getName()).append(": ").append(changes.get(pass))
+                    .append(" changes")
+                    .append(String.format(", %.3f ms", times.get(pass) / 1e6)).append('\n');
+        }
+        return report.toString();
+    }
+}
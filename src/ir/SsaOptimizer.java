@@ -0,0 +1,312 @@
+package ir;
+
+import ast.*;
+import ast.Number;
+import java.util.*;
+import optimizer.Rewriter;
+
+/**
+ * Optimizes a program through its SSA form. The program is lowered to Functions, the
+ * PassManager runs sparse conditional constant propagation, copy propagation and dead store
+ * elimination over them, and the results are carried back to the AST, which every backend
+ * runs:
+ *
+ * A variable whose value is a constant becomes the constant, and so does an expression
+ * that can neither fail nor change anything. An IF or WHILE whose condition is a constant,
+ * or a CASE whose selector is, keeps only what runs. A variable that was assigned from
+ * another variable that still holds the same value is read from that variable instead.
+ * An assignment to a variable with a slot whose value no remaining read can see is removed
+ * if its value can neither fail nor change anything.
+ *
+ * The IR is where the optimizations of the values of variables are done. The passes that
+ * reshape loops and expressions, InductionVariables, LoopInvariantMotion and
+ * CommonSubexpressions, still work on the AST, and so does the x86 InstructionSelector.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class SsaOptimizer extends Rewriter
+{
+    private final PassManager passes = new PassManager()
+            .add(new ConstantPropagation())
+            .add(new CopyPropagation())
+            .add(new DeadStoreElimination());
+    private Lowering lowering;
+    private Set<Instruction> live; // the COPYs some remaining read can see
+    private int constants;
+    private int copies;
+    private int stores;
+    private int branches;
+
+    /**
+     * Optimizes a program.
+     *
+     * Postcondition: Running the result produces the same output and errors as running
+     * the program.
+     *
+     * @param program the program
+     * @return the optimized program
+     */
+    public Program optimize(Program program)
+    {
+        lowering = Lowering.of(program);
+        passes.run(lowering.getFunctions());
+        live = liveStores();
+        return rewrite(program);
+    }
+
+    /**
+     * @return the functions as the passes left them
+     */
+    public List<Function> getFunctions()
+    {
+        return lowering.getFunctions();
+    }
+
+    /**
+     * Finds the variable a read can use instead: the first variable in its chain of copies
+     * that still holds the value read.
+     *
+     * @param r the read
+     * @return the read of that variable, or null if there is none
+     */
+    private static Lowering.Read source(Lowering.Read r)
+    {
+        for (int k = r.aliases.size() - 1; k >= 0; k--)
+        {
+            Lowering.Read alias = r.aliases.get(k);
+            if (alias.value.resolve() == r.value.resolve())
+            {
+                return alias;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds what replaces a read of a variable: the constant it holds, or the variable it
+     * was copied from.
+     *
+     * @param r the read
+     * @return the replacement, or null if the read stays
+     */
+    private static Expression replacement(Lowering.Read r)
+    {
+        Instruction value = r.value.resolve();
+        if (value.getOpcode() == Opcode.CONSTANT)
+        {
+            return new Number(value.getValue());
+        }
+        Lowering.Read source = source(r);
+        return source == null ? null : copy(source.variable);
+    }
+
+    /**
+     * Returns the read the AST makes in place of one of the program's: the read itself,
+     * the read of the variable replacing it, or none when a constant replaces it. Reads
+     * the program only implies always remain.
+     *
+     * @param r the read
+     * @return the read that remains, or null
+     */
+    private static Lowering.Read remaining(Lowering.Read r)
+    {
+        if (r.variable == null)
+        {
+            return r;
+        }
+        if (r.value.resolve().getOpcode() == Opcode.CONSTANT)
+        {
+            return null;
+        }
+        Lowering.Read source = source(r);
+        return source == null ? r : source;
+    }
+
+    /**
+     * Finds the assignments that stay because a remaining read can see their value. The
+     * reads in an assignment's value count once the assignment stays, and every read
+     * outside such a value counts. An assignment whose value can fail or change something
+     * stays anyway.
+     *
+     * @return the COPYs of the assignments that stay
+     */
+    private Set<Instruction> liveStores()
+    {
+        Map<Assignment, List<Lowering.Read>> owned = new IdentityHashMap<>();
+        Deque<Lowering.Read> work = new ArrayDeque<>();
+        for (Lowering.Read r : lowering.getReads())
+        {
+            if (r.owner == null || !isPure(r.owner.getExpr()))
+            {
+                work.add(r);
+            }
+            else
+            {
+                owned.computeIfAbsent(r.owner, k -> new ArrayList<>()).add(r);
+            }
+        }
+        Set<Instruction> result = new HashSet<>();
+        while (!work.isEmpty())
+        {
+            Lowering.Read r = remaining(work.pop());
+            if (r == null)
+            {
+                continue;
+            }
+            for (Instruction store : r.stores)
+            {
+                if (result.add(store))
+                {
+                    work.addAll(owned.getOrDefault(lowering.assignmentOf(store), List.of()));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Replaces an expression whose value is a constant with the constant when it can be
+     * dropped.
+     *
+     * @param original the expression in the program
+     * @param rewritten the expression with its operands rewritten
+     * @return the constant, or the rewritten expression
+     */
+    private Expression folded(Expression original, Expression rewritten)
+    {
+        Instruction value = lowering.valueOf(original);
+        if (value != null && value.resolve().getOpcode() == Opcode.CONSTANT
+                && !(rewritten instanceof Number) && isPure(rewritten))
+        {
+            constants++;
+            return new Number(value.resolve().getValue());
+        }
+        return rewritten;
+    }
+
+    @Override
+    public Expression visitVariable(Variable v)
+    {
+        Lowering.Read r = lowering.readOf(v);
+        Expression e = r == null ? null : replacement(r);
+        if (e == null)
+        {
+            return copy(v);
+        }
+        if (e instanceof Number)
+        {
+            constants++;
+        }
+        else
+        {
+            copies++;
+        }
+        return e;
+    }
+
+    @Override
+    public Expression visitBinOp(BinOp b)
+    {
+        return folded(b, super.visitBinOp(b));
+    }
+
+    @Override
+    public Expression visitCondition(Condition c)
+    {
+        return folded(c, super.visitCondition(c));
+    }
+
+    @Override
+    public Expression visitBoolOp(BoolOp b)
+    {
+        return folded(b, super.visitBoolOp(b));
+    }
+
+    @Override
+    public Expression visitNot(Not n)
+    {
+        return folded(n, super.visitNot(n));
+    }
+
+    @Override
+    public Statement visitAssignment(Assignment a)
+    {
+        Statement result = super.visitAssignment(a);
+        Instruction store = lowering.storeOf(a);
+        if (store != null && !live.contains(store) && isPure(((Assignment) result).getExpr()))
+        {
+            stores++;
+            return new Block();
+        }
+        return result;
+    }
+
+    @Override
+    public Statement visitIf(If i)
+    {
+        Expression condition = i.getCondition().accept(this);
+        if (condition instanceof Number c)
+        {
+            branches++;
+            if (c.getValue() == 1)
+            {
+                return i.getStatement().accept(this);
+            }
+            return i.getElse() == null ? new Block() : i.getElse().accept(this);
+        }
+        Statement then = i.getStatement().accept(this);
+        if (i.getElse() == null)
+        {
+            return new If(condition, then);
+        }
+        return new If(condition, then, i.getElse().accept(this));
+    }
+
+    @Override
+    public Statement visitCase(Case c)
+    {
+        Expression selector = c.getSelector().accept(this);
+        if (selector instanceof Number n)
+        {
+            branches++;
+            int arm = c.select(n.getValue());
+            Statement s = arm >= 0 ? c.getArms()[arm] : c.getElse();
+            return s == null ? new Block() : s.accept(this);
+        }
+        Statement[] arms = new Statement[c.getArms().length];
+        for (int k = 0; k < arms.length; k++)
+        {
+            arms[k] = c.getArms()[k].accept(this);
+        }
+        Statement otherwise = c.getElse() == null ? null : c.getElse().accept(this);
+        return new Case(selector, c.getLabels(), c.getTargets(), arms, otherwise);
+    }
+
+    @Override
+    public Statement visitWhile(While w)
+    {
+        Expression condition = w.getCondition().accept(this);
+        if (condition instanceof Number c && c.getValue() != 1)
+        {
+            branches++;
+            return new Block();
+        }
+        return new While(condition, w.getBody().accept(this));
+    }
+
+    /**
+     * Describes what the last optimization changed: the report of the PassManager, then
+     * what changed in the program.
+     *
+     * @return the report, one item per line
+     */
+    public String getReport()
+    {
+        return passes.getReport()
+                + "constants substituted: " + constants + "\n"
+                + "copies propagated: " + copies + "\n"
+                + "dead assignments removed: " + stores + "\n"
+                + "branches folded: " + branches + "\n";
+    }
+}
@@ -0,0 +1,236 @@
+package jvm;
+
+import ast.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.jar.*;
+
+/**
+ * Compiles a whole program ahead of time into a runnable JAR. The JAR holds one generated
+ * class, Main, and a copy of AotRuntime; it does not need the scanner, parser or AST.
+ *
+ * Global slot variables become static int fields of Main. A variable the parser could not
+ * resolve gets a static int field for its value in the root and a static boolean field
+ * that records whether the root has defined it, so procedures can follow the same lookup
+ * rules as Environment. Arrays declared in the root are static int[] fields. Each procedure
+ * is a static method, and the main body is Main.run. A call in tail position to another
+ * procedure is left for TailCalls.complete, so mutual recursion through such calls does not
+ * grow the stack.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class AotCompiler
+{
+    public static final String MAIN = "Main";
+    public static final String RUNTIME = "jvm/AotRuntime";
+
+    private final ClassWriter cw = new ClassWriter(MAIN, "java/lang/Object", "java/lang/Runnable");
+    private final Map<String, ProcedureDeclaration> procedures = new HashMap<>();
+    private final Map<ProcedureDeclaration, String> methods = new HashMap<>();
+    private final Set<String> fields = new HashSet<>();
+    private final Map<String, Integer> variables = new HashMap<>();
+    private final Map<String, Integer> arrays = new HashMap<>();
+    private final TailCalls tails = new TailCalls(cw, null, this::methodName,
+            AotCompiler::descriptor);
+
+    /**
+     * Compiles a program and writes it as a runnable JAR.
+     *
+     * Precondition: The program was produced by the Parser.
+     * Postcondition: java -jar on the file produces the same output as program.exec.
+     *
+     * @param program the program to compile
+     * @param jar the JAR file to write
+     * @throws IOException if the JAR cannot be written
+     */
+    public static void writeJar(Program program, Path jar) throws IOException
+    {
+        byte[] main = new AotCompiler().compile(program);
+        byte[] runtime;
+        try (InputStream in = AotRuntime.class.getResourceAsStream("AotRuntime.class"))
+        {
+            runtime = in.readAllBytes();
+        }
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.MAIN_CLASS, MAIN);
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar), manifest))
+        {
+            out.putNextEntry(new JarEntry(MAIN + ".class"));
+            out.write(main);
+            out.closeEntry();
+            out.putNextEntry(new JarEntry(RUNTIME + ".class"));
+            out.write(runtime);
+            out.closeEntry();
+        }
+    }
+
+    /**
+     * Compiles a program into the class file of Main.
+     *
+     * @param program the program to compile
+     * @return the class file
+     */
+    public byte[] compile(Program program)
+    {
+        VarDeclaration globals = null;
+        Program p = program;
+        while (p.getMainBody() == null)
+        {
+            if (p.getDeclarations() != null)
+            {
+                globals = p.getDeclarations();
+            }
+            else
+            {
+                // a later declaration with the same name replaces an earlier one
+                procedures.put(p.getProcedure().getName(), p.getProcedure());
+            }
+            p = p.getChildProgram();
+        }
+        for (ProcedureDeclaration proc : procedures.values())
+        {
+            CodeBuilder code = new CodeBuilder(cw, proc.getArgs().length);
+            new AotTranslator(this, proc, code).translate(proc.getBody());
+            cw.addMethod(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, methodName(proc),
+                    descriptor(proc), code);
+        }
+
+        CodeBuilder run = new CodeBuilder(cw, 1);
+        if (globals != null)
+        {
+            for (Map.Entry<String, Integer> a : globals.getArrays().entrySet())
+            {
+                run.iconst(a.getValue());
+                run.invokestatic(RUNTIME, "newArray", "(I)[I");
+                run.putstatic(MAIN, arrayField(a.getKey()), "[I");
+            }
+        }
+        new AotTranslator(this, null, run).translate(p.getMainBody());
+        cw.addMethod(ClassWriter.ACC_PUBLIC, "run", "()V", run);
+        tails.addComplete();
+
+        CodeBuilder init = new CodeBuilder(cw, 1);
+        init.aload(0);
+        init.invokespecial("java/lang/Object", "<init>", "()V");
+        init.op(CodeBuilder.RETURN, 0);
+        cw.addMethod(ClassWriter.ACC_PUBLIC, "<init>", "()V", init);
+
+        CodeBuilder main = new CodeBuilder(cw, 1);
+        main.newObject(MAIN);
+        main.op(CodeBuilder.DUP, 1);
+        main.invokespecial(MAIN, "<init>", "()V");
+        main.invokestatic(RUNTIME, "start", "(Ljava/lang/Runnable;)V");
+        main.op(CodeBuilder.RETURN, 0);
+        cw.addMethod(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, "main",
+                "([Ljava/lang/String;)V", main);
+        return cw.toByteArray();
+    }
+
+    /**
+     * Finds the procedure a call refers to.
+     *
+     * @param name the name of the procedure
+     * @return the procedure, or null if there is none
+     */
+    public ProcedureDeclaration resolve(String name)
+    {
+        return procedures.get(name);
+    }
+
+    /**
+     * Returns the calls in tail position between the procedures of Main.
+     *
+     * @return the calls left for complete
+     */
+    public TailCalls getTailCalls()
+    {
+        return tails;
+    }
+
+    /**
+     * Returns the name of the static method a procedure is compiled to.
+     *
+     * @param p the procedure
+     * @return the method name
+     */
+    public String methodName(ProcedureDeclaration p)
+    {
+        return methods.computeIfAbsent(p, k -> "p" + methods.size());
+    }
+
+    /**
+     * Returns the descriptor of the static method a procedure is compiled to.
+     *
+     * @param p the procedure
+     * @return the method descriptor
+     */
+    public static String descriptor(ProcedureDeclaration p)
+    {
+        return "(" + "I".repeat(p.getArgs().length) + ")I";
+    }
+
+    /**
+     * Returns the name of a static field of Main, adding the field the first time.
+     *
+     * @param name the field name
+     * @param descriptor the field descriptor
+     * @return the field name
+     */
+    private String field(String name, String descriptor)
+    {
+        if (fields.add(name))
+        {
+            cw.addField(ClassWriter.ACC_PRIVATE | ClassWriter.ACC_STATIC, name, descriptor);
+        }
+        return name;
+    }
+
+    /**
+     * Returns the static int field of a global slot variable.
+     *
+     * @param slot the global slot
+     * @return the field name
+     */
+    public String globalField(int slot)
+    {
+        return field("g" + slot, "I");
+    }
+
+    /**
+     * Returns the static int field that holds the root value of a variable the parser could
+     * not resolve.
+     *
+     * @param name the variable name
+     * @return the field name
+     */
+    public String valueField(String name)
+    {
+        return field("v" + variables.computeIfAbsent(name, k -> variables.size()), "I");
+    }
+
+    /**
+     * Returns the static boolean field that records whether the root has defined a variable
+     * the parser could not resolve.
+     *
+     * @param name the variable name
+     * @return the field name
+     */
+    public String definedField(String name)
+    {
+        return field("d" + variables.computeIfAbsent(name, k -> variables.size()), "Z");
+    }
+
+    /**
+     * Returns the static int[] field of an array declared in the root.
+     *
+     * @param name the array name
+     * @return the field name
+     */
+    public String arrayField(String name)
+    {
+        return field("a" + arrays.computeIfAbsent(name, k -> arrays.size()), "[I");
+    }
+}
@@ -0,0 +1,151 @@
+package jvm;
+
+import java.io.*;
+import java.util.NoSuchElementException;
+
+/**
+ * The run-time support for programs compiled ahead of time. It is copied into every JAR
+ * the AotCompiler writes, so it may only depend on the JDK.
+ *
+ * Output is buffered and flushed before each read and when the program stops. Input is
+ * read in whitespace separated tokens, each of which must be a number.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class AotRuntime
+{
+    private static final PrintWriter OUT = new PrintWriter(new BufferedWriter(
+            new OutputStreamWriter(new FileOutputStream(FileDescriptor.out)), 1 << 16));
+    private static final InputStream IN = new BufferedInputStream(
+            new FileInputStream(FileDescriptor.in));
+
+    /**
+     * AotRuntime only has static methods.
+     */
+    private AotRuntime()
+    {
+    }
+
+    /**
+     * Runs a compiled main body, reporting a run-time error the way ParserTester does.
+     *
+     * @param main the compiled main body
+     */
+    public static void start(Runnable main)
+    {
+        try
+        {
+            main.run();
+        }
+        catch (RuntimeException e)
+        {
+            OUT.flush();
+            System.err.println("Runtime error: " + e.getMessage());
+        }
+        finally
+        {
+            OUT.flush();
+        }
+    }
+
+    /**
+     * Prints a number on its own line.
+     *
+     * @param v the number
+     */
+    public static void print(int v)
+    {
+        OUT.println(v);
+    }
+
+    /**
+     * Reads the next number from the input.
+     *
+     * @return the number
+     * @throws RuntimeException if the next token is not a number or there is none
+     */
+    public static int read()
+    {
+        OUT.flush();
+        try
+        {
+            int c = IN.read();
+            while (c != -1 && Character.isWhitespace(c))
+            {
+                c = IN.read();
+            }
+            if (c == -1)
+            {
+                throw new RuntimeException("Error reading input: Expected a number, got: EOF");
+            }
+            StringBuilder token = new StringBuilder();
+            boolean number = Character.isDigit(c);
+            boolean word = Character.isLetterOrDigit(c);
+            token.append((char) c);
+            IN.mark(1);
+            c = IN.read();
+            while (word && c != -1
+                    && (number ? Character.isDigit(c) : Character.isLetterOrDigit(c)))
+            {
+                token.append((char) c);
+                IN.mark(1);
+                c = IN.read();
+            }
+            IN.reset();
+            if (!number)
+            {
+                throw new RuntimeException("Error reading input: Expected a number, got: "
+                        + token);
+            }
+            return Integer.parseInt(token.toString());
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Allocates a zero-filled array, with the same checks as IntArray.allocate.
+     *
+     * @param length the number of elements
+     * @return the new array
+     * @throws IllegalArgumentException if the length is negative or too large to address
+     */
+    public static int[] newArray(int length)
+    {
+        if (length < 0)
+        {
+            throw new IllegalArgumentException("Invalid array length " + length);
+        }
+        if (length > Integer.MAX_VALUE / Integer.BYTES)
+        {
+            throw new IllegalArgumentException("Array length " + length + " is too large");
+        }
+        return new int[length];
+    }
+
+    /**
+     * Returns the frame array if it has been declared, or else the global array, like
+     * Environment.getArray.
+     *
+     * @param local the array declared in the frame, or null
+     * @param global the array declared in the root, or null
+     * @param name the name of the array
+     * @return the array
+     * @throws NoSuchElementException if neither array has been declared
+     */
+    public static int[] array(int[] local, int[] global, String name)
+    {
+        if (local != null)
+        {
+            return local;
+        }
+        if (global == null)
+        {
+            throw new NoSuchElementException("Array " + name + " not found.");
+        }
+        return global;
+    }
+}
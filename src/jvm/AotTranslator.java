@@ -0,0 +1,351 @@
+package jvm;
+
+import ast.*;
+import java.util.*;
+
+/**
+ * Translates a procedure, or the main body, into a method of the class the AotCompiler
+ * generates. Nothing in the generated code refers to the interpreter.
+ *
+ * In a procedure, parameters, the return variable and VAR locals are JVM int locals. A
+ * variable the parser could not resolve gets a pair of JVM locals in each procedure that
+ * uses it: its local value and whether the frame has defined it. Reads and writes then
+ * follow Environment: the frame if it has the variable, else the root if it has it, else
+ * the variable is created in the frame. Arrays declared in a procedure are JVM locals that
+ * stay null until the declaration runs.
+ *
+ * The locals for unresolved variables and arrays are only known once the body has been
+ * translated, so the method starts with a jump to a prologue emitted after the body, which
+ * initializes every local and jumps back.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class AotTranslator extends Translator
+{
+    private static final String MAIN = AotCompiler.MAIN;
+    private static final String RUNTIME = AotCompiler.RUNTIME;
+
+    private final AotCompiler unit;
+    private final ProcedureDeclaration procedure;
+    private final int frameBase;
+    private final Map<String, int[]> variables = new HashMap<>();
+    private final Map<String, Integer> arrays = new HashMap<>();
+    private final CodeBuilder.Label prologue;
+
+    /**
+     * Constructs an AotTranslator.
+     *
+     * @param unit the program being compiled
+     * @param procedure the procedure to translate, or null for the main body
+     * @param code the builder for the method
+     */
+    public AotTranslator(AotCompiler unit, ProcedureDeclaration procedure, CodeBuilder code)
+    {
+        super(code);
+        this.unit = unit;
+        this.procedure = procedure;
+        this.frameBase = code.getMaxLocals();
+        this.prologue = code.newLabel();
+        if (procedure != null)
+        {
+            for (int i = 0; i < procedure.getFrameLayout().size(); i++)
+            {
+                code.newLocal();
+            }
+        }
+    }
+
+    /**
+     * Emits the whole method.
+     *
+     * Postcondition: A procedure's method returns the value of its return variable, like
+     * ProcedureDeclaration.runProcedure; the main body's method returns nothing.
+     *
+     * @param body the procedure or main body
+     */
+    public void translate(Statement body)
+    {
+        CodeBuilder.Label start = code.newLabel();
+        code.jump(CodeBuilder.GOTO, prologue);
+        code.bind(start);
+        if (procedure != null && procedure.getLocals() != null)
+        {
+            for (Map.Entry<String, Integer> a : procedure.getLocals().getArrays().entrySet())
+            {
+                code.iconst(a.getValue());
+                code.invokestatic(RUNTIME, "newArray", "(I)[I");
+                code.astore(arrayLocal(a.getKey()));
+            }
+        }
+        body.accept(this);
+        if (procedure == null)
+        {
+            code.op(CodeBuilder.RETURN, 0);
+        }
+        else
+        {
+            code.iload(frameBase + procedure.getReturnSlot());
+            code.op(CodeBuilder.IRETURN, -1);
+        }
+
+        code.bind(prologue);
+        if (procedure != null)
+        {
+            for (int i = 0; i < procedure.getFrameLayout().size(); i++)
+            {
+                code.iconst(0);
+                code.istore(frameBase + i);
+            }
+            String[] args = procedure.getArgs();
+            for (int i = 0; i < args.length; i++)
+            {
+                code.iload(i);
+                code.istore(frameBase + procedure.getFrameLayout().get(args[i]));
+            }
+            code.iconst(0);
+            code.istore(frameBase + procedure.getReturnSlot());
+        }
+        for (int[] v : variables.values())
+        {
+            code.iconst(0);
+            code.istore(v[0]);
+            code.iconst(0);
+            code.istore(v[1]);
+        }
+        for (int a : arrays.values())
+        {
+            code.op(CodeBuilder.ACONST_NULL, 1);
+            code.astore(a);
+        }
+        code.jump(CodeBuilder.GOTO, start);
+    }
+
+    /**
+     * Returns the JVM locals of an unresolved variable in this procedure.
+     *
+     * @param name the variable name
+     * @return the local holding the value and the local recording whether it is defined
+     */
+    private int[] dynamicLocals(String name)
+    {
+        return variables.computeIfAbsent(name, k -> new int[] {code.newLocal(), code.newLocal()});
+    }
+
+    /**
+     * Returns the JVM local of an array in this procedure.
+     *
+     * @param name the array name
+     * @return the local slot
+     */
+    private int arrayLocal(String name)
+    {
+        return arrays.computeIfAbsent(name, k -> code.newLocal());
+    }
+
+    /**
+     * Pushes the array with the given name, looked up like Environment.getArray.
+     *
+     * @param name the name of the array
+     */
+    private void loadArray(String name)
+    {
+        if (procedure == null)
+        {
+            code.op(CodeBuilder.ACONST_NULL, 1);
+        }
+        else
+        {
+            code.aload(arrayLocal(name));
+        }
+        code.getstatic(MAIN, unit.arrayField(name), "[I");
+        code.sconst(name);
+        code.invokestatic(RUNTIME, "array", "([I[ILjava/lang/String;)[I");
+    }
+
+    @Override
+    protected int local(Variable v)
+    {
+        return procedure != null && v.getSlot() >= 0 && v.isLocal() ? frameBase + v.getSlot() : -1;
+    }
+
+    @Override
+    protected void load(Variable v)
+    {
+        if (v.getSlot() >= 0)
+        {
+            if (v.isLocal())
+            {
+                code.iload(local(v));
+            }
+            else
+            {
+                code.getstatic(MAIN, unit.globalField(v.getSlot()), "I");
+            }
+            return;
+        }
+        String value = unit.valueField(v.getName());
+        String defined = unit.definedField(v.getName());
+        if (procedure == null)
+        {
+            code.iconst(1); // reading an undefined variable defines it as 0
+            code.putstatic(MAIN, defined, "Z");
+            code.getstatic(MAIN, value, "I");
+            return;
+        }
+        int[] locals = dynamicLocals(v.getName());
+        CodeBuilder.Label notLocal = code.newLabel();
+        CodeBuilder.Label notGlobal = code.newLabel();
+        CodeBuilder.Label done = code.newLabel();
+        code.iload(locals[1]);
+        code.jump(CodeBuilder.IFEQ, notLocal);
+        code.iload(locals[0]);
+        code.jump(CodeBuilder.GOTO, done);
+        code.adjustStack(-1);
+        code.bind(notLocal);
+        code.getstatic(MAIN, defined, "Z");
+        code.jump(CodeBuilder.IFEQ, notGlobal);
+        code.getstatic(MAIN, value, "I");
+        code.jump(CodeBuilder.GOTO, done);
+        code.adjustStack(-1);
+        code.bind(notGlobal);
+        code.iconst(1); // reading an undefined variable defines it as 0 in the frame
+        code.istore(locals[1]);
+        code.iconst(0);
+        code.bind(done);
+    }
+
+    @Override
+    protected void store(Variable v, Runnable value)
+    {
+        value.run();
+        if (v.getSlot() >= 0)
+        {
+            if (v.isLocal())
+            {
+                code.istore(local(v));
+            }
+            else
+            {
+                code.putstatic(MAIN, unit.globalField(v.getSlot()), "I");
+            }
+            return;
+        }
+        String field = unit.valueField(v.getName());
+        String defined = unit.definedField(v.getName());
+        if (procedure == null)
+        {
+            code.putstatic(MAIN, field, "I");
+            code.iconst(1);
+            code.putstatic(MAIN, defined, "Z");
+            return;
+        }
+        int[] locals = dynamicLocals(v.getName());
+        CodeBuilder.Label inFrame = code.newLabel();
+        CodeBuilder.Label done = code.newLabel();
+        code.iload(locals[1]);
+        code.jump(CodeBuilder.IFNE, inFrame);
+        code.getstatic(MAIN, defined, "Z");
+        code.jump(CodeBuilder.IFEQ, inFrame);
+        code.putstatic(MAIN, field, "I");
+        code.jump(CodeBuilder.GOTO, done);
+        code.adjustStack(1);
+        code.bind(inFrame);
+        code.istore(locals[0]);
+        code.iconst(1);
+        code.istore(locals[1]);
+        code.bind(done);
+    }
+
+    @Override
+    protected void loadElement(ArrayElement a)
+    {
+        loadArray(a.getName());
+        a.getIndex().accept(this);
+        code.op(CodeBuilder.IALOAD, -1);
+    }
+
+    @Override
+    protected void storeElement(ArrayAssignment a)
+    {
+        int index = code.newLocal();
+        a.getIndex().accept(this);
+        code.istore(index);
+        loadArray(a.getName());
+        code.iload(index);
+        a.getExpr().accept(this);
+        code.op(CodeBuilder.IASTORE, -3);
+    }
+
+    @Override
+    protected void declareArray(ArrayDeclaration a)
+    {
+        a.getSize().accept(this);
+        code.invokestatic(RUNTIME, "newArray", "(I)[I");
+        if (procedure == null)
+        {
+            code.putstatic(MAIN, unit.arrayField(a.getName()), "[I");
+        }
+        else
+        {
+            code.astore(arrayLocal(a.getName()));
+        }
+    }
+
+    @Override
+    protected boolean tailCall(ProcedureCall call)
+    {
+        if (procedure != null && TailCalls.isLeft(procedure, call, unit::resolve))
+        {
+            leave(call, resolve(call.getName()), unit.getTailCalls());
+            return true;
+        }
+        if (procedure == null || resolve(call.getName()) != procedure
+                || call.getArgVals().length != procedure.getArgs().length)
+        {
+            return false;
+        }
+        for (Expression a : call.getArgVals())
+        {
+            a.accept(this);
+        }
+        for (int i = call.getArgVals().length - 1; i >= 0; i--)
+        {
+            code.istore(i);
+        }
+        code.jump(CodeBuilder.GOTO, prologue);
+        return true;
+    }
+
+    @Override
+    protected ProcedureDeclaration resolve(String name)
+    {
+        return unit.resolve(name);
+    }
+
+    @Override
+    protected void call(ProcedureDeclaration target, Expression[] args)
+    {
+        for (Expression a : args)
+        {
+            a.accept(this);
+        }
+        code.invokestatic(MAIN, unit.methodName(target), AotCompiler.descriptor(target));
+        if (TailCalls.leaves(target, unit::resolve))
+        {
+            unit.getTailCalls().complete(code, -1);
+        }
+    }
+
+    @Override
+    protected void print()
+    {
+        code.invokestatic(RUNTIME, "print", "(I)V");
+    }
+
+    @Override
+    protected void read()
+    {
+        code.invokestatic(RUNTIME, "read", "()I");
+    }
+}
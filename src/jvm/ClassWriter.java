@@ -0,0 +1,327 @@
+package jvm;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Writes a JVM class file. Only the parts of the format the compilers need are supported:
+ * a constant pool of UTF-8, integer, string, class and member reference entries, static
+ * fields, and methods with a Code attribute.
+ *
+ * Classes are written with class file version 49, which the JVM verifies by type inference,
+ * so the code does not need StackMapTable frames.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class ClassWriter
+{
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int VERSION = 49;
+
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_PRIVATE = 0x0002;
+    public static final int ACC_STATIC = 0x0008;
+    public static final int ACC_FINAL = 0x0010;
+    public static final int ACC_SUPER = 0x0020;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+    private final DataOutputStream poolOut = new DataOutputStream(pool);
+    private final Map<String, Integer> entries = new HashMap<>();
+    private int poolSize = 1;
+
+    private final String name;
+    private final int thisClass;
+    private final int superClass;
+    private final List<Integer> interfaces = new ArrayList<>();
+    private final ByteArrayOutputStream fields = new ByteArrayOutputStream();
+    private int fieldCount;
+    private final ByteArrayOutputStream methods = new ByteArrayOutputStream();
+    private int methodCount;
+
+    /**
+     * Constructs a ClassWriter for a public final class.
+     *
+     * @param name the internal name of the class, such as "jvm/Compiled"
+     * @param superName the internal name of the superclass
+     * @param interfaceNames the internal names of the interfaces the class implements
+     */
+    public ClassWriter(String name, String superName, String... interfaceNames)
+    {
+        this.name = name;
+        this.thisClass = classRef(name);
+        this.superClass = classRef(superName);
+        for (String i : interfaceNames)
+        {
+            interfaces.add(classRef(i));
+        }
+    }
+
+    /**
+     * Returns the internal name of the class being written.
+     *
+     * @return the class name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Adds an entry to the constant pool unless an equal entry is already there.
+     *
+     * @param key a key that identifies the entry
+     * @param tag the constant pool tag
+     * @param body the bytes of the entry after the tag
+     * @return the index of the entry
+     */
+    private int entry(String key, int tag, byte[] body)
+    {
+        Integer index = entries.get(key);
+        if (index != null)
+        {
+            return index;
+        }
+        try
+        {
+            poolOut.writeByte(tag);
+            poolOut.write(body);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        entries.put(key, poolSize);
+        return poolSize++;
+    }
+
+    /**
+     * Encodes two constant pool indexes as the body of an entry.
+     *
+     * @param a the first index
+     * @param b the second index
+     * @return the four bytes
+     */
+    private static byte[] pair(int a, int b)
+    {
+        return new byte[] {(byte) (a >> 8), (byte) a, (byte) (b >> 8), (byte) b};
+    }
+
+    /**
+     * Encodes one constant pool index as the body of an entry.
+     *
+     * @param a the index
+     * @return the two bytes
+     */
+    private static byte[] single(int a)
+    {
+        return new byte[] {(byte) (a >> 8), (byte) a};
+    }
+
+    /**
+     * Returns the constant pool index of a UTF-8 string.
+     *
+     * @param s the string
+     * @return the index
+     */
+    public int utf8(String s)
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try
+        {
+            new DataOutputStream(bytes).writeUTF(s);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        return entry("U" + s, CONSTANT_UTF8, bytes.toByteArray());
+    }
+
+    /**
+     * Returns the constant pool index of an integer constant.
+     *
+     * @param v the value
+     * @return the index
+     */
+    public int integer(int v)
+    {
+        return entry("I" + v, CONSTANT_INTEGER,
+                new byte[] {(byte) (v >> 24), (byte) (v >> 16), (byte) (v >> 8), (byte) v});
+    }
+
+    /**
+     * Returns the constant pool index of a string constant.
+     *
+     * @param s the string
+     * @return the index
+     */
+    public int string(String s)
+    {
+        return entry("S" + s, CONSTANT_STRING, single(utf8(s)));
+    }
+
+    /**
+     * Returns the constant pool index of a class reference.
+     *
+     * @param internalName the internal name of the class
+     * @return the index
+     */
+    public int classRef(String internalName)
+    {
+        return entry("C" + internalName, CONSTANT_CLASS, single(utf8(internalName)));
+    }
+
+    /**
+     * Returns the constant pool index of a name and type pair.
+     *
+     * @param member the member name
+     * @param descriptor the member descriptor
+     * @return the index
+     */
+    private int nameAndType(String member, String descriptor)
+    {
+        return entry("N" + member + " " + descriptor, CONSTANT_NAME_AND_TYPE,
+                pair(utf8(member), utf8(descriptor)));
+    }
+
+    /**
+     * Returns the constant pool index of a field reference.
+     *
+     * @param owner the internal name of the class that declares the field
+     * @param field the field name
+     * @param descriptor the field descriptor
+     * @return the index
+     */
+    public int fieldRef(String owner, String field, String descriptor)
+    {
+        return entry("F" + owner + "." + field + " " + descriptor, CONSTANT_FIELDREF,
+                pair(classRef(owner), nameAndType(field, descriptor)));
+    }
+
+    /**
+     * Returns the constant pool index of a method reference.
+     *
+     * @param owner the internal name of the class that declares the method
+     * @param method the method name
+     * @param descriptor the method descriptor
+     * @param isInterface true if the owner is an interface
+     * @return the index
+     */
+    public int methodRef(String owner, String method, String descriptor, boolean isInterface)
+    {
+        return entry((isInterface ? "J" : "M") + owner + "." + method + descriptor,
+                isInterface ? CONSTANT_INTERFACE_METHODREF : CONSTANT_METHODREF,
+                pair(classRef(owner), nameAndType(method, descriptor)));
+    }
+
+    /**
+     * Adds a field without attributes.
+     *
+     * @param access the access flags
+     * @param field the field name
+     * @param descriptor the field descriptor
+     */
+    public void addField(int access, String field, String descriptor)
+    {
+        DataOutputStream out = new DataOutputStream(fields);
+        try
+        {
+            out.writeShort(access);
+            out.writeShort(utf8(field));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(0);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        fieldCount++;
+    }
+
+    /**
+     * Adds a method whose code has been emitted into a CodeBuilder.
+     *
+     * @param access the access flags
+     * @param method the method name
+     * @param descriptor the method descriptor
+     * @param code the method's code
+     * @throws IllegalStateException if the code is too large for a method
+     */
+    public void addMethod(int access, String method, String descriptor, CodeBuilder code)
+    {
+        byte[] bytes = code.toByteArray();
+        if (bytes.length >= 65535)
+        {
+            throw new IllegalStateException("Method " + method + " is too large");
+        }
+        DataOutputStream out = new DataOutputStream(methods);
+        try
+        {
+            out.writeShort(access);
+            out.writeShort(utf8(method));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(1);
+            out.writeShort(utf8("Code"));
+            out.writeInt(12 + bytes.length);
+            out.writeShort(code.getMaxStack());
+            out.writeShort(code.getMaxLocals());
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.writeShort(0); // no exception table
+            out.writeShort(0); // no attributes
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        methodCount++;
+    }
+
+    /**
+     * Returns the bytes of the class file.
+     *
+     * @return the class file
+     */
+    public byte[] toByteArray()
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try
+        {
+            out.writeInt(MAGIC);
+            out.writeShort(0);
+            out.writeShort(VERSION);
+            out.writeShort(poolSize);
+            poolOut.flush();
+            pool.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(interfaces.size());
+            for (int i : interfaces)
+            {
+                out.writeShort(i);
+            }
+            out.writeShort(fieldCount);
+            fields.writeTo(out);
+            out.writeShort(methodCount);
+            methods.writeTo(out);
+            out.writeShort(0); // no class attributes
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
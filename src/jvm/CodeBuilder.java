@@ -0,0 +1,666 @@
+package jvm;
+
+import java.io.ByteArrayOutputStream;
+import java.util.*;
+
+/**
+ * Emits the bytecode of one method. Branch targets are Labels that may be bound after the
+ * branch that uses them, by a two-byte offset for a branch and a four-byte one for a switch. The builder keeps track of the operand stack depth and the number
+ * of locals so the Code attribute can be written without a separate analysis.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class CodeBuilder
+{
+    public static final int NOP = 0x00;
+    public static final int ACONST_NULL = 0x01;
+    public static final int POP = 0x57;
+    public static final int DUP = 0x59;
+    public static final int SWAP = 0x5f;
+    public static final int IADD = 0x60;
+    public static final int ISUB = 0x64;
+    public static final int IMUL = 0x68;
+    public static final int IDIV = 0x6c;
+    public static final int INEG = 0x74;
+    public static final int IALOAD = 0x2e;
+    public static final int IASTORE = 0x4f;
+    public static final int AALOAD = 0x32;
+    public static final int AASTORE = 0x53;
+    public static final int IFEQ = 0x99;
+    public static final int IFNE = 0x9a;
+    public static final int IFLT = 0x9b;
+    public static final int IFGE = 0x9c;
+    public static final int IFGT = 0x9d;
+    public static final int IFLE = 0x9e;
+    public static final int IF_ICMPEQ = 0x9f;
+    public static final int IF_ICMPNE = 0xa0;
+    public static final int IF_ICMPLT = 0xa1;
+    public static final int IF_ICMPGE = 0xa2;
+    public static final int IF_ICMPGT = 0xa3;
+    public static final int IF_ICMPLE = 0xa4;
+    public static final int GOTO = 0xa7;
+    public static final int TABLESWITCH = 0xaa;
+    public static final int LOOKUPSWITCH = 0xab;
+    public static final int IRETURN = 0xac;
+    public static final int ARETURN = 0xb0;
+    public static final int RETURN = 0xb1;
+    public static final int ARRAYLENGTH = 0xbe;
+    public static final int ATHROW = 0xbf;
+    public static final int IFNULL = 0xc6;
+    public static final int IFNONNULL = 0xc7;
+
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC = 0x12;
+    private static final int LDC_W = 0x13;
+    private static final int ILOAD = 0x15;
+    private static final int ALOAD = 0x19;
+    private static final int ISTORE = 0x36;
+    private static final int ASTORE = 0x3a;
+    private static final int IINC = 0x84;
+    private static final int GETSTATIC = 0xb2;
+    private static final int PUTSTATIC = 0xb3;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int INVOKEINTERFACE = 0xb9;
+    private static final int NEW = 0xbb;
+    private static final int NEWARRAY = 0xbc;
+    private static final int ANEWARRAY = 0xbd;
+    private static final int CHECKCAST = 0xc0;
+    private static final int WIDE = 0xc4;
+    private static final int TYPE_INT = 10;
+
+    /**
+     * A position in the code that branches can jump to.
+     */
+    public static final class Label
+    {
+        private int position = -1;
+        private final List<int[]> uses = new ArrayList<>(); // branch, offset, offset size
+    }
+
+    private final ClassWriter cw;
+    private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+    private final List<Label> labels = new ArrayList<>();
+    private int stack;
+    private int maxStack;
+    private int locals;
+    private int maxLocals;
+
+    /**
+     * Constructs a CodeBuilder for a method of the given class.
+     *
+     * @param cw the class the method belongs to
+     * @param parameterSlots the number of local slots taken by the parameters, including this
+     */
+    public CodeBuilder(ClassWriter cw, int parameterSlots)
+    {
+        this.cw = cw;
+        this.locals = parameterSlots;
+        this.maxLocals = parameterSlots;
+    }
+
+    /**
+     * Returns the constant pool the code refers to.
+     *
+     * @return the class writer
+     */
+    public ClassWriter getClassWriter()
+    {
+        return cw;
+    }
+
+    /**
+     * Allocates a new local variable slot.
+     *
+     * @return the slot index
+     */
+    public int newLocal()
+    {
+        int l = locals++;
+        maxLocals = Math.max(maxLocals, locals);
+        return l;
+    }
+
+    /**
+     * Changes the recorded operand stack depth, for code after an unconditional jump whose
+     * depth is not the depth of the code before it.
+     *
+     * @param delta the change in depth
+     */
+    public void adjustStack(int delta)
+    {
+        stack += delta;
+        maxStack = Math.max(maxStack, stack);
+    }
+
+    /**
+     * Returns the maximum operand stack depth reached.
+     *
+     * @return the max stack
+     */
+    public int getMaxStack()
+    {
+        return maxStack;
+    }
+
+    /**
+     * Returns the number of local slots used.
+     *
+     * @return the max locals
+     */
+    public int getMaxLocals()
+    {
+        return maxLocals;
+    }
+
+    /**
+     * Emits an instruction without operands.
+     *
+     * @param opcode the instruction
+     * @param delta the change in stack depth
+     */
+    public void op(int opcode, int delta)
+    {
+        code.write(opcode);
+        adjustStack(delta);
+    }
+
+    /**
+     * Emits a two-byte operand.
+     *
+     * @param v the operand
+     */
+    private void u2(int v)
+    {
+        code.write(v >> 8);
+        code.write(v);
+    }
+
+    /**
+     * Emits a four-byte operand.
+     *
+     * @param v the operand
+     */
+    private void u4(int v)
+    {
+        u2(v >> 16);
+        u2(v);
+    }
+
+    /**
+     * Pushes an int constant with the shortest instruction.
+     *
+     * @param v the value
+     */
+    public void iconst(int v)
+    {
+        if (v >= -1 && v <= 5)
+        {
+            code.write(0x03 + v);
+        }
+        else if (v >= Byte.MIN_VALUE && v <= Byte.MAX_VALUE)
+        {
+            code.write(BIPUSH);
+            code.write(v);
+        }
+        else if (v >= Short.MIN_VALUE && v <= Short.MAX_VALUE)
+        {
+            code.write(SIPUSH);
+            u2(v);
+        }
+        else
+        {
+            ldc(cw.integer(v));
+        }
+        adjustStack(1);
+    }
+
+    /**
+     * Pushes a string constant.
+     *
+     * @param s the string
+     */
+    public void sconst(String s)
+    {
+        ldc(cw.string(s));
+        adjustStack(1);
+    }
+
+    /**
+     * Emits ldc or ldc_w for a constant pool entry.
+     *
+     * @param index the constant pool index
+     */
+    private void ldc(int index)
+    {
+        if (index < 256)
+        {
+            code.write(LDC);
+            code.write(index);
+        }
+        else
+        {
+            code.write(LDC_W);
+            u2(index);
+        }
+    }
+
+    /**
+     * Emits a load or store of a local, using the wide form if needed.
+     *
+     * @param opcode ILOAD, ISTORE, ALOAD or ASTORE
+     * @param local the local slot
+     */
+    private void local(int opcode, int local)
+    {
+        if (local > 255)
+        {
+            code.write(WIDE);
+            code.write(opcode);
+            u2(local);
+        }
+        else
+        {
+            code.write(opcode);
+            code.write(local);
+        }
+    }
+
+    /**
+     * Pushes an int local.
+     *
+     * @param local the local slot
+     */
+    public void iload(int local)
+    {
+        local(ILOAD, local);
+        adjustStack(1);
+    }
+
+    /**
+     * Pops an int into a local.
+     *
+     * @param local the local slot
+     */
+    public void istore(int local)
+    {
+        local(ISTORE, local);
+        adjustStack(-1);
+    }
+
+    /**
+     * Pushes a reference local.
+     *
+     * @param local the local slot
+     */
+    public void aload(int local)
+    {
+        local(ALOAD, local);
+        adjustStack(1);
+    }
+
+    /**
+     * Pops a reference into a local.
+     *
+     * @param local the local slot
+     */
+    public void astore(int local)
+    {
+        local(ASTORE, local);
+        adjustStack(-1);
+    }
+
+    /**
+     * Adds a constant to an int local.
+     *
+     * @param local the local slot
+     * @param v the constant
+     */
+    public void iinc(int local, int v)
+    {
+        if (local > 255 || v < Byte.MIN_VALUE || v > Byte.MAX_VALUE)
+        {
+            code.write(WIDE);
+            code.write(IINC);
+            u2(local);
+            u2(v);
+        }
+        else
+        {
+            code.write(IINC);
+            code.write(local);
+            code.write(v);
+        }
+    }
+
+    /**
+     * Creates a label that is not bound yet.
+     *
+     * @return the label
+     */
+    public Label newLabel()
+    {
+        Label l = new Label();
+        labels.add(l);
+        return l;
+    }
+
+    /**
+     * Binds a label to the current position.
+     *
+     * @param l the label
+     */
+    public void bind(Label l)
+    {
+        l.position = code.size();
+    }
+
+    /**
+     * Emits a branch to a label.
+     *
+     * @param opcode a conditional branch or GOTO
+     * @param target the label
+     */
+    public void jump(int opcode, Label target)
+    {
+        int at = code.size();
+        code.write(opcode);
+        target.uses.add(new int[] {at, code.size(), 2});
+        u2(0);
+        if (opcode >= IF_ICMPEQ && opcode <= IF_ICMPLE)
+        {
+            adjustStack(-2);
+        }
+        else if (opcode != GOTO)
+        {
+            adjustStack(-1);
+        }
+    }
+
+    /**
+     * Emits a tableswitch on the int on top of the stack.
+     *
+     * @param low the value that goes to the first target
+     * @param otherwise where values outside the table go
+     * @param targets where each value from low on goes
+     */
+    public void tableswitch(int low, Label otherwise, Label[] targets)
+    {
+        int at = switchHeader(TABLESWITCH, otherwise);
+        u4(low);
+        u4(low + targets.length - 1);
+        for (Label t : targets)
+        {
+            switchOffset(at, t);
+        }
+        adjustStack(-1);
+    }
+
+    /**
+     * Emits a lookupswitch on the int on top of the stack.
+     *
+     * @param otherwise where values without a key go
+     * @param keys the keys, sorted in increasing order
+     * @param targets where the value equal to each key goes
+     */
+    public void lookupswitch(Label otherwise, int[] keys, Label[] targets)
+    {
+        int at = switchHeader(LOOKUPSWITCH, otherwise);
+        u4(keys.length);
+        for (int k = 0; k < keys.length; k++)
+        {
+            u4(keys[k]);
+            switchOffset(at, targets[k]);
+        }
+        adjustStack(-1);
+    }
+
+    /**
+     * Emits the opcode of a switch, the padding that aligns its operands to four bytes from
+     * the start of the code, and its default offset.
+     *
+     * @param opcode TABLESWITCH or LOOKUPSWITCH
+     * @param otherwise the default target
+     * @return the position of the opcode, which the offsets are relative to
+     */
+    private int switchHeader(int opcode, Label otherwise)
+    {
+        int at = code.size();
+        code.write(opcode);
+        while (code.size() % 4 != 0)
+        {
+            code.write(0);
+        }
+        switchOffset(at, otherwise);
+        return at;
+    }
+
+    /**
+     * Emits the four-byte offset of a switch target.
+     *
+     * @param at the position of the switch opcode
+     * @param target the label
+     */
+    private void switchOffset(int at, Label target)
+    {
+        target.uses.add(new int[] {at, code.size(), 4});
+        u4(0);
+    }
+
+    /**
+     * Returns the number of stack slots taken by the parameters of a method descriptor.
+     *
+     * @param descriptor the method descriptor
+     * @return the number of slots
+     */
+    public static int argumentSlots(String descriptor)
+    {
+        int slots = 0;
+        int i = 1;
+        while (descriptor.charAt(i) != ')')
+        {
+            char c = descriptor.charAt(i);
+            while (c == '[')
+            {
+                c = descriptor.charAt(++i);
+            }
+            if (c == 'L')
+            {
+                i = descriptor.indexOf(';', i);
+            }
+            slots += c == 'J' || c == 'D' ? 2 : 1;
+            i++;
+        }
+        return slots;
+    }
+
+    /**
+     * Returns the number of stack slots taken by the result of a method descriptor.
+     *
+     * @param descriptor the method descriptor
+     * @return the number of slots
+     */
+    private static int returnSlots(String descriptor)
+    {
+        char r = descriptor.charAt(descriptor.indexOf(')') + 1);
+        return r == 'V' ? 0 : r == 'J' || r == 'D' ? 2 : 1;
+    }
+
+    /**
+     * Emits an invokestatic.
+     *
+     * @param owner the internal name of the class
+     * @param method the method name
+     * @param descriptor the method descriptor
+     */
+    public void invokestatic(String owner, String method, String descriptor)
+    {
+        code.write(INVOKESTATIC);
+        u2(cw.methodRef(owner, method, descriptor, false));
+        adjustStack(returnSlots(descriptor) - argumentSlots(descriptor));
+    }
+
+    /**
+     * Emits an invokevirtual.
+     *
+     * @param owner the internal name of the class
+     * @param method the method name
+     * @param descriptor the method descriptor
+     */
+    public void invokevirtual(String owner, String method, String descriptor)
+    {
+        code.write(INVOKEVIRTUAL);
+        u2(cw.methodRef(owner, method, descriptor, false));
+        adjustStack(returnSlots(descriptor) - argumentSlots(descriptor) - 1);
+    }
+
+    /**
+     * Emits an invokespecial, such as a constructor call.
+     *
+     * @param owner the internal name of the class
+     * @param method the method name
+     * @param descriptor the method descriptor
+     */
+    public void invokespecial(String owner, String method, String descriptor)
+    {
+        code.write(INVOKESPECIAL);
+        u2(cw.methodRef(owner, method, descriptor, false));
+        adjustStack(returnSlots(descriptor) - argumentSlots(descriptor) - 1);
+    }
+
+    /**
+     * Emits an invokeinterface.
+     *
+     * @param owner the internal name of the interface
+     * @param method the method name
+     * @param descriptor the method descriptor
+     */
+    public void invokeinterface(String owner, String method, String descriptor)
+    {
+        code.write(INVOKEINTERFACE);
+        u2(cw.methodRef(owner, method, descriptor, true));
+        code.write(argumentSlots(descriptor) + 1);
+        code.write(0);
+        adjustStack(returnSlots(descriptor) - argumentSlots(descriptor) - 1);
+    }
+
+    /**
+     * Pushes the value of a static field.
+     *
+     * @param owner the internal name of the class
+     * @param field the field name
+     * @param descriptor the field descriptor
+     */
+    public void getstatic(String owner, String field, String descriptor)
+    {
+        code.write(GETSTATIC);
+        u2(cw.fieldRef(owner, field, descriptor));
+        adjustStack(descriptor.equals("J") || descriptor.equals("D") ? 2 : 1);
+    }
+
+    /**
+     * Pops a value into a static field.
+     *
+     * @param owner the internal name of the class
+     * @param field the field name
+     * @param descriptor the field descriptor
+     */
+    public void putstatic(String owner, String field, String descriptor)
+    {
+        code.write(PUTSTATIC);
+        u2(cw.fieldRef(owner, field, descriptor));
+        adjustStack(descriptor.equals("J") || descriptor.equals("D") ? -2 : -1);
+    }
+
+    /**
+     * Pushes a new, uninitialized object.
+     *
+     * @param internalName the class to instantiate
+     */
+    public void newObject(String internalName)
+    {
+        code.write(NEW);
+        u2(cw.classRef(internalName));
+        adjustStack(1);
+    }
+
+    /**
+     * Replaces the length on the stack with a new int array of that length.
+     */
+    public void newIntArray()
+    {
+        code.write(NEWARRAY);
+        code.write(TYPE_INT);
+    }
+
+    /**
+     * Replaces the length on the stack with a new array of references.
+     *
+     * @param internalName the element class
+     */
+    public void newObjectArray(String internalName)
+    {
+        code.write(ANEWARRAY);
+        u2(cw.classRef(internalName));
+    }
+
+    /**
+     * Checks that the reference on the stack is of the given class.
+     *
+     * @param internalName the class
+     */
+    public void checkcast(String internalName)
+    {
+        code.write(CHECKCAST);
+        u2(cw.classRef(internalName));
+    }
+
+    /**
+     * Throws a new exception with a fixed message.
+     *
+     * @param exception the internal name of the exception class
+     * @param message the message
+     */
+    public void throwNew(String exception, String message)
+    {
+        newObject(exception);
+        op(DUP, 1);
+        sconst(message);
+        invokespecial(exception, "<init>", "(Ljava/lang/String;)V");
+        op(ATHROW, -1);
+    }
+
+    /**
+     * Returns the finished code with every branch offset filled in.
+     *
+     * @return the code bytes
+     * @throws IllegalStateException if a label was used but never bound, or a branch is too far
+     */
+    public byte[] toByteArray()
+    {
+        byte[] bytes = code.toByteArray();
+        for (Label l : labels)
+        {
+            for (int[] use : l.uses)
+            {
+                if (l.position < 0)
+                {
+                    throw new IllegalStateException("Unbound label");
+                }
+                int offset = l.position - use[0];
+                if (use[2] == 2 && (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE))
+                {
+                    throw new IllegalStateException("Branch offset too large");
+                }
+                for (int b = 0; b < use[2]; b++)
+                {
+                    bytes[use[1] + b] = (byte) (offset >> 8 * (use[2] - 1 - b));
+                }
+            }
+        }
+        return bytes;
+    }
+}
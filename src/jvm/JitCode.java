@@ -0,0 +1,13 @@
+package jvm;
+
+import ast.CompileHook;
+
+/**
+ * The entry point of a procedure that has been compiled to a JVM class.
+ *
+ * @author Vouk
+ * @version October 19, 2026
+ */
+public interface JitCode extends CompileHook.Code
+{
+}
@@ -0,0 +1,334 @@
+package jvm;
+
+import ast.CompileHook;
+import ast.LoopHook;
+import ast.ProcedureDeclaration;
+import ast.Statement;
+import environment.Environment;
+import environment.ExecutionProfile;
+import java.lang.invoke.MethodHandles;
+import java.util.*;
+
+/**
+ * Counts the invocations of each procedure and compiles a procedure to a JVM class once it
+ * has been invoked often enough. The class is defined as a hidden class, so it can be
+ * unloaded with the JitCompiler that made it.
+ *
+ * Loops are counted too, at each back-edge. Once a loop is hot it is compiled on its own and
+ * the interpreter hands the rest of the loop over to it, so a long loop in the main body or
+ * in a procedure that is only called once still gets compiled.
+ *
+ * With a profile of an earlier run, a procedure the profile saw called at least threshold
+ * times, or whose loops ran at least the loop threshold of iterations, is compiled at its
+ * first invocation, and a loop that ran that many iterations at its first back-edge.
+ *
+ * A procedure or loop that cannot be compiled keeps running in the interpreter.
+ *
+ * @author Vouk
+ * @version October 19, 2026
+ */
+public class JitCompiler implements CompileHook, LoopHook
+{
+    public static final int DEFAULT_THRESHOLD = 1000;
+    public static final int DEFAULT_LOOP_THRESHOLD = 10000;
+
+    private final int threshold;
+    private int loopThreshold = DEFAULT_LOOP_THRESHOLD;
+    private final Map<Statement, int[]> backEdges = new HashMap<>();
+    private final Map<Statement, LoopCode> loops = new HashMap<>();
+    private final Map<ProcedureDeclaration, Integer> invocations = new HashMap<>();
+    private final Map<ProcedureDeclaration, JitCode> compiled = new HashMap<>();
+    private final Map<String, String> failures = new TreeMap<>();
+    private ExecutionProfile profile;
+    private int classes;
+
+    /**
+     * Constructs a JitCompiler with the default threshold.
+     */
+    public JitCompiler()
+    {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Constructs a JitCompiler.
+     *
+     * @param threshold the number of invocations after which a procedure is compiled
+     */
+    public JitCompiler(int threshold)
+    {
+        this.threshold = threshold;
+    }
+
+    /**
+     * Records an invocation of a procedure and returns its compiled code, compiling it if
+     * this invocation makes it hot.
+     *
+     * Precondition: Every procedure of the program is registered in the root of env.
+     * Postcondition: Returns null if the procedure should be interpreted.
+     *
+     * @param p the procedure being invoked
+     * @param env the environment of the caller
+     * @return the compiled code, or null if there is none
+     */
+    @Override
+    public JitCode enter(ProcedureDeclaration p, Environment env)
+    {
+        JitCode code = compiled.get(p);
+        if (code != null)
+        {
+            return code;
+        }
+        int n = invocations.merge(p, 1, Integer::sum);
+        if (n == threshold || n == 1 && isHot(p))
+        {
+            code = compile(p, getProcedures(env.getRoot()));
+            if (code != null)
+            {
+                compiled.put(p, code);
+            }
+        }
+        return code;
+    }
+
+    /**
+     * Records a back-edge of a loop and returns the compiled rest of the loop, compiling it if
+     * this back-edge makes it hot.
+     *
+     * Precondition: Every procedure of the program is registered in the root of env.
+     * Postcondition: Returns null if the loop should keep running in the interpreter.
+     *
+     * @param loop the While or For loop
+     * @param env the environment the loop is running in
+     * @return the compiled loop, or null if there is none
+     */
+    @Override
+    public LoopCode backEdge(Statement loop, Environment env)
+    {
+        int[] count = backEdges.get(loop);
+        if (count == null)
+        {
+            count = new int[1];
+            backEdges.put(loop, count);
+        }
+        if (count[0] < loopThreshold)
+        {
+            if (++count[0] < loopThreshold && !(count[0] == 1 && isHot(loop)))
+            {
+                return null;
+            }
+            count[0] = loopThreshold;
+            LoopCode code = compileLoop(loop, env != env.getRoot(), getDeclared(env),
+                    getProcedures(env.getRoot()));
+            if (code != null)
+            {
+                loops.put(loop, code);
+            }
+            return code;
+        }
+        return loops.get(loop);
+    }
+
+    /**
+     * Compiles the rest of a running loop, and everything it can call, into a hidden class.
+     * It may be called from any thread, as long as no other thread changes the nodes it is
+     * given.
+     *
+     * @param loop the While or For loop
+     * @param inProcedure whether the loop is running in the frame of a procedure
+     * @param declared the names the root declares in its variable map
+     * @param procedures the procedures calls are bound to, by name
+     * @return the compiled loop, or null if the loop could not be compiled
+     */
+    protected LoopCode compileLoop(Statement loop, boolean inProcedure, Set<String> declared,
+            Map<String, ProcedureDeclaration> procedures)
+    {
+        int n;
+        synchronized (this)
+        {
+            n = classes++;
+        }
+        ProcedureCompiler unit = new ProcedureCompiler("jvm/Compiled" + n,
+                ProcedureCompiler.LOOP_CODE, procedures::get);
+        try
+        {
+            byte[] bytes = unit.compileLoop(loop, inProcedure, declared);
+            Class<?> c = MethodHandles.lookup().defineHiddenClass(bytes, true).lookupClass();
+            return (LoopCode) c.getDeclaredConstructor().newInstance();
+        }
+        catch (RuntimeException | ReflectiveOperationException | LinkageError e)
+        {
+            fail("loop " + n, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Compiles a procedure and everything it can call into a hidden class. It may be called
+     * from any thread, as long as no other thread changes the nodes it is given.
+     *
+     * @param p the procedure
+     * @param procedures the procedures calls are bound to, by name
+     * @return the compiled code, or null if the procedure could not be compiled
+     */
+    protected JitCode compile(ProcedureDeclaration p, Map<String, ProcedureDeclaration> procedures)
+    {
+        String className;
+        synchronized (this)
+        {
+            className = "jvm/Compiled" + classes++;
+        }
+        ProcedureCompiler unit = new ProcedureCompiler(className, procedures::get);
+        try
+        {
+            byte[] bytes = unit.compile(p);
+            Class<?> c = MethodHandles.lookup().defineHiddenClass(bytes, true).lookupClass();
+            return (JitCode) c.getDeclaredConstructor().newInstance();
+        }
+        catch (RuntimeException | ReflectiveOperationException | LinkageError e)
+        {
+            fail(p.getName(), e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Returns the procedures registered in the root environment.
+     *
+     * @param root the root environment
+     * @return the procedures by name, in the order they were registered
+     */
+    protected static Map<String, ProcedureDeclaration> getProcedures(Environment root)
+    {
+        Map<String, ProcedureDeclaration> procedures = new LinkedHashMap<>();
+        for (String name : root.getProcedureNames())
+        {
+            procedures.put(name, root.getProcedure(name));
+        }
+        return procedures;
+    }
+
+    /**
+     * Returns the names of the variables a loop in the main body can hold in JVM locals: those
+     * the root already declares. A loop in a procedure holds none.
+     *
+     * @param env the environment the loop is running in
+     * @return a copy of the names, which the program thread may go on changing
+     */
+    protected static Set<String> getDeclared(Environment env)
+    {
+        return env == env.getRoot() ? env.getVariables().keySet() : Set.of();
+    }
+
+    /**
+     * Records why a procedure could not be compiled.
+     *
+     * @param name the name of the procedure
+     * @param error the error
+     */
+    protected synchronized void fail(String name, String error)
+    {
+        failures.put(name, error);
+    }
+
+    /**
+     * Lets a profile of an earlier run compile the procedures and loops that were hot in it
+     * without waiting for them to get hot again.
+     *
+     * @param p the profile, whose nodes are those of the program that runs, or null to
+     * count every procedure and loop from zero
+     */
+    public void setProfile(ExecutionProfile p)
+    {
+        profile = p;
+    }
+
+    /**
+     * Returns whether the profile saw a procedure hot: called at least threshold times, or
+     * running at least the loop threshold of iterations in its loops.
+     *
+     * @param p the procedure
+     * @return true if the procedure should be compiled at once
+     */
+    protected boolean isHot(ProcedureDeclaration p)
+    {
+        return profile != null && (profile.getCalls(p.getName()) >= threshold
+                || profile.getIterations(p.getName()) >= loopThreshold);
+    }
+
+    /**
+     * Returns whether the profile saw a loop run at least the loop threshold of iterations.
+     *
+     * @param loop the While or For loop
+     * @return true if the loop should be compiled at once
+     */
+    protected boolean isHot(Statement loop)
+    {
+        return profile != null && profile.getIterations(loop) >= loopThreshold;
+    }
+
+    /**
+     * Returns the number of invocations after which a procedure is compiled.
+     *
+     * @return the threshold
+     */
+    public int getThreshold()
+    {
+        return threshold;
+    }
+
+    /**
+     * Returns the number of back-edges after which a loop is compiled.
+     *
+     * @return the threshold
+     */
+    public int getLoopThreshold()
+    {
+        return loopThreshold;
+    }
+
+    /**
+     * Sets the number of back-edges after which a loop is compiled.
+     *
+     * @param n the threshold
+     */
+    public void setLoopThreshold(int n)
+    {
+        loopThreshold = n;
+    }
+
+    /**
+     * Returns the number of loops that have been compiled.
+     *
+     * @return the number of loops
+     */
+    public int getCompiledLoops()
+    {
+        return loops.size();
+    }
+
+    /**
+     * Returns the names of the procedures that have been compiled.
+     *
+     * @return the names in sorted order
+     */
+    public List<String> getCompiled()
+    {
+        Set<String> names = new TreeSet<>();
+        for (ProcedureDeclaration p : compiled.keySet())
+        {
+            names.add(p.getName());
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Returns why each procedure that could not be compiled failed.
+     *
+     * @return a map from procedure name to the error
+     */
+    public synchronized Map<String, String> getFailures()
+    {
+        return new TreeMap<>(failures);
+    }
+}
@@ -0,0 +1,13 @@
+package jvm;
+
+import ast.LoopHook;
+
+/**
+ * The entry point of a loop that has been compiled to a JVM class while it was running.
+ *
+ * @author Vouk
+ * @version October 19, 2026
+ */
+public interface LoopCode extends LoopHook.Code
+{
+}
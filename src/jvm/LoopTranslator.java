@@ -0,0 +1,353 @@
+package jvm;
+
+import ast.*;
+import java.util.*;
+
+/**
+ * Translates the remaining iterations of a running While or For loop into a static JVM
+ * method for on-stack replacement. The method takes the environment the loop was running
+ * in and continues with the test of the loop condition, so the interpreter can hand the
+ * loop over at any back-edge.
+ *
+ * The live state is carried across in the environment. Slot variables of the procedure
+ * frame are loaded into JVM locals when the method starts and stored back when the loop
+ * ends; a callee cannot see them, since its frame is a child of the root. Global slot
+ * variables are held in JVM locals the same way when the loop calls no procedure, and are
+ * otherwise read and written through the root. So are the variables of the main body that
+ * the parser could not resolve, which live in the variable map of the root, as long as the
+ * root had declared them when the loop was compiled: loading one that did not exist yet
+ * would declare it, and a procedure called later would then assign the global instead of a
+ * variable of its own. Other variables the parser could not resolve and arrays go through
+ * the environment.
+ *
+ * @author Vouk
+ * @version October 19, 2026
+ */
+public class LoopTranslator extends Translator
+{
+    private static final String ENV = ProcedureCompiler.ENVIRONMENT;
+    private static final String ARRAY = ProcedureCompiler.INT_ARRAY;
+    private static final int FRAME = 0;
+    private static final int ROOT = 1;
+
+    private final ProcedureCompiler unit;
+    private final boolean inProcedure;
+    private final Set<String> declared;
+    private boolean cacheGlobals;
+    private final Map<Integer, Integer> frameLocals = new HashMap<>();
+    private final Map<Integer, Integer> globalLocals = new HashMap<>();
+    private final Map<String, Integer> nameLocals = new HashMap<>();
+
+    /**
+     * Constructs a LoopTranslator.
+     *
+     * @param unit the class being generated, used to bind calls
+     * @param code the builder for the method, whose only parameter is the environment
+     * @param inProcedure whether the loop is in a procedure body rather than the main body
+     * @param declared the names the root declares in its variable map, which never become
+     * undeclared again
+     */
+    public LoopTranslator(ProcedureCompiler unit, CodeBuilder code, boolean inProcedure,
+            Set<String> declared)
+    {
+        super(code);
+        this.unit = unit;
+        this.inProcedure = inProcedure;
+        this.declared = declared;
+        code.newLocal(); // ROOT
+    }
+
+    /**
+     * Emits the whole method. It starts with a jump to a prologue emitted after the loop,
+     * which loads the variables the loop uses into JVM locals and jumps back.
+     *
+     * Postcondition: When the method returns, the environment holds the same values the
+     * interpreter would have left in it.
+     *
+     * @param loop the While or For loop
+     * @throws IllegalArgumentException if the statement is not a loop
+     */
+    public void translate(Statement loop)
+    {
+        cacheGlobals = !calls(loop);
+        CodeBuilder.Label prologue = code.newLabel();
+        CodeBuilder.Label start = code.newLabel();
+        code.jump(CodeBuilder.GOTO, prologue);
+        code.bind(start);
+        if (loop instanceof While w)
+        {
+            loop(w.getCondition(), w.getBody(), null);
+        }
+        else if (loop instanceof For f)
+        {
+            loop(f.getCondition(), f.getBody(), f.getVarUpdate());
+        }
+        else
+        {
+            throw new IllegalArgumentException("Only loops can be replaced on the stack");
+        }
+        for (Map.Entry<Integer, Integer> v : frameLocals.entrySet())
+        {
+            code.aload(FRAME);
+            code.iconst(v.getKey());
+            code.iload(v.getValue());
+            code.invokevirtual(ENV, "setSlot", "(II)V");
+        }
+        for (Map.Entry<Integer, Integer> v : globalLocals.entrySet())
+        {
+            code.aload(ROOT);
+            code.iconst(v.getKey());
+            code.iload(v.getValue());
+            code.invokevirtual(ENV, "setSlot", "(II)V");
+        }
+        for (Map.Entry<String, Integer> v : nameLocals.entrySet())
+        {
+            code.aload(ROOT);
+            code.sconst(v.getKey());
+            code.iload(v.getValue());
+            code.invokevirtual(ENV, "setVariable", "(Ljava/lang/String;I)V");
+        }
+        code.op(CodeBuilder.RETURN, 0);
+
+        code.bind(prologue);
+        code.aload(FRAME);
+        code.invokevirtual(ENV, "getRoot", "()L" + ENV + ";");
+        code.astore(ROOT);
+        for (Map.Entry<Integer, Integer> v : frameLocals.entrySet())
+        {
+            code.aload(FRAME);
+            code.iconst(v.getKey());
+            code.invokevirtual(ENV, "getSlot", "(I)I");
+            code.istore(v.getValue());
+        }
+        for (Map.Entry<Integer, Integer> v : globalLocals.entrySet())
+        {
+            code.aload(ROOT);
+            code.iconst(v.getKey());
+            code.invokevirtual(ENV, "getSlot", "(I)I");
+            code.istore(v.getValue());
+        }
+        for (Map.Entry<String, Integer> v : nameLocals.entrySet())
+        {
+            code.aload(ROOT);
+            code.sconst(v.getKey());
+            code.invokevirtual(ENV, "getVariable", "(Ljava/lang/String;)I");
+            code.istore(v.getValue());
+        }
+        code.jump(CodeBuilder.GOTO, start);
+    }
+
+    /**
+     * Checks whether executing a statement can call a procedure.
+     *
+     * @param s the statement
+     * @return true if the statement contains a procedure call
+     */
+    private static boolean calls(Statement s)
+    {
+        if (s instanceof Block b)
+        {
+            for (Statement t : b.getStatements())
+            {
+                if (calls(t))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (s instanceof Assignment a)
+        {
+            return hasCall(a.getExpr());
+        }
+        if (s instanceof Writeln w)
+        {
+            return hasCall(w.getExpr());
+        }
+        if (s instanceof If i)
+        {
+            return hasCall(i.getCondition()) || calls(i.getStatement())
+                    || i.getElse() != null && calls(i.getElse());
+        }
+        if (s instanceof Case c)
+        {
+            if (hasCall(c.getSelector()) || c.getElse() != null && calls(c.getElse()))
+            {
+                return true;
+            }
+            for (Statement arm : c.getArms())
+            {
+                if (calls(arm))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (s instanceof While w)
+        {
+            return hasCall(w.getCondition()) || calls(w.getBody());
+        }
+        if (s instanceof For f)
+        {
+            return calls(f.getInitialization()) || hasCall(f.getCondition())
+                    || calls(f.getBody()) || calls(f.getVarUpdate());
+        }
+        if (s instanceof ArrayDeclaration a)
+        {
+            return hasCall(a.getSize());
+        }
+        if (s instanceof ArrayAssignment a)
+        {
+            return hasCall(a.getIndex()) || hasCall(a.getExpr());
+        }
+        return false;
+    }
+
+    /**
+     * Pushes the array with the given name, looked up like Environment.getArray.
+     *
+     * @param name the name of the array
+     */
+    private void loadArray(String name)
+    {
+        code.aload(FRAME);
+        code.sconst(name);
+        code.invokevirtual(ENV, "getArray", "(Ljava/lang/String;)L" + ARRAY + ";");
+    }
+
+    @Override
+    protected int local(Variable v)
+    {
+        if (v.getSlot() < 0)
+        {
+            if (!inProcedure && cacheGlobals && declared.contains(v.getName()))
+            {
+                return nameLocals.computeIfAbsent(v.getName(), k -> code.newLocal());
+            }
+            return -1;
+        }
+        if (v.isLocal() && inProcedure)
+        {
+            return frameLocals.computeIfAbsent(v.getSlot(), k -> code.newLocal());
+        }
+        if (!v.isLocal() && cacheGlobals)
+        {
+            return globalLocals.computeIfAbsent(v.getSlot(), k -> code.newLocal());
+        }
+        return -1;
+    }
+
+    @Override
+    protected void load(Variable v)
+    {
+        int l = local(v);
+        if (l >= 0)
+        {
+            code.iload(l);
+        }
+        else if (v.getSlot() < 0)
+        {
+            code.aload(FRAME);
+            code.sconst(v.getName());
+            code.invokevirtual(ENV, "getVariable", "(Ljava/lang/String;)I");
+        }
+        else
+        {
+            code.aload(v.isLocal() ? FRAME : ROOT);
+            code.iconst(v.getSlot());
+            code.invokevirtual(ENV, "getSlot", "(I)I");
+        }
+    }
+
+    @Override
+    protected void store(Variable v, Runnable value)
+    {
+        int l = local(v);
+        if (l >= 0)
+        {
+            value.run();
+            code.istore(l);
+        }
+        else if (v.getSlot() < 0)
+        {
+            code.aload(FRAME);
+            code.sconst(v.getName());
+            value.run();
+            code.invokevirtual(ENV, "setVariable", "(Ljava/lang/String;I)V");
+        }
+        else
+        {
+            code.aload(v.isLocal() ? FRAME : ROOT);
+            code.iconst(v.getSlot());
+            value.run();
+            code.invokevirtual(ENV, "setSlot", "(II)V");
+        }
+    }
+
+    @Override
+    protected void loadElement(ArrayElement a)
+    {
+        loadArray(a.getName());
+        a.getIndex().accept(this);
+        code.invokevirtual(ARRAY, "get", "(I)I");
+    }
+
+    @Override
+    protected void storeElement(ArrayAssignment a)
+    {
+        int index = code.newLocal();
+        a.getIndex().accept(this);
+        code.istore(index);
+        loadArray(a.getName());
+        code.iload(index);
+        a.getExpr().accept(this);
+        code.invokevirtual(ARRAY, "set", "(II)V");
+    }
+
+    @Override
+    protected void declareArray(ArrayDeclaration a)
+    {
+        code.aload(FRAME);
+        code.sconst(a.getName());
+        a.getSize().accept(this);
+        code.invokestatic(ARRAY, "allocate", "(I)L" + ARRAY + ";");
+        code.invokevirtual(ENV, "declareArray", "(Ljava/lang/String;L" + ARRAY + ";)V");
+    }
+
+    @Override
+    protected ProcedureDeclaration resolve(String name)
+    {
+        return unit.resolve(name);
+    }
+
+    @Override
+    protected void call(ProcedureDeclaration target, Expression[] args)
+    {
+        code.aload(ROOT);
+        for (Expression a : args)
+        {
+            a.accept(this);
+        }
+        code.invokestatic(unit.getClassName(), unit.methodName(target),
+                ProcedureCompiler.descriptor(target));
+        if (TailCalls.leaves(target, unit::resolve))
+        {
+            unit.getTailCalls().complete(code, ROOT);
+        }
+    }
+
+    @Override
+    protected void print()
+    {
+        code.getstatic("java/lang/System", "out", "Ljava/io/PrintStream;");
+        code.op(CodeBuilder.SWAP, 0);
+        code.invokevirtual("java/io/PrintStream", "println", "(I)V");
+    }
+
+    @Override
+    protected void read()
+    {
+        code.invokestatic("ast/Readln", "readInt", "()I");
+    }
+}
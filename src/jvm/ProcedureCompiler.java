@@ -0,0 +1,205 @@
+package jvm;
+
+import ast.ProcedureDeclaration;
+import ast.Statement;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Compiles a procedure, and every procedure it can call, into one JVM class. Each procedure
+ * becomes a static method that takes the root environment and the argument values and
+ * returns the value of its return variable, so calls between them are direct invokestatic
+ * instructions, and calls in tail position between them are left for TailCalls.complete. The class implements JitCode by calling the method of the entry procedure.
+ *
+ * A running loop can be compiled the same way for on-stack replacement. The class then
+ * implements LoopCode by calling a static method that runs the rest of the loop.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class ProcedureCompiler
+{
+    public static final String ENVIRONMENT = "environment/Environment";
+    public static final String INT_ARRAY = "environment/IntArray";
+    public static final String JIT_CODE = "jvm/JitCode";
+    public static final String LOOP_CODE = "jvm/LoopCode";
+    private static final String OBJECT = "java/lang/Object";
+
+    private final ClassWriter cw;
+    private final Function<String, ProcedureDeclaration> procedures;
+    private final Map<ProcedureDeclaration, String> methods = new HashMap<>();
+    private final Deque<ProcedureDeclaration> pending = new ArrayDeque<>();
+    private final TailCalls tails;
+
+    /**
+     * Constructs a ProcedureCompiler for a class that implements JitCode.
+     *
+     * @param className the internal name of the class to generate
+     * @param procedures finds the procedure a call refers to, or returns null if there is none
+     */
+    public ProcedureCompiler(String className, Function<String, ProcedureDeclaration> procedures)
+    {
+        this(className, JIT_CODE, procedures);
+    }
+
+    /**
+     * Constructs a ProcedureCompiler.
+     *
+     * @param className the internal name of the class to generate
+     * @param interfaceName the interface the class implements, JIT_CODE or LOOP_CODE
+     * @param procedures finds the procedure a call refers to, or returns null if there is none
+     */
+    public ProcedureCompiler(String className, String interfaceName,
+            Function<String, ProcedureDeclaration> procedures)
+    {
+        this.cw = new ClassWriter(className, OBJECT, interfaceName);
+        this.procedures = procedures;
+        this.tails = new TailCalls(cw, ENVIRONMENT, this::methodName,
+                ProcedureCompiler::descriptor);
+    }
+
+    /**
+     * Returns the internal name of the class being generated.
+     *
+     * @return the class name
+     */
+    public String getClassName()
+    {
+        return cw.getName();
+    }
+
+    /**
+     * Finds the procedure a call refers to.
+     *
+     * @param name the name of the procedure
+     * @return the procedure, or null if there is none
+     */
+    public ProcedureDeclaration resolve(String name)
+    {
+        return procedures.apply(name);
+    }
+
+    /**
+     * Returns the calls in tail position between the procedures of the class.
+     *
+     * @return the calls left for complete
+     */
+    public TailCalls getTailCalls()
+    {
+        return tails;
+    }
+
+    /**
+     * Returns the name of the method a procedure is compiled to, and queues the procedure to
+     * be compiled if it has not been already.
+     *
+     * @param p the procedure
+     * @return the method name
+     */
+    public String methodName(ProcedureDeclaration p)
+    {
+        String m = methods.get(p);
+        if (m == null)
+        {
+            m = "p" + methods.size();
+            methods.put(p, m);
+            pending.add(p);
+        }
+        return m;
+    }
+
+    /**
+     * Returns the descriptor of the method a procedure is compiled to.
+     *
+     * @param p the procedure
+     * @return the method descriptor
+     */
+    public static String descriptor(ProcedureDeclaration p)
+    {
+        return "(L" + ENVIRONMENT + ";" + "I".repeat(p.getArgs().length) + ")I";
+    }
+
+    /**
+     * Compiles a procedure and everything it can call.
+     *
+     * Precondition: Every procedure of the program is registered where resolve can find it.
+     * Postcondition: Returns a class file whose JitCode.call runs the entry procedure.
+     *
+     * @param entry the procedure to compile
+     * @return the class file
+     * @throws RuntimeException if some procedure cannot be compiled
+     */
+    public byte[] compile(ProcedureDeclaration entry)
+    {
+        String entryMethod = methodName(entry);
+        compilePending();
+
+        CodeBuilder call = new CodeBuilder(cw, 3);
+        call.aload(1);
+        for (int i = 0; i < entry.getArgs().length; i++)
+        {
+            call.aload(2);
+            call.iconst(i);
+            call.op(CodeBuilder.IALOAD, -1);
+        }
+        call.invokestatic(cw.getName(), entryMethod, descriptor(entry));
+        if (TailCalls.leaves(entry, this::resolve))
+        {
+            tails.complete(call, 1);
+        }
+        call.op(CodeBuilder.IRETURN, -1);
+        cw.addMethod(ClassWriter.ACC_PUBLIC, "call", "(L" + ENVIRONMENT + ";[I)I", call);
+        return cw.toByteArray();
+    }
+
+    /**
+     * Compiles the remaining iterations of a running loop and everything it can call.
+     *
+     * Precondition: The class implements LOOP_CODE, and every procedure of the program is
+     * registered where resolve can find it.
+     * Postcondition: Returns a class file whose LoopCode.resume continues the loop.
+     *
+     * @param loop the While or For loop
+     * @param inProcedure whether the loop is in a procedure body rather than the main body
+     * @param declared the names the root declares in its variable map
+     * @return the class file
+     * @throws RuntimeException if the loop or some procedure cannot be compiled
+     */
+    public byte[] compileLoop(Statement loop, boolean inProcedure, Set<String> declared)
+    {
+        CodeBuilder code = new CodeBuilder(cw, 1);
+        new LoopTranslator(this, code, inProcedure, declared).translate(loop);
+        cw.addMethod(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, "loop",
+                "(L" + ENVIRONMENT + ";)V", code);
+        compilePending();
+
+        CodeBuilder resume = new CodeBuilder(cw, 2);
+        resume.aload(1);
+        resume.invokestatic(cw.getName(), "loop", "(L" + ENVIRONMENT + ";)V");
+        resume.op(CodeBuilder.RETURN, 0);
+        cw.addMethod(ClassWriter.ACC_PUBLIC, "resume", "(L" + ENVIRONMENT + ";)V", resume);
+        return cw.toByteArray();
+    }
+
+    /**
+     * Compiles every procedure that has been queued, and the constructor of the class.
+     */
+    private void compilePending()
+    {
+        while (!pending.isEmpty())
+        {
+            ProcedureDeclaration p = pending.remove();
+            CodeBuilder code = new CodeBuilder(cw, 1 + p.getArgs().length);
+            new ProcedureTranslator(this, p, code).translate();
+            cw.addMethod(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, methods.get(p),
+                    descriptor(p), code);
+        }
+        tails.addComplete();
+
+        CodeBuilder init = new CodeBuilder(cw, 1);
+        init.aload(0);
+        init.invokespecial(OBJECT, "<init>", "()V");
+        init.op(CodeBuilder.RETURN, 0);
+        cw.addMethod(ClassWriter.ACC_PUBLIC, "<init>", "()V", init);
+    }
+}
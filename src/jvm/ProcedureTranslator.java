@@ -0,0 +1,264 @@
+package jvm;
+
+import ast.*;
+import java.util.Map;
+
+/**
+ * Translates the body of one procedure into the code of a static JVM method for the JIT.
+ *
+ * Parameters, the return variable and VAR locals become JVM int locals. Global slot
+ * variables are read and written through the root environment, which is the method's
+ * first parameter. Variables the parser could not resolve and arrays need the same lookup
+ * rules as Environment, so they go through a frame environment that is a child of the root;
+ * the frame is only created the first time the code needs it.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class ProcedureTranslator extends Translator
+{
+    private static final String ENV = ProcedureCompiler.ENVIRONMENT;
+    private static final String ARRAY = ProcedureCompiler.INT_ARRAY;
+    private static final int ROOT = 0;
+
+    private final ProcedureCompiler unit;
+    private final ProcedureDeclaration procedure;
+    private final int frameBase;
+    private final int frame;
+    private final CodeBuilder.Label start;
+
+    /**
+     * Constructs a ProcedureTranslator.
+     *
+     * @param unit the class being generated, used to bind calls
+     * @param procedure the procedure to translate
+     * @param code the builder for the procedure's method
+     */
+    public ProcedureTranslator(ProcedureCompiler unit, ProcedureDeclaration procedure,
+            CodeBuilder code)
+    {
+        super(code);
+        this.unit = unit;
+        this.procedure = procedure;
+        this.frameBase = code.getMaxLocals();
+        for (int i = 0; i < procedure.getFrameLayout().size(); i++)
+        {
+            code.newLocal();
+        }
+        this.frame = code.newLocal();
+        this.start = code.newLabel();
+    }
+
+    /**
+     * Emits the whole method: the prologue that sets up the frame, the body and the return.
+     *
+     * Postcondition: The method returns the value of the return variable, like
+     * ProcedureDeclaration.runProcedure.
+     */
+    public void translate()
+    {
+        code.bind(start);
+        for (int i = 0; i < procedure.getFrameLayout().size(); i++)
+        {
+            code.iconst(0);
+            code.istore(frameBase + i);
+        }
+        String[] args = procedure.getArgs();
+        for (int i = 0; i < args.length; i++)
+        {
+            code.iload(1 + i);
+            code.istore(frameBase + procedure.getFrameLayout().get(args[i]));
+        }
+        code.iconst(0);
+        code.istore(frameBase + procedure.getReturnSlot());
+        code.op(CodeBuilder.ACONST_NULL, 1);
+        code.astore(frame);
+        if (procedure.getLocals() != null)
+        {
+            for (Map.Entry<String, Integer> a : procedure.getLocals().getArrays().entrySet())
+            {
+                loadFrame();
+                code.sconst(a.getKey());
+                code.iconst(a.getValue());
+                code.invokestatic(ARRAY, "allocate", "(I)L" + ARRAY + ";");
+                code.invokevirtual(ENV, "declareArray", "(Ljava/lang/String;L" + ARRAY + ";)V");
+            }
+        }
+        procedure.getBody().accept(this);
+        code.iload(frameBase + procedure.getReturnSlot());
+        code.op(CodeBuilder.IRETURN, -1);
+    }
+
+    /**
+     * Pushes the frame environment, creating it on first use.
+     */
+    private void loadFrame()
+    {
+        CodeBuilder.Label ready = code.newLabel();
+        code.aload(frame);
+        code.jump(CodeBuilder.IFNONNULL, ready);
+        code.newObject(ENV);
+        code.op(CodeBuilder.DUP, 1);
+        code.aload(ROOT);
+        code.invokespecial(ENV, "<init>", "(L" + ENV + ";)V");
+        code.astore(frame);
+        code.bind(ready);
+        code.aload(frame);
+    }
+
+    /**
+     * Pushes the array with the given name, looked up like Environment.getArray.
+     *
+     * @param name the name of the array
+     */
+    private void loadArray(String name)
+    {
+        loadFrame();
+        code.sconst(name);
+        code.invokevirtual(ENV, "getArray", "(Ljava/lang/String;)L" + ARRAY + ";");
+    }
+
+    @Override
+    protected int local(Variable v)
+    {
+        return v.getSlot() >= 0 && v.isLocal() ? frameBase + v.getSlot() : -1;
+    }
+
+    @Override
+    protected void load(Variable v)
+    {
+        if (v.getSlot() < 0)
+        {
+            loadFrame();
+            code.sconst(v.getName());
+            code.invokevirtual(ENV, "getVariable", "(Ljava/lang/String;)I");
+        }
+        else if (v.isLocal())
+        {
+            code.iload(local(v));
+        }
+        else
+        {
+            code.aload(ROOT);
+            code.iconst(v.getSlot());
+            code.invokevirtual(ENV, "getSlot", "(I)I");
+        }
+    }
+
+    @Override
+    protected void store(Variable v, Runnable value)
+    {
+        if (v.getSlot() < 0)
+        {
+            loadFrame();
+            code.sconst(v.getName());
+            value.run();
+            code.invokevirtual(ENV, "setVariable", "(Ljava/lang/String;I)V");
+        }
+        else if (v.isLocal())
+        {
+            value.run();
+            code.istore(local(v));
+        }
+        else
+        {
+            code.aload(ROOT);
+            code.iconst(v.getSlot());
+            value.run();
+            code.invokevirtual(ENV, "setSlot", "(II)V");
+        }
+    }
+
+    @Override
+    protected void loadElement(ArrayElement a)
+    {
+        loadArray(a.getName());
+        a.getIndex().accept(this);
+        code.invokevirtual(ARRAY, "get", "(I)I");
+    }
+
+    @Override
+    protected void storeElement(ArrayAssignment a)
+    {
+        int index = code.newLocal();
+        a.getIndex().accept(this);
+        code.istore(index);
+        loadArray(a.getName());
+        code.iload(index);
+        a.getExpr().accept(this);
+        code.invokevirtual(ARRAY, "set", "(II)V");
+    }
+
+    @Override
+    protected void declareArray(ArrayDeclaration a)
+    {
+        loadFrame();
+        code.sconst(a.getName());
+        a.getSize().accept(this);
+        code.invokestatic(ARRAY, "allocate", "(I)L" + ARRAY + ";");
+        code.invokevirtual(ENV, "declareArray", "(Ljava/lang/String;L" + ARRAY + ";)V");
+    }
+
+    @Override
+    protected ProcedureDeclaration resolve(String name)
+    {
+        return unit.resolve(name);
+    }
+
+    @Override
+    protected void call(ProcedureDeclaration target, Expression[] args)
+    {
+        code.aload(ROOT);
+        for (Expression a : args)
+        {
+            a.accept(this);
+        }
+        code.invokestatic(unit.getClassName(), unit.methodName(target),
+                ProcedureCompiler.descriptor(target));
+        if (TailCalls.leaves(target, unit::resolve))
+        {
+            unit.getTailCalls().complete(code, ROOT);
+        }
+    }
+
+    @Override
+    protected boolean tailCall(ProcedureCall call)
+    {
+        if (TailCalls.isLeft(procedure, call, unit::resolve))
+        {
+            ProcedureDeclaration target = resolve(call.getName());
+            unit.methodName(target);
+            leave(call, target, unit.getTailCalls());
+            return true;
+        }
+        if (resolve(call.getName()) != procedure
+                || call.getArgVals().length != procedure.getArgs().length)
+        {
+            return false;
+        }
+        for (Expression a : call.getArgVals())
+        {
+            a.accept(this);
+        }
+        for (int i = call.getArgVals().length - 1; i >= 0; i--)
+        {
+            code.istore(1 + i);
+        }
+        code.jump(CodeBuilder.GOTO, start);
+        return true;
+    }
+
+    @Override
+    protected void print()
+    {
+        code.getstatic("java/lang/System", "out", "Ljava/io/PrintStream;");
+        code.op(CodeBuilder.SWAP, 0);
+        code.invokevirtual("java/io/PrintStream", "println", "(I)V");
+    }
+
+    @Override
+    protected void read()
+    {
+        code.invokestatic("ast/Readln", "readInt", "()I");
+    }
+}
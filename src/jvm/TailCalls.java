@@ -0,0 +1,216 @@
+package jvm;
+
+import ast.ProcedureCall;
+import ast.ProcedureDeclaration;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * The calls in tail position from one procedure to another in a generated class. Such a call
+ * cannot be a jump, since the callee is another method, and making it as a JVM call would
+ * grow the stack with every call of a mutual recursion. Instead the caller stores the
+ * argument values and the number of the callee in static fields of the class and returns,
+ * and each call to a procedure that can do so goes through the static method complete,
+ * which makes the calls left behind one after another until a procedure returns without
+ * leaving one. Each procedure is a static method whose descriptor starts with the root
+ * environment if the class has one.
+ *
+ * @author Vouk
+ * @version October 19, 2026
+ */
+public class TailCalls
+{
+    private static final String TARGET = "tail";
+    private static final String COMPLETE = "complete";
+
+    private final ClassWriter cw;
+    private final String environment;
+    private final Function<ProcedureDeclaration, String> methods;
+    private final Function<ProcedureDeclaration, String> descriptors;
+    private final List<ProcedureDeclaration> targets = new ArrayList<>();
+    private int fields;
+
+    /**
+     * Constructs a TailCalls.
+     *
+     * @param cw the class being generated
+     * @param environment the internal name of the class of the root environment that each
+     * method takes first, or null if the methods do not take it
+     * @param methods returns the name of the method of a procedure
+     * @param descriptors returns the descriptor of the method of a procedure
+     */
+    public TailCalls(ClassWriter cw, String environment,
+            Function<ProcedureDeclaration, String> methods,
+            Function<ProcedureDeclaration, String> descriptors)
+    {
+        this.cw = cw;
+        this.environment = environment;
+        this.methods = methods;
+        this.descriptors = descriptors;
+    }
+
+    /**
+     * Returns whether a call in tail position is left for complete: it is a call to another
+     * procedure with the right number of arguments.
+     *
+     * @param from the procedure the call is in
+     * @param call the call
+     * @param resolve finds the procedure a call refers to, or returns null if there is none
+     * @return true if the call is left for complete
+     */
+    public static boolean isLeft(ProcedureDeclaration from, ProcedureCall call,
+            Function<String, ProcedureDeclaration> resolve)
+    {
+        ProcedureDeclaration target = resolve.apply(call.getName());
+        return target != null && target != from
+                && target.getArgs().length == call.getArgVals().length;
+    }
+
+    /**
+     * Returns whether a procedure can return with a call left for complete.
+     *
+     * @param p the procedure
+     * @param resolve finds the procedure a call refers to, or returns null if there is none
+     * @return true if a call to the procedure must go through complete
+     */
+    public static boolean leaves(ProcedureDeclaration p,
+            Function<String, ProcedureDeclaration> resolve)
+    {
+        for (ProcedureCall call : p.getTailCalls())
+        {
+            if (isLeft(p, call, resolve))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Emits code that leaves a call for complete.
+     *
+     * Precondition: The argument values are on the stack, the last on top.
+     * Postcondition: The values are stored and the stack is as it was before them.
+     *
+     * @param code the builder of the calling method
+     * @param target the procedure to call
+     */
+    public void leave(CodeBuilder code, ProcedureDeclaration target)
+    {
+        int n = target.getArgs().length;
+        if (targets.isEmpty())
+        {
+            cw.addField(ClassWriter.ACC_PRIVATE | ClassWriter.ACC_STATIC, TARGET, "I");
+        }
+        while (fields < n)
+        {
+            cw.addField(ClassWriter.ACC_PRIVATE | ClassWriter.ACC_STATIC, argument(fields++),
+                    "I");
+        }
+        int id = targets.indexOf(target);
+        if (id < 0)
+        {
+            id = targets.size();
+            targets.add(target);
+        }
+        for (int i = n - 1; i >= 0; i--)
+        {
+            code.putstatic(cw.getName(), argument(i), "I");
+        }
+        code.iconst(id + 1); // 0 means that no call is left
+        code.putstatic(cw.getName(), TARGET, "I");
+    }
+
+    /**
+     * Emits a call to complete.
+     *
+     * Precondition: The value a procedure returned is on the stack.
+     * Postcondition: The value of the last call made is on the stack instead.
+     *
+     * @param code the builder of the calling method
+     * @param root the local that holds the root environment, if the methods take it
+     */
+    public void complete(CodeBuilder code, int root)
+    {
+        if (environment != null)
+        {
+            code.aload(root);
+        }
+        code.invokestatic(cw.getName(), COMPLETE, descriptor());
+    }
+
+    /**
+     * Adds complete to the class, if any call is left.
+     *
+     * Postcondition: complete returns the value it is given if no call is left, and
+     * otherwise the value of the last of the calls it makes.
+     */
+    public void addComplete()
+    {
+        if (targets.isEmpty())
+        {
+            return;
+        }
+        CodeBuilder code = new CodeBuilder(cw, environment == null ? 1 : 2);
+        int target = code.newLocal();
+        CodeBuilder.Label loop = code.newLabel();
+        CodeBuilder.Label done = code.newLabel();
+        CodeBuilder.Label[] cases = new CodeBuilder.Label[targets.size()];
+        code.bind(loop);
+        code.getstatic(cw.getName(), TARGET, "I");
+        code.op(CodeBuilder.DUP, 1);
+        code.istore(target);
+        code.jump(CodeBuilder.IFEQ, done);
+        code.iconst(0);
+        code.putstatic(cw.getName(), TARGET, "I");
+        code.iload(target);
+        for (int k = 0; k < cases.length; k++)
+        {
+            cases[k] = code.newLabel();
+        }
+        code.tableswitch(1, done, cases);
+        for (int k = 0; k < cases.length; k++)
+        {
+            ProcedureDeclaration p = targets.get(k);
+            code.bind(cases[k]);
+            if (environment != null)
+            {
+                code.aload(1);
+            }
+            for (int i = 0; i < p.getArgs().length; i++)
+            {
+                code.getstatic(cw.getName(), argument(i), "I");
+            }
+            code.invokestatic(cw.getName(), methods.apply(p), descriptors.apply(p));
+            code.istore(0);
+            code.jump(CodeBuilder.GOTO, loop);
+        }
+        code.bind(done);
+        code.iload(0);
+        code.op(CodeBuilder.IRETURN, -1);
+        cw.addMethod(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, COMPLETE, descriptor(),
+                code);
+    }
+
+    /**
+     * Returns the descriptor of complete, which takes the value to return if no call is left
+     * and the root environment, if the methods take it.
+     *
+     * @return the descriptor
+     */
+    private String descriptor()
+    {
+        return "(I" + (environment == null ? "" : "L" + environment + ";") + ")I";
+    }
+
+    /**
+     * Returns the name of the static field that holds an argument value of the call left.
+     *
+     * @param i the index of the argument
+     * @return the field name
+     */
+    private static String argument(int i)
+    {
+        return "tailArg" + i;
+    }
+}
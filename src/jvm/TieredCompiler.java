@@ -0,0 +1,427 @@
+package jvm;
+
+import ast.ProcedureDeclaration;
+import ast.Statement;
+import closure.ClosureCompiler;
+import closure.ClosureProcedure;
+import environment.Environment;
+import java.util.*;
+import java.util.concurrent.*;
+import optimizer.Rewriter;
+
+/**
+ * Moves each procedure through three tiers as it gets hot. Every procedure starts in the
+ * AST interpreter, whose nodes specialize themselves as they run. After closureThreshold
+ * invocations it is compiled to closures, and after bytecodeThreshold invocations to a JVM
+ * class.
+ *
+ * Compilation runs on daemon threads. The thread running the program only counts
+ * invocations and queues a compile; it keeps running the procedure in its current tier
+ * until the compiled code is installed, and never waits for a compiler thread. Hot loops are
+ * compiled for on-stack replacement on the same threads. A procedure or loop the profile of
+ * an earlier run saw hot is queued for a JVM class at once.
+ *
+ * The interpreter rewrites the nodes it runs as they specialize, so a compiler thread never
+ * reads the running program: the thread running it queues a copy of the procedures, and of
+ * the loop, that a compile reads.
+ *
+ * @author Vouk
+ * @version October 19, 2026
+ */
+public class TieredCompiler extends JitCompiler
+{
+    public static final int INTERPRETER = 0;
+    public static final int CLOSURE = 1;
+    public static final int BYTECODE = 2;
+    public static final int DEFAULT_CLOSURE_THRESHOLD = 100;
+    private static final String[] TIER_NAMES = {"interpreter", "closure", "bytecode"};
+
+    private final int closureThreshold;
+    private final ExecutorService compilers;
+    private final Map<ProcedureDeclaration, Profile> profiles = new HashMap<>();
+    private final long[] invocations = new long[TIER_NAMES.length];
+    private final Map<Statement, LoopProfile> loopProfiles = new LinkedHashMap<>();
+    private Map<String, ClosureProcedure> closures; // guarded by this
+
+    /**
+     * The counters and compiled code of one procedure. Only the thread running the program
+     * touches the counters; the compiler threads install code and record compile times.
+     */
+    private static final class Profile
+    {
+        final ProcedureDeclaration procedure;
+        int invocations;
+        int queued; // the highest tier a compile has been queued for
+        volatile Installed installed;
+        final long[] compileNanos = new long[TIER_NAMES.length];
+
+        /**
+         * Constructs a Profile.
+         *
+         * @param procedure the procedure
+         */
+        Profile(ProcedureDeclaration procedure)
+        {
+            this.procedure = procedure;
+        }
+    }
+
+    /**
+     * The back-edge counter and compiled code of one loop.
+     */
+    private static final class LoopProfile
+    {
+        final String name;
+        long backEdges;
+        boolean queued;
+        volatile LoopCode code;
+        volatile long compileNanos;
+
+        /**
+         * Constructs a LoopProfile.
+         *
+         * @param name the name of the loop in the report
+         */
+        LoopProfile(String name)
+        {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Compiled code together with its tier, so both are installed at once.
+     */
+    private static final class Installed
+    {
+        final int tier;
+        final JitCode code;
+
+        /**
+         * Constructs an Installed.
+         *
+         * @param tier the tier of the code
+         * @param code the code
+         */
+        Installed(int tier, JitCode code)
+        {
+            this.tier = tier;
+            this.code = code;
+        }
+    }
+
+    /**
+     * Constructs a TieredCompiler with the default thresholds and one compiler thread.
+     */
+    public TieredCompiler()
+    {
+        this(DEFAULT_CLOSURE_THRESHOLD, DEFAULT_THRESHOLD, 1);
+    }
+
+    /**
+     * Constructs a TieredCompiler.
+     *
+     * @param closureThreshold the number of invocations after which a procedure is compiled
+     * to closures
+     * @param bytecodeThreshold the number of invocations after which a procedure is compiled
+     * to a JVM class
+     * @param threads the number of compiler threads
+     */
+    public TieredCompiler(int closureThreshold, int bytecodeThreshold, int threads)
+    {
+        super(bytecodeThreshold);
+        this.closureThreshold = closureThreshold;
+        this.compilers = Executors.newFixedThreadPool(threads, r ->
+        {
+            Thread t = new Thread(r, "tier-compiler");
+            t.setDaemon(true); // a pending compile must not keep the program alive
+            return t;
+        });
+    }
+
+    /**
+     * Records an invocation of a procedure, queues a compile if it has become hot enough for
+     * the next tier, and returns the code of the highest tier that has been installed.
+     *
+     * Precondition: Every procedure of the program is registered in the root of env.
+     * Postcondition: Returns null if the procedure should be interpreted.
+     *
+     * @param p the procedure being invoked
+     * @param env the environment of the caller
+     * @return the compiled code, or null if there is none yet
+     */
+    @Override
+    public JitCode enter(ProcedureDeclaration p, Environment env)
+    {
+        Profile profile = profiles.get(p);
+        if (profile == null)
+        {
+            profile = new Profile(p);
+            profiles.put(p, profile);
+        }
+        if (profile.invocations < Integer.MAX_VALUE)
+        {
+            profile.invocations++;
+        }
+        Installed installed = profile.installed;
+        invocations[installed == null ? INTERPRETER : installed.tier]++;
+        if (profile.queued < BYTECODE)
+        {
+            if (profile.invocations >= getThreshold() || profile.invocations == 1 && isHot(p))
+            {
+                queue(profile, BYTECODE, env.getRoot());
+            }
+            else if (profile.queued < CLOSURE && profile.invocations >= closureThreshold)
+            {
+                queue(profile, CLOSURE, env.getRoot());
+            }
+        }
+        return installed == null ? null : installed.code;
+    }
+
+    /**
+     * Records a back-edge of a loop, queues the loop to be compiled once it is hot, and
+     * returns the compiled rest of the loop once it has been installed.
+     *
+     * Precondition: Every procedure of the program is registered in the root of env.
+     * Postcondition: Returns null if the loop should keep running in the interpreter.
+     *
+     * @param loop the While or For loop
+     * @param env the environment the loop is running in
+     * @return the compiled loop, or null if there is none yet
+     */
+    @Override
+    public LoopCode backEdge(Statement loop, Environment env)
+    {
+        LoopProfile profile = loopProfiles.get(loop);
+        if (profile == null)
+        {
+            String where = env == env.getRoot() ? "main body" : "procedure";
+            profile = new LoopProfile("loop " + (loopProfiles.size() + 1) + " in " + where);
+            loopProfiles.put(loop, profile);
+        }
+        LoopCode code = profile.code;
+        if (code == null)
+        {
+            profile.backEdges++;
+            if (!profile.queued && (profile.backEdges >= getLoopThreshold()
+                    || profile.backEdges == 1 && isHot(loop)))
+            {
+                profile.queued = true;
+                LoopProfile queued = profile;
+                Statement copy = Rewriter.copy(loop);
+                boolean inProcedure = env != env.getRoot();
+                Set<String> declared = getDeclared(env);
+                Map<String, ProcedureDeclaration> procedures = copyProcedures(env.getRoot());
+                compilers.execute(() ->
+                {
+                    long start = System.nanoTime();
+                    LoopCode compiled = compileLoop(copy, inProcedure, declared, procedures);
+                    queued.compileNanos = System.nanoTime() - start;
+                    queued.code = compiled;
+                });
+            }
+        }
+        return code;
+    }
+
+    /**
+     * Queues a procedure to be compiled for a tier on a compiler thread.
+     *
+     * @param profile the profile of the procedure
+     * @param tier the tier to compile for
+     * @param root the root environment, where the procedures are registered
+     */
+    private void queue(Profile profile, int tier, Environment root)
+    {
+        profile.queued = tier;
+        Map<String, ProcedureDeclaration> procedures = copyProcedures(root);
+        ProcedureDeclaration p = profile.procedure;
+        ProcedureDeclaration copy = root.getProcedure(p.getName()) == p
+                ? procedures.get(p.getName()) : Rewriter.copyProcedure(p);
+        compilers.execute(() ->
+        {
+            long start = System.nanoTime();
+            JitCode code = tier == CLOSURE ? compileClosure(copy, procedures)
+                    : compile(copy, procedures);
+            long elapsed = System.nanoTime() - start;
+            synchronized (profile)
+            {
+                profile.compileNanos[tier] = elapsed;
+                // a slow closure compile must not replace bytecode that is already installed
+                if (code != null && (profile.installed == null || profile.installed.tier < tier))
+                {
+                    profile.installed = new Installed(tier, code);
+                }
+            }
+        });
+    }
+
+    /**
+     * Copies the procedures registered in the root environment, on the thread running the
+     * program, for a compiler thread to read.
+     *
+     * @param root the root environment
+     * @return the copies by name, in the order the procedures were registered
+     */
+    private static Map<String, ProcedureDeclaration> copyProcedures(Environment root)
+    {
+        Map<String, ProcedureDeclaration> procedures = getProcedures(root);
+        procedures.replaceAll((name, p) -> Rewriter.copyProcedure(p));
+        return procedures;
+    }
+
+    /**
+     * Compiles a procedure to closures. The procedures of the program are compiled together
+     * the first time, so calls between closures are bound directly.
+     *
+     * @param p the procedure
+     * @param procedures the procedures calls are bound to, by name
+     * @return the compiled code, or null if the procedure could not be compiled
+     */
+    private JitCode compileClosure(ProcedureDeclaration p,
+            Map<String, ProcedureDeclaration> procedures)
+    {
+        ClosureProcedure target;
+        try
+        {
+            synchronized (this)
+            {
+                if (closures == null)
+                {
+                    closures = ClosureCompiler.compileProcedures(procedures.values());
+                }
+                target = closures.get(p.getName());
+            }
+        }
+        catch (RuntimeException e)
+        {
+            fail(p.getName(), e.toString());
+            return null;
+        }
+        return target == null ? null : target::invoke;
+    }
+
+    /**
+     * Stops the compiler threads. Compiles that have not finished are abandoned.
+     */
+    public void shutdown()
+    {
+        compilers.shutdownNow();
+    }
+
+    /**
+     * Returns the number of invocations after which a procedure is compiled to closures.
+     *
+     * @return the threshold
+     */
+    public int getClosureThreshold()
+    {
+        return closureThreshold;
+    }
+
+    /**
+     * Returns how many invocations from the interpreter ran in each tier. Calls made from
+     * compiled code to other compiled procedures are not counted.
+     *
+     * @return the counts, indexed by INTERPRETER, CLOSURE and BYTECODE
+     */
+    public long[] getInvocations()
+    {
+        return invocations.clone();
+    }
+
+    /**
+     * Returns the tier each procedure is currently running in.
+     *
+     * @return a map from procedure name to tier
+     */
+    public Map<String, Integer> getTiers()
+    {
+        Map<String, Integer> tiers = new TreeMap<>();
+        for (Profile profile : profiles.values())
+        {
+            Installed installed = profile.installed;
+            tiers.put(profile.procedure.getName(), installed == null ? INTERPRETER : installed.tier);
+        }
+        return tiers;
+    }
+
+    /**
+     * Returns the names of the procedures that have been compiled to a JVM class.
+     *
+     * @return the names in sorted order
+     */
+    @Override
+    public List<String> getCompiled()
+    {
+        List<String> names = new ArrayList<>();
+        for (Map.Entry<String, Integer> e : getTiers().entrySet())
+        {
+            if (e.getValue() == BYTECODE)
+            {
+                names.add(e.getKey());
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Describes the thresholds, the invocations run in each tier, for each procedure its
+     * invocation count, its current tier and how long each of its compiles took, and for
+     * each loop its interpreted back-edges and how long its compile took.
+     *
+     * @return the report, one item per line
+     */
+    public String getReport()
+    {
+        StringBuilder report = new StringBuilder();
+        report.append("thresholds: closure ").append(closureThreshold).append(", bytecode ")
+                .append(getThreshold()).append(", loop ").append(getLoopThreshold())
+                .append('\n');
+        for (int t = 0; t < TIER_NAMES.length; t++)
+        {
+            report.append(TIER_NAMES[t]).append(" invocations: ").append(invocations[t])
+                    .append('\n');
+        }
+        Map<String, Profile> byName = new TreeMap<>();
+        for (Profile profile : profiles.values())
+        {
+            byName.put(profile.procedure.getName(), profile);
+        }
+        for (Profile profile : byName.values())
+        {
+            Installed installed = profile.installed;
+            report.append(profile.procedure.getName()).append(": ").append(profile.invocations)
+                    .append(" invocations, ")
+                    .append(TIER_NAMES[installed == null ? INTERPRETER : installed.tier]);
+            synchronized (profile)
+            {
+                for (int t = CLOSURE; t < TIER_NAMES.length; t++)
+                {
+                    if (profile.compileNanos[t] > 0)
+                    {
+                        report.append(String.format(", %s compile %.3f ms", TIER_NAMES[t],
+                                profile.compileNanos[t] / 1e6));
+                    }
+                }
+            }
+            report.append('\n');
+        }
+        for (LoopProfile profile : loopProfiles.values())
+        {
+            report.append(profile.name).append(": ").append(profile.backEdges)
+                    .append(" interpreted back-edges");
+            if (profile.code != null)
+            {
+                report.append(String.format(", bytecode compile %.3f ms",
+                        profile.compileNanos / 1e6));
+            }
+            report.append('\n');
+        }
+        for (Map.Entry<String, String> e : getFailures().entrySet())
+        {
+            report.append(e.getKey()).append(" failed: ").append(e.getValue()).append('\n');
+        }
+        return report.toString();
+    }
+}
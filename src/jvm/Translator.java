@@ -0,0 +1,504 @@
+package jvm;
+
+import ast.*;
+import ast.Number;
+import java.util.Arrays;
+
+/**
+ * Translates AST statements and expressions into JVM bytecode. Arithmetic, conditions,
+ * control flow and calls are translated the same way for every target; subclasses decide
+ * where variables and arrays are stored, how procedures are called, and how input and
+ * output are done.
+ *
+ * Every expression leaves one int on the operand stack and every statement leaves the
+ * stack as it found it.
+ *
+ * @author Vouk
+ * @version October 19, 2026
+ */
+public abstract class Translator implements ExpressionVisitor<Void>, StatementVisitor<Void>
+{
+    protected final CodeBuilder code;
+
+    /**
+     * Constructs a Translator.
+     *
+     * @param code the builder for the method being translated
+     */
+    protected Translator(CodeBuilder code)
+    {
+        this.code = code;
+    }
+
+    /**
+     * Emits a load of a variable.
+     *
+     * @param v the variable
+     */
+    protected abstract void load(Variable v);
+
+    /**
+     * Emits a store into a variable of a value computed by the given code.
+     *
+     * @param v the variable
+     * @param value emits the code that pushes the value
+     */
+    protected abstract void store(Variable v, Runnable value);
+
+    /**
+     * Returns the JVM local that holds a variable.
+     *
+     * @param v the variable
+     * @return the local slot, or -1 if the variable is not held in a JVM local
+     */
+    protected abstract int local(Variable v);
+
+    /**
+     * Emits a load of an array element.
+     *
+     * @param a the array element
+     */
+    protected abstract void loadElement(ArrayElement a);
+
+    /**
+     * Emits a store into an array element.
+     *
+     * @param a the array assignment
+     */
+    protected abstract void storeElement(ArrayAssignment a);
+
+    /**
+     * Emits the declaration of an array.
+     *
+     * @param a the array declaration
+     */
+    protected abstract void declareArray(ArrayDeclaration a);
+
+    /**
+     * Finds the procedure a call refers to.
+     *
+     * @param name the name of the procedure
+     * @return the procedure, or null if there is none
+     */
+    protected abstract ProcedureDeclaration resolve(String name);
+
+    /**
+     * Emits a call to a procedure whose argument count matches the call.
+     *
+     * @param target the procedure
+     * @param args the argument expressions
+     */
+    protected abstract void call(ProcedureDeclaration target, Expression[] args);
+
+    /**
+     * Emits code that prints the int on top of the stack.
+     */
+    protected abstract void print();
+
+    /**
+     * Emits a call in tail position. Nothing else runs after such a call, so a call to the
+     * procedure being translated can be a jump back to the start of the method with the new
+     * arguments, and a call to another procedure can be left for TailCalls.complete to make
+     * once the method has returned.
+     *
+     * @param call the call, whose value is assigned to the return variable
+     * @return true if the call was emitted, false if it must be made as usual
+     */
+    protected boolean tailCall(ProcedureCall call)
+    {
+        return false;
+    }
+
+    /**
+     * Emits a call in tail position to another procedure, which is left for complete.
+     *
+     * @param call the call
+     * @param target the procedure it calls
+     * @param tails the calls left in the class being generated
+     */
+    protected void leave(ProcedureCall call, ProcedureDeclaration target, TailCalls tails)
+    {
+        for (Expression a : call.getArgVals())
+        {
+            a.accept(this);
+        }
+        tails.leave(code, target);
+    }
+
+    /**
+     * Emits code that reads an int from the input and pushes it.
+     */
+    protected abstract void read();
+
+    /**
+     * Emits a jump to target that is taken when the condition has the given truth value.
+     * AND and OR jump past their right operand when the left one decides the result.
+     *
+     * @param e the condition
+     * @param when the truth value on which to jump
+     * @param target the label to jump to
+     */
+    protected void branch(Expression e, boolean when, CodeBuilder.Label target)
+    {
+        if (e instanceof BoolOp b)
+        {
+            boolean and = b.getOp().equals(BoolOp.AND);
+            if (and == when)
+            {
+                // the left operand alone can only decide the opposite of when
+                CodeBuilder.Label skip = code.newLabel();
+                branch(b.getExp1(), !when, skip);
+                branch(b.getExp2(), when, target);
+                code.bind(skip);
+            }
+            else
+            {
+                branch(b.getExp1(), when, target);
+                branch(b.getExp2(), when, target);
+            }
+            return;
+        }
+        if (e instanceof Not n)
+        {
+            branch(n.getExp(), !when, target);
+            return;
+        }
+        if (!(e instanceof Condition c))
+        {
+            e.accept(this);
+            code.iconst(1);
+            code.jump(when ? CodeBuilder.IF_ICMPEQ : CodeBuilder.IF_ICMPNE, target);
+            return;
+        }
+        c.getExp1().accept(this);
+        c.getExp2().accept(this);
+        int op = switch (c.getOp())
+        {
+            case "=" -> when ? CodeBuilder.IF_ICMPEQ : CodeBuilder.IF_ICMPNE;
+            case "<>" -> when ? CodeBuilder.IF_ICMPNE : CodeBuilder.IF_ICMPEQ;
+            case "<" -> when ? CodeBuilder.IF_ICMPLT : CodeBuilder.IF_ICMPGE;
+            case "<=" -> when ? CodeBuilder.IF_ICMPLE : CodeBuilder.IF_ICMPGT;
+            case ">" -> when ? CodeBuilder.IF_ICMPGT : CodeBuilder.IF_ICMPLE;
+            case ">=" -> when ? CodeBuilder.IF_ICMPGE : CodeBuilder.IF_ICMPLT;
+            default -> throw new IllegalArgumentException("Unkown operator '" + c.getOp() + "'");
+        };
+        code.jump(op, target);
+    }
+
+    /**
+     * Checks whether evaluating an expression can call a procedure, and so have side effects.
+     *
+     * @param e the expression
+     * @return true if the expression contains a procedure call
+     */
+    protected static boolean hasCall(Expression e)
+    {
+        if (e instanceof ProcedureCall)
+        {
+            return true;
+        }
+        if (e instanceof BinOp b)
+        {
+            return hasCall(b.getExp1()) || hasCall(b.getExp2());
+        }
+        if (e instanceof Condition c)
+        {
+            return hasCall(c.getExp1()) || hasCall(c.getExp2());
+        }
+        if (e instanceof BoolOp b)
+        {
+            return hasCall(b.getExp1()) || hasCall(b.getExp2());
+        }
+        if (e instanceof Not n)
+        {
+            return hasCall(n.getExp());
+        }
+        if (e instanceof ArrayElement a)
+        {
+            return hasCall(a.getIndex());
+        }
+        return false;
+    }
+
+    @Override
+    public Void visitNumber(Number n)
+    {
+        code.iconst(n.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visitVariable(Variable v)
+    {
+        load(v);
+        return null;
+    }
+
+    @Override
+    public Void visitBinOp(BinOp b)
+    {
+        b.getExp1().accept(this);
+        b.getExp2().accept(this);
+        int op = switch (b.getOp())
+        {
+            case "+" -> CodeBuilder.IADD;
+            case "-" -> CodeBuilder.ISUB;
+            case "*" -> CodeBuilder.IMUL;
+            case "/" -> CodeBuilder.IDIV;
+            default -> throw new IllegalArgumentException("Unknown operator '" + b.getOp() + "'");
+        };
+        code.op(op, -1);
+        return null;
+    }
+
+    @Override
+    public Void visitCondition(Condition c)
+    {
+        test(c);
+        return null;
+    }
+
+    @Override
+    public Void visitBoolOp(BoolOp b)
+    {
+        test(b);
+        return null;
+    }
+
+    @Override
+    public Void visitNot(Not n)
+    {
+        test(n);
+        return null;
+    }
+
+    /**
+     * Pushes 1 if a condition holds and 0 otherwise.
+     *
+     * @param e the condition
+     */
+    private void test(Expression e)
+    {
+        CodeBuilder.Label yes = code.newLabel();
+        CodeBuilder.Label done = code.newLabel();
+        branch(e, true, yes);
+        code.iconst(0);
+        code.jump(CodeBuilder.GOTO, done);
+        code.adjustStack(-1);
+        code.bind(yes);
+        code.iconst(1);
+        code.bind(done);
+    }
+
+    @Override
+    public Void visitProcedureCall(ProcedureCall p)
+    {
+        ProcedureDeclaration target = resolve(p.getName());
+        if (target == null)
+        {
+            code.throwNew("java/util/NoSuchElementException",
+                    "Procedure " + p.getName() + " not found.");
+            code.adjustStack(1);
+        }
+        else if (target.getArgs().length != p.getArgVals().length)
+        {
+            code.throwNew("java/lang/RuntimeException",
+                    "Invalid number of arguments passed to procedure " + p.getName());
+            code.adjustStack(1);
+        }
+        else
+        {
+            call(target, p.getArgVals());
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitArrayElement(ArrayElement a)
+    {
+        loadElement(a);
+        return null;
+    }
+
+    @Override
+    public Void visitBlock(Block b)
+    {
+        for (Statement s : b.getStatements())
+        {
+            s.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitAssignment(Assignment a)
+    {
+        if (a.getExpr() instanceof ProcedureCall call && call.isTail() && tailCall(call))
+        {
+            return null;
+        }
+        int l = local(a.getVar());
+        if (l >= 0 && a.getExpr() instanceof BinOp b && b.getOp().equals("+")
+                && b.getExp1() instanceof Variable x && local(x) == l
+                && b.getExp2() instanceof Number n && n.getValue() >= Short.MIN_VALUE
+                && n.getValue() <= Short.MAX_VALUE)
+        {
+            code.iinc(l, n.getValue());
+            return null;
+        }
+        store(a.getVar(), () -> a.getExpr().accept(this));
+        return null;
+    }
+
+    @Override
+    public Void visitWriteln(Writeln w)
+    {
+        w.getExpr().accept(this);
+        print();
+        return null;
+    }
+
+    @Override
+    public Void visitReadln(Readln r)
+    {
+        store(r.getVar(), this::read);
+        return null;
+    }
+
+    @Override
+    public Void visitIf(If i)
+    {
+        CodeBuilder.Label otherwise = code.newLabel();
+        CodeBuilder.Label done = code.newLabel();
+        branch(i.getCondition(), false, otherwise);
+        i.getStatement().accept(this);
+        code.jump(CodeBuilder.GOTO, done);
+        code.bind(otherwise);
+        if (i.getElse() != null)
+        {
+            i.getElse().accept(this);
+        }
+        code.bind(done);
+        return null;
+    }
+
+    /**
+     * Emits a CASE statement as a tableswitch when its labels are dense and as a
+     * lookupswitch otherwise. Each arm jumps past the others when it is done.
+     *
+     * @param c the statement
+     * @return null
+     */
+    @Override
+    public Void visitCase(Case c)
+    {
+        CodeBuilder.Label[] arms = new CodeBuilder.Label[c.getArms().length];
+        for (int k = 0; k < arms.length; k++)
+        {
+            arms[k] = code.newLabel();
+        }
+        CodeBuilder.Label otherwise = code.newLabel();
+        CodeBuilder.Label done = code.newLabel();
+        int[] labels = c.getLabels();
+        c.getSelector().accept(this);
+        if (c.isDense())
+        {
+            CodeBuilder.Label[] table = new CodeBuilder.Label[labels[labels.length - 1]
+                    - labels[0] + 1];
+            Arrays.fill(table, otherwise);
+            for (int k = 0; k < labels.length; k++)
+            {
+                table[labels[k] - labels[0]] = arms[c.getTargets()[k]];
+            }
+            code.tableswitch(labels[0], otherwise, table);
+        }
+        else
+        {
+            CodeBuilder.Label[] targets = new CodeBuilder.Label[labels.length];
+            for (int k = 0; k < labels.length; k++)
+            {
+                targets[k] = arms[c.getTargets()[k]];
+            }
+            code.lookupswitch(otherwise, labels, targets);
+        }
+        for (int k = 0; k < arms.length; k++)
+        {
+            code.bind(arms[k]);
+            c.getArms()[k].accept(this);
+            code.jump(CodeBuilder.GOTO, done);
+        }
+        code.bind(otherwise);
+        if (c.getElse() != null)
+        {
+            c.getElse().accept(this);
+        }
+        code.bind(done);
+        return null;
+    }
+
+    /**
+     * Emits a loop that tests the condition, then runs the body and the update, until the
+     * condition fails.
+     *
+     * @param condition the condition
+     * @param body the body
+     * @param update the statement run after the body, or null
+     */
+    protected void loop(Expression condition, Statement body, Statement update)
+    {
+        CodeBuilder.Label top = code.newLabel();
+        CodeBuilder.Label done = code.newLabel();
+        code.bind(top);
+        branch(condition, false, done);
+        body.accept(this);
+        if (update != null)
+        {
+            update.accept(this);
+        }
+        code.jump(CodeBuilder.GOTO, top);
+        code.bind(done);
+    }
+
+    @Override
+    public Void visitWhile(While w)
+    {
+        loop(w.getCondition(), w.getBody(), null);
+        return null;
+    }
+
+    @Override
+    public Void visitFor(For f)
+    {
+        f.getInitialization().accept(this);
+        loop(f.getCondition(), f.getBody(), f.getVarUpdate());
+        return null;
+    }
+
+    @Override
+    public Void visitProcedureDeclaration(ProcedureDeclaration p)
+    {
+        // the parser only accepts procedures at the program level
+        throw new IllegalStateException("unreachable: " + p);
+    }
+
+    @Override
+    public Void visitArrayDeclaration(ArrayDeclaration a)
+    {
+        declareArray(a);
+        return null;
+    }
+
+    @Override
+    public Void visitArrayAssignment(ArrayAssignment a)
+    {
+        storeElement(a);
+        return null;
+    }
+
+    @Override
+    public Void visitVarDeclaration(VarDeclaration v)
+    {
+        // the parser keeps VAR sections out of program and procedure bodies
+        throw new IllegalStateException("unreachable: " + v);
+    }
+}
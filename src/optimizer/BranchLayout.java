@@ -0,0 +1,128 @@
+package optimizer;
+
+import ast.*;
+import environment.ExecutionProfile;
+
+/**
+ * Orders the branches of each IF with an ELSE by how often the profile saw them taken, so
+ * the more likely branch comes first. The bytecode and JVM backends lay the THEN branch out
+ * right after the test, so the common path falls through instead of jumping.
+ *
+ * An IF whose THEN branch was taken less than half the times it ran has its branches swapped
+ * and its condition negated: a comparison is replaced with the opposite comparison, a NOT is
+ * dropped, and any other condition is wrapped in a NOT. The condition is evaluated exactly as
+ * before, so this cannot change what the program does. The copies of the loops and calls,
+ * and of the IFs left as they were, share the counts of their originals in the profile, so
+ * later passes can still use it.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class BranchLayout extends Rewriter
+{
+    private final ExecutionProfile profile;
+    private int swapped;
+
+    /**
+     * Constructs a BranchLayout.
+     *
+     * @param profile the profile of the program it lays out
+     */
+    public BranchLayout(ExecutionProfile profile)
+    {
+        this.profile = profile;
+    }
+
+    /**
+     * Lays out the branches of a program.
+     *
+     * Postcondition: Running the result produces the same output and errors as running
+     * the program.
+     *
+     * @param program the program, as the profile was recorded for it
+     * @return the laid out program
+     */
+    public Program layout(Program program)
+    {
+        return rewrite(program);
+    }
+
+    /**
+     * Returns a condition that holds exactly when another does not.
+     *
+     * @param c the condition, already rewritten
+     * @return the negated condition
+     */
+    private static Expression negate(Expression c)
+    {
+        if (c instanceof Not n)
+        {
+            return n.getExp();
+        }
+        if (c instanceof Condition cond)
+        {
+            String op = switch (cond.getOp())
+            {
+                case "=" -> "<>";
+                case "<>" -> "=";
+                case "<" -> ">=";
+                case ">=" -> "<";
+                case ">" -> "<=";
+                case "<=" -> ">";
+                default -> null;
+            };
+            if (op != null)
+            {
+                return new Condition(cond.getExp1(), op, cond.getExp2());
+            }
+        }
+        return new Not(c);
+    }
+
+    @Override
+    public Statement visitIf(If i)
+    {
+        If result = (If) super.visitIf(i);
+        if (result.getElse() == null || !(profile.getTakenRatio(i) < 0.5))
+        {
+            profile.follow(i, result);
+            return result;
+        }
+        swapped++;
+        return new If(negate(result.getCondition()), result.getElse(), result.getStatement());
+    }
+
+    @Override
+    public Statement visitWhile(While w)
+    {
+        Statement result = super.visitWhile(w);
+        profile.follow(w, result);
+        return result;
+    }
+
+    @Override
+    public Statement visitFor(For f)
+    {
+        Statement result = super.visitFor(f);
+        profile.follow(f, result);
+        return result;
+    }
+
+    @Override
+    public Expression visitProcedureCall(ProcedureCall p)
+    {
+        Expression result = super.visitProcedureCall(p);
+        profile.follow(p, result);
+        return result;
+    }
+
+    /**
+     * Describes what the last layout changed.
+     *
+     * @return the report, one item per line
+     */
+    public String getReport()
+    {
+        return "branches swapped to follow the profile: " + swapped + "\n";
+    }
+}
@@ -0,0 +1,502 @@
+package optimizer;
+
+import ast.*;
+import ast.Number;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Computes an expression that is evaluated more than once with the same value only once.
+ * This is value numbering over the AST: an expression gets the number of an earlier one with
+ * the same key while the earlier value is still available, so numbering runs across a whole
+ * body rather than one straight-line stretch. The value stays available in the code the
+ * earlier expression dominates, until something assigns a variable the expression reads.
+ * After an IF or a CASE, only the values all its branches keep are available. A loop keeps only the
+ * values it cannot change, and the values its body computes are not available after it.
+ *
+ * The first evaluation of a repeated expression is computed into a temporary just before
+ * the statement that contains it, and later ones read the temporary. When the expression is
+ * the whole value of an assignment, the assigned variable holds it instead. Only expressions
+ * that can neither fail nor change anything are numbered, so computing one a little early
+ * is safe, and so is computing one whose evaluation was conditional.
+ *
+ * A call is taken to assign every global its callee or their callees can assign, as Purity
+ * finds them, and calls to pure, total procedures are numbered like other expressions.
+ * Nothing is computed early past such a call or into a loop test, and a variable without a
+ * slot is only read early once it certainly exists, since reading it would declare it.
+ *
+ * The pass walks each body twice: first to count the evaluations of each value, then to
+ * rewrite the values counted more than once.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class CommonSubexpressions extends Rewriter
+{
+    private Purity purity;
+    private boolean counting;
+    private Map<String, Value> available = new HashMap<>(); // by key
+    private Map<Expression, Value> values = new IdentityHashMap<>(); // the numbered nodes
+    private Set<String> declared = new HashSet<>(); // names without a slot that now exist
+    private List<Statement> pending = new ArrayList<>(); // to go before the current statement
+    private Set<String> written = new HashSet<>(); // assigned so far in the current statement
+    private boolean inLoopTest;
+    private int expressions;
+    private int reuses;
+    private int temporaries;
+
+    /**
+     * A value some expression computes, and where it is held.
+     */
+    private static final class Value
+    {
+        private final Expression first; // the node that computes it
+        private final Set<String> reads; // the variables it depends on
+        private int count = 1;
+        private Variable holder; // the variable the first node is assigned to, if any
+        private Variable temporary;
+
+        /**
+         * Creates a value.
+         *
+         * @param first the node that computes it
+         * @param reads the variables it depends on
+         */
+        private Value(Expression first, Set<String> reads)
+        {
+            this.first = first;
+            this.reads = reads;
+        }
+    }
+
+    /**
+     * Computes each repeated expression of a program once.
+     *
+     * Postcondition: Running the result produces the same output and errors as running
+     * the program.
+     *
+     * @param program the program
+     * @return the rewritten program
+     */
+    public Program eliminate(Program program)
+    {
+        purity = Purity.of(program);
+        return rewrite(program);
+    }
+
+    @Override
+    protected Statement rewriteBody(Statement body)
+    {
+        values = new IdentityHashMap<>();
+        counting = true;
+        available = new HashMap<>();
+        declared = new HashSet<>();
+        statement(body);
+        counting = false;
+        available = new HashMap<>();
+        declared = new HashSet<>();
+        return statement(body);
+    }
+
+    /**
+     * Rewrites a statement, and puts the values computed for it before it.
+     *
+     * @param s the statement
+     * @return the rewritten statement, in a Block after the values if there are any
+     */
+    private Statement statement(Statement s)
+    {
+        List<Statement> outerPending = pending;
+        Set<String> outerWritten = written;
+        boolean outerTest = inLoopTest;
+        pending = new ArrayList<>();
+        written = new HashSet<>();
+        inLoopTest = false;
+        Statement result = s.accept(this);
+        List<Statement> computed = pending;
+        pending = outerPending;
+        written = outerWritten;
+        inLoopTest = outerTest;
+        if (computed.isEmpty())
+        {
+            return result;
+        }
+        Block block = new Block();
+        computed.forEach(block::addStatement);
+        if (!isEmpty(result))
+        {
+            block.addStatement(result);
+        }
+        return block;
+    }
+
+    /**
+     * Numbers an expression. While counting, it either gets the number of an available value
+     * or, if it can be computed before the current statement, a new one. While rewriting, a
+     * repeated value is read from where it is held, and its first node is computed into a
+     * temporary unless a variable holds it.
+     *
+     * @param e the expression, neither a constant nor a variable
+     * @param rewrite rewrites the expression's operands
+     * @return the rewritten expression
+     */
+    private Expression number(Expression e, Supplier<Expression> rewrite)
+    {
+        if (counting)
+        {
+            if (!isCandidate(e))
+            {
+                return rewrite.get();
+            }
+            String key = ExpressionKey.of(e);
+            Value v = available.get(key);
+            if (v != null)
+            {
+                v.count++;
+                values.put(e, v);
+                return copy(e);
+            }
+            boolean early = !inLoopTest && !declares(e)
+                    && Collections.disjoint(purity.getReads(e), written);
+            Expression result = rewrite.get();
+            if (early)
+            {
+                v = new Value(e, purity.getReads(e));
+                available.put(key, v);
+                values.put(e, v);
+            }
+            return result;
+        }
+        Value v = values.get(e);
+        if (v == null || v.count < 2)
+        {
+            return rewrite.get();
+        }
+        if (v.first != e)
+        {
+            return copy(v.holder != null ? v.holder : v.temporary);
+        }
+        expressions++;
+        reuses += v.count - 1;
+        Expression result = rewrite.get();
+        if (v.holder != null)
+        {
+            return result;
+        }
+        temporaries++;
+        v.temporary = newTemporary();
+        pending.add(new Assignment(copy(v.temporary), result));
+        return copy(v.temporary);
+    }
+
+    /**
+     * Returns whether an expression can neither fail nor change anything, and has no array
+     * elements.
+     *
+     * @param e the expression
+     * @return true if the expression can be numbered
+     */
+    private boolean isCandidate(Expression e)
+    {
+        if (e instanceof Number || e instanceof Variable)
+        {
+            return true;
+        }
+        if (e instanceof BinOp b)
+        {
+            if (Purity.canFail(b))
+            {
+                return false;
+            }
+            return isCandidate(b.getExp1()) && isCandidate(b.getExp2());
+        }
+        if (e instanceof Condition c)
+        {
+            return isCandidate(c.getExp1()) && isCandidate(c.getExp2());
+        }
+        if (e instanceof BoolOp b)
+        {
+            return isCandidate(b.getExp1()) && isCandidate(b.getExp2());
+        }
+        if (e instanceof Not n)
+        {
+            return isCandidate(n.getExp());
+        }
+        if (e instanceof ProcedureCall p)
+        {
+            return purity.isPure(p.getName()) && purity.isTotal(p)
+                    && Arrays.stream(p.getArgVals()).allMatch(this::isCandidate);
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether evaluating an expression now could declare a variable.
+     *
+     * @param e the expression
+     * @return true if it reads a variable without a slot that may not exist yet
+     */
+    private boolean declares(Expression e)
+    {
+        if (e instanceof Variable v)
+        {
+            return v.getSlot() < 0 && !declared.contains(v.getName());
+        }
+        if (e instanceof BinOp b)
+        {
+            return declares(b.getExp1()) || declares(b.getExp2());
+        }
+        if (e instanceof Condition c)
+        {
+            return declares(c.getExp1()) || declares(c.getExp2());
+        }
+        if (e instanceof BoolOp b)
+        {
+            return declares(b.getExp1()) || declares(b.getExp2());
+        }
+        if (e instanceof Not n)
+        {
+            return declares(n.getExp());
+        }
+        if (e instanceof ProcedureCall p)
+        {
+            return Arrays.stream(p.getArgVals()).anyMatch(this::declares);
+        }
+        return false;
+    }
+
+    /**
+     * Makes the values that depend on any of the given variables unavailable.
+     *
+     * @param names the variables that change
+     */
+    private void kill(Set<String> names)
+    {
+        available.values().removeIf(v -> !Collections.disjoint(v.reads, names));
+    }
+
+    @Override
+    public Expression visitVariable(Variable v)
+    {
+        if (v.getSlot() < 0)
+        {
+            declared.add(v.getName());
+        }
+        return copy(v);
+    }
+
+    @Override
+    public Expression visitBinOp(BinOp b)
+    {
+        return number(b, () -> super.visitBinOp(b));
+    }
+
+    @Override
+    public Expression visitCondition(Condition c)
+    {
+        return number(c, () -> super.visitCondition(c));
+    }
+
+    /**
+     * Numbers an AND or OR. The right operand does not always run, so the variables it
+     * declares are forgotten afterwards; the values it computes stay available, since they
+     * are computed before the statement.
+     *
+     * @param b the operation
+     * @return the rewritten operation
+     */
+    @Override
+    public Expression visitBoolOp(BoolOp b)
+    {
+        return number(b, () ->
+        {
+            Expression left = b.getExp1().accept(this);
+            Set<String> before = new HashSet<>(declared);
+            Expression right = b.getExp2().accept(this);
+            declared = before;
+            return new BoolOp(left, b.getOp(), right);
+        });
+    }
+
+    @Override
+    public Expression visitNot(Not n)
+    {
+        return number(n, () -> super.visitNot(n));
+    }
+
+    @Override
+    public Expression visitProcedureCall(ProcedureCall p)
+    {
+        return number(p, () ->
+        {
+            Expression call = super.visitProcedureCall(p);
+            Set<String> writes = purity.getGlobalWrites(p.getName());
+            kill(writes);
+            written.addAll(writes);
+            return call;
+        });
+    }
+
+    /**
+     * Rewrites an assignment. If its value is a new one, the assigned variable holds it
+     * until the variable is assigned again.
+     *
+     * @param a the assignment
+     * @return the rewritten assignment
+     */
+    @Override
+    public Statement visitAssignment(Assignment a)
+    {
+        Expression value = a.getExpr().accept(this);
+        String name = a.getVar().getName();
+        Set<String> target = Set.of(name);
+        kill(target);
+        written.add(name);
+        declared.add(name);
+        Value v = values.get(a.getExpr());
+        if (counting && v != null && v.first == a.getExpr() && !v.reads.contains(name))
+        {
+            v.holder = copy(a.getVar());
+            v.reads.add(name);
+        }
+        return new Assignment(copy(a.getVar()), value);
+    }
+
+    @Override
+    public Statement visitReadln(Readln r)
+    {
+        String name = r.getVar().getName();
+        kill(Set.of(name));
+        written.add(name);
+        declared.add(name);
+        return super.visitReadln(r);
+    }
+
+    @Override
+    public Statement visitBlock(Block b)
+    {
+        Block block = new Block();
+        for (Statement s : b.getStatements())
+        {
+            Statement r = statement(s);
+            if (r instanceof Block inner)
+            {
+                inner.getStatements().forEach(block::addStatement);
+            }
+            else
+            {
+                block.addStatement(r);
+            }
+        }
+        return block;
+    }
+
+    @Override
+    public Statement visitIf(If i)
+    {
+        Expression condition = i.getCondition().accept(this);
+        Map<String, Value> before = new HashMap<>(available);
+        Set<String> declaredBefore = new HashSet<>(declared);
+        Statement then = statement(i.getStatement());
+        Map<String, Value> afterThen = available;
+        Set<String> declaredThen = declared;
+        available = before;
+        declared = declaredBefore;
+        Statement otherwise = i.getElse() == null ? null : statement(i.getElse());
+        available.entrySet().retainAll(afterThen.entrySet());
+        declared.retainAll(declaredThen);
+        return otherwise == null ? new If(condition, then) : new If(condition, then, otherwise);
+    }
+
+    /**
+     * Rewrites a CASE statement. Each arm starts with the values available after the
+     * selector, and afterwards only the values every arm, and the ELSE or the lack of one,
+     * keeps are available.
+     *
+     * @param c the statement
+     * @return the rewritten statement
+     */
+    @Override
+    public Statement visitCase(Case c)
+    {
+        Expression selector = c.getSelector().accept(this);
+        Map<String, Value> before = available;
+        Set<String> declaredBefore = declared;
+        List<Map<String, Value>> afterArms = new ArrayList<>();
+        List<Set<String>> declaredArms = new ArrayList<>();
+        Statement[] arms = new Statement[c.getArms().length];
+        for (int k = 0; k < arms.length; k++)
+        {
+            available = new HashMap<>(before);
+            declared = new HashSet<>(declaredBefore);
+            arms[k] = statement(c.getArms()[k]);
+            afterArms.add(available);
+            declaredArms.add(declared);
+        }
+        available = new HashMap<>(before);
+        declared = new HashSet<>(declaredBefore);
+        Statement otherwise = c.getElse() == null ? null : statement(c.getElse());
+        for (int k = 0; k < arms.length; k++)
+        {
+            available.entrySet().retainAll(afterArms.get(k).entrySet());
+            declared.retainAll(declaredArms.get(k));
+        }
+        return new Case(selector, c.getLabels(), c.getTargets(), arms, otherwise);
+    }
+
+    /**
+     * Rewrites a WHILE loop. Its condition may read values available before the loop, but
+     * computes nothing early, since it runs again after each iteration.
+     *
+     * @param w the loop
+     * @return the rewritten loop
+     */
+    @Override
+    public Statement visitWhile(While w)
+    {
+        kill(purity.getWrites(w));
+        inLoopTest = true;
+        Expression condition = w.getCondition().accept(this);
+        inLoopTest = false;
+        Map<String, Value> entry = new HashMap<>(available);
+        Set<String> afterTest = new HashSet<>(declared);
+        Statement body = statement(w.getBody());
+        available = entry;
+        declared = afterTest;
+        return new While(condition, body);
+    }
+
+    /**
+     * Rewrites a FOR loop. Like the condition of a WHILE loop, its bound computes nothing
+     * early.
+     *
+     * @param f the loop
+     * @return the rewritten loop
+     */
+    @Override
+    public Statement visitFor(For f)
+    {
+        Assignment initialization = (Assignment) visitAssignment(f.getInitialization());
+        kill(purity.getWrites(f));
+        inLoopTest = true;
+        Expression maxVal = f.getMaxVal().accept(this);
+        inLoopTest = false;
+        Map<String, Value> entry = new HashMap<>(available);
+        Set<String> afterTest = new HashSet<>(declared);
+        Statement body = statement(f.getBody());
+        available = entry;
+        declared = afterTest;
+        return new For(initialization, maxVal, body);
+    }
+
+    /**
+     * Describes what the last eliminate changed.
+     *
+     * @return the report, one item per line
+     */
+    public String getReport()
+    {
+        return "common subexpressions: " + expressions + " computed once, " + reuses
+                + " evaluations removed, " + temporaries + " temporaries\n";
+    }
+}
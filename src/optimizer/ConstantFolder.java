@@ -0,0 +1,520 @@
+package optimizer;
+
+import ast.*;
+import ast.Number;
+import java.util.*;
+
+/**
+ * Folds constant subexpressions, propagates the constants assigned to variables through
+ * straight-line code, removes branches and loops whose conditions are constant, and drops
+ * procedures that can never be called.
+ *
+ * A variable keeps its constant until it is assigned or read into again, a loop that
+ * assigns it begins, or a procedure that could assign it is called. A callee can never
+ * assign the slots of the caller's frame, and of the globals only those Purity finds it or
+ * its callees can assign, so a call forgets only those. The two arms of an IF, and the arms
+ * of a CASE, keep only the constants they agree on.
+ *
+ * Nothing that can fail at run time is folded away: a division by a constant zero is left
+ * in place, and x * 0 becomes 0 only when evaluating x can neither fail nor change the
+ * environment. Reading a variable that has no slot can declare it, so such reads are kept.
+ *
+ * Under -O the SsaOptimizer propagates the constants of variables with slots, so the folder
+ * leaves those to it and only propagates the constants of variables without one.
+ *
+ * @author Vouk
+ * @version October 19, 2026
+ */
+public class ConstantFolder extends Rewriter
+{
+    private Map<String, Integer> constants = new HashMap<>(); // by identity
+    private Purity purity;
+    private boolean propagateSlots = true;
+    private int nodesBefore;
+    private int nodesAfter;
+    private int folded;
+    private int propagated;
+    private int simplified;
+    private int branches;
+    private int loops;
+    private int procedures;
+
+    /**
+     * Optimizes a program.
+     *
+     * Postcondition: Running the result produces the same output and errors as running
+     * the program.
+     *
+     * @param program the program
+     * @return the optimized program
+     */
+    public Program optimize(Program program)
+    {
+        nodesBefore = NodeCounter.count(program);
+        purity = Purity.of(program);
+        Program result = rewrite(program);
+        nodesAfter = NodeCounter.count(result);
+        return result;
+    }
+
+    /**
+     * Chooses whether the constants assigned to variables with slots are propagated. The
+     * constants of variables without slots always are.
+     *
+     * @param propagate false to leave the variables with slots to the SsaOptimizer
+     */
+    public void setPropagateSlots(boolean propagate)
+    {
+        propagateSlots = propagate;
+    }
+
+    /**
+     * Starts every body knowing no constants.
+     *
+     * @param body the body
+     * @return the folded body
+     */
+    @Override
+    protected Statement rewriteBody(Statement body)
+    {
+        constants = new HashMap<>();
+        return body.accept(this);
+    }
+
+    /**
+     * Keeps the VAR sections and the procedures that the main body can reach through calls.
+     * Of several procedures with the same name only the last one is ever registered, so the
+     * earlier ones are dropped as well.
+     *
+     * @param declarations the rewritten declarations, in program order
+     * @param main the rewritten main body
+     * @return the declarations to keep
+     */
+    @Override
+    protected List<Statement> select(List<Statement> declarations, Statement main)
+    {
+        Map<String, ProcedureDeclaration> registered = new HashMap<>();
+        for (Statement d : declarations)
+        {
+            if (d instanceof ProcedureDeclaration p)
+            {
+                registered.put(p.getName(), p);
+            }
+        }
+        Set<String> reachable = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>(VariableUses.of(main).getCalls());
+        while (!pending.isEmpty())
+        {
+            String name = pending.pop();
+            ProcedureDeclaration p = registered.get(name);
+            if (p != null && reachable.add(name))
+            {
+                pending.addAll(VariableUses.of(p.getBody()).getCalls());
+            }
+        }
+        List<Statement> kept = new ArrayList<>();
+        for (Statement d : declarations)
+        {
+            if (d instanceof ProcedureDeclaration p && (!reachable.contains(p.getName())
+                    || registered.get(p.getName()) != p))
+            {
+                procedures++;
+            }
+            else
+            {
+                kept.add(d);
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Forgets the constants a procedure call could change: the globals the procedure and
+     * its callees can assign.
+     *
+     * @param callee the name of the procedure
+     */
+    private void forgetForCall(String callee)
+    {
+        for (String name : purity.getGlobalWrites(callee))
+        {
+            constants.keySet().removeIf(k -> !k.contains("#L")
+                    && (k.equals(name) || k.startsWith(name + "#")));
+        }
+    }
+
+    /**
+     * Forgets the constants of every variable with a name.
+     *
+     * @param name the name
+     */
+    private void forget(String name)
+    {
+        constants.keySet().removeIf(k -> k.equals(name) || k.startsWith(name + "#"));
+    }
+
+    /**
+     * Forgets the constants of the variables a loop assigns, and those a call could change
+     * if the loop has one.
+     *
+     * @param uses the uses of the loop's condition and body
+     */
+    private void forgetForLoop(VariableUses... uses)
+    {
+        for (VariableUses u : uses)
+        {
+            u.getWrites().forEach(this::forget);
+            u.getCalls().forEach(this::forgetForCall);
+        }
+    }
+
+    /**
+     * Returns whether an expression is the given constant.
+     *
+     * @param e the expression
+     * @param value the constant
+     * @return true if e is a Number with that value
+     */
+    private static boolean is(Expression e, int value)
+    {
+        return e instanceof Number n && n.getValue() == value;
+    }
+
+    /**
+     * Returns a constant that replaces a folded node.
+     *
+     * @param value the value of the node
+     * @return the constant
+     */
+    private Number fold(int value)
+    {
+        folded++;
+        return new Number(value);
+    }
+
+    @Override
+    public Expression visitVariable(Variable v)
+    {
+        Integer value = constants.get(identity(v));
+        if (value == null)
+        {
+            return copy(v);
+        }
+        propagated++;
+        return new Number(value);
+    }
+
+    /**
+     * Folds an arithmetic operation. Besides operations on two constants, adding or
+     * subtracting 0 and multiplying or dividing by 1 are removed, and the -1 * x the parser
+     * builds for a unary minus becomes 0 - x.
+     *
+     * @param b the operation
+     * @return the folded expression
+     */
+    @Override
+    public Expression visitBinOp(BinOp b)
+    {
+        Expression left = b.getExp1().accept(this);
+        Expression right = b.getExp2().accept(this);
+        String op = b.getOp();
+        if (left instanceof Number l && right instanceof Number r)
+        {
+            switch (op)
+            {
+                case "+":
+                    folded++;
+                    return l.add(r);
+                case "-":
+                    folded++;
+                    return l.subtract(r);
+                case "*":
+                    folded++;
+                    return l.multiply(r);
+                case "/":
+                    if (r.getValue() != 0)
+                    {
+                        folded++;
+                        return l.divide(r);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        Expression result = switch (op)
+        {
+            case "+" -> is(left, 0) ? right : is(right, 0) ? left : null;
+            case "-" -> is(right, 0) ? left : null;
+            case "*" -> is(left, 1) ? right : is(right, 1) ? left
+                    : is(left, -1) ? new BinOp(new Number(0), "-", right)
+                    : is(right, -1) ? new BinOp(new Number(0), "-", left)
+                    : (is(left, 0) || is(right, 0)) && isPure(left) && isPure(right)
+                    ? new Number(0) : null;
+            case "/" -> is(right, 1) ? left : null;
+            default -> null;
+        };
+        if (result == null)
+        {
+            return new BinOp(left, op, right);
+        }
+        simplified++;
+        return result;
+    }
+
+    @Override
+    public Expression visitCondition(Condition c)
+    {
+        Expression left = c.getExp1().accept(this);
+        Expression right = c.getExp2().accept(this);
+        if (left instanceof Number l && right instanceof Number r)
+        {
+            int x = l.getValue();
+            int y = r.getValue();
+            Boolean holds = switch (c.getOp())
+            {
+                case "=" -> x == y;
+                case "<>" -> x != y;
+                case "<" -> x < y;
+                case "<=" -> x <= y;
+                case ">" -> x > y;
+                case ">=" -> x >= y;
+                default -> null;
+            };
+            if (holds != null)
+            {
+                return fold(holds ? 1 : 0);
+            }
+        }
+        return new Condition(left, c.getOp(), right);
+    }
+
+    /**
+     * Folds an AND or OR. A constant left operand decides the result or leaves the right
+     * operand as the result; a constant right operand can only be used when the left one
+     * can be dropped or is the result.
+     *
+     * @param b the operation
+     * @return the folded expression
+     */
+    @Override
+    public Expression visitBoolOp(BoolOp b)
+    {
+        boolean and = b.getOp().equals(BoolOp.AND);
+        Expression left = b.getExp1().accept(this);
+        if (left instanceof Number l)
+        {
+            if ((l.getValue() == 1) != and)
+            {
+                // the right operand is never evaluated
+                return fold(l.getValue() == 1 ? 1 : 0);
+            }
+            simplified++;
+            return b.getExp2().accept(this);
+        }
+        // a call in the right operand only ever makes fewer constants known, which is also
+        // correct when the right operand does not run
+        Expression right = b.getExp2().accept(this);
+        if (right instanceof Number r)
+        {
+            if ((r.getValue() == 1) == and)
+            {
+                simplified++;
+                return left;
+            }
+            if (isPure(left))
+            {
+                return fold(and ? 0 : 1);
+            }
+        }
+        return new BoolOp(left, b.getOp(), right);
+    }
+
+    @Override
+    public Expression visitNot(Not n)
+    {
+        Expression operand = n.getExp().accept(this);
+        if (operand instanceof Number v)
+        {
+            return fold(v.getValue() == 1 ? 0 : 1);
+        }
+        if (operand instanceof Not inner)
+        {
+            simplified++;
+            return inner.getExp();
+        }
+        return new Not(operand);
+    }
+
+    @Override
+    public Expression visitProcedureCall(ProcedureCall p)
+    {
+        Expression call = super.visitProcedureCall(p);
+        forgetForCall(p.getName());
+        return call;
+    }
+
+    @Override
+    public Statement visitAssignment(Assignment a)
+    {
+        Expression value = a.getExpr().accept(this);
+        forget(a.getVar().getName());
+        if (value instanceof Number n && (propagateSlots || a.getVar().getSlot() < 0))
+        {
+            constants.put(identity(a.getVar()), n.getValue());
+        }
+        return new Assignment(copy(a.getVar()), value);
+    }
+
+    @Override
+    public Statement visitReadln(Readln r)
+    {
+        forget(r.getVar().getName());
+        return super.visitReadln(r);
+    }
+
+    @Override
+    public Statement visitIf(If i)
+    {
+        Expression condition = i.getCondition().accept(this);
+        if (condition instanceof Number c)
+        {
+            branches++;
+            if (c.getValue() == 1)
+            {
+                return i.getStatement().accept(this);
+            }
+            return i.getElse() == null ? new Block() : i.getElse().accept(this);
+        }
+        Map<String, Integer> before = new HashMap<>(constants);
+        Statement then = i.getStatement().accept(this);
+        Map<String, Integer> afterThen = constants;
+        constants = before;
+        Statement otherwise = i.getElse() == null ? null : i.getElse().accept(this);
+        constants.entrySet().retainAll(afterThen.entrySet());
+        return otherwise == null ? new If(condition, then) : new If(condition, then, otherwise);
+    }
+
+    /**
+     * Folds a CASE statement. A selector that is a constant keeps only the arm it picks.
+     * Otherwise the arms, and the ELSE or the lack of one, keep only the constants they all
+     * agree on.
+     *
+     * @param c the statement
+     * @return the folded statement
+     */
+    @Override
+    public Statement visitCase(Case c)
+    {
+        Expression selector = c.getSelector().accept(this);
+        if (selector instanceof Number n)
+        {
+            branches++;
+            int arm = c.select(n.getValue());
+            Statement s = arm >= 0 ? c.getArms()[arm] : c.getElse();
+            return s == null ? new Block() : s.accept(this);
+        }
+        Map<String, Integer> before = constants;
+        List<Map<String, Integer>> after = new ArrayList<>();
+        Statement[] arms = new Statement[c.getArms().length];
+        for (int k = 0; k < arms.length; k++)
+        {
+            constants = new HashMap<>(before);
+            arms[k] = c.getArms()[k].accept(this);
+            after.add(constants);
+        }
+        constants = new HashMap<>(before);
+        Statement otherwise = c.getElse() == null ? null : c.getElse().accept(this);
+        for (Map<String, Integer> a : after)
+        {
+            constants.entrySet().retainAll(a.entrySet());
+        }
+        return new Case(selector, c.getLabels(), c.getTargets(), arms, otherwise);
+    }
+
+    /**
+     * Folds a WHILE loop. A loop whose first test fails is removed.
+     *
+     * @param w the loop
+     * @return the folded loop
+     */
+    @Override
+    public Statement visitWhile(While w)
+    {
+        if (is(firstTest(w.getCondition()), 0))
+        {
+            loops++;
+            return new Block();
+        }
+        forgetForLoop(VariableUses.of(w.getCondition()), VariableUses.of(w.getBody()));
+        Expression condition = w.getCondition().accept(this);
+        Map<String, Integer> entry = new HashMap<>(constants);
+        Statement body = w.getBody().accept(this);
+        constants = entry;
+        return new While(condition, body);
+    }
+
+    /**
+     * Folds a FOR loop. A loop whose first test fails is replaced by the assignment to its
+     * variable.
+     *
+     * @param f the loop
+     * @return the folded loop
+     */
+    @Override
+    public Statement visitFor(For f)
+    {
+        Assignment initialization = (Assignment) visitAssignment(f.getInitialization());
+        if (initialization.getExpr() instanceof Number start
+                && firstTest(f.getMaxVal()) instanceof Number bound
+                && start.getValue() >= bound.getValue())
+        {
+            loops++;
+            return initialization;
+        }
+        forget(initialization.getVar().getName());
+        forgetForLoop(VariableUses.of(f.getMaxVal()), VariableUses.of(f.getBody()));
+        Expression maxVal = f.getMaxVal().accept(this);
+        Map<String, Integer> entry = new HashMap<>(constants);
+        Statement body = f.getBody().accept(this);
+        constants = entry;
+        return new For(initialization, maxVal, body);
+    }
+
+    /**
+     * Folds an expression of a loop test as the first test sees it, with the constants
+     * known before the loop. The constants and the counters are left as they were. When the
+     * result is a constant, evaluating the expression cannot have had any effect.
+     *
+     * @param e the expression
+     * @return the folded expression
+     */
+    private Expression firstTest(Expression e)
+    {
+        Map<String, Integer> entry = new HashMap<>(constants);
+        int[] counts = {folded, propagated, simplified};
+        Expression result = e.accept(this);
+        constants = entry;
+        folded = counts[0];
+        propagated = counts[1];
+        simplified = counts[2];
+        return result;
+    }
+
+    /**
+     * Describes how many nodes the last optimize removed and what it changed.
+     *
+     * @return the report, one item per line
+     */
+    public String getReport()
+    {
+        return "nodes: " + nodesBefore + " before, " + nodesAfter + " after, "
+                + (nodesBefore - nodesAfter) + " eliminated\n"
+                + "constants folded: " + folded + "\n"
+                + "variables propagated: " + propagated + "\n"
+                + "expressions simplified: " + simplified + "\n"
+                + "branches removed: " + branches + "\n"
+                + "loops removed: " + loops + "\n"
+                + "procedures removed: " + procedures + "\n";
+    }
+}
@@ -0,0 +1,114 @@
+package optimizer;
+
+import ast.*;
+import ast.Number;
+
+/**
+ * Builds a string that identifies an expression by its structure, so passes can tell when
+ * two expressions compute the same thing. Two expressions have the same key exactly when
+ * they have the same operators, constants, variables, arrays and calls in the same shape,
+ * except that the operands of +, *, = and <> may be swapped. Swapping them only changes the
+ * order of their effects, so passes compare keys of expressions that have none.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+final class ExpressionKey implements ExpressionVisitor<String>
+{
+    private static final ExpressionKey INSTANCE = new ExpressionKey();
+
+    /**
+     * ExpressionKey is used through the of method.
+     */
+    private ExpressionKey()
+    {
+    }
+
+    /**
+     * Returns the key of an expression.
+     *
+     * @param e the expression
+     * @return the key
+     */
+    static String of(Expression e)
+    {
+        return e.accept(INSTANCE);
+    }
+
+    @Override
+    public String visitNumber(Number n)
+    {
+        return Integer.toString(n.getValue());
+    }
+
+    @Override
+    public String visitVariable(Variable v)
+    {
+        return Rewriter.identity(v);
+    }
+
+    /**
+     * Joins an operator and the keys of its operands, in a fixed order if the operator is
+     * commutative.
+     *
+     * @param op the operator
+     * @param commutative whether the operands may be swapped
+     * @param left the key of the left operand
+     * @param right the key of the right operand
+     * @return the key
+     */
+    private static String join(String op, boolean commutative, String left, String right)
+    {
+        if (commutative && left.compareTo(right) > 0)
+        {
+            return "(" + op + " " + right + " " + left + ")";
+        }
+        return "(" + op + " " + left + " " + right + ")";
+    }
+
+    @Override
+    public String visitBinOp(BinOp b)
+    {
+        String op = b.getOp();
+        return join(op, op.equals("+") || op.equals("*"), b.getExp1().accept(this),
+                b.getExp2().accept(this));
+    }
+
+    @Override
+    public String visitCondition(Condition c)
+    {
+        String op = c.getOp();
+        return join(op, op.equals("=") || op.equals("<>"), c.getExp1().accept(this),
+                c.getExp2().accept(this));
+    }
+
+    @Override
+    public String visitBoolOp(BoolOp b)
+    {
+        return "(" + b.getOp() + " " + b.getExp1().accept(this) + " "
+                + b.getExp2().accept(this) + ")";
+    }
+
+    @Override
+    public String visitNot(Not n)
+    {
+        return "(NOT " + n.getExp().accept(this) + ")";
+    }
+
+    @Override
+    public String visitProcedureCall(ProcedureCall p)
+    {
+        StringBuilder key = new StringBuilder("(call ").append(p.getName());
+        for (Expression a : p.getArgVals())
+        {
+            key.append(' ').append(a.accept(this));
+        }
+        return key.append(')').toString();
+    }
+
+    @Override
+    public String visitArrayElement(ArrayElement a)
+    {
+        return "(" + a.getName() + "[] " + a.getIndex().accept(this) + ")";
+    }
+}
@@ -0,0 +1,608 @@
+package optimizer;
+
+import ast.*;
+import ast.Number;
+import java.util.*;
+
+/**
+ * Finds the induction variables of loops: the variable of a FOR loop, and a variable that a
+ * WHILE loop tests against a bound and increments once per iteration. The other variables
+ * of a loop are then described as functions of the iteration number k.
+ *
+ * A loop whose body only assigns variables, each either accumulating a value affine in the
+ * induction variable (s := s + a * i + b) or set to one (x := a * i + b), is replaced by the
+ * values it leaves behind. With n iterations, an accumulator gains b * n + a * (n * (n - 1)
+ * / 2), plus the start of the induction variable times a * n, and everything else takes its
+ * value from the last iteration. Integer arithmetic wraps modulo 2^32, which is a ring, so
+ * these sums are exact under the same overflow as the loop itself. Halving n * (n - 1) is the
+ * one step that is not, so the even factor is halved first. The closed form only runs when
+ * the loop runs and n fits in an int; otherwise the loop runs as before.
+ *
+ * In other loops, a product of the induction variable and a constant or a variable the loop
+ * cannot change is replaced with a new variable, which starts at the product and grows by the
+ * constant whenever the induction variable does.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class InductionVariables extends Rewriter
+{
+    private Purity purity;
+    private int closedForms;
+    private int reduced;
+
+    /**
+     * A value a * k + b that depends on the iteration number k. Each part is a template that
+     * is copied wherever it is used; a null part is zero.
+     */
+    private static final class Affine
+    {
+        private final Expression coefficient;
+        private final Expression constant;
+
+        /**
+         * Creates an affine value.
+         *
+         * @param coefficient a, or null for zero
+         * @param constant b, or null for zero
+         */
+        private Affine(Expression coefficient, Expression constant)
+        {
+            this.coefficient = coefficient;
+            this.constant = constant;
+        }
+    }
+
+    /**
+     * Rewrites the loops of a program that have induction variables.
+     *
+     * Postcondition: Running the result produces the same output and errors as running
+     * the program.
+     *
+     * @param program the program
+     * @return the rewritten program
+     */
+    public Program optimize(Program program)
+    {
+        purity = Purity.of(program);
+        return rewrite(program);
+    }
+
+    /**
+     * Adds two values.
+     *
+     * @param a a value, or null for zero
+     * @param b a value, or null for zero
+     * @return a new expression for the sum, or null for zero
+     */
+    private static Expression plus(Expression a, Expression b)
+    {
+        if (a == null || b == null)
+        {
+            return a == null ? (b == null ? null : copy(b)) : copy(a);
+        }
+        if (a instanceof Number x && b instanceof Number y)
+        {
+            return x.add(y);
+        }
+        return new BinOp(copy(a), "+", copy(b));
+    }
+
+    /**
+     * Subtracts two values.
+     *
+     * @param a a value, or null for zero
+     * @param b a value, or null for zero
+     * @return a new expression for the difference, or null for zero
+     */
+    private static Expression minus(Expression a, Expression b)
+    {
+        if (b == null)
+        {
+            return a == null ? null : copy(a);
+        }
+        if (a instanceof Number x && b instanceof Number y)
+        {
+            return x.subtract(y);
+        }
+        return new BinOp(a == null ? new Number(0) : copy(a), "-", copy(b));
+    }
+
+    /**
+     * Multiplies two values.
+     *
+     * @param a a value, or null for zero
+     * @param b a value, or null for zero
+     * @return a new expression for the product, or null for zero
+     */
+    private static Expression times(Expression a, Expression b)
+    {
+        if (a == null || b == null)
+        {
+            return null;
+        }
+        if (a instanceof Number x && b instanceof Number y)
+        {
+            return x.multiply(y);
+        }
+        if (a instanceof Number x && x.getValue() == 1)
+        {
+            return copy(b);
+        }
+        if (b instanceof Number y && y.getValue() == 1)
+        {
+            return copy(a);
+        }
+        return new BinOp(copy(a), "*", copy(b));
+    }
+
+    /**
+     * Describes an expression as a function of the iteration number.
+     *
+     * @param e the expression
+     * @param variable the induction variable
+     * @param start its value in the first iteration where e is evaluated
+     * @param writes the variables the loop can assign
+     * @return the affine value, or null if e is not affine or reads another variable the
+     *         loop assigns
+     */
+    private static Affine affine(Expression e, Variable variable, Expression start,
+            Set<String> writes)
+    {
+        if (e instanceof Number n)
+        {
+            return new Affine(null, n);
+        }
+        if (e instanceof Variable v)
+        {
+            if (same(variable, v))
+            {
+                return new Affine(new Number(1), start);
+            }
+            return writes.contains(v.getName()) ? null : new Affine(null, v);
+        }
+        if (!(e instanceof BinOp b) || b.getOp().equals("/"))
+        {
+            return null;
+        }
+        Affine l = affine(b.getExp1(), variable, start, writes);
+        Affine r = affine(b.getExp2(), variable, start, writes);
+        if (l == null || r == null)
+        {
+            return null;
+        }
+        switch (b.getOp())
+        {
+            case "+":
+                return new Affine(plus(l.coefficient, r.coefficient), plus(l.constant, r.constant));
+            case "-":
+                return new Affine(minus(l.coefficient, r.coefficient),
+                        minus(l.constant, r.constant));
+            default:
+                if (l.coefficient == null)
+                {
+                    return new Affine(times(l.constant, r.coefficient),
+                            times(l.constant, r.constant));
+                }
+                if (r.coefficient == null)
+                {
+                    return new Affine(times(l.coefficient, r.constant),
+                            times(l.constant, r.constant));
+                }
+                return null;
+        }
+    }
+
+    /**
+     * Returns whether an expression is arithmetic on constants and variables that cannot
+     * fail, so it can be evaluated more often or earlier than in the loop.
+     *
+     * @param e the expression
+     * @param writes the variables the loop can assign, which it must not read
+     * @return true if the expression has the same value throughout the loop
+     */
+    private static boolean isInvariant(Expression e, Set<String> writes)
+    {
+        if (e instanceof Number)
+        {
+            return true;
+        }
+        if (e instanceof Variable v)
+        {
+            return !writes.contains(v.getName());
+        }
+        if (e instanceof BinOp b)
+        {
+            if (Purity.canFail(b))
+            {
+                return false;
+            }
+            return isInvariant(b.getExp1(), writes) && isInvariant(b.getExp2(), writes);
+        }
+        return false;
+    }
+
+    /**
+     * Lists the statements of a body, with the statements of nested Blocks in their place.
+     *
+     * @param body the body
+     * @return the statements
+     */
+    private static List<Statement> flatten(Statement body)
+    {
+        List<Statement> statements = new ArrayList<>();
+        if (body instanceof Block b)
+        {
+            for (Statement s : b.getStatements())
+            {
+                statements.addAll(flatten(s));
+            }
+        }
+        else
+        {
+            statements.add(body);
+        }
+        return statements;
+    }
+
+    /**
+     * Returns whether a statement is variable := variable + 1.
+     *
+     * @param s the statement
+     * @param variable the variable
+     * @return true if it increments the variable by one
+     */
+    private static boolean isIncrement(Statement s, Variable variable)
+    {
+        if (!(s instanceof Assignment a && same(variable, a.getVar())
+                && a.getExpr() instanceof BinOp b && b.getOp().equals("+")))
+        {
+            return false;
+        }
+        Expression l = b.getExp1();
+        Expression r = b.getExp2();
+        return same(variable, l) && r instanceof Number n && n.getValue() == 1
+                || same(variable, r) && l instanceof Number m && m.getValue() == 1;
+    }
+
+    /**
+     * Tries to replace a loop with the values it leaves behind.
+     *
+     * Precondition: The loop runs while the induction variable is below the bound, or at
+     * most the bound if inclusive, the bound is invariant, and the induction variable grows
+     * by one at the end of each iteration or at the given statement.
+     *
+     * @param variable the induction variable
+     * @param bound the bound
+     * @param inclusive whether the loop also runs when the variable equals the bound
+     * @param statements the statements of the body
+     * @param increment the index of the statement that increments the variable, or -1 if
+     *        the loop increments it after the body
+     * @param loop the loop, which runs when the closed form does not apply
+     * @return an IF that runs the closed form or the loop, or null if there is no closed form
+     */
+    private Statement closedForm(Variable variable, Expression bound, boolean inclusive,
+            List<Statement> statements, int increment, Statement loop)
+    {
+        Set<String> writes = purity.getWrites(loop);
+        if (VariableUses.of(loop).hasCall())
+        {
+            return null;
+        }
+        Map<String, Variable> targets = new LinkedHashMap<>(); // by identity
+        Map<String, Affine> deltas = new HashMap<>(); // per iteration, for accumulators
+        Map<String, Affine> values = new HashMap<>(); // at the end of an iteration, for others
+        for (int i = 0; i < statements.size(); i++)
+        {
+            if (i == increment)
+            {
+                continue;
+            }
+            if (!(statements.get(i) instanceof Assignment a))
+            {
+                return null;
+            }
+            Expression start = increment >= 0 && i > increment
+                    ? plus(variable, new Number(1)) : variable;
+            String target = identity(a.getVar());
+            Expression e = a.getExpr();
+            Affine delta = null;
+            if (e instanceof BinOp b && same(a.getVar(), b.getExp1())
+                    && (b.getOp().equals("+") || b.getOp().equals("-")))
+            {
+                delta = affine(b.getExp2(), variable, start, writes);
+                if (delta != null && b.getOp().equals("-"))
+                {
+                    delta = new Affine(minus(null, delta.coefficient), minus(null, delta.constant));
+                }
+            }
+            else if (e instanceof BinOp b && b.getOp().equals("+") && same(a.getVar(), b.getExp2()))
+            {
+                delta = affine(b.getExp1(), variable, start, writes);
+            }
+            Map<String, Affine> into = values.containsKey(target) ? values : deltas;
+            if (delta != null)
+            {
+                Affine sum = into.get(target);
+                into.put(target, sum == null ? delta : new Affine(
+                        plus(sum.coefficient, delta.coefficient), plus(sum.constant, delta.constant)));
+            }
+            else
+            {
+                Affine value = affine(e, variable, start, writes);
+                if (value == null)
+                {
+                    return null;
+                }
+                deltas.remove(target);
+                values.put(target, value);
+            }
+            targets.put(target, a.getVar());
+        }
+
+        Expression limit = inclusive ? plus(bound, new Number(1)) : bound;
+        Expression guard = new BoolOp(new Condition(copy(variable), inclusive ? "<=" : "<",
+                copy(bound)), BoolOp.AND, new Condition(minus(limit, variable), ">", new Number(0)));
+        if (inclusive)
+        {
+            guard = new BoolOp(new Condition(copy(bound), "<", new Number(Integer.MAX_VALUE)),
+                    BoolOp.AND, guard);
+        }
+        Block closed = new Block();
+        Variable n = newTemporary();
+        closed.addStatement(new Assignment(copy(n), minus(limit, variable)));
+        Variable triangle = null; // n * (n - 1) / 2, the sum of the iteration numbers
+        for (Affine delta : deltas.values())
+        {
+            if (delta.coefficient != null && triangle == null)
+            {
+                triangle = newTemporary();
+                Expression half = new BinOp(copy(n), "/", new Number(2));
+                Expression less = minus(n, new Number(1));
+                closed.addStatement(new If(
+                        new Condition(times(half, new Number(2)), "=", copy(n)),
+                        new Assignment(copy(triangle), times(half, less)),
+                        new Assignment(copy(triangle),
+                                times(new BinOp(less, "/", new Number(2)), n))));
+            }
+        }
+        for (Map.Entry<String, Variable> t : targets.entrySet())
+        {
+            Variable target = t.getValue();
+            Affine delta = deltas.get(t.getKey());
+            Expression value;
+            if (delta != null)
+            {
+                value = plus(target, plus(times(delta.constant, n),
+                        times(delta.coefficient, triangle)));
+            }
+            else
+            {
+                Affine last = values.get(t.getKey());
+                value = plus(times(last.coefficient, minus(n, new Number(1))), last.constant);
+            }
+            closed.addStatement(new Assignment(copy(target), value == null ? new Number(0) : value));
+        }
+        closed.addStatement(new Assignment(copy(variable), plus(variable, n)));
+        closedForms++;
+        return new If(guard, closed, loop);
+    }
+
+    /**
+     * Replaces the products of an induction variable and an invariant in a loop with new
+     * variables that grow by the invariant at the increment.
+     *
+     * @param variable the induction variable
+     * @param writes the variables the loop can assign
+     * @param parts the condition or bound of the loop and its body, in which to replace
+     * @return for each new variable, its initial assignment then its increment, or an empty
+     *         list if there are no products
+     */
+    private List<Assignment[]> reduce(Variable variable, Set<String> writes, Object[] parts)
+    {
+        Map<String, Variable> products = new LinkedHashMap<>();
+        Map<String, Expression> factors = new HashMap<>();
+        Rewriter replacer = new Rewriter()
+        {
+            @Override
+            public Expression visitBinOp(BinOp b)
+            {
+                Expression factor = factor(b);
+                if (factor == null)
+                {
+                    return super.visitBinOp(b);
+                }
+                String key = ExpressionKey.of(factor);
+                Variable product = products.get(key);
+                if (product == null)
+                {
+                    product = InductionVariables.this.newTemporary();
+                    products.put(key, product);
+                    factors.put(key, factor);
+                }
+                reduced++;
+                return copy(product);
+            }
+
+            /**
+             * Returns the invariant the induction variable is multiplied by.
+             *
+             * @param b the operation
+             * @return the factor, or null if b is not such a product
+             */
+            private Expression factor(BinOp b)
+            {
+                if (!b.getOp().equals("*"))
+                {
+                    return null;
+                }
+                Expression l = b.getExp1();
+                Expression r = b.getExp2();
+                if (same(variable, l))
+                {
+                    return usable(r) ? r : null;
+                }
+                if (same(variable, r))
+                {
+                    return usable(l) ? l : null;
+                }
+                return null;
+            }
+
+            /**
+             * Returns whether a factor can be read before the loop: a constant, or a slot
+             * the loop cannot assign, since reading a variable without one could declare it.
+             *
+             * @param e the factor
+             * @return true if the factor can be used
+             */
+            private boolean usable(Expression e)
+            {
+                return e instanceof Number || e instanceof Variable v && v.getSlot() >= 0
+                        && !writes.contains(v.getName());
+            }
+        };
+        for (int i = 0; i < parts.length; i++)
+        {
+            parts[i] = parts[i] instanceof Expression e ? e.accept(replacer)
+                    : ((Statement) parts[i]).accept(replacer);
+        }
+        List<Assignment[]> result = new ArrayList<>();
+        for (Map.Entry<String, Variable> p : products.entrySet())
+        {
+            Expression factor = factors.get(p.getKey());
+            Variable product = p.getValue();
+            result.add(new Assignment[] {
+                new Assignment(copy(product), times(variable, factor)),
+                new Assignment(copy(product), plus(product, factor))});
+        }
+        return result;
+    }
+
+    /**
+     * Rewrites a FOR loop: its variable is an induction variable if the body cannot assign
+     * it and the bound cannot change.
+     *
+     * @param f the loop
+     * @return the rewritten loop
+     */
+    @Override
+    public Statement visitFor(For f)
+    {
+        For loop = (For) super.visitFor(f);
+        Variable variable = loop.getInitialization().getVar();
+        Set<String> writes = purity.getWrites(loop);
+        if (purity.getWrites(loop.getBody()).contains(variable.getName())
+                || !isInvariant(loop.getMaxVal(), writes))
+        {
+            return loop;
+        }
+        For again = new For(new Assignment(copy(variable), copy(variable)),
+                copy(loop.getMaxVal()), copy(loop.getBody()));
+        Statement closed = closedForm(variable, loop.getMaxVal(), false,
+                flatten(loop.getBody()), -1, again);
+        Block result = new Block();
+        if (closed != null)
+        {
+            result.addStatement(loop.getInitialization());
+            result.addStatement(closed);
+            return result;
+        }
+        Object[] parts = {loop.getBody()};
+        List<Assignment[]> products = reduce(variable, writes, parts);
+        if (products.isEmpty())
+        {
+            return loop;
+        }
+        result.addStatement(loop.getInitialization());
+        Block body = new Block();
+        body.addStatement((Statement) parts[0]);
+        for (Assignment[] p : products)
+        {
+            result.addStatement(p[0]);
+            body.addStatement(p[1]);
+        }
+        result.addStatement(new For(new Assignment(copy(variable), copy(variable)),
+                copy(loop.getMaxVal()), body));
+        return result;
+    }
+
+    /**
+     * Rewrites a WHILE loop: a variable it tests with &lt; or &lt;= against a bound that
+     * cannot change is an induction variable if exactly one statement of the body assigns it,
+     * at the top level and by adding one.
+     *
+     * @param w the loop
+     * @return the rewritten loop
+     */
+    @Override
+    public Statement visitWhile(While w)
+    {
+        While loop = (While) super.visitWhile(w);
+        if (!(loop.getCondition() instanceof Condition c && c.getExp1() instanceof Variable variable
+                && (c.getOp().equals("<") || c.getOp().equals("<="))))
+        {
+            return loop;
+        }
+        Set<String> writes = purity.getWrites(loop);
+        List<Statement> statements = flatten(loop.getBody());
+        int increment = -1;
+        for (int i = 0; i < statements.size(); i++)
+        {
+            Statement s = statements.get(i);
+            if (isIncrement(s, variable) && increment < 0)
+            {
+                increment = i;
+            }
+            else if (purity.getWrites(s).contains(variable.getName()))
+            {
+                return loop;
+            }
+        }
+        if (increment < 0 || !isInvariant(c.getExp2(), writes))
+        {
+            return loop;
+        }
+        Statement closed = closedForm(variable, c.getExp2(), c.getOp().equals("<="), statements,
+                increment, loop);
+        if (closed != null)
+        {
+            return closed;
+        }
+        Object[] parts = new Object[statements.size() + 1];
+        parts[0] = loop.getCondition();
+        for (int i = 0; i < statements.size(); i++)
+        {
+            parts[i + 1] = statements.get(i);
+        }
+        List<Assignment[]> products = reduce(variable, writes, parts);
+        if (products.isEmpty())
+        {
+            return loop;
+        }
+        Block result = new Block();
+        Block body = new Block();
+        for (int i = 0; i < statements.size(); i++)
+        {
+            body.addStatement((Statement) parts[i + 1]);
+            if (i == increment)
+            {
+                products.forEach(p -> body.addStatement(p[1]));
+            }
+        }
+        products.forEach(p -> result.addStatement(p[0]));
+        result.addStatement(new While((Expression) parts[0], body));
+        return result;
+    }
+
+    /**
+     * Describes what the last optimize changed.
+     *
+     * @return the report, one item per line
+     */
+    public String getReport()
+    {
+        return "loops in closed form: " + closedForms + "\n"
+                + "multiplications strength-reduced: " + reduced + "\n";
+    }
+}
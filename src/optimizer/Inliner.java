@@ -0,0 +1,537 @@
+package optimizer;
+
+import ast.*;
+import ast.Number;
+import environment.ExecutionProfile;
+import java.util.*;
+
+/**
+ * Replaces calls to small procedures with the expression they compute, so the call no
+ * longer creates an Environment, sets arguments and looks the procedure up by name.
+ *
+ * A procedure can be inlined when its body only assigns the slots of its own frame, and the
+ * values it assigns are built from numbers, its parameters, other slots of its frame and
+ * global slots. Such a body cannot tell whether it runs in its own child of the root or in
+ * the caller's environment: it reads no variable that is looked up by name and writes
+ * nothing outside its frame, so the scoping rules are kept. The assignments are executed
+ * symbolically, and the call is replaced by the value left in the return slot, with the
+ * arguments in place of the parameters. Calls in the body are inlined first, so a procedure
+ * that only calls inlinable procedures can be inlined too; a recursive one never can.
+ *
+ * An argument is only moved into the body when that cannot change what the program does: it
+ * must not be able to fail or change the environment, except that one the body reads may
+ * declare the variables it reads. One read more than once must be a number or a variable,
+ * so its work is not repeated.
+ *
+ * With a profile, a call site the profile never saw called is kept, so it does not use up
+ * the growth the hot sites can use, and a site called at least HOT_CALLS times may inline a
+ * procedure up to HOT_SIZE_FACTOR times the largest size.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class Inliner extends Rewriter
+{
+    public static final int DEFAULT_MAX_SIZE = 16;
+    public static final int DEFAULT_MAX_GROWTH = 1000;
+    public static final int HOT_CALLS = 1000;
+    public static final int HOT_SIZE_FACTOR = 4;
+
+    private final int maxSize;
+    private final int maxGrowth;
+    private ExecutionProfile profile;
+    private Map<String, ProcedureDeclaration> registered;
+    private final Map<String, Summary> summaries = new HashMap<>();
+    private final Set<String> summarizing = new HashSet<>();
+    private final Map<String, Integer> inlined = new TreeMap<>();
+    private final Map<String, String> reasons = new TreeMap<>();
+    private final Map<String, Integer> kept = new TreeMap<>();
+    private int growth;
+    private int nodesBefore;
+    private int nodesAfter;
+
+    /**
+     * The value an inlinable procedure computes, in terms of its parameters.
+     */
+    private static final class Summary
+    {
+        final Map<String, Integer> params; // parameter name to argument index
+        final Expression value;
+        final int[] uses; // how often each argument appears in the value
+        final int[] certain; // how many of those reads always run
+        final int size; // the nodes of the value
+
+        /**
+         * Constructs a Summary.
+         *
+         * @param params the argument index of each parameter name
+         * @param value the value of the return slot, reading the parameters as local slots
+         * @param uses how often each argument appears in the value
+         * @param certain how many of those reads always run
+         * @param size the number of nodes of the value
+         */
+        Summary(Map<String, Integer> params, Expression value, int[] uses, int[] certain,
+                int size)
+        {
+            this.params = params;
+            this.value = value;
+            this.uses = uses;
+            this.certain = certain;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Constructs an Inliner with the default thresholds.
+     */
+    public Inliner()
+    {
+        this(DEFAULT_MAX_SIZE, DEFAULT_MAX_GROWTH);
+    }
+
+    /**
+     * Constructs an Inliner.
+     *
+     * @param maxSize the largest number of nodes the value of an inlined procedure may have
+     * @param maxGrowth the number of nodes the whole program may grow by
+     */
+    public Inliner(int maxSize, int maxGrowth)
+    {
+        this.maxSize = maxSize;
+        this.maxGrowth = maxGrowth;
+    }
+
+    /**
+     * Lets a profile of the program decide which call sites are worth inlining.
+     *
+     * @param p the profile, whose nodes are those of the program to inline, or null to
+     * treat every call site alike
+     */
+    public void setProfile(ExecutionProfile p)
+    {
+        profile = p;
+    }
+
+    /**
+     * Inlines the calls to small procedures in the procedures and the main body of a
+     * program. The procedures stay declared; the ConstantFolder drops those no longer called.
+     *
+     * Postcondition: Running the result produces the same output and errors as running
+     * the program.
+     *
+     * @param program the program
+     * @return the program with the calls inlined
+     */
+    public Program inline(Program program)
+    {
+        registered = new HashMap<>();
+        for (Program p = program; p.getMainBody() == null; p = p.getChildProgram())
+        {
+            if (p.getProcedure() != null)
+            {
+                // a later declaration with the same name replaces an earlier one
+                registered.put(p.getProcedure().getName(), p.getProcedure());
+            }
+        }
+        nodesBefore = NodeCounter.count(program);
+        Program result = rewrite(program);
+        nodesAfter = NodeCounter.count(result);
+        return result;
+    }
+
+    /**
+     * Records why a procedure cannot be inlined.
+     *
+     * @param name the name of the procedure
+     * @param reason the reason
+     * @return null
+     */
+    private Summary reject(String name, String reason)
+    {
+        reasons.putIfAbsent(name, reason);
+        return null;
+    }
+
+    /**
+     * Returns the summary of a procedure, computing it the first time.
+     *
+     * @param name the name of the procedure
+     * @return the summary, or null if the procedure cannot be inlined
+     */
+    private Summary summary(String name)
+    {
+        if (summaries.containsKey(name))
+        {
+            return summaries.get(name);
+        }
+        ProcedureDeclaration p = registered.get(name);
+        if (p == null)
+        {
+            return null; // the call fails at run time as before
+        }
+        if (!summarizing.add(name))
+        {
+            return reject(name, "recursive");
+        }
+        ProcedureDeclaration outer = procedure;
+        procedure = p;
+        Summary s = summarize(p, p.getBody().accept(this));
+        procedure = outer;
+        summarizing.remove(name);
+        summaries.put(name, s);
+        return s;
+    }
+
+    /**
+     * Executes the body of a procedure symbolically.
+     *
+     * @param p the procedure
+     * @param body its body, with the calls in it already inlined
+     * @return the summary, or null if the procedure cannot be inlined
+     */
+    private Summary summarize(ProcedureDeclaration p, Statement body)
+    {
+        String name = p.getName();
+        if (p.getLocals() != null && !p.getLocals().getArrays().isEmpty())
+        {
+            return reject(name, "declares arrays");
+        }
+        List<Assignment> assignments = new ArrayList<>();
+        if (!flatten(body, assignments))
+        {
+            return reject(name, "has statements other than assignments");
+        }
+        Map<String, Integer> params = new HashMap<>();
+        Map<String, Expression> values = new HashMap<>();
+        for (String slot : p.getFrameLayout().keySet())
+        {
+            values.put(slot, new Number(0));
+        }
+        String[] args = p.getArgs();
+        for (int i = 0; i < args.length; i++)
+        {
+            params.put(args[i], i); // the last of two equal names gets the slot
+            values.put(args[i], new Variable(args[i], p.getFrameLayout().get(args[i]), true));
+        }
+        values.put(name, new Number(0)); // setArgs clears the return slot last
+        params.remove(name);
+        for (int k = 0; k < assignments.size(); k++)
+        {
+            Assignment a = assignments.get(k);
+            Variable target = a.getVar();
+            if (target.getSlot() < 0 || !target.isLocal())
+            {
+                return reject(name, "assigns " + target.getName() + " outside its frame");
+            }
+            String problem = problem(a.getExpr());
+            if (problem != null)
+            {
+                return reject(name, problem);
+            }
+            Expression value = substitute(a.getExpr(), values);
+            boolean result = k == assignments.size() - 1 && target.getName().equals(name);
+            if (!result && !isPure(value))
+            {
+                // the value may be discarded, and with it a failure such as a division by 0
+                return reject(name, "computes a value that can fail before its result");
+            }
+            values.put(target.getName(), value);
+        }
+        Expression value = values.get(name);
+        int size = NodeCounter.count(value);
+        if (size > (profile == null ? maxSize : maxSize * HOT_SIZE_FACTOR))
+        {
+            return reject(name, "too large (" + size + " nodes)");
+        }
+        int[] uses = new int[args.length];
+        int[] certain = new int[args.length];
+        count(value, params, uses, certain, true);
+        return new Summary(params, value, uses, certain, size);
+    }
+
+    /**
+     * Lists the assignments of a body made only of blocks and assignments.
+     *
+     * @param s the body
+     * @param assignments receives the assignments in order
+     * @return false if the body has another kind of statement
+     */
+    private static boolean flatten(Statement s, List<Assignment> assignments)
+    {
+        if (s instanceof Assignment a)
+        {
+            assignments.add(a);
+            return true;
+        }
+        if (s instanceof Block b)
+        {
+            for (Statement t : b.getStatements())
+            {
+                if (!flatten(t, assignments))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Finds what keeps an expression in a procedure body from being inlined.
+     *
+     * @param e the expression
+     * @return the reason, or null if the expression can be inlined
+     */
+    private static String problem(Expression e)
+    {
+        if (e instanceof Number)
+        {
+            return null;
+        }
+        if (e instanceof Variable v)
+        {
+            return v.getSlot() < 0 ? "reads " + v.getName() + " by name" : null;
+        }
+        if (e instanceof ProcedureCall)
+        {
+            return "calls a procedure";
+        }
+        if (e instanceof ArrayElement)
+        {
+            return "reads an array";
+        }
+        Expression[] operands;
+        if (e instanceof BinOp b)
+        {
+            operands = new Expression[] {b.getExp1(), b.getExp2()};
+        }
+        else if (e instanceof Condition c)
+        {
+            operands = new Expression[] {c.getExp1(), c.getExp2()};
+        }
+        else if (e instanceof BoolOp b)
+        {
+            operands = new Expression[] {b.getExp1(), b.getExp2()};
+        }
+        else
+        {
+            operands = new Expression[] {((Not) e).getExp()};
+        }
+        for (Expression o : operands)
+        {
+            String problem = problem(o);
+            if (problem != null)
+            {
+                return problem;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether an expression can neither fail nor have an effect other than declaring
+     * a variable it reads by name. Such an expression can be evaluated later, or more than
+     * once, as long as it is evaluated.
+     *
+     * @param e the expression
+     * @return true if the expression can be moved
+     */
+    private static boolean movable(Expression e)
+    {
+        if (e instanceof Number || e instanceof Variable)
+        {
+            return true;
+        }
+        if (e instanceof BinOp b)
+        {
+            if (Purity.canFail(b))
+            {
+                return false;
+            }
+            return movable(b.getExp1()) && movable(b.getExp2());
+        }
+        if (e instanceof Condition c)
+        {
+            return movable(c.getExp1()) && movable(c.getExp2());
+        }
+        if (e instanceof BoolOp b)
+        {
+            return movable(b.getExp1()) && movable(b.getExp2());
+        }
+        return e instanceof Not n && movable(n.getExp());
+    }
+
+    /**
+     * Copies an expression with the local slots it reads replaced.
+     *
+     * @param e the expression
+     * @param values the expression for each local slot name
+     * @return the copy
+     */
+    private static Expression substitute(Expression e, Map<String, Expression> values)
+    {
+        return e.accept(new Rewriter()
+        {
+            @Override
+            public Expression visitVariable(Variable v)
+            {
+                Expression value = v.isLocal() ? values.get(v.getName()) : null;
+                return value == null ? copy(v) : value.accept(new Rewriter());
+            }
+        });
+    }
+
+    /**
+     * Counts how often each parameter is read in the value of a procedure.
+     *
+     * @param e the value
+     * @param params the argument index of each parameter name
+     * @param uses the counts, indexed by argument
+     * @param certain the counts of the reads that always run, not being in the right
+     * operand of an AND or OR
+     * @param always whether e always runs
+     */
+    private static void count(Expression e, Map<String, Integer> params, int[] uses,
+            int[] certain, boolean always)
+    {
+        if (e instanceof Variable v)
+        {
+            Integer i = v.isLocal() ? params.get(v.getName()) : null;
+            if (i != null)
+            {
+                uses[i]++;
+                certain[i] += always ? 1 : 0;
+            }
+        }
+        else if (e instanceof BinOp b)
+        {
+            count(b.getExp1(), params, uses, certain, always);
+            count(b.getExp2(), params, uses, certain, always);
+        }
+        else if (e instanceof Condition c)
+        {
+            count(c.getExp1(), params, uses, certain, always);
+            count(c.getExp2(), params, uses, certain, always);
+        }
+        else if (e instanceof BoolOp b)
+        {
+            count(b.getExp1(), params, uses, certain, always);
+            count(b.getExp2(), params, uses, certain, false);
+        }
+        else if (e instanceof Not n)
+        {
+            count(n.getExp(), params, uses, certain, always);
+        }
+    }
+
+    /**
+     * Inlines a call when its procedure and its arguments allow it.
+     *
+     * @param p the call
+     * @return the inlined value, or the call
+     */
+    @Override
+    public Expression visitProcedureCall(ProcedureCall p)
+    {
+        ProcedureCall call = (ProcedureCall) super.visitProcedureCall(p);
+        String name = call.getName();
+        Summary s = summary(name);
+        if (s == null)
+        {
+            if (summarizing.isEmpty() && reasons.containsKey(name))
+            {
+                kept.merge(name, 1, Integer::sum);
+            }
+            return call;
+        }
+        Expression[] args = call.getArgVals();
+        String reason = null;
+        long calls = profile == null || !summarizing.isEmpty() ? -1 : profile.getCalls(p);
+        if (args.length != s.uses.length)
+        {
+            reason = "wrong number of arguments"; // the call fails at run time as before
+        }
+        else if (calls == 0)
+        {
+            reason = "never called in the profile";
+        }
+        else if (s.size > maxSize && calls < HOT_CALLS)
+        {
+            reason = "too large (" + s.size + " nodes)";
+        }
+        for (int i = 0; reason == null && i < args.length; i++)
+        {
+            if (s.certain[i] == 0 ? !isPure(args[i]) : !movable(args[i]))
+            {
+                reason = "an argument can fail or has effects";
+            }
+            else if (s.uses[i] > 1 && !(args[i] instanceof Number)
+                    && !(args[i] instanceof Variable))
+            {
+                reason = "an argument would be computed more than once";
+            }
+        }
+        Expression value = null;
+        if (reason == null)
+        {
+            Map<String, Expression> values = new HashMap<>();
+            for (Map.Entry<String, Integer> param : s.params.entrySet())
+            {
+                values.put(param.getKey(), args[param.getValue()]);
+            }
+            value = substitute(s.value, values);
+            int added = NodeCounter.count(value) - NodeCounter.count(call);
+            if (summarizing.isEmpty() && growth + added > maxGrowth)
+            {
+                reason = "the program would grow too much";
+            }
+            else if (summarizing.isEmpty())
+            {
+                growth += added;
+            }
+        }
+        if (summarizing.isEmpty())
+        {
+            if (reason == null)
+            {
+                inlined.merge(name, 1, Integer::sum);
+            }
+            else
+            {
+                kept.merge(name, 1, Integer::sum);
+                reasons.putIfAbsent(name, reason);
+            }
+        }
+        return reason == null ? value : call;
+    }
+
+    /**
+     * Describes how many nodes the last inline added and, for each procedure that is
+     * called, how many calls were inlined and why the others were kept.
+     *
+     * @return the report, one item per line
+     */
+    public String getReport()
+    {
+        StringBuilder report = new StringBuilder();
+        report.append("inlining: ").append(nodesBefore).append(" nodes before, ")
+                .append(nodesAfter).append(" after, limits ").append(maxSize)
+                .append(" nodes per procedure and ").append(maxGrowth).append(" in total\n");
+        Set<String> names = new TreeSet<>(inlined.keySet());
+        names.addAll(kept.keySet());
+        names.addAll(reasons.keySet());
+        for (String name : names)
+        {
+            report.append(name).append(": inlined at ").append(inlined.getOrDefault(name, 0))
+                    .append(" call sites");
+            if (reasons.containsKey(name))
+            {
+                report.append(", kept ").append(kept.getOrDefault(name, 0)).append(": ")
+                        .append(reasons.get(name));
+            }
+            report.append('\n');
+        }
+        return report.toString();
+    }
+}
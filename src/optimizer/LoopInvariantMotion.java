@@ -0,0 +1,360 @@
+package optimizer;
+
+import ast.*;
+import ast.Number;
+import java.util.*;
+
+/**
+ * Moves expressions whose value cannot change while a WHILE or FOR loop runs out of the
+ * loop. Each one is computed once into a temporary just before the loop, and the loop reads
+ * the temporary instead. This includes the upper bound of a FOR loop, which is otherwise
+ * evaluated before every iteration.
+ *
+ * An expression is invariant in a loop when the loop assigns none of the variables it reads
+ * and it can neither fail nor change anything, since it now runs even when the loop runs
+ * zero times. A call in the loop is taken to change every global its callee or their callees
+ * can assign, as Purity finds them. A call is only moved when Purity proves its callee pure
+ * and total and it reads no global the loop can change. Array elements are never moved.
+ *
+ * Reading a variable that has no slot declares it, so such a variable is only moved when
+ * it is certain to have been read or assigned before the loop. Expressions move out of as
+ * many nested loops as they are invariant in, and the same expression in one loop shares
+ * one temporary.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class LoopInvariantMotion extends Rewriter
+{
+    private Purity purity;
+    private Set<String> declared = new HashSet<>(); // names without a slot that now exist
+    private List<Loop> loops = new ArrayList<>(); // the enclosing loops, outermost first
+    private int expressions;
+    private int bounds;
+    private int loopsChanged;
+
+    /**
+     * Moves the invariant expressions out of the loops of a program.
+     *
+     * Postcondition: Running the result produces the same output and errors as running
+     * the program.
+     *
+     * @param program the program
+     * @return the program with the expressions moved
+     */
+    public Program hoist(Program program)
+    {
+        purity = Purity.of(program);
+        return rewrite(program);
+    }
+
+    @Override
+    protected Statement rewriteBody(Statement body)
+    {
+        declared = new HashSet<>();
+        loops = new ArrayList<>();
+        return body.accept(this);
+    }
+
+    /**
+     * A loop being rewritten: what it can change, and the assignments to temporaries that go
+     * before it.
+     */
+    private final class Loop
+    {
+        private final Set<String> writes; // the variables the loop or its callees can change
+        private final Set<String> declared;
+        private final boolean closed; // nothing may move before this loop
+        private final List<Statement> hoisted = new ArrayList<>();
+        private final Map<String, Variable> temporaries = new HashMap<>();
+
+        /**
+         * Describes a loop.
+         *
+         * @param loop the loop
+         * @param closed whether nothing may move before the loop
+         */
+        private Loop(Statement loop, boolean closed)
+        {
+            this.writes = purity.getWrites(loop);
+            this.declared = new HashSet<>(LoopInvariantMotion.this.declared);
+            this.closed = closed;
+        }
+
+        /**
+         * Returns whether an expression has the same value in every iteration of this loop
+         * and can be evaluated before it.
+         *
+         * @param e the expression
+         * @return true if the expression can move before the loop
+         */
+        private boolean isInvariant(Expression e)
+        {
+            if (e instanceof Number)
+            {
+                return true;
+            }
+            if (e instanceof Variable v)
+            {
+                return !writes.contains(v.getName())
+                        && (v.getSlot() >= 0 || declared.contains(v.getName()));
+            }
+            if (e instanceof BinOp b)
+            {
+                if (Purity.canFail(b))
+                {
+                    return false;
+                }
+                return isInvariant(b.getExp1()) && isInvariant(b.getExp2());
+            }
+            if (e instanceof Condition c)
+            {
+                return isInvariant(c.getExp1()) && isInvariant(c.getExp2());
+            }
+            if (e instanceof BoolOp b)
+            {
+                return isInvariant(b.getExp1()) && isInvariant(b.getExp2());
+            }
+            if (e instanceof Not n)
+            {
+                return isInvariant(n.getExp());
+            }
+            if (e instanceof ProcedureCall p)
+            {
+                Set<String> reads = purity.getGlobalReads(p.getName());
+                if (!purity.isPure(p.getName()) || !purity.isTotal(p)
+                        || !Collections.disjoint(reads, writes))
+                {
+                    return false;
+                }
+                return Arrays.stream(p.getArgVals()).allMatch(this::isInvariant);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Replaces an expression with a temporary if it is invariant in an enclosing loop. It
+     * moves before the outermost such loop, and its own parts can move further out.
+     *
+     * @param e the expression, neither a constant nor a variable
+     * @return the temporary, or null if the expression stays
+     */
+    private Expression hoisted(Expression e)
+    {
+        for (int k = 0; k < loops.size(); k++)
+        {
+            Loop loop = loops.get(k);
+            if (!loop.closed && loop.isInvariant(e))
+            {
+                String key = ExpressionKey.of(e);
+                Variable temporary = loop.temporaries.get(key);
+                if (temporary == null)
+                {
+                    List<Loop> enclosing = loops;
+                    loops = new ArrayList<>(enclosing.subList(0, k));
+                    Expression value = k == 0 ? copy(e) : e.accept(this);
+                    loops = enclosing;
+                    temporary = newTemporary();
+                    loop.temporaries.put(key, temporary);
+                    loop.hoisted.add(new Assignment(copy(temporary), value));
+                    expressions++;
+                }
+                return copy(temporary);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Puts the assignments to a loop's temporaries before it.
+     *
+     * @param loop the loop
+     * @param rewritten the rewritten loop
+     * @return the loop, in a Block after the assignments if there are any
+     */
+    private Statement withHoisted(Loop loop, Statement rewritten)
+    {
+        if (loop.hoisted.isEmpty())
+        {
+            return rewritten;
+        }
+        loopsChanged++;
+        Block block = new Block();
+        for (Statement s : loop.hoisted)
+        {
+            block.addStatement(s);
+        }
+        block.addStatement(rewritten);
+        return block;
+    }
+
+    @Override
+    public Expression visitVariable(Variable v)
+    {
+        if (v.getSlot() < 0)
+        {
+            declared.add(v.getName());
+        }
+        return copy(v);
+    }
+
+    @Override
+    public Expression visitBinOp(BinOp b)
+    {
+        Expression temporary = hoisted(b);
+        return temporary != null ? temporary : super.visitBinOp(b);
+    }
+
+    @Override
+    public Expression visitCondition(Condition c)
+    {
+        Expression temporary = hoisted(c);
+        return temporary != null ? temporary : super.visitCondition(c);
+    }
+
+    /**
+     * Rewrites an AND or OR. The right operand does not always run, so the variables it
+     * declares are forgotten afterwards.
+     *
+     * @param b the operation
+     * @return the rewritten operation
+     */
+    @Override
+    public Expression visitBoolOp(BoolOp b)
+    {
+        Expression temporary = hoisted(b);
+        if (temporary != null)
+        {
+            return temporary;
+        }
+        Expression left = b.getExp1().accept(this);
+        Set<String> before = new HashSet<>(declared);
+        Expression right = b.getExp2().accept(this);
+        declared = before;
+        return new BoolOp(left, b.getOp(), right);
+    }
+
+    @Override
+    public Expression visitNot(Not n)
+    {
+        Expression temporary = hoisted(n);
+        return temporary != null ? temporary : super.visitNot(n);
+    }
+
+    @Override
+    public Expression visitProcedureCall(ProcedureCall p)
+    {
+        Expression temporary = hoisted(p);
+        return temporary != null ? temporary : super.visitProcedureCall(p);
+    }
+
+    @Override
+    public Statement visitAssignment(Assignment a)
+    {
+        Statement result = super.visitAssignment(a);
+        declared.add(a.getVar().getName());
+        return result;
+    }
+
+    @Override
+    public Statement visitReadln(Readln r)
+    {
+        declared.add(r.getVar().getName());
+        return super.visitReadln(r);
+    }
+
+    @Override
+    public Statement visitIf(If i)
+    {
+        Expression condition = i.getCondition().accept(this);
+        Set<String> before = new HashSet<>(declared);
+        Statement then = i.getStatement().accept(this);
+        Set<String> afterThen = declared;
+        declared = before;
+        if (i.getElse() == null)
+        {
+            return new If(condition, then);
+        }
+        Statement otherwise = i.getElse().accept(this);
+        declared.retainAll(afterThen);
+        return new If(condition, then, otherwise);
+    }
+
+    @Override
+    public Statement visitCase(Case c)
+    {
+        Expression selector = c.getSelector().accept(this);
+        Set<String> before = declared;
+        List<Set<String>> afterArms = new ArrayList<>();
+        Statement[] arms = new Statement[c.getArms().length];
+        for (int k = 0; k < arms.length; k++)
+        {
+            declared = new HashSet<>(before);
+            arms[k] = c.getArms()[k].accept(this);
+            afterArms.add(declared);
+        }
+        declared = new HashSet<>(before);
+        Statement otherwise = c.getElse() == null ? null : c.getElse().accept(this);
+        afterArms.forEach(declared::retainAll);
+        return new Case(selector, c.getLabels(), c.getTargets(), arms, otherwise);
+    }
+
+    /**
+     * Moves the invariant expressions of a WHILE loop's condition and body before it. The
+     * condition always runs at least once, but the body may not.
+     *
+     * @param w the loop
+     * @return the rewritten loop
+     */
+    @Override
+    public Statement visitWhile(While w)
+    {
+        Loop loop = new Loop(w, false);
+        loops.add(loop);
+        Expression condition = w.getCondition().accept(this);
+        Set<String> afterTest = new HashSet<>(declared);
+        Statement body = w.getBody().accept(this);
+        declared = afterTest;
+        loops.remove(loop);
+        return withHoisted(loop, new While(condition, body));
+    }
+
+    /**
+     * Moves the invariant expressions of a FOR loop's bound and body before it. They then
+     * run before the assignment to the loop variable, so nothing moves before a loop whose
+     * assignment calls a procedure.
+     *
+     * @param f the loop
+     * @return the rewritten loop
+     */
+    @Override
+    public Statement visitFor(For f)
+    {
+        Loop loop = new Loop(f, VariableUses.of(f.getInitialization()).hasCall());
+        Assignment initialization = (Assignment) visitAssignment(f.getInitialization());
+        loops.add(loop);
+        Expression maxVal = f.getMaxVal().accept(this);
+        if (maxVal instanceof Variable && !(f.getMaxVal() instanceof Variable))
+        {
+            bounds++;
+        }
+        Set<String> afterTest = new HashSet<>(declared);
+        Statement body = f.getBody().accept(this);
+        declared = afterTest;
+        loops.remove(loop);
+        return withHoisted(loop, new For(initialization, maxVal, body));
+    }
+
+    /**
+     * Describes what the last hoist moved.
+     *
+     * @return the report, one item per line
+     */
+    public String getReport()
+    {
+        return "invariant expressions hoisted: " + expressions + "\n"
+                + "loop bounds hoisted: " + bounds + "\n"
+                + "loops changed: " + loopsChanged + "\n";
+    }
+}
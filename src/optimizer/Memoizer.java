@@ -0,0 +1,184 @@
+package optimizer;
+
+import ast.*;
+import java.util.*;
+
+/**
+ * Remembers the results of calls to procedures whose result depends only on their
+ * arguments, so a call with arguments seen before returns at once instead of running the
+ * body again. This turns the exponential recursion of a procedure like fib into a linear
+ * one.
+ *
+ * A procedure is memoized when Purity proves it pure and it reads no global variable, even
+ * through its callees: it then has no effect, and the same arguments always give the same
+ * result. A call that fails or does not return leaves nothing in the cache, so it fails or
+ * runs again the next time. Each procedure has its own cache of a fixed number of argument
+ * lists, which drops the one used least recently when it is full.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class Memoizer implements MemoHook
+{
+    private final Map<String, ProcedureDeclaration> procedures = new HashMap<>();
+    private final Map<String, Cache> caches = new TreeMap<>();
+
+    /**
+     * The remembered results of one procedure, least recently used first.
+     */
+    public static final class Cache implements MemoHook.Cache
+    {
+        private final Map<Arguments, Integer> results;
+        private long hits;
+        private long misses;
+        private long evictions;
+
+        /**
+         * Creates an empty cache.
+         *
+         * @param capacity the largest number of argument lists it holds
+         */
+        private Cache(int capacity)
+        {
+            results = new LinkedHashMap<>(16, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Arguments, Integer> eldest)
+                {
+                    if (size() > capacity)
+                    {
+                        evictions++;
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        /**
+         * Looks up the result of a call, counting a hit or a miss.
+         *
+         * @param args the values of the arguments
+         * @return the result, or null if it is not remembered
+         */
+        @Override
+        public Integer get(int[] args)
+        {
+            Integer result = results.get(new Arguments(args));
+            if (result == null)
+            {
+                misses++;
+            }
+            else
+            {
+                hits++;
+            }
+            return result;
+        }
+
+        /**
+         * Remembers the result of a call.
+         *
+         * @param args the values of the arguments
+         * @param result the result
+         */
+        @Override
+        public void put(int[] args, int result)
+        {
+            results.put(new Arguments(args), result);
+        }
+    }
+
+    /**
+     * The values of the arguments of a call, compared by content.
+     */
+    private static final class Arguments
+    {
+        private final int[] values;
+        private final int hash;
+
+        /**
+         * Wraps argument values.
+         *
+         * @param values the values, which are not changed afterwards
+         */
+        private Arguments(int[] values)
+        {
+            this.values = values;
+            this.hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            return o instanceof Arguments a && Arrays.equals(values, a.values);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+
+    /**
+     * Finds the procedures of a program that can be memoized.
+     *
+     * Precondition: capacity > 0
+     *
+     * @param program the program that will run
+     * @param capacity the largest number of argument lists remembered per procedure
+     */
+    public Memoizer(Program program, int capacity)
+    {
+        Purity purity = Purity.of(program);
+        Program p = program;
+        while (p.getMainBody() == null)
+        {
+            if (p.getProcedure() != null)
+            {
+                procedures.put(p.getProcedure().getName(), p.getProcedure());
+            }
+            p = p.getChildProgram();
+        }
+        for (String name : procedures.keySet())
+        {
+            if (purity.isPure(name) && purity.getGlobalReads(name).isEmpty())
+            {
+                caches.put(name, new Cache(capacity));
+            }
+        }
+    }
+
+    /**
+     * Returns the cache of a procedure.
+     *
+     * @param p the procedure being called
+     * @return the cache, or null if the procedure is not memoized
+     */
+    @Override
+    public Cache getCache(ProcedureDeclaration p)
+    {
+        return procedures.get(p.getName()) == p ? caches.get(p.getName()) : null;
+    }
+
+    /**
+     * Describes the memoized procedures: for each, the hits, the misses, the results
+     * dropped to make room and the results it holds now.
+     *
+     * @return the report, one procedure per line
+     */
+    public String getReport()
+    {
+        StringBuilder report = new StringBuilder();
+        report.append("memoized procedures: ").append(caches.size()).append('\n');
+        for (Map.Entry<String, Cache> e : caches.entrySet())
+        {
+            Cache c = e.getValue();
+            report.append(e.getKey()).append(": ").append(c.hits).append(" hits, ")
+                    .append(c.misses).append(" misses, ").append(c.evictions)
+                    .append(" evicted, ").append(c.results.size()).append(" cached\n");
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,202 @@
+package optimizer;
+
+import ast.*;
+import ast.Number;
+
+/**
+ * Counts the nodes of a program, so the passes can report how much they removed. The loop
+ * condition and update statement a For builds for itself are not counted.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+final class NodeCounter implements ExpressionVisitor<Integer>, StatementVisitor<Integer>
+{
+    private static final NodeCounter INSTANCE = new NodeCounter();
+
+    /**
+     * NodeCounter is used through the count methods.
+     */
+    private NodeCounter()
+    {
+    }
+
+    /**
+     * Counts the nodes of a program: its declarations, the procedure bodies and the main
+     * body.
+     *
+     * @param program the program
+     * @return the number of nodes
+     */
+    static int count(Program program)
+    {
+        int n = 0;
+        Program p = program;
+        while (p.getMainBody() == null)
+        {
+            n += p.getDeclarations() != null ? p.getDeclarations().accept(INSTANCE)
+                    : p.getProcedure().accept(INSTANCE);
+            p = p.getChildProgram();
+        }
+        return n + p.getMainBody().accept(INSTANCE);
+    }
+
+    /**
+     * Counts the nodes of a statement.
+     *
+     * @param s the statement
+     * @return the number of nodes
+     */
+    static int count(Statement s)
+    {
+        return s.accept(INSTANCE);
+    }
+
+    /**
+     * Counts the nodes of an expression.
+     *
+     * @param e the expression
+     * @return the number of nodes
+     */
+    static int count(Expression e)
+    {
+        return e.accept(INSTANCE);
+    }
+
+    @Override
+    public Integer visitNumber(Number n)
+    {
+        return 1;
+    }
+
+    @Override
+    public Integer visitVariable(Variable v)
+    {
+        return 1;
+    }
+
+    @Override
+    public Integer visitBinOp(BinOp b)
+    {
+        return 1 + b.getExp1().accept(this) + b.getExp2().accept(this);
+    }
+
+    @Override
+    public Integer visitCondition(Condition c)
+    {
+        return 1 + c.getExp1().accept(this) + c.getExp2().accept(this);
+    }
+
+    @Override
+    public Integer visitBoolOp(BoolOp b)
+    {
+        return 1 + b.getExp1().accept(this) + b.getExp2().accept(this);
+    }
+
+    @Override
+    public Integer visitNot(Not n)
+    {
+        return 1 + n.getExp().accept(this);
+    }
+
+    @Override
+    public Integer visitProcedureCall(ProcedureCall p)
+    {
+        int n = 1;
+        for (Expression a : p.getArgVals())
+        {
+            n += a.accept(this);
+        }
+        return n;
+    }
+
+    @Override
+    public Integer visitArrayElement(ArrayElement a)
+    {
+        return 1 + a.getIndex().accept(this);
+    }
+
+    @Override
+    public Integer visitBlock(Block b)
+    {
+        int n = 1;
+        for (Statement s : b.getStatements())
+        {
+            n += s.accept(this);
+        }
+        return n;
+    }
+
+    @Override
+    public Integer visitAssignment(Assignment a)
+    {
+        return 1 + a.getVar().accept(this) + a.getExpr().accept(this);
+    }
+
+    @Override
+    public Integer visitWriteln(Writeln w)
+    {
+        return 1 + w.getExpr().accept(this);
+    }
+
+    @Override
+    public Integer visitReadln(Readln r)
+    {
+        return 1 + r.getVar().accept(this);
+    }
+
+    @Override
+    public Integer visitIf(If i)
+    {
+        int n = 1 + i.getCondition().accept(this) + i.getStatement().accept(this);
+        return i.getElse() == null ? n : n + i.getElse().accept(this);
+    }
+
+    @Override
+    public Integer visitCase(Case c)
+    {
+        int n = 1 + c.getSelector().accept(this);
+        for (Statement arm : c.getArms())
+        {
+            n += arm.accept(this);
+        }
+        return c.getElse() == null ? n : n + c.getElse().accept(this);
+    }
+
+    @Override
+    public Integer visitWhile(While w)
+    {
+        return 1 + w.getCondition().accept(this) + w.getBody().accept(this);
+    }
+
+    @Override
+    public Integer visitFor(For f)
+    {
+        return 1 + f.getInitialization().accept(this) + f.getMaxVal().accept(this)
+                + f.getBody().accept(this);
+    }
+
+    @Override
+    public Integer visitProcedureDeclaration(ProcedureDeclaration p)
+    {
+        return 1 + p.getBody().accept(this);
+    }
+
+    @Override
+    public Integer visitArrayDeclaration(ArrayDeclaration a)
+    {
+        return 1 + a.getSize().accept(this);
+    }
+
+    @Override
+    public Integer visitArrayAssignment(ArrayAssignment a)
+    {
+        return 1 + a.getIndex().accept(this) + a.getExpr().accept(this);
+    }
+
+    @Override
+    public Integer visitVarDeclaration(VarDeclaration v)
+    {
+        return 1;
+    }
+}
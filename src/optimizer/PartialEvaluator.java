@@ -0,0 +1,530 @@
+package optimizer;
+
+import ast.*;
+import ast.Number;
+import environment.Environment;
+import java.util.*;
+
+/**
+ * Specializes a program to inputs that are known in advance, leaving a residual program that
+ * only reads the inputs that are not. Every READLN into a variable whose name has a known
+ * value becomes an assignment of that value, and the residual program is then evaluated as
+ * far as the known values allow:
+ *
+ * Constants are folded and propagated by the ConstantFolder. A global that the main body
+ * sets to a constant before anything can read it or call a procedure, and that nothing
+ * else assigns, is replaced by its value everywhere, in the procedures too. A FOR loop whose
+ * bounds are constants and whose body cannot assign its variable is unrolled into one copy
+ * of the body per iteration, each after an assignment of the iteration's value. A call whose
+ * arguments are all constants is replaced by its value when Purity proves its procedure
+ * pure and total and it reads no global, since it then always returns the same value and
+ * does nothing else. Any other call with constant arguments calls a copy of its procedure
+ * that takes only the other arguments and assigns the constants to the parameters as
+ * locals, so the copy can be folded in turn.
+ *
+ * These steps repeat until nothing changes, for at most MAX_ROUNDS rounds, and the unrolled
+ * loops and procedure copies may add at most maxGrowth nodes. The copies are named after
+ * their procedures followed by $ and a number, which no program can call. WHILE loops are
+ * left as they are.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class PartialEvaluator extends Rewriter
+{
+    public static final int DEFAULT_MAX_UNROLL = 64;
+    public static final int DEFAULT_MAX_GROWTH = 10000;
+    public static final int MAX_ROUNDS = 32;
+
+    private final Map<String, Integer> inputs;
+    private final int maxUnroll;
+    private final int maxGrowth;
+    private final Map<String, ProcedureDeclaration> originals = new HashMap<>();
+    private final Map<String, Variant> variants = new HashMap<>(); // by name
+    private final Map<String, String> names = new HashMap<>(); // variant name by key
+    private final List<ProcedureDeclaration> created = new ArrayList<>(); // in this round
+    private final Set<String> called = new HashSet<>(); // copies called in this round
+    private Map<String, Integer> invariants = new HashMap<>(); // by identity
+    private Purity purity;
+    private Environment procedures; // where calls are evaluated
+    private boolean changed;
+    private int growth;
+    private int rounds;
+    private int reads;
+    private int substituted;
+    private int unrolled;
+    private int iterations;
+    private int specialized;
+    private int evaluated;
+
+    /**
+     * A copy of a procedure with some of its arguments fixed.
+     */
+    private static final class Variant
+    {
+        final String origin;
+        final Map<Integer, Integer> constants; // the value of each fixed argument, by index
+        final int[] dynamic; // the index in the origin of each argument the copy takes
+        ProcedureDeclaration declaration; // the copy as the last round left it
+
+        /**
+         * Constructs a Variant.
+         *
+         * @param origin the name of the procedure copied
+         * @param constants the value of each fixed argument, by index
+         * @param dynamic the index in the origin of each argument the copy takes
+         */
+        Variant(String origin, Map<Integer, Integer> constants, int[] dynamic)
+        {
+            this.origin = origin;
+            this.constants = constants;
+            this.dynamic = dynamic;
+        }
+    }
+
+    /**
+     * Constructs a PartialEvaluator with the default limits.
+     *
+     * @param inputs the value read into each variable whose input is known, by name
+     */
+    public PartialEvaluator(Map<String, Integer> inputs)
+    {
+        this(inputs, DEFAULT_MAX_UNROLL, DEFAULT_MAX_GROWTH);
+    }
+
+    /**
+     * Constructs a PartialEvaluator.
+     *
+     * @param inputs the value read into each variable whose input is known, by name
+     * @param maxUnroll the largest number of iterations of an unrolled loop
+     * @param maxGrowth the number of nodes unrolled loops and procedure copies may add
+     */
+    public PartialEvaluator(Map<String, Integer> inputs, int maxUnroll, int maxGrowth)
+    {
+        this.inputs = new HashMap<>(inputs);
+        this.maxUnroll = maxUnroll;
+        this.maxGrowth = maxGrowth;
+    }
+
+    /**
+     * Specializes a program to the known inputs.
+     *
+     * Postcondition: Running the result with the inputs that are not known produces the
+     * same output and errors as running the program with all of them, as long as every
+     * READLN into a variable with a known value would have read that value.
+     *
+     * @param program the program
+     * @return the residual program
+     */
+    public Program specialize(Program program)
+    {
+        for (Program p = program; p.getMainBody() == null; p = p.getChildProgram())
+        {
+            if (p.getProcedure() != null)
+            {
+                // a later declaration with the same name replaces an earlier one
+                originals.put(p.getProcedure().getName(), p.getProcedure());
+            }
+        }
+        Program result = program;
+        changed = true;
+        while (changed && rounds < MAX_ROUNDS)
+        {
+            rounds++;
+            changed = false;
+            result = new ConstantFolder().optimize(result);
+            purity = Purity.of(result);
+            procedures = new Environment();
+            for (Program p = result; p.getMainBody() == null; p = p.getChildProgram())
+            {
+                if (p.getProcedure() != null)
+                {
+                    procedures.setProcedure(p.getProcedure().getName(), p.getProcedure());
+                }
+            }
+            invariants = invariants(result);
+            result = rewrite(result);
+        }
+        return new ConstantFolder().optimize(result);
+    }
+
+    /**
+     * Finds the globals that hold one constant whenever anything reads them: the main body
+     * assigns them the constant before it reads them or calls a procedure, and nothing
+     * else assigns a variable with their name, except with the same constant.
+     *
+     * @param program the program
+     * @return the value of each such global, by identity
+     */
+    private static Map<String, Integer> invariants(Program program)
+    {
+        List<Statement> bodies = new ArrayList<>();
+        Program p = program;
+        for (; p.getMainBody() == null; p = p.getChildProgram())
+        {
+            if (p.getProcedure() != null)
+            {
+                bodies.add(p.getProcedure().getBody());
+            }
+        }
+        Statement main = p.getMainBody();
+        List<Statement> statements = main instanceof Block b ? b.getStatements() : List.of(main);
+        Map<String, Integer> found = new HashMap<>();
+        Map<String, String> named = new HashMap<>(); // identity by name
+        Set<String> seen = new HashSet<>(); // names read or assigned before their constant
+        boolean before = true; // no call has been made yet
+        for (Statement s : statements)
+        {
+            if (s instanceof Assignment a && a.getExpr() instanceof Number n
+                    && !a.getVar().isLocal())
+            {
+                String name = a.getVar().getName();
+                Integer value = found.get(identity(a.getVar()));
+                if (before && value == null && !seen.contains(name))
+                {
+                    found.put(identity(a.getVar()), n.getValue());
+                    named.put(name, identity(a.getVar()));
+                    seen.add(name);
+                    continue;
+                }
+                if (value != null && value == n.getValue())
+                {
+                    continue;
+                }
+            }
+            VariableUses uses = VariableUses.of(s);
+            before &= !uses.hasCall();
+            if (before)
+            {
+                seen.addAll(uses.getReads());
+            }
+            seen.addAll(uses.getWrites());
+            bodies.add(s);
+        }
+        for (Statement s : bodies)
+        {
+            for (String name : VariableUses.of(s).getWrites())
+            {
+                found.remove(named.getOrDefault(name, ""));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Adds the procedure copies made in this round to the declarations, and the copies that
+     * the ConstantFolder dropped while nothing called them but that are called again now.
+     *
+     * @param declarations the rewritten declarations, in program order
+     * @param main the rewritten main body
+     * @return the declarations followed by the copies to add
+     */
+    @Override
+    protected List<Statement> select(List<Statement> declarations, Statement main)
+    {
+        List<Statement> result = new ArrayList<>(declarations);
+        for (Statement d : declarations)
+        {
+            if (d instanceof ProcedureDeclaration p && variants.containsKey(p.getName()))
+            {
+                variants.get(p.getName()).declaration = p;
+                called.remove(p.getName());
+            }
+        }
+        for (ProcedureDeclaration p : created)
+        {
+            called.remove(p.getName());
+        }
+        for (String name : called)
+        {
+            changed = true;
+            result.add(variants.get(name).declaration);
+        }
+        result.addAll(created);
+        created.clear();
+        called.clear();
+        return result;
+    }
+
+    @Override
+    public Expression visitVariable(Variable v)
+    {
+        Integer value = v.isLocal() ? null : invariants.get(identity(v));
+        if (value == null)
+        {
+            return copy(v);
+        }
+        changed = true;
+        substituted++;
+        return new Number(value);
+    }
+
+    @Override
+    public Statement visitReadln(Readln r)
+    {
+        Integer value = inputs.get(r.getVar().getName());
+        if (value == null)
+        {
+            return super.visitReadln(r);
+        }
+        changed = true;
+        reads++;
+        return new Assignment(copy(r.getVar()), new Number(value));
+    }
+
+    /**
+     * Unrolls a FOR loop whose bounds are constants and whose body, counting the procedures
+     * it calls, cannot assign its variable. The loop variable is assigned before each copy
+     * of the body and once more after the last, so it ends as the loop would leave it.
+     *
+     * @param f the loop
+     * @return the unrolled loop, or the loop
+     */
+    @Override
+    public Statement visitFor(For f)
+    {
+        For loop = (For) super.visitFor(f);
+        Variable v = loop.getInitialization().getVar();
+        if (!(loop.getInitialization().getExpr() instanceof Number start)
+                || !(loop.getMaxVal() instanceof Number bound)
+                || purity.getWrites(f.getBody()).contains(v.getName()))
+        {
+            return loop;
+        }
+        long trips = Math.max(0, (long) bound.getValue() - start.getValue());
+        long added = trips * NodeCounter.count(loop.getBody());
+        if (trips > maxUnroll || growth + added > maxGrowth)
+        {
+            return loop;
+        }
+        growth += (int) added;
+        changed = true;
+        unrolled++;
+        iterations += (int) trips;
+        Block block = new Block();
+        for (int k = 0; k < trips; k++)
+        {
+            block.addStatement(new Assignment(copy(v), new Number(start.getValue() + k)));
+            block.addStatement(copy(loop.getBody()));
+        }
+        block.addStatement(new Assignment(copy(v),
+                new Number(Math.max(start.getValue(), bound.getValue()))));
+        return block;
+    }
+
+    /**
+     * Replaces a call with constant arguments by a call to the copy of its procedure for
+     * those arguments, making the copy the first time.
+     *
+     * @param p the call
+     * @return the call to the copy, or the call
+     */
+    @Override
+    public Expression visitProcedureCall(ProcedureCall p)
+    {
+        ProcedureCall call = (ProcedureCall) super.visitProcedureCall(p);
+        Variant from = variants.get(call.getName());
+        if (from != null)
+        {
+            called.add(call.getName());
+        }
+        String origin = from == null ? call.getName() : from.origin;
+        ProcedureDeclaration declaration = originals.get(origin);
+        Expression[] args = call.getArgVals();
+        if (declaration == null || !specializable(declaration)
+                || args.length != (from == null ? declaration.getArgs().length
+                        : from.dynamic.length))
+        {
+            return call; // the call fails at run time as before
+        }
+        Map<Integer, Integer> constants = new TreeMap<>(from == null ? Map.of() : from.constants);
+        List<Expression> rest = new ArrayList<>();
+        for (int i = 0; i < args.length; i++)
+        {
+            int index = from == null ? i : from.dynamic[i];
+            if (args[i] instanceof Number n)
+            {
+                constants.put(index, n.getValue());
+            }
+            else
+            {
+                rest.add(args[i]);
+            }
+        }
+        if (rest.isEmpty() && purity.isPure(call.getName()) && purity.isTotal(call)
+                && purity.getGlobalReads(call.getName()).isEmpty())
+        {
+            changed = true;
+            evaluated++;
+            return new Number(call.eval(procedures, new ExecutionContext()));
+        }
+        if (rest.size() == args.length)
+        {
+            return call;
+        }
+        String name = variant(declaration, constants);
+        if (name == null)
+        {
+            return call;
+        }
+        changed = true;
+        specialized++;
+        called.add(name);
+        return new ProcedureCall(name, rest.toArray(new Expression[0]));
+    }
+
+    /**
+     * Returns whether copies of a procedure can take fewer arguments: no two parameters,
+     * and no parameter and the procedure, share a name and so a slot.
+     *
+     * @param p the procedure
+     * @return true if the procedure can be specialized
+     */
+    private static boolean specializable(ProcedureDeclaration p)
+    {
+        Set<String> params = new HashSet<>(Arrays.asList(p.getArgs()));
+        return params.size() == p.getArgs().length && !params.contains(p.getName());
+    }
+
+    /**
+     * Returns the copy of a procedure for some constant arguments, making it if there is
+     * room for it.
+     *
+     * @param p the procedure
+     * @param constants the value of each fixed argument, by index
+     * @return the name of the copy, or null if it would grow the program too much
+     */
+    private String variant(ProcedureDeclaration p, Map<Integer, Integer> constants)
+    {
+        String key = p.getName() + constants;
+        String name = names.get(key);
+        if (name != null)
+        {
+            return name;
+        }
+        int size = NodeCounter.count(p.getBody()) + constants.size();
+        if (growth + size > maxGrowth)
+        {
+            return null;
+        }
+        growth += size;
+        name = p.getName() + "$" + (names.size() + 1);
+        String[] params = p.getArgs();
+        int[] dynamic = new int[params.length - constants.size()];
+        List<String> args = new ArrayList<>();
+        List<String> locals = new ArrayList<>();
+        for (int i = 0; i < params.length; i++)
+        {
+            if (constants.containsKey(i))
+            {
+                locals.add(params[i]);
+            }
+            else
+            {
+                dynamic[args.size()] = i;
+                args.add(params[i]);
+            }
+        }
+        Map<String, Integer> arrays = new LinkedHashMap<>();
+        if (p.getLocals() != null)
+        {
+            locals.addAll(p.getLocals().getNames());
+            arrays.putAll(p.getLocals().getArrays());
+        }
+        VarDeclaration section = new VarDeclaration(locals, arrays);
+        String[] argNames = args.toArray(new String[0]);
+        Map<String, Integer> layout = ProcedureDeclaration.layoutFrame(name, argNames, section);
+        Block body = new Block();
+        for (Map.Entry<Integer, Integer> c : constants.entrySet())
+        {
+            String param = params[c.getKey()];
+            body.addStatement(new Assignment(new Variable(param, layout.get(param), true),
+                    new Number(c.getValue())));
+        }
+        body.addStatement(p.getBody().accept(new Reframer(p.getName(), name, layout)));
+        Variant v = new Variant(p.getName(), constants, dynamic);
+        v.declaration = new ProcedureDeclaration(name, argNames, section, body);
+        names.put(key, name);
+        variants.put(name, v);
+        created.add(v.declaration);
+        return name;
+    }
+
+    /**
+     * Copies the body of a procedure into the frame of one of its copies: each slot of the
+     * frame moves to the slot with its name in the copy, and the return variable takes the
+     * name of the copy.
+     */
+    private static final class Reframer extends Rewriter
+    {
+        private final String from;
+        private final String to;
+        private final Map<String, Integer> layout;
+
+        /**
+         * Constructs a Reframer.
+         *
+         * @param from the name of the procedure
+         * @param to the name of the copy
+         * @param layout the frame of the copy
+         */
+        Reframer(String from, String to, Map<String, Integer> layout)
+        {
+            this.from = from;
+            this.to = to;
+            this.layout = layout;
+        }
+
+        /**
+         * Moves a variable into the frame of the copy.
+         *
+         * @param v the variable
+         * @return the variable in the copy
+         */
+        private Variable reframe(Variable v)
+        {
+            if (!v.isLocal() || v.getSlot() < 0)
+            {
+                return copy(v);
+            }
+            String name = v.getName().equals(from) ? to : v.getName();
+            return new Variable(name, layout.get(name), true);
+        }
+
+        @Override
+        public Expression visitVariable(Variable v)
+        {
+            return reframe(v);
+        }
+
+        @Override
+        public Statement visitAssignment(Assignment a)
+        {
+            Expression value = a.getExpr().accept(this);
+            return new Assignment(reframe(a.getVar()), value);
+        }
+
+        @Override
+        public Statement visitReadln(Readln r)
+        {
+            return new Readln(reframe(r.getVar()));
+        }
+    }
+
+    /**
+     * Describes what the last specialization changed.
+     *
+     * @return the report, one item per line
+     */
+    public String getReport()
+    {
+        return "partial evaluation: " + rounds + " rounds, " + growth + " of " + maxGrowth
+                + " nodes added\n"
+                + "known inputs read: " + reads + "\n"
+                + "invariant globals substituted: " + substituted + "\n"
+                + "loops unrolled: " + unrolled + " (" + iterations + " iterations)\n"
+                + "calls evaluated: " + evaluated + "\n"
+                + "calls specialized: " + specialized + " (" + names.size()
+                + " procedure copies)\n";
+    }
+}
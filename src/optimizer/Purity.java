@@ -0,0 +1,417 @@
+package optimizer;
+
+import ast.*;
+import ast.Number;
+import java.util.*;
+
+/**
+ * Finds out which procedures of a program are pure and which are total, so passes can
+ * move, merge or drop calls to them.
+ *
+ * A pure procedure has no effect a caller can see and its result depends only on its
+ * arguments and the global variables it reads: it assigns only the slots of its own frame,
+ * does no input or output, uses no arrays, and calls only pure procedures. A total
+ * procedure always returns: it has no loops, no division except by a nonzero constant, no
+ * array elements, and calls only total procedures with the right number of arguments, so
+ * it cannot be recursive either.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class Purity
+{
+    private final Map<String, ProcedureDeclaration> procedures = new HashMap<>();
+    private final Map<String, Facts> facts = new HashMap<>();
+    private final Set<String> pure = new HashSet<>();
+    private final Set<String> total = new HashSet<>();
+    private final Map<String, Set<String>> globalReads = new HashMap<>();
+    private final Map<String, Set<String>> globalWrites = new HashMap<>();
+
+    /**
+     * Purity is created by the of method.
+     */
+    private Purity()
+    {
+    }
+
+    /**
+     * Analyzes the procedures of a program. Of several procedures with the same name only
+     * the last one is ever called, so only that one is analyzed.
+     *
+     * @param program the program
+     * @return the analysis
+     */
+    public static Purity of(Program program)
+    {
+        Purity purity = new Purity();
+        Program p = program;
+        while (p.getMainBody() == null)
+        {
+            if (p.getProcedure() != null)
+            {
+                purity.procedures.put(p.getProcedure().getName(), p.getProcedure());
+            }
+            p = p.getChildProgram();
+        }
+        purity.analyze();
+        return purity;
+    }
+
+    /**
+     * Returns whether evaluating an expression can fail by itself, apart from its operands:
+     * whether it divides by anything but a nonzero constant.
+     *
+     * @param e the expression
+     * @return true if e is a division that can fail
+     */
+    public static boolean canFail(Expression e)
+    {
+        return e instanceof BinOp b && b.getOp().equals("/")
+                && !(b.getExp2() instanceof Number n && n.getValue() != 0);
+    }
+
+    /**
+     * Collects what each procedure does on its own, then combines it with what its callees
+     * do until nothing changes. Purity starts from every candidate and removes those that
+     * call impure procedures; totality starts from none and adds those whose callees are
+     * all total, which leaves out every cycle of calls.
+     */
+    private void analyze()
+    {
+        for (ProcedureDeclaration p : procedures.values())
+        {
+            Facts f = new Facts();
+            p.getBody().accept(f);
+            facts.put(p.getName(), f);
+            globalReads.put(p.getName(), new HashSet<>(f.reads));
+            globalWrites.put(p.getName(), new HashSet<>(f.writes));
+            if (!f.effects)
+            {
+                pure.add(p.getName());
+            }
+        }
+        boolean changed = true;
+        while (changed)
+        {
+            changed = false;
+            for (Map.Entry<String, Facts> e : facts.entrySet())
+            {
+                String name = e.getKey();
+                Facts f = e.getValue();
+                for (ProcedureCall call : f.calls)
+                {
+                    if (pure.contains(name) && !pure.contains(call.getName()))
+                    {
+                        pure.remove(name);
+                        changed = true;
+                    }
+                    Set<String> reads = globalReads.get(call.getName());
+                    if (reads != null && globalReads.get(name).addAll(reads))
+                    {
+                        changed = true;
+                    }
+                    Set<String> writes = globalWrites.get(call.getName());
+                    if (writes != null && globalWrites.get(name).addAll(writes))
+                    {
+                        changed = true;
+                    }
+                }
+                if (!total.contains(name) && !f.fails
+                        && f.calls.stream().allMatch(this::isTotal))
+                {
+                    total.add(name);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns whether a procedure is pure.
+     *
+     * @param name the name of the procedure
+     * @return true if the procedure exists and is pure
+     */
+    public boolean isPure(String name)
+    {
+        return pure.contains(name);
+    }
+
+    /**
+     * Returns whether a call always returns, counting the evaluation of its arguments.
+     *
+     * @param call the call
+     * @return true if the procedure exists, takes that many arguments and is total
+     */
+    public boolean isTotal(ProcedureCall call)
+    {
+        ProcedureDeclaration p = procedures.get(call.getName());
+        return p != null && p.getArgs().length == call.getArgVals().length
+                && total.contains(call.getName());
+    }
+
+    /**
+     * Returns the global variables a procedure or its callees can read: the variables
+     * without a slot and the global slots. A variable without a slot may turn out to be
+     * local when the procedure runs, so the set can be larger than needed.
+     *
+     * @param name the name of the procedure
+     * @return the names, empty if the procedure does not exist
+     */
+    public Set<String> getGlobalReads(String name)
+    {
+        return globalReads.getOrDefault(name, Set.of());
+    }
+
+    /**
+     * Returns the global variables a procedure or its callees can assign or read into. A
+     * procedure can only assign a global that already exists, and only through a name
+     * that is not a slot of its frame, so no other variable of its caller can change.
+     *
+     * @param name the name of the procedure
+     * @return the names, empty if the procedure does not exist
+     */
+    public Set<String> getGlobalWrites(String name)
+    {
+        return globalWrites.getOrDefault(name, Set.of());
+    }
+
+    /**
+     * Returns the variables a statement can assign or read into, counting the globals that
+     * the procedures it calls can assign.
+     *
+     * @param s the statement
+     * @return the names
+     */
+    public Set<String> getWrites(Statement s)
+    {
+        VariableUses uses = VariableUses.of(s);
+        Set<String> writes = new HashSet<>(uses.getWrites());
+        for (String callee : uses.getCalls())
+        {
+            writes.addAll(getGlobalWrites(callee));
+        }
+        return writes;
+    }
+
+    /**
+     * Returns the variables an expression can read, counting the globals that the
+     * procedures it calls can read.
+     *
+     * @param e the expression
+     * @return the names
+     */
+    public Set<String> getReads(Expression e)
+    {
+        VariableUses uses = VariableUses.of(e);
+        Set<String> reads = new HashSet<>(uses.getReads());
+        for (String callee : uses.getCalls())
+        {
+            reads.addAll(getGlobalReads(callee));
+        }
+        return reads;
+    }
+
+    /**
+     * What the body of one procedure does, not counting its callees.
+     */
+    private static final class Facts implements ExpressionVisitor<Void>, StatementVisitor<Void>
+    {
+        private boolean effects; // assigns beyond its frame, does I/O or uses arrays
+        private boolean fails; // can fail or run forever
+        private final Set<String> reads = new HashSet<>();
+        private final Set<String> writes = new HashSet<>();
+        private final List<ProcedureCall> calls = new ArrayList<>();
+
+        @Override
+        public Void visitNumber(Number n)
+        {
+            return null;
+        }
+
+        @Override
+        public Void visitVariable(Variable v)
+        {
+            if (v.getSlot() < 0 || !v.isLocal())
+            {
+                reads.add(v.getName());
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitBinOp(BinOp b)
+        {
+            if (canFail(b))
+            {
+                fails = true;
+            }
+            b.getExp1().accept(this);
+            b.getExp2().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitCondition(Condition c)
+        {
+            c.getExp1().accept(this);
+            c.getExp2().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitBoolOp(BoolOp b)
+        {
+            b.getExp1().accept(this);
+            b.getExp2().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitNot(Not n)
+        {
+            n.getExp().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitProcedureCall(ProcedureCall p)
+        {
+            calls.add(p);
+            for (Expression a : p.getArgVals())
+            {
+                a.accept(this);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitArrayElement(ArrayElement a)
+        {
+            effects = true;
+            fails = true;
+            a.getIndex().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitBlock(Block b)
+        {
+            for (Statement s : b.getStatements())
+            {
+                s.accept(this);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitAssignment(Assignment a)
+        {
+            Variable v = a.getVar();
+            if (v.getSlot() < 0 || !v.isLocal())
+            {
+                effects = true;
+                writes.add(v.getName());
+            }
+            a.getExpr().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitWriteln(Writeln w)
+        {
+            effects = true;
+            w.getExpr().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitReadln(Readln r)
+        {
+            effects = true;
+            Variable v = r.getVar();
+            if (v.getSlot() < 0 || !v.isLocal())
+            {
+                writes.add(v.getName());
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitIf(If i)
+        {
+            i.getCondition().accept(this);
+            i.getStatement().accept(this);
+            if (i.getElse() != null)
+            {
+                i.getElse().accept(this);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitCase(Case c)
+        {
+            c.getSelector().accept(this);
+            for (Statement arm : c.getArms())
+            {
+                arm.accept(this);
+            }
+            if (c.getElse() != null)
+            {
+                c.getElse().accept(this);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitWhile(While w)
+        {
+            fails = true;
+            w.getCondition().accept(this);
+            w.getBody().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitFor(For f)
+        {
+            fails = true;
+            f.getInitialization().accept(this);
+            f.getMaxVal().accept(this);
+            f.getBody().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitProcedureDeclaration(ProcedureDeclaration p)
+        {
+            return null;
+        }
+
+        @Override
+        public Void visitArrayDeclaration(ArrayDeclaration a)
+        {
+            effects = true;
+            fails = true;
+            a.getSize().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitArrayAssignment(ArrayAssignment a)
+        {
+            effects = true;
+            fails = true;
+            a.getIndex().accept(this);
+            a.getExpr().accept(this);
+            return null;
+        }
+
+        @Override
+        public Void visitVarDeclaration(VarDeclaration v)
+        {
+            return null;
+        }
+    }
+}
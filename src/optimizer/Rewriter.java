@@ -0,0 +1,424 @@
+package optimizer;
+
+import ast.*;
+import ast.Number;
+import java.util.*;
+
+/**
+ * Copies a program node by node. Each pass extends it and overrides the visits for the nodes
+ * it changes, so the tree it returns is always fresh: no node is shared with the input, and
+ * nodes can specialize themselves in their new parents when the program runs.
+ *
+ * A statement that a pass removes is returned as an empty Block, which the enclosing Block
+ * drops. Passes outside this package, such as SsaOptimizer, extend it as well.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class Rewriter implements ExpressionVisitor<Expression>, StatementVisitor<Statement>
+{
+    private static final Rewriter COPY = new Rewriter();
+
+    protected ProcedureDeclaration procedure; // the procedure being rewritten, null in the main body
+    private List<String> temporaries = new ArrayList<>(); // added to the body being rewritten
+    private int firstTemporary; // the slot of the first of them
+
+    /**
+     * Rewrites the procedures and the main body of a program.
+     *
+     * Postcondition: The declarations are in their original order, less those that
+     * select leaves out.
+     *
+     * @param program the program
+     * @return the rewritten program
+     */
+    protected Program rewrite(Program program)
+    {
+        List<Statement> declarations = new ArrayList<>();
+        int globals = -1; // the index of the VAR section among the declarations
+        Program p = program;
+        while (p.getMainBody() == null)
+        {
+            if (p.getDeclarations() != null)
+            {
+                globals = declarations.size();
+                declarations.add(p.getDeclarations());
+            }
+            else
+            {
+                procedure = p.getProcedure();
+                temporaries = new ArrayList<>();
+                firstTemporary = procedure.getFrameLayout().size();
+                Statement body = rewriteBody(procedure.getBody());
+                declarations.add(new ProcedureDeclaration(procedure.getName(),
+                        procedure.getArgs(), withTemporaries(procedure.getLocals()), body));
+            }
+            p = p.getChildProgram();
+        }
+        procedure = null;
+        temporaries = new ArrayList<>();
+        VarDeclaration section = globals < 0 ? null : (VarDeclaration) declarations.get(globals);
+        firstTemporary = section == null ? 0 : section.getLayout().size();
+        Statement main = rewriteBody(p.getMainBody());
+        if (!temporaries.isEmpty())
+        {
+            if (globals < 0)
+            {
+                declarations.add(0, withTemporaries(null));
+            }
+            else
+            {
+                declarations.set(globals, withTemporaries(section));
+            }
+        }
+        declarations = select(declarations, main);
+        Program result = new Program(main);
+        for (int i = declarations.size() - 1; i >= 0; i--)
+        {
+            Statement d = declarations.get(i);
+            result = d instanceof ProcedureDeclaration decl ? new Program(decl, result)
+                    : new Program((VarDeclaration) d, result);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a variable for a pass to hold a value in. In a procedure it is a slot of the
+     * frame, and in the main body a global slot. Its name cannot be written in a program.
+     *
+     * @return the new variable
+     */
+    protected Variable newTemporary()
+    {
+        int slot = firstTemporary + temporaries.size();
+        String name = "$t" + slot;
+        temporaries.add(name);
+        return new Variable(name, slot, procedure != null);
+    }
+
+    /**
+     * Adds the temporaries of the body just rewritten to a VAR section.
+     *
+     * @param section the VAR section, or null if there is none
+     * @return the section with the temporaries
+     */
+    private VarDeclaration withTemporaries(VarDeclaration section)
+    {
+        if (temporaries.isEmpty())
+        {
+            return section;
+        }
+        List<String> names = new ArrayList<>();
+        Map<String, Integer> arrays = new LinkedHashMap<>();
+        if (section != null)
+        {
+            names.addAll(section.getNames());
+            arrays.putAll(section.getArrays());
+        }
+        names.addAll(temporaries);
+        return new VarDeclaration(names, arrays);
+    }
+
+    /**
+     * Rewrites the body of a procedure or the main body. The procedure field tells which.
+     *
+     * @param body the body
+     * @return the rewritten body
+     */
+    protected Statement rewriteBody(Statement body)
+    {
+        return body.accept(this);
+    }
+
+    /**
+     * Chooses the declarations of the rewritten program.
+     *
+     * @param declarations the rewritten VAR sections and procedures, in program order
+     * @param main the rewritten main body
+     * @return the declarations to keep, in program order
+     */
+    protected List<Statement> select(List<Statement> declarations, Statement main)
+    {
+        return declarations;
+    }
+
+    /**
+     * Returns whether a statement is an empty Block, the form of a removed statement.
+     *
+     * @param s the statement
+     * @return true if the statement does nothing
+     */
+    protected static boolean isEmpty(Statement s)
+    {
+        return s instanceof Block b && b.getStatements().isEmpty();
+    }
+
+    /**
+     * Checks whether evaluating an expression can neither fail nor change the environment,
+     * so it can be dropped when its value is not needed.
+     *
+     * @param e the expression
+     * @return true if the expression can be dropped
+     */
+    protected static boolean isPure(Expression e)
+    {
+        if (e instanceof Number)
+        {
+            return true;
+        }
+        if (e instanceof Variable v)
+        {
+            return v.getSlot() >= 0;
+        }
+        if (e instanceof BinOp b)
+        {
+            if (Purity.canFail(b))
+            {
+                return false;
+            }
+            return isPure(b.getExp1()) && isPure(b.getExp2());
+        }
+        if (e instanceof Condition c)
+        {
+            return isPure(c.getExp1()) && isPure(c.getExp2());
+        }
+        if (e instanceof BoolOp b)
+        {
+            return isPure(b.getExp1()) && isPure(b.getExp2());
+        }
+        if (e instanceof Not n)
+        {
+            return isPure(n.getExp());
+        }
+        return false;
+    }
+
+    /**
+     * Identifies a variable. Variables with the same name but different slots are different
+     * variables, but one without a slot can turn out to be any variable with its name, so
+     * a pass that changes a variable must forget what it knew about every variable with
+     * that name.
+     *
+     * @param v the variable
+     * @return the name, followed by the slot and whether it is local if there is one
+     */
+    public static String identity(Variable v)
+    {
+        return v.getSlot() < 0 ? v.getName()
+                : v.getName() + (v.isLocal() ? "#L" : "#G") + v.getSlot();
+    }
+
+    /**
+     * Returns whether two nodes are the same variable.
+     *
+     * @param a a variable
+     * @param b an expression
+     * @return true if b is a variable with the identity of a
+     */
+    protected static boolean same(Variable a, Expression b)
+    {
+        return b instanceof Variable v && identity(a).equals(identity(v));
+    }
+
+    /**
+     * Copies a variable, keeping its slot.
+     *
+     * @param v the variable
+     * @return the copy
+     */
+    protected static Variable copy(Variable v)
+    {
+        return v.getSlot() < 0 ? new Variable(v.getName())
+                : new Variable(v.getName(), v.getSlot(), v.isLocal());
+    }
+
+    /**
+     * Copies an expression.
+     *
+     * @param e the expression
+     * @return the copy
+     */
+    protected static Expression copy(Expression e)
+    {
+        return e.accept(COPY);
+    }
+
+    /**
+     * Copies a statement.
+     *
+     * @param s the statement
+     * @return the copy
+     */
+    public static Statement copy(Statement s)
+    {
+        return s.accept(COPY);
+    }
+
+    /**
+     * Copies a procedure, so the copy can be read while the original runs and specializes
+     * its nodes.
+     *
+     * @param p the procedure
+     * @return a procedure whose body shares no node with that of p
+     */
+    public static ProcedureDeclaration copyProcedure(ProcedureDeclaration p)
+    {
+        return new ProcedureDeclaration(p.getName(), p.getArgs(), p.getLocals(),
+                copy(p.getBody()));
+    }
+
+    @Override
+    public Expression visitNumber(Number n)
+    {
+        return new Number(n.getValue());
+    }
+
+    @Override
+    public Expression visitVariable(Variable v)
+    {
+        return copy(v);
+    }
+
+    @Override
+    public Expression visitBinOp(BinOp b)
+    {
+        Expression left = b.getExp1().accept(this);
+        return new BinOp(left, b.getOp(), b.getExp2().accept(this));
+    }
+
+    @Override
+    public Expression visitCondition(Condition c)
+    {
+        Expression left = c.getExp1().accept(this);
+        return new Condition(left, c.getOp(), c.getExp2().accept(this));
+    }
+
+    @Override
+    public Expression visitBoolOp(BoolOp b)
+    {
+        Expression left = b.getExp1().accept(this);
+        return new BoolOp(left, b.getOp(), b.getExp2().accept(this));
+    }
+
+    @Override
+    public Expression visitNot(Not n)
+    {
+        return new Not(n.getExp().accept(this));
+    }
+
+    @Override
+    public Expression visitProcedureCall(ProcedureCall p)
+    {
+        Expression[] args = new Expression[p.getArgVals().length];
+        for (int i = 0; i < args.length; i++)
+        {
+            args[i] = p.getArgVals()[i].accept(this);
+        }
+        return new ProcedureCall(p.getName(), args);
+    }
+
+    @Override
+    public Expression visitArrayElement(ArrayElement a)
+    {
+        return new ArrayElement(a.getName(), a.getIndex().accept(this));
+    }
+
+    @Override
+    public Statement visitBlock(Block b)
+    {
+        Block block = new Block();
+        for (Statement s : b.getStatements())
+        {
+            Statement r = s.accept(this);
+            if (!isEmpty(r))
+            {
+                block.addStatement(r);
+            }
+        }
+        return block;
+    }
+
+    @Override
+    public Statement visitAssignment(Assignment a)
+    {
+        Expression value = a.getExpr().accept(this);
+        return new Assignment(copy(a.getVar()), value);
+    }
+
+    @Override
+    public Statement visitWriteln(Writeln w)
+    {
+        return new Writeln(w.getExpr().accept(this));
+    }
+
+    @Override
+    public Statement visitReadln(Readln r)
+    {
+        return new Readln(copy(r.getVar()));
+    }
+
+    @Override
+    public Statement visitIf(If i)
+    {
+        Expression condition = i.getCondition().accept(this);
+        Statement then = i.getStatement().accept(this);
+        if (i.getElse() == null)
+        {
+            return new If(condition, then);
+        }
+        return new If(condition, then, i.getElse().accept(this));
+    }
+
+    @Override
+    public Statement visitCase(Case c)
+    {
+        Expression selector = c.getSelector().accept(this);
+        Statement[] arms = new Statement[c.getArms().length];
+        for (int k = 0; k < arms.length; k++)
+        {
+            arms[k] = c.getArms()[k].accept(this);
+        }
+        Statement otherwise = c.getElse() == null ? null : c.getElse().accept(this);
+        return new Case(selector, c.getLabels(), c.getTargets(), arms, otherwise);
+    }
+
+    @Override
+    public Statement visitWhile(While w)
+    {
+        Expression condition = w.getCondition().accept(this);
+        return new While(condition, w.getBody().accept(this));
+    }
+
+    @Override
+    public Statement visitFor(For f)
+    {
+        Assignment initialization = (Assignment) visitAssignment(f.getInitialization());
+        Expression maxVal = f.getMaxVal().accept(this);
+        return new For(initialization, maxVal, f.getBody().accept(this));
+    }
+
+    @Override
+    public Statement visitProcedureDeclaration(ProcedureDeclaration p)
+    {
+        return p;
+    }
+
+    @Override
+    public Statement visitArrayDeclaration(ArrayDeclaration a)
+    {
+        return new ArrayDeclaration(a.getName(), a.getSize().accept(this));
+    }
+
+    @Override
+    public Statement visitArrayAssignment(ArrayAssignment a)
+    {
+        Expression index = a.getIndex().accept(this);
+        return new ArrayAssignment(a.getName(), index, a.getExpr().accept(this));
+    }
+
+    @Override
+    public Statement visitVarDeclaration(VarDeclaration v)
+    {
+        return v;
+    }
+}
@@ -17,6 +17,7 @@ public class Parser
     private String lexeme; // The current lexeme being processed
     private String lexemeType; // The type of the current lexeme
     private AbstractMap.SimpleEntry<String, String> token;
+    private AbstractMap.SimpleEntry<String, String> nextToken; // the token after it, once peeked
     private Scanner scanner; // The Scanner instance providing tokens
     private static final String STATEMENT_TERMINATOR = ";";
     public static final String OPENING_KEYWORD = "BEGIN";
@@ -26,6 +27,7 @@ public class Parser
     public static final String THEN_KEYWORD = "THEN";
     public static final String ELSE_KEYWORD = "ELSE";
     public static final String WHILE_KEYWORD = "WHILE";
+    public static final String CASE_KEYWORD = "CASE";
     public static final String FOR_KEYWORD = "FOR";
     public static final String TO_KEYWORD = "TO";
     public static final String LOOP_OPENER = "DO";
@@ -35,6 +37,25 @@ public class Parser
     public static final String CLOSE_ARGS = ")";
     public static final String METHOD_DEC = "PROCEDURE";
     public static final String SEPARATOR = ",";
+    public static final String ARRAY_KEYWORD = "ARRAY";
+    public static final String OPEN_INDEX = "[";
+    public static final String CLOSE_INDEX = "]";
+    public static final String VAR_KEYWORD = "VAR";
+    public static final String TYPE_SEPARATOR = ":";
+    public static final String INTEGER_TYPE = "INTEGER";
+    public static final String OF_KEYWORD = "OF";
+    public static final String AND_KEYWORD = "AND";
+    public static final String OR_KEYWORD = "OR";
+    public static final String NOT_KEYWORD = "NOT";
+    private static final List<String> COMPARISONS = List.of("=", "<>", "<", ">", "<=", ">=");
+    private static final Set<String> KEYWORDS = Set.of(OPENING_KEYWORD, CLOSING_KEYWORD, 
+            PRINT_KEYWORD, IF_KEYWORD, WHILE_KEYWORD, FOR_KEYWORD, READLN_KEYWORD, METHOD_DEC, 
+            ARRAY_KEYWORD, CASE_KEYWORD, VAR_KEYWORD, AND_KEYWORD, OR_KEYWORD, NOT_KEYWORD);
+    private final boolean strict; // whether undeclared names are rejected
+    private Map<String, Integer> globalSlots; // layout of the program's VAR section
+    private Map<String, Integer> localSlots; // frame layout of the procedure being parsed
+    private final Set<String> globalArrays = new HashSet<>();
+    private Set<String> localArrays;
 
     /**
      * Constructs a Parser
@@ -44,6 +65,21 @@ public class Parser
      */
     public Parser(Scanner s) 
     {
+        this(s, false);
+    }
+
+    /**
+     * Constructs a Parser that can run in strict mode, in which every variable and array 
+     * must be declared in a VAR section, as a parameter, or by an ARRAY statement before 
+     * it is used.
+     * Precondition: The Scanner instance is not null.
+     * Postcondition: The Parser is initialized with the provided Scanner.
+     * @param s the Scanner instance to use for tokenizing input
+     * @param strict true to reject undeclared names
+     */
+    public Parser(Scanner s, boolean strict) 
+    {
+        this.strict = strict;
         this.scanner = s;
         try 
         {
@@ -88,16 +124,49 @@ public class Parser
                     + ", found: " + lexeme);
         }
 
-        try 
+        if (nextToken != null)
         {
-            this.token = scanner.nextToken();
-            this.lexeme = token.getKey();
-            this.lexemeType = token.getValue();
-        } 
-        catch (ScanErrorException e) 
+            this.token = nextToken;
+            nextToken = null;
+        }
+        else
+        {
+            try 
+            {
+                this.token = scanner.nextToken();
+            } 
+            catch (ScanErrorException e) 
+            {
+                throw new ParseErrorException("ScanErrorException: " + e.getMessage());
+            }
+        }
+        this.lexeme = token.getKey();
+        this.lexemeType = token.getValue();
+    }
+
+    /**
+     * Returns the lexeme after the current one without consuming either.
+     *
+     * Precondition: The current lexeme is not EOF.
+     * Postcondition: The next token is read from the Scanner once, and eat advances to it.
+     *
+     * @return the next lexeme
+     * @throws ParseErrorException if an error occurs while reading the next token
+     */
+    private String peek() throws ParseErrorException
+    {
+        if (nextToken == null)
         {
-            throw new ParseErrorException("ScanErrorException: " + e.getMessage());
+            try 
+            {
+                nextToken = scanner.nextToken();
+            } 
+            catch (ScanErrorException e) 
+            {
+                throw new ParseErrorException("ScanErrorException: " + e.getMessage());
+            }
         }
+        return nextToken.getKey();
     }
 
     /**
@@ -160,6 +229,10 @@ public class Parser
         {
             return parseIfStatement();
         }
+        else if (lexeme.equals(CASE_KEYWORD))
+        {
+            return parseCaseStatement();
+        }
         else if (lexeme.equals(WHILE_KEYWORD))
         {
             return parseWhileStatement();
@@ -172,6 +245,10 @@ public class Parser
         {
             return parseReadlnStatement();
         }
+        else if (lexeme.equals(ARRAY_KEYWORD))
+        {
+            return parseArrayDeclaration();
+        }
         else if (lexemeType.equals(Scanner.IDENTIFIER))
         {
             return parseDefinition();
@@ -239,7 +316,7 @@ public class Parser
     private If parseIfStatement() throws ParseErrorException
     {
         eat(IF_KEYWORD);
-        Condition i = parseCondition();
+        Expression i = parseCondition();
         eat(THEN_KEYWORD);
         Statement t = parseStatement();
         if (!lexeme.equals(ELSE_KEYWORD))
@@ -252,30 +329,207 @@ public class Parser
     }
 
     /**
-     * Parses a condition of the form expression operator expression.
+     * Parses a case statement of the form CASE expression OF, then arms of the form
+     * label {, label} : statement, then an optional ELSE statement, then END followed by the
+     * statement terminator. A label is a number with an optional minus sign. An arm that is
+     * an IF without an ELSE must be put in a block, since the ELSE would belong to the IF.
+     *
+     * Precondition: The current lexeme is "CASE".
+     * Postcondition: The case statement is parsed, and the lexeme is advanced 
+     * past the statement terminator.
+     *
+     * @return the parsed case statement
+     * @throws ParseErrorException if the syntax of the case statement is invalid, or a label
+     *                             appears twice
+     */
+    private Case parseCaseStatement() throws ParseErrorException
+    {
+        eat(CASE_KEYWORD);
+        Expression selector = parseTerm();
+        eat(OF_KEYWORD);
+        TreeMap<Integer, Integer> targets = new TreeMap<>();
+        List<Statement> arms = new ArrayList<>();
+        while (!lexeme.equals(ELSE_KEYWORD) && !lexeme.equals(CLOSING_KEYWORD))
+        {
+            while (true)
+            {
+                int label = parseCaseLabel();
+                if (targets.put(label, arms.size()) != null)
+                {
+                    throw new ParseErrorException("Duplicate CASE label " + label + " at line " 
+                            + getLineNumber());
+                }
+                if (!lexeme.equals(SEPARATOR))
+                {
+                    break;
+                }
+                eat(SEPARATOR);
+            }
+            eat(TYPE_SEPARATOR);
+            arms.add(parseStatement());
+        }
+        Statement otherwise = null;
+        if (lexeme.equals(ELSE_KEYWORD))
+        {
+            eat(ELSE_KEYWORD);
+            otherwise = parseStatement();
+        }
+        eat(CLOSING_KEYWORD);
+        eat(STATEMENT_TERMINATOR);
+        int[] labels = new int[targets.size()];
+        int[] indices = new int[targets.size()];
+        int k = 0;
+        for (Map.Entry<Integer, Integer> e : targets.entrySet())
+        {
+            labels[k] = e.getKey();
+            indices[k] = e.getValue();
+            k++;
+        }
+        return new Case(selector, labels, indices, arms.toArray(new Statement[0]), otherwise);
+    }
+
+    /**
+     * Parses a label of a case statement: a number with an optional minus sign.
+     *
+     * Precondition: The current lexeme is the start of a label.
+     * Postcondition: The lexeme is advanced past the label.
+     *
+     * @return the value of the label
+     * @throws ParseErrorException if the label is not a number that fits in an int
+     */
+    private int parseCaseLabel() throws ParseErrorException
+    {
+        String sign = "";
+        if (lexeme.equals("-"))
+        {
+            eat("-");
+            sign = "-";
+        }
+        if (!lexemeType.equals(Scanner.NUMBER))
+        {
+            throw new ParseErrorException("Expected a CASE label, found: " + lexeme + " at line " 
+                    + getLineNumber());
+        }
+        int label;
+        try
+        {
+            label = Integer.parseInt(sign + lexeme);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new ParseErrorException("Invalid number '" + sign + lexeme + "'");
+        }
+        eat(lexeme);
+        return label;
+    }
+
+    /**
+     * Parses a condition: comparisons of the form expression operator expression, combined
+     * with NOT, AND and OR. NOT binds tightest and OR loosest, and a condition can be put in
+     * parentheses.
      *
      * Precondition: The current lexeme is the start of a valid condition.
      * Postcondition: The condition is parsed, and the lexeme is advanced 
      * past the condition.
      *
+     * @return the parsed condition
      * @throws ParseErrorException if the syntax of the condition is invalid
      */
-    private Condition parseCondition() throws ParseErrorException
+    private Expression parseCondition() throws ParseErrorException
     {
-        List<String> validOperators = Arrays.asList("=", "<>", "<", ">", "<=", ">=");
-        Expression e1 = parseTerm();
-        if (!lexemeType.equals(Scanner.OPERATOR))
+        return parseDisjunction(parseNegation());
+    }
+
+    /**
+     * Parses the rest of an OR of conditions whose first negation has been parsed.
+     *
+     * Precondition: first is the first operand, and the current lexeme follows it.
+     * Postcondition: The lexeme is advanced past the last operand.
+     *
+     * @param first the first operand
+     * @return the parsed condition
+     * @throws ParseErrorException if the syntax of the condition is invalid
+     */
+    private Expression parseDisjunction(Expression first) throws ParseErrorException
+    {
+        Expression result = parseConjunction(first);
+        while (lexeme.equals(OR_KEYWORD))
         {
-            throw new ParseErrorException("'" +lexeme + "' is not an operator.");
+            eat(OR_KEYWORD);
+            result = new BoolOp(result, BoolOp.OR, parseConjunction(parseNegation()));
+        }
+        return result;
+    }
+
+    /**
+     * Parses the rest of an AND of conditions whose first negation has been parsed.
+     *
+     * Precondition: first is the first operand, and the current lexeme follows it.
+     * Postcondition: The lexeme is advanced past the last operand.
+     *
+     * @param first the first operand
+     * @return the parsed condition
+     * @throws ParseErrorException if the syntax of the condition is invalid
+     */
+    private Expression parseConjunction(Expression first) throws ParseErrorException
+    {
+        Expression result = first;
+        while (lexeme.equals(AND_KEYWORD))
+        {
+            eat(AND_KEYWORD);
+            result = new BoolOp(result, BoolOp.AND, parseNegation());
         }
-        else if (!validOperators.contains(lexeme))
+        return result;
+    }
+
+    /**
+     * Parses a comparison, a parenthesized condition, or NOT followed by either.
+     *
+     * Precondition: The current lexeme is the start of a valid condition.
+     * Postcondition: The lexeme is advanced past the negation.
+     *
+     * @return the parsed negation
+     * @throws ParseErrorException if the syntax of the condition is invalid
+     */
+    private Expression parseNegation() throws ParseErrorException
+    {
+        if (lexeme.equals(NOT_KEYWORD))
         {
-            throw new ParseErrorException("'" + lexeme + "' is not a valid boolean operator.");
+            eat(NOT_KEYWORD);
+            return new Not(parseNegation());
         }
-        String op = lexeme;
-        eat(lexeme);
-        Expression e2 = parseTerm();
-        return new Condition(e1, op, e2);
+        return parseComparison(parseTerm());
+    }
+
+    /**
+     * Parses the rest of a comparison whose left operand has been parsed. A left operand
+     * that is already a condition, because it was in parentheses, is returned as it is.
+     *
+     * Precondition: e1 is the left operand, and the current lexeme follows it.
+     * Postcondition: The lexeme is advanced past the comparison.
+     *
+     * @param e1 the left operand
+     * @return the parsed comparison
+     * @throws ParseErrorException if there is no comparison operator after an expression
+     */
+    private Expression parseComparison(Expression e1) throws ParseErrorException
+    {
+        if (COMPARISONS.contains(lexeme))
+        {
+            String op = lexeme;
+            eat(lexeme);
+            Expression e2 = parseTerm();
+            return new Condition(e1, op, e2);
+        }
+        if (e1 instanceof Condition || e1 instanceof BoolOp || e1 instanceof Not)
+        {
+            return e1;
+        }
+        if (!lexemeType.equals(Scanner.OPERATOR))
+        {
+            throw new ParseErrorException("'" +lexeme + "' is not an operator.");
+        }
+        throw new ParseErrorException("'" + lexeme + "' is not a valid boolean operator.");
     }
 
     /**
@@ -290,7 +544,7 @@ public class Parser
     private While parseWhileStatement() throws ParseErrorException
     {
         eat(WHILE_KEYWORD);
-        Condition c = parseCondition();
+        Expression c = parseCondition();
         eat(LOOP_OPENER);
         Statement s = parseStatement();
         return new While(c, s);
@@ -308,7 +562,11 @@ public class Parser
     private For parseForStatement() throws ParseErrorException
     {
         eat(FOR_KEYWORD);
-        Assignment initialization = parseDefinition();
+        if (!(parseDefinition() instanceof Assignment initialization))
+        {
+            throw new ParseErrorException("FOR loop variable must not be an array element at line " 
+                    + getLineNumber());
+        }
         eat(TO_KEYWORD);
         Expression maxVal = parseTerm();
         eat(LOOP_OPENER);
@@ -333,7 +591,7 @@ public class Parser
         {
             throw new ParseErrorException("Expected an identifier, found: " + lexeme);
         }
-        Variable var = new Variable(lexeme);
+        Variable var = resolveVariable(lexeme);
         eat(lexeme);
         eat(CLOSE_ARGS);
         eat(STATEMENT_TERMINATOR);
@@ -341,7 +599,34 @@ public class Parser
     }
 
     /**
-     * Parses a variable definition of the form identifier := expression.
+     * Parses an array declaration of the form ARRAY identifier[expression].
+     *
+     * Precondition: The current lexeme is "ARRAY".
+     * Postcondition: The array declaration is parsed, and the lexeme is advanced 
+     * past the statement terminator.
+     *
+     * @throws ParseErrorException if the syntax of the array declaration is invalid
+     */
+    private ArrayDeclaration parseArrayDeclaration() throws ParseErrorException
+    {
+        eat(ARRAY_KEYWORD);
+        if (!lexemeType.equals(Scanner.IDENTIFIER))
+        {
+            throw new ParseErrorException("Expected an identifier, found: " + lexeme);
+        }
+        String name = lexeme;
+        eat(lexeme);
+        eat(OPEN_INDEX);
+        Expression size = parseTerm();
+        eat(CLOSE_INDEX);
+        eat(STATEMENT_TERMINATOR);
+        (localArrays != null ? localArrays : globalArrays).add(name);
+        return new ArrayDeclaration(name, size);
+    }
+
+    /**
+     * Parses a variable definition of the form identifier := expression, or an array
+     * element definition of the form identifier[expression] := expression.
      *
      * Precondition: The current lexeme is an identifier.
      * Postcondition: The variable is added to the variable table with its value, and the lexeme is
@@ -349,11 +634,18 @@ public class Parser
      *
      * @throws ParseErrorException if the syntax of the variable definition is invalid
      */
-    private Assignment parseDefinition() throws ParseErrorException
+    private Statement parseDefinition() throws ParseErrorException
     {
         int originalLine = getLineNumber();
         String varName = lexeme;
         eat(lexeme);
+        Expression index = null;
+        if (lexeme.equals(OPEN_INDEX))
+        {
+            eat(OPEN_INDEX);
+            index = parseTerm();
+            eat(CLOSE_INDEX);
+        }
         eat(ASSIGN);
         Expression value = parseTerm();
         if (lexeme.equals(STATEMENT_TERMINATOR))
@@ -364,7 +656,12 @@ public class Parser
         {
             throw new ParseErrorException("Missing semicolon after definition at line " + originalLine);
         }
-        return new Assignment(new Variable(varName), value);
+        if (index != null)
+        {
+            checkArray(varName);
+            return new ArrayAssignment(varName, index, value);
+        }
+        return new Assignment(resolveVariable(varName), value);
     }
 
     /**
@@ -418,7 +715,8 @@ public class Parser
     }
 
     /**
-     * Parses a factor, which can be a number, an identifier, or a parenthesized expression.
+     * Parses a factor, which can be a number, an identifier, an array element, or a 
+     * parenthesized expression or condition.
      *
      * Precondition: The current lexeme is the start of a valid factor.
      * Postcondition: The factor is parsed, and the lexeme is advanced past the factor.
@@ -432,8 +730,20 @@ public class Parser
         {
             // It's a valid opening parenthesis
             eat(lexeme);
-            // Parse the expression inside the parentheses
-            Expression parsedTerm = parseTerm();
+            // Parse the expression or condition inside the parentheses
+            Expression parsedTerm;
+            if (lexeme.equals(NOT_KEYWORD))
+            {
+                parsedTerm = parseCondition();
+            }
+            else
+            {
+                parsedTerm = parseTerm();
+                if (!lexeme.equals(CLOSE_ARGS))
+                {
+                    parsedTerm = parseDisjunction(parseComparison(parsedTerm));
+                }
+            }
             eat(CLOSE_ARGS);
             return parsedTerm;
         }
@@ -456,7 +766,15 @@ public class Parser
                     return new ProcedureCall(id, argVals);
                 }
             }
-            return new Variable(id);
+            if (lexeme.equals(OPEN_INDEX))
+            {
+                eat(OPEN_INDEX);
+                Expression index = parseTerm();
+                eat(CLOSE_INDEX);
+                checkArray(id);
+                return new ArrayElement(id, index);
+            }
+            return resolveVariable(id);
         }
         else if (lexemeType.equals(Scanner.NUMBER))
         {
@@ -544,6 +862,129 @@ public class Parser
         return params.toArray(String[]::new);
     }
 
+    /**
+     * Resolves a variable name to the slot it is declared in. Names declared in the frame of
+     * the procedure being parsed take precedence over names declared in the program's VAR 
+     * section. Undeclared names are looked up by name at run time.
+     *
+     * Precondition: None.
+     * Postcondition: Returns a Variable bound to a slot if the name is declared.
+     *
+     * @param name the variable name
+     * @return the resolved variable
+     * @throws ParseErrorException if the name is undeclared in strict mode
+     */
+    private Variable resolveVariable(String name) throws ParseErrorException
+    {
+        if (localSlots != null && localSlots.containsKey(name))
+        {
+            return new Variable(name, localSlots.get(name), true);
+        }
+        if (globalSlots != null && globalSlots.containsKey(name))
+        {
+            return new Variable(name, globalSlots.get(name), false);
+        }
+        if (strict)
+        {
+            throw new ParseErrorException("Undeclared variable " + name + " at line " 
+                    + getLineNumber());
+        }
+        return new Variable(name);
+    }
+
+    /**
+     * Checks that an array is declared before it is used, in strict mode.
+     *
+     * Precondition: None.
+     * Postcondition: Returns normally if the array is declared or the parser is not strict.
+     *
+     * @param name the array name
+     * @throws ParseErrorException if the array is undeclared in strict mode
+     */
+    private void checkArray(String name) throws ParseErrorException
+    {
+        if (strict && !globalArrays.contains(name) 
+                && (localArrays == null || !localArrays.contains(name)))
+        {
+            throw new ParseErrorException("Undeclared array " + name + " at line " 
+                    + getLineNumber());
+        }
+    }
+
+    /**
+     * Parses a VAR section of the form VAR declaration; ... where each declaration is
+     * identifier, ... : INTEGER or identifier, ... : ARRAY[number] OF INTEGER. The section
+     * ends at the first lexeme that does not start a declaration: a keyword, or an identifier
+     * not followed by "," or ":", such as the target of an assignment or a call.
+     *
+     * Precondition: The current lexeme is "VAR".
+     * Postcondition: The VAR section is parsed, and the lexeme is advanced past its last
+     * statement terminator.
+     *
+     * @param arrayNames the set to add the names of the declared arrays to
+     * @return the parsed VAR section
+     * @throws ParseErrorException if the syntax of the VAR section is invalid, or a name is
+     * declared twice
+     */
+    private VarDeclaration parseVarSection(Set<String> arrayNames) throws ParseErrorException
+    {
+        eat(VAR_KEYWORD);
+        List<String> names = new ArrayList<>();
+        Map<String, Integer> arrays = new LinkedHashMap<>();
+        while (lexemeType.equals(Scanner.IDENTIFIER) && !KEYWORDS.contains(lexeme)
+                && (peek().equals(SEPARATOR) || peek().equals(TYPE_SEPARATOR)))
+        {
+            List<String> group = new ArrayList<>();
+            while (true)
+            {
+                if (!lexemeType.equals(Scanner.IDENTIFIER) || KEYWORDS.contains(lexeme))
+                {
+                    throw new ParseErrorException("Invalid variable name: " + lexeme);
+                }
+                if (names.contains(lexeme) || arrays.containsKey(lexeme) 
+                        || group.contains(lexeme))
+                {
+                    throw new ParseErrorException("Duplicate declaration of " + lexeme 
+                            + " at line " + getLineNumber());
+                }
+                group.add(lexeme);
+                eat(lexeme);
+                if (!lexeme.equals(SEPARATOR))
+                {
+                    break;
+                }
+                eat(SEPARATOR);
+            }
+            eat(TYPE_SEPARATOR);
+            if (lexeme.equals(ARRAY_KEYWORD))
+            {
+                eat(ARRAY_KEYWORD);
+                eat(OPEN_INDEX);
+                if (!lexemeType.equals(Scanner.NUMBER))
+                {
+                    throw new ParseErrorException("Expected an array size, found: " + lexeme);
+                }
+                int size = Integer.parseInt(lexeme);
+                eat(lexeme);
+                eat(CLOSE_INDEX);
+                eat(OF_KEYWORD);
+                eat(INTEGER_TYPE);
+                for (String n : group)
+                {
+                    arrays.put(n, size);
+                }
+                arrayNames.addAll(group);
+            }
+            else
+            {
+                eat(INTEGER_TYPE);
+                names.addAll(group);
+            }
+            eat(STATEMENT_TERMINATOR);
+        }
+        return new VarDeclaration(names, arrays);
+    }
+
     /**
      * Checks if there are more tokens to parse.
      *
@@ -559,6 +1000,8 @@ public class Parser
 
     /**
      * Parses the entire file by repeatedly parsing statements until EOF is reached.
+     * The program may start with a VAR section, and each procedure may have a VAR section
+     * between its header and its body.
      *
      * Precondition: The file contains valid syntax.
      * Postcondition: All statements in the file are parsed.
@@ -567,7 +1010,17 @@ public class Parser
      */
     public Program parseProgram() throws ParseErrorException
     {
-        if (lexeme.equals(METHOD_DEC))
+        if (lexeme.equals(VAR_KEYWORD))
+        {
+            if (globalSlots != null)
+            {
+                throw new ParseErrorException("Duplicate VAR section at line " + getLineNumber());
+            }
+            VarDeclaration globals = parseVarSection(globalArrays);
+            globalSlots = globals.getLayout();
+            return new Program(globals, parseProgram());
+        }
+        else if (lexeme.equals(METHOD_DEC))
         {
             eat(METHOD_DEC);
             String n = lexeme;
@@ -585,7 +1038,17 @@ public class Parser
                 eat(CLOSE_ARGS);
             }
             eat(STATEMENT_TERMINATOR);
-            return new Program(new ProcedureDeclaration(n, params, parseStatement()), parseProgram());
+            localArrays = new HashSet<>();
+            VarDeclaration locals = null;
+            if (lexeme.equals(VAR_KEYWORD))
+            {
+                locals = parseVarSection(localArrays);
+            }
+            localSlots = ProcedureDeclaration.layoutFrame(n, params, locals);
+            Statement body = parseStatement();
+            localSlots = null;
+            localArrays = null;
+            return new Program(new ProcedureDeclaration(n, params, locals, body), parseProgram());
         }
         else
         {
@@ -1,10 +1,37 @@
 package parser;
 
 import ast.*;
+import bytecode.BytecodeCompiler;
+import bytecode.VirtualMachine;
+import closure.ClosureCompiler;
+import environment.Checkpointer;
 import environment.Environment;
+import environment.ExecutionProfile;
+import environment.Snapshot;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import ir.Function;
+import ir.SsaOptimizer;
+import jvm.AotCompiler;
+import jvm.JitCompiler;
+import jvm.TieredCompiler;
+import optimizer.BranchLayout;
+import optimizer.CommonSubexpressions;
+import optimizer.ConstantFolder;
+import optimizer.InductionVariables;
+import optimizer.Inliner;
+import optimizer.LoopInvariantMotion;
+import optimizer.Memoizer;
+import optimizer.PartialEvaluator;
 import scanner.Scanner;
+import stackless.StacklessInterpreter;
+import x86.AsmCompiler;
 
 /**
  * A tester class for the Parser.
@@ -21,11 +48,115 @@ public class ParserTester
      * precondition: The file "src/parser/ParseTester.txt" exists and is readable.
      * postcondition: The Parser is tested with the input from the file.
      * 
+     * Usage: ParserTester [file] [-strict] [-O] [-inline maxSize maxGrowth] [-vm] [-closure]
+     *        [-jit threshold] [-tiered closureThreshold bytecodeThreshold] [-osr loopThreshold] [-report] 
+     *        [-ir] [-aot jarFile] [-explicit megabytes] [-checkpoint snapshotFile interval] 
+     *        [-resume snapshotFile] [-memo size] [-profile profileFile] [-pgo profileFile]
+     *        [-known name=value,...] [-asm assemblyFile]
+     * 
+     * -O inlines small procedures, folds constants, removes dead code, propagates constants
+     * and copies and removes dead assignments in SSA form, computes loops over induction
+     * variables in closed form or with fewer multiplications, moves loop-invariant
+     * expressions out of loops and computes repeated expressions once before the program
+     * runs or is compiled, and with -report prints what each pass changed and how long the
+     * SSA passes took. -ir prints the SSA form the passes left. -inline sets the largest
+     * procedure, in nodes, that is inlined and how many nodes the program may grow by. -vm compiles the program to bytecode and runs it on the VirtualMachine
+     * instead of walking the AST. -closure compiles the program to closures and runs them.
+     * -jit compiles each procedure to a JVM class after it has been called threshold times.
+     * -tiered compiles hot procedures to closures and then to JVM classes on a background
+     * thread, and -report prints the tiering counters and compile times when the program
+     * ends. -osr sets the number of back-edges after which a running loop is compiled. -aot
+     * compiles the whole program into a runnable JAR instead of running it, and -asm into
+     * x86-64 GNU assembly that gcc assembles and links into an executable. -explicit runs
+     * procedure calls on an explicit stack that may use the given number of megabytes, so
+     * deep recursion does not overflow the Java stack. -memo remembers the results of up to
+     * size argument lists for each procedure whose result depends only on its arguments, so
+     * repeated calls that the AST interpreter makes do not run again, and -report prints the
+     * hits and misses of each. -known specializes the program to the given inputs: each
+     * READLN into a variable with one of the names reads its value instead of input, and the
+     * residual program is folded, its FOR loops with constant bounds unrolled and its calls
+     * with constant arguments specialized before anything else runs, so with -aot it can be
+     * run many times against the other inputs. -profile runs the program, specialized if
+     * -known is given, in the AST interpreter whatever the other options, and adds how often each branch was taken, each loop
+     * iterated and each call site called to the profile file. -pgo reads such a profile,
+     * unless the program has changed since, to put the likely branch of each IF first,
+     * inline the hot call sites and not the cold ones under -O, and compile the hot
+     * procedures and loops at once under -jit, -tiered and -osr.
+     * 
      * @param args command line arguments
      */
     public static void main(String[] args) 
     {
         String testFile = "src/parser/parserTest7.txt";
+        Checkpointer checkpointer = null;
+        Snapshot snapshot = null;
+        boolean strict = false;
+        boolean vm = false;
+        boolean closure = false;
+        boolean report = false;
+        boolean printIr = false;
+        boolean optimize = false;
+        Inliner inliner = null;
+        int loopThreshold = 0;
+        JitCompiler jit = null;
+        Path jar = null;
+        Path asm = null;
+        long explicit = 0;
+        int memoSize = 0;
+        Memoizer memoizer = null;
+        Path profileFile = null;
+        Path pgoFile = null;
+        ExecutionProfile recorded = null;
+        Map<String, Integer> known = null;
+        for (int i = 0; i < args.length; i++)
+        {
+            switch (args[i])
+            {
+                case "-checkpoint" -> 
+                {
+                    checkpointer = new Checkpointer(Paths.get(args[i + 1]), 
+                            Integer.parseInt(args[i + 2]));
+                    i += 2;
+                }
+                case "-resume" -> snapshot = Checkpointer.load(Paths.get(args[++i]));
+                case "-strict" -> strict = true;
+                case "-O" -> optimize = true;
+                case "-inline" ->
+                {
+                    inliner = new Inliner(Integer.parseInt(args[i + 1]), 
+                            Integer.parseInt(args[i + 2]));
+                    i += 2;
+                }
+                case "-vm" -> vm = true;
+                case "-closure" -> closure = true;
+                case "-jit" -> jit = new JitCompiler(Integer.parseInt(args[++i]));
+                case "-tiered" -> 
+                {
+                    jit = new TieredCompiler(Integer.parseInt(args[i + 1]), 
+                            Integer.parseInt(args[i + 2]), 1);
+                    i += 2;
+                }
+                case "-osr" -> loopThreshold = Integer.parseInt(args[++i]);
+                case "-report" -> report = true;
+                case "-ir" -> printIr = true;
+                case "-aot" -> jar = Paths.get(args[++i]);
+                case "-asm" -> asm = Paths.get(args[++i]);
+                case "-explicit" -> explicit = Long.parseLong(args[++i]) << 20;
+                case "-memo" -> memoSize = Integer.parseInt(args[++i]);
+                case "-profile" -> profileFile = Paths.get(args[++i]);
+                case "-pgo" -> pgoFile = Paths.get(args[++i]);
+                case "-known" -> 
+                {
+                    known = new LinkedHashMap<>();
+                    for (String input : args[++i].split(","))
+                    {
+                        String[] pair = input.split("=");
+                        known.put(pair[0].trim(), Integer.parseInt(pair[1].trim()));
+                    }
+                }
+                default -> testFile = args[i];
+            }
+        }
         Scanner scanner;
         try 
         {
@@ -38,12 +169,186 @@ public class ParserTester
             return; // Exit if the file is not found
         }
         
+        if (profileFile != null)
+        {
+            // the profile describes the nodes of the program as it is before any other pass
+            optimize = false;
+            inliner = null;
+            jit = null;
+            loopThreshold = 0;
+            memoSize = 0;
+            pgoFile = null;
+        }
+        if (loopThreshold > 0)
+        {
+            if (jit == null)
+            {
+                jit = new JitCompiler();
+            }
+            jit.setLoopThreshold(loopThreshold);
+        }
         Environment env = new Environment();
-        Parser parser = new Parser(scanner);
+        env.trackChanges(checkpointer != null);
+        ExecutionContext context = new ExecutionContext();
+        context.setCheckpointer(checkpointer);
+        context.setCompiler(jit);
+        context.setLoopCompiler(jit);
+        Parser parser = new Parser(scanner, strict);
         try 
         {
             Program p = parser.parseProgram();
-            p.exec(env);
+            if (known != null)
+            {
+                PartialEvaluator evaluator = new PartialEvaluator(known);
+                p = evaluator.specialize(p);
+                if (report)
+                {
+                    System.err.print(evaluator.getReport());
+                }
+            }
+            if (profileFile != null)
+            {
+                recorded = Files.exists(profileFile) ? ExecutionProfile.load(profileFile, p) 
+                        : null;
+                if (recorded == null)
+                {
+                    recorded = ExecutionProfile.of(p);
+                }
+                context.setProfile(recorded);
+            }
+            ExecutionProfile profile = null;
+            if (pgoFile != null)
+            {
+                profile = ExecutionProfile.load(pgoFile, p);
+                if (profile == null)
+                {
+                    System.err.println("Ignoring " + pgoFile 
+                            + ": the program has changed since it was profiled");
+                }
+                else
+                {
+                    if (report)
+                    {
+                        System.err.print(profile.getReport());
+                    }
+                    BranchLayout layout = new BranchLayout(profile);
+                    p = layout.layout(p);
+                    if (report)
+                    {
+                        System.err.print(layout.getReport());
+                    }
+                    if (jit != null)
+                    {
+                        jit.setProfile(profile);
+                    }
+                }
+            }
+            if (optimize && inliner == null)
+            {
+                inliner = new Inliner();
+            }
+            if (inliner != null)
+            {
+                inliner.setProfile(profile);
+                p = inliner.inline(p);
+                if (report)
+                {
+                    System.err.print(inliner.getReport());
+                }
+            }
+            if (optimize)
+            {
+                ConstantFolder folder = new ConstantFolder();
+                folder.setPropagateSlots(false); // the SsaOptimizer propagates them
+                p = folder.optimize(p);
+                if (report)
+                {
+                    System.err.print(folder.getReport());
+                }
+                SsaOptimizer ssa = new SsaOptimizer();
+                p = ssa.optimize(p);
+                if (report)
+                {
+                    System.err.print(ssa.getReport());
+                }
+                if (printIr)
+                {
+                    for (Function f : ssa.getFunctions())
+                    {
+                        System.err.print(f);
+                    }
+                }
+                InductionVariables induction = new InductionVariables();
+                p = induction.optimize(p);
+                if (report)
+                {
+                    System.err.print(induction.getReport());
+                }
+                LoopInvariantMotion motion = new LoopInvariantMotion();
+                p = motion.hoist(p);
+                if (report)
+                {
+                    System.err.print(motion.getReport());
+                }
+                CommonSubexpressions subexpressions = new CommonSubexpressions();
+                p = subexpressions.eliminate(p);
+                if (report)
+                {
+                    System.err.print(subexpressions.getReport());
+                }
+            }
+            if (memoSize > 0)
+            {
+                memoizer = new Memoizer(p, memoSize);
+                context.setMemoizer(memoizer);
+            }
+            if (recorded != null)
+            {
+                try
+                {
+                    p.exec(env, context);
+                }
+                finally
+                {
+                    recorded.save(profileFile);
+                }
+                if (report)
+                {
+                    System.err.print(recorded.getReport());
+                }
+            }
+            else if (jar != null)
+            {
+                AotCompiler.writeJar(p, jar);
+            }
+            else if (asm != null)
+            {
+                AsmCompiler compiler = AsmCompiler.writeAssembly(p, asm);
+                if (report)
+                {
+                    System.err.print(compiler.getReport());
+                }
+            }
+            else if (vm)
+            {
+                new VirtualMachine(BytecodeCompiler.compile(p)).run();
+            }
+            else if (closure)
+            {
+                ClosureCompiler.compile(p).exec(env, context);
+            }
+            else if (explicit > 0)
+            {
+                new StacklessInterpreter(p, explicit).run(env, context);
+            }
+            else if (snapshot != null)
+            {
+                p.resume(env, context, snapshot);
+            }
+            else
+            {
+                p.exec(env, context);
+            }
         } 
         catch (ParseErrorException e) 
         {
@@ -54,5 +359,22 @@ public class ParserTester
         {
             System.err.println("Runtime error: " + e.getMessage());
         }
+        catch (IOException e)
+        {
+            System.err.println("Could not write " + (jar != null ? jar : asm) + ": " 
+                    + e.getMessage());
+        }
+        if (memoizer != null && report)
+        {
+            System.err.print(memoizer.getReport());
+        }
+        if (jit instanceof TieredCompiler tiered)
+        {
+            if (report)
+            {
+                System.err.print(tiered.getReport());
+            }
+            tiered.shutdown();
+        }
     }
 }
\ No newline at end of file
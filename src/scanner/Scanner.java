@@ -172,7 +172,7 @@ public class Scanner
      */
     private static boolean isSpecialChar(char c)
     {
-        String specialChars = "();,";
+        String specialChars = "();,[]";
         return specialChars.indexOf(c) != -1;
     }
 
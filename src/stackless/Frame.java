@@ -0,0 +1,32 @@
+package stackless;
+
+import environment.Environment;
+
+/**
+ * An entry on the explicit stack of the StacklessInterpreter: a task, how far it has got,
+ * and the environment it runs in. Frames are reused as the stack grows and shrinks.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+final class Frame
+{
+    Task task;
+    int state;
+    Environment env;
+    Object aux;
+
+    /**
+     * Sets the frame up to run a task from its beginning.
+     *
+     * @param t the task
+     * @param e the environment to run it in
+     */
+    void reset(Task t, Environment e)
+    {
+        task = t;
+        state = 0;
+        env = e;
+        aux = null;
+    }
+}
@@ -0,0 +1,266 @@
+package stackless;
+
+import ast.*;
+import environment.Environment;
+import java.util.*;
+
+/**
+ * Runs a program without using the Java stack for procedure calls, so recursion is only
+ * limited by a memory budget instead of the thread's stack size. The nodes that lead to a
+ * procedure call become tasks on an explicit stack of frames, with the values they compute
+ * on a separate int stack; both stacks grow as needed. Everything else runs in the AST.
+ *
+ * A call in tail position replaces the procedure that makes it, so recursion through tail
+ * calls runs in constant space.
+ *
+ * Each frame and each procedure environment counts against the budget with an estimate of
+ * its size on the heap. Loops that call a procedure do not take checkpoints in this mode.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class StacklessInterpreter
+{
+    private static final int FRAME_BYTES = 40; // a Frame and the reference to it
+    private static final int CALL_BYTES = 200; // an Environment and its empty maps
+
+    private final Program program;
+    private final Task main;
+    private final long budget;
+    private Frame[] frames = new Frame[64];
+    private int depth;
+    private int[] values = new int[64];
+    private int size;
+    private long used;
+    private ExecutionContext context;
+
+    /**
+     * Constructs a StacklessInterpreter.
+     *
+     * Precondition: The program was produced by the Parser.
+     *
+     * @param program the program to run
+     * @param budget the number of bytes the explicit stack and procedure environments may use
+     */
+    public StacklessInterpreter(Program program, long budget)
+    {
+        this.program = program;
+        this.budget = budget;
+        Map<String, Task.Procedure> procedures = new HashMap<>();
+        Program p = program;
+        while (p.getMainBody() == null)
+        {
+            if (p.getProcedure() != null)
+            {
+                // a later declaration with the same name replaces an earlier one
+                procedures.put(p.getProcedure().getName(), new Task.Procedure(p.getProcedure()));
+            }
+            p = p.getChildProgram();
+        }
+        TaskCompiler compiler = new TaskCompiler(procedures);
+        for (Task.Procedure proc : procedures.values())
+        {
+            proc.body = compiler.statement(proc.declaration.getBody());
+        }
+        main = compiler.statement(p.getMainBody());
+    }
+
+    /**
+     * Runs the program in the given environment.
+     *
+     * Precondition: The environment is a root environment.
+     * Postcondition: The program has produced the same output as program.exec(env).
+     *
+     * @param env the environment in which to run the program
+     * @param context the context the statements the AST runs get
+     * @throws RuntimeException if the recursion exceeds the memory budget, or the program
+     * fails as it would in the tree interpreter
+     */
+    public void run(Environment env, ExecutionContext context)
+    {
+        this.context = context;
+        Program p = program;
+        while (p.getMainBody() == null)
+        {
+            if (p.getDeclarations() != null)
+            {
+                p.getDeclarations().exec(env, context);
+            }
+            else
+            {
+                p.getProcedure().exec(env, context);
+            }
+            p = p.getChildProgram();
+        }
+        depth = 0;
+        size = 0;
+        used = 0;
+        if (statement(main, env))
+        {
+            while (depth > 0)
+            {
+                Frame f = frames[depth - 1];
+                f.task.step(this, f);
+            }
+        }
+    }
+
+    /**
+     * Pushes the value of an expression, running it right away if it cannot call a
+     * procedure.
+     *
+     * @param t the task of the expression
+     * @param env the environment to evaluate it in
+     * @return true if a frame was pushed, so the caller must return and resume later
+     */
+    boolean operand(Task t, Environment env)
+    {
+        if (t instanceof Task.Value v)
+        {
+            push(v.expr.eval(env, context));
+            return false;
+        }
+        call(t, env);
+        return true;
+    }
+
+    /**
+     * Executes a statement, running it right away if it cannot call a procedure.
+     *
+     * @param t the task of the statement
+     * @param env the environment to execute it in
+     * @return true if a frame was pushed, so the caller must return and resume later
+     */
+    boolean statement(Task t, Environment env)
+    {
+        if (t instanceof Task.Direct d)
+        {
+            d.stmt.exec(env, context);
+            return false;
+        }
+        call(t, env);
+        return true;
+    }
+
+    /**
+     * Returns the context of the run, for the nodes the AST runs.
+     *
+     * @return the context
+     */
+    ExecutionContext getContext()
+    {
+        return context;
+    }
+
+    /**
+     * Pushes a frame for a task.
+     *
+     * @param t the task
+     * @param env the environment to run it in
+     */
+    private void call(Task t, Environment env)
+    {
+        charge(FRAME_BYTES);
+        if (depth == frames.length)
+        {
+            frames = Arrays.copyOf(frames, depth * 2);
+        }
+        Frame f = frames[depth];
+        if (f == null)
+        {
+            f = new Frame();
+            frames[depth] = f;
+        }
+        f.reset(t, env);
+        depth++;
+    }
+
+    /**
+     * Pops the frame of the task that has finished.
+     */
+    void done()
+    {
+        Frame f = frames[--depth];
+        f.reset(null, null);
+        used -= FRAME_BYTES;
+    }
+
+    /**
+     * Makes a call in tail position: pops the frames of the procedure making it, down to the
+     * frame of the call that is running that procedure, and starts the procedure called
+     * there instead.
+     *
+     * @param p the procedure called
+     * @param args the argument values, in parameter order
+     */
+    void tailCall(Task.Procedure p, int[] args)
+    {
+        while (!(frames[depth - 1].aux instanceof Task.Procedure))
+        {
+            done();
+        }
+        Frame f = frames[depth - 1];
+        leave(((Task.Procedure) f.aux).declaration);
+        Task.Call.start(this, f, p, args);
+    }
+
+    /**
+     * Accounts for the environment of a procedure that is being entered.
+     *
+     * @param p the procedure
+     */
+    void enter(ProcedureDeclaration p)
+    {
+        charge(CALL_BYTES + (long) Integer.BYTES * p.getFrameLayout().size());
+    }
+
+    /**
+     * Releases the environment of a procedure that has returned.
+     *
+     * @param p the procedure
+     */
+    void leave(ProcedureDeclaration p)
+    {
+        used -= CALL_BYTES + (long) Integer.BYTES * p.getFrameLayout().size();
+    }
+
+    /**
+     * Adds to the memory in use.
+     *
+     * @param bytes the number of bytes
+     * @throws RuntimeException if the memory in use would exceed the budget
+     */
+    private void charge(long bytes)
+    {
+        if (used + bytes + (long) Integer.BYTES * values.length > budget)
+        {
+            throw new RuntimeException("Recursion exceeded the memory budget of " + budget
+                    + " bytes");
+        }
+        used += bytes;
+    }
+
+    /**
+     * Pushes a value.
+     *
+     * @param v the value
+     */
+    void push(int v)
+    {
+        if (size == values.length)
+        {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = v;
+    }
+
+    /**
+     * Pops a value.
+     *
+     * @return the value
+     */
+    int pop()
+    {
+        return values[--size];
+    }
+}
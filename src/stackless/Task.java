@@ -0,0 +1,880 @@
+package stackless;
+
+import ast.*;
+import environment.Environment;
+import environment.IntArray;
+import java.util.NoSuchElementException;
+
+/**
+ * A piece of a program prepared for the StacklessInterpreter. A task that contains no
+ * procedure call cannot recurse, so it is left to the AST to run on the Java stack: a Value
+ * evaluates an expression and a Direct executes a statement. Every other task runs as a
+ * state machine in a Frame on the interpreter's explicit stack, and its children run in
+ * frames pushed above it.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+abstract class Task
+{
+    /**
+     * Runs the task in the given frame until it finishes or pushes a frame for a child.
+     *
+     * Precondition: f is the top frame of the interpreter and f.task is this task.
+     * Postcondition: The task has popped its frame, pushed a child frame, or both.
+     *
+     * @param m the interpreter
+     * @param f the frame of the task
+     */
+    abstract void step(StacklessInterpreter m, Frame f);
+
+    /**
+     * An expression without procedure calls, evaluated by the AST.
+     */
+    static final class Value extends Task
+    {
+        final Expression expr;
+
+        /**
+         * Constructs a Value.
+         *
+         * @param expr the expression
+         */
+        Value(Expression expr)
+        {
+            this.expr = expr;
+        }
+
+        @Override
+        void step(StacklessInterpreter m, Frame f)
+        {
+            m.push(expr.eval(f.env, m.getContext()));
+            m.done();
+        }
+    }
+
+    /**
+     * A statement without procedure calls, executed by the AST.
+     */
+    static final class Direct extends Task
+    {
+        final Statement stmt;
+
+        /**
+         * Constructs a Direct.
+         *
+         * @param stmt the statement
+         */
+        Direct(Statement stmt)
+        {
+            this.stmt = stmt;
+        }
+
+        @Override
+        void step(StacklessInterpreter m, Frame f)
+        {
+            stmt.exec(f.env, m.getContext());
+            m.done();
+        }
+    }
+
+    /**
+     * A procedure whose body has been prepared. The body is set once every procedure has
+     * a Procedure, so recursive calls can refer to it.
+     */
+    static final class Procedure
+    {
+        final ProcedureDeclaration declaration;
+        final int[] argSlots;
+        Task body;
+
+        /**
+         * Constructs a Procedure.
+         *
+         * @param declaration the procedure declaration
+         */
+        Procedure(ProcedureDeclaration declaration)
+        {
+            this.declaration = declaration;
+            String[] args = declaration.getArgs();
+            this.argSlots = new int[args.length];
+            for (int i = 0; i < args.length; i++)
+            {
+                argSlots[i] = declaration.getFrameLayout().get(args[i]);
+            }
+        }
+    }
+
+    /**
+     * A procedure call. The arguments are evaluated in the caller's environment, then the
+     * body runs in a new frame environment that is a child of the root, like
+     * ProcedureDeclaration.runProcedure. While the body runs, the frame's environment is the
+     * new one and its aux is the procedure running, which a call in tail position replaces.
+     */
+    static final class Call extends Task
+    {
+        private final String name;
+        private final Procedure target;
+        private final Task[] args;
+        private final boolean tail;
+
+        /**
+         * Constructs a Call.
+         *
+         * @param name the name of the procedure
+         * @param target the procedure, or null if there is none with that name
+         * @param args the argument tasks
+         * @param tail whether the call is in tail position
+         */
+        Call(String name, Procedure target, Task[] args, boolean tail)
+        {
+            this.name = name;
+            this.target = target;
+            this.args = args;
+            this.tail = tail;
+        }
+
+        @Override
+        void step(StacklessInterpreter m, Frame f)
+        {
+            int n = args.length;
+            if (f.state == 0)
+            {
+                if (target == null)
+                {
+                    throw new NoSuchElementException("Procedure " + name + " not found.");
+                }
+                if (target.argSlots.length != n)
+                {
+                    throw new RuntimeException("Invalid number of arguments passed to procedure "
+                            + name);
+                }
+                f.state = 1;
+            }
+            while (f.state <= n)
+            {
+                Task a = args[f.state - 1];
+                f.state++;
+                if (m.operand(a, f.env))
+                {
+                    return;
+                }
+            }
+            if (f.state == n + 1)
+            {
+                int[] values = new int[n];
+                for (int i = n - 1; i >= 0; i--)
+                {
+                    values[i] = m.pop();
+                }
+                f.state = n + 2;
+                if (tail)
+                {
+                    m.tailCall(target, values);
+                    return;
+                }
+                if (start(m, f, target, values))
+                {
+                    return;
+                }
+            }
+            Procedure running = (Procedure) f.aux;
+            m.leave(running.declaration);
+            m.push(f.env.getSlot(running.declaration.getReturnSlot()));
+            m.done();
+        }
+
+        /**
+         * Starts the body of a procedure in a new environment, in the frame of a call.
+         *
+         * @param m the interpreter
+         * @param f the frame of the call, whose arguments are evaluated
+         * @param p the procedure
+         * @param values the argument values, in parameter order
+         * @return true if a frame was pushed, so the caller must return and resume later
+         */
+        static boolean start(StacklessInterpreter m, Frame f, Procedure p, int[] values)
+        {
+            ProcedureDeclaration d = p.declaration;
+            Environment local = new Environment(f.env.getRoot(), d.getFrameLayout());
+            for (int i = 0; i < values.length; i++)
+            {
+                local.setSlot(p.argSlots[i], values[i]);
+            }
+            local.setSlot(d.getReturnSlot(), 0);
+            if (d.getLocals() != null)
+            {
+                d.getLocals().declareArrays(local);
+            }
+            f.env = local;
+            f.aux = p;
+            m.enter(d);
+            return m.statement(p.body, local);
+        }
+    }
+
+    /**
+     * A binary operation with a procedure call in an operand.
+     */
+    static final class Arithmetic extends Task
+    {
+        private final String op;
+        private final Task left;
+        private final Task right;
+
+        /**
+         * Constructs an Arithmetic task.
+         *
+         * @param op the operator
+         * @param left the left operand
+         * @param right the right operand
+         */
+        Arithmetic(String op, Task left, Task right)
+        {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @SuppressWarnings("fallthrough")
+        @Override
+        void step(StacklessInterpreter m, Frame f)
+        {
+            switch (f.state)
+            {
+                case 0:
+                    f.state = 1;
+                    if (m.operand(left, f.env))
+                    {
+                        return;
+                    }
+                    // fall through
+                case 1:
+                    f.state = 2;
+                    if (m.operand(right, f.env))
+                    {
+                        return;
+                    }
+                    // fall through
+                default:
+                    int r = m.pop();
+                    int l = m.pop();
+                    m.push(switch (op)
+                    {
+                        case "+" -> l + r;
+                        case "-" -> l - r;
+                        case "*" -> l * r;
+                        case "/" -> l / r;
+                        default -> throw new RuntimeException("Unknown operator '" + op + "'");
+                    });
+                    m.done();
+            }
+        }
+    }
+
+    /**
+     * A comparison with a procedure call in an operand.
+     */
+    static final class Comparison extends Task
+    {
+        private final String op;
+        private final Task left;
+        private final Task right;
+
+        /**
+         * Constructs a Comparison.
+         *
+         * @param op the operator
+         * @param left the left operand
+         * @param right the right operand
+         */
+        Comparison(String op, Task left, Task right)
+        {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @SuppressWarnings("fallthrough")
+        @Override
+        void step(StacklessInterpreter m, Frame f)
+        {
+            switch (f.state)
+            {
+                case 0:
+                    f.state = 1;
+                    if (m.operand(left, f.env))
+                    {
+                        return;
+                    }
+                    // fall through
+                case 1:
+                    f.state = 2;
+                    if (m.operand(right, f.env))
+                    {
+                        return;
+                    }
+                    // fall through
+                default:
+                    int r = m.pop();
+                    int l = m.pop();
+                    boolean result = switch (op)
+                    {
+                        case "=" -> l == r;
+                        case "<>" -> l != r;
+                        case "<" -> l < r;
+                        case "<=" -> l <= r;
+                        case ">" -> l > r;
+                        case ">=" -> l >= r;
+                        default -> throw new RuntimeException("Unkown operator '" + op + "'");
+                    };
+                    m.push(result ? 1 : 0);
+                    m.done();
+            }
+        }
+    }
+
+    /**
+     * An AND or OR with a procedure call in an operand. The right operand only runs when the
+     * left one does not decide the result.
+     */
+    static final class Logical extends Task
+    {
+        private final boolean and;
+        private final Task left;
+        private final Task right;
+
+        /**
+         * Constructs a Logical.
+         *
+         * @param and true for AND, false for OR
+         * @param left the left operand
+         * @param right the right operand
+         */
+        Logical(boolean and, Task left, Task right)
+        {
+            this.and = and;
+            this.left = left;
+            this.right = right;
+        }
+
+        @SuppressWarnings("fallthrough")
+        @Override
+        void step(StacklessInterpreter m, Frame f)
+        {
+            switch (f.state)
+            {
+                case 0:
+                    f.state = 1;
+                    if (m.operand(left, f.env))
+                    {
+                        return;
+                    }
+                    // fall through
+                case 1:
+                    boolean holds = m.pop() == 1;
+                    if (holds != and)
+                    {
+                        m.push(holds ? 1 : 0);
+                        break;
+                    }
+                    f.state = 2;
+                    if (m.operand(right, f.env))
+                    {
+                        return;
+                    }
+                    // fall through
+                default:
+                    m.push(m.pop() == 1 ? 1 : 0);
+                    break;
+            }
+            m.done();
+        }
+    }
+
+    /**
+     * A NOT whose operand calls a procedure.
+     */
+    static final class Negation extends Task
+    {
+        private final Task operand;
+
+        /**
+         * Constructs a Negation.
+         *
+         * @param operand the operand
+         */
+        Negation(Task operand)
+        {
+            this.operand = operand;
+        }
+
+        @Override
+        void step(StacklessInterpreter m, Frame f)
+        {
+            if (f.state == 0)
+            {
+                f.state = 1;
+                if (m.operand(operand, f.env))
+                {
+                    return;
+                }
+            }
+            m.push(m.pop() == 1 ? 0 : 1);
+            m.done();
+        }
+    }
+
+    /**
+     * An array element whose index contains a procedure call. The array is looked up
+     * before the index is evaluated, as in ArrayElement.eval.
+     */
+    static final class Element extends Task
+    {
+        private final String name;
+        private final Task index;
+
+        /**
+         * Constructs an Element.
+         *
+         * @param name the name of the array
+         * @param index the index
+         */
+        Element(String name, Task index)
+        {
+            this.name = name;
+            this.index = index;
+        }
+
+        @Override
+        void step(StacklessInterpreter m, Frame f)
+        {
+            if (f.state == 0)
+            {
+                f.aux = f.env.getArray(name);
+                f.state = 1;
+                if (m.operand(index, f.env))
+                {
+                    return;
+                }
+            }
+            m.push(((IntArray) f.aux).get(m.pop()));
+            m.done();
+        }
+    }
+
+    /**
+     * A block with a procedure call in one of its statements.
+     */
+    static final class Sequence extends Task
+    {
+        private final Task[] statements;
+
+        /**
+         * Constructs a Sequence.
+         *
+         * @param statements the statements, in order
+         */
+        Sequence(Task[] statements)
+        {
+            this.statements = statements;
+        }
+
+        @Override
+        void step(StacklessInterpreter m, Frame f)
+        {
+            while (f.state < statements.length)
+            {
+                Task s = statements[f.state++];
+                if (m.statement(s, f.env))
+                {
+                    return;
+                }
+            }
+            m.done();
+        }
+    }
+
+    /**
+     * An assignment or READLN whose value contains a procedure call.
+     */
+    static final class Store extends Task
+    {
+        private final Variable var;
+        private final Task value;
+
+        /**
+         * Constructs a Store.
+         *
+         * @param var the variable
+         * @param value the value
+         */
+        Store(Variable var, Task value)
+        {
+            this.var = var;
+            this.value = value;
+        }
+
+        @Override
+        void step(StacklessInterpreter m, Frame f)
+        {
+            if (f.state == 0)
+            {
+                f.state = 1;
+                if (m.operand(value, f.env))
+                {
+                    return;
+                }
+            }
+            var.assign(f.env, m.pop());
+            m.done();
+        }
+    }
+
+    /**
+     * A WRITELN whose value contains a procedure call.
+     */
+    static final class Print extends Task
+    {
+        private final Task value;
+
+        /**
+         * Constructs a Print.
+         *
+         * @param value the value
+         */
+        Print(Task value)
+        {
+            this.value = value;
+        }
+
+        @Override
+        void step(StacklessInterpreter m, Frame f)
+        {
+            if (f.state == 0)
+            {
+                f.state = 1;
+                if (m.operand(value, f.env))
+                {
+                    return;
+                }
+            }
+            System.out.println(m.pop());
+            m.done();
+        }
+    }
+
+    /**
+     * An IF statement with a procedure call in it.
+     */
+    static final class Branch extends Task
+    {
+        private static final int DONE = 2;
+        private final Task condition;
+        private final Task then;
+        private final Task otherwise;
+
+        /**
+         * Constructs a Branch.
+         *
+         * @param condition the condition
+         * @param then the statement run when the condition holds
+         * @param otherwise the statement run when it does not, or null
+         */
+        Branch(Task condition, Task then, Task otherwise)
+        {
+            this.condition = condition;
+            this.then = then;
+            this.otherwise = otherwise;
+        }
+
+        @SuppressWarnings("fallthrough")
+        @Override
+        void step(StacklessInterpreter m, Frame f)
+        {
+            switch (f.state)
+            {
+                case 0:
+                    f.state = 1;
+                    if (m.operand(condition, f.env))
+                    {
+                        return;
+                    }
+                    // fall through
+                case 1:
+                    f.state = DONE;
+                    Task next = m.pop() == 1 ? then : otherwise;
+                    if (next != null && m.statement(next, f.env))
+                    {
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            m.done();
+        }
+    }
+
+    /**
+     * A CASE statement with a procedure call in it. The statement itself finds the arm, through
+     * its table or by binary search.
+     */
+    static final class Dispatch extends Task
+    {
+        private static final int DONE = 2;
+        private final Case node;
+        private final Task selector;
+        private final Task[] arms;
+        private final Task otherwise;
+
+        /**
+         * Constructs a Dispatch.
+         *
+         * @param node the statement
+         * @param selector the selector
+         * @param arms the arms
+         * @param otherwise the statement run when no label matches, or null
+         */
+        Dispatch(Case node, Task selector, Task[] arms, Task otherwise)
+        {
+            this.node = node;
+            this.selector = selector;
+            this.arms = arms;
+            this.otherwise = otherwise;
+        }
+
+        @SuppressWarnings("fallthrough")
+        @Override
+        void step(StacklessInterpreter m, Frame f)
+        {
+            switch (f.state)
+            {
+                case 0:
+                    f.state = 1;
+                    if (m.operand(selector, f.env))
+                    {
+                        return;
+                    }
+                    // fall through
+                case 1:
+                    f.state = DONE;
+                    int arm = node.select(m.pop());
+                    Task next = arm >= 0 ? arms[arm] : otherwise;
+                    if (next != null && m.statement(next, f.env))
+                    {
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            m.done();
+        }
+    }
+
+    /**
+     * A WHILE loop with a procedure call in it.
+     */
+    static final class Loop extends Task
+    {
+        private final Task condition;
+        private final Task body;
+
+        /**
+         * Constructs a Loop.
+         *
+         * @param condition the condition tested before each iteration
+         * @param body the body
+         */
+        Loop(Task condition, Task body)
+        {
+            this.condition = condition;
+            this.body = body;
+        }
+
+        @Override
+        void step(StacklessInterpreter m, Frame f)
+        {
+            while (true)
+            {
+                if (f.state == 0)
+                {
+                    f.state = 1;
+                    if (m.operand(condition, f.env))
+                    {
+                        return;
+                    }
+                }
+                if (m.pop() != 1)
+                {
+                    m.done();
+                    return;
+                }
+                f.state = 0;
+                if (m.statement(body, f.env))
+                {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * A FOR loop with a procedure call in it.
+     */
+    static final class Count extends Task
+    {
+        private final Task initialization;
+        private final Task condition;
+        private final Task body;
+        private final Task update;
+
+        /**
+         * Constructs a Count.
+         *
+         * @param initialization the assignment to the loop variable
+         * @param condition the condition tested before each iteration
+         * @param body the body
+         * @param update the increment of the loop variable
+         */
+        Count(Task initialization, Task condition, Task body, Task update)
+        {
+            this.initialization = initialization;
+            this.condition = condition;
+            this.body = body;
+            this.update = update;
+        }
+
+        @Override
+        void step(StacklessInterpreter m, Frame f)
+        {
+            if (f.state == 0)
+            {
+                f.state = 1;
+                if (m.statement(initialization, f.env))
+                {
+                    return;
+                }
+            }
+            while (true)
+            {
+                if (f.state == 1)
+                {
+                    f.state = 2;
+                    if (m.operand(condition, f.env))
+                    {
+                        return;
+                    }
+                }
+                if (f.state == 2)
+                {
+                    if (m.pop() != 1)
+                    {
+                        m.done();
+                        return;
+                    }
+                    f.state = 3;
+                    if (m.statement(body, f.env))
+                    {
+                        return;
+                    }
+                }
+                f.state = 1;
+                if (m.statement(update, f.env))
+                {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * An array assignment with a procedure call in its index or value. The array is looked
+     * up after the index and before the value, as in ArrayAssignment.exec.
+     */
+    static final class ElementStore extends Task
+    {
+        private final String name;
+        private final Task index;
+        private final Task value;
+
+        /**
+         * Constructs an ElementStore.
+         *
+         * @param name the name of the array
+         * @param index the index
+         * @param value the value
+         */
+        ElementStore(String name, Task index, Task value)
+        {
+            this.name = name;
+            this.index = index;
+            this.value = value;
+        }
+
+        @SuppressWarnings("fallthrough")
+        @Override
+        void step(StacklessInterpreter m, Frame f)
+        {
+            switch (f.state)
+            {
+                case 0:
+                    f.state = 1;
+                    if (m.operand(index, f.env))
+                    {
+                        return;
+                    }
+                    // fall through
+                case 1:
+                    f.aux = f.env.getArray(name);
+                    f.state = 2;
+                    if (m.operand(value, f.env))
+                    {
+                        return;
+                    }
+                    // fall through
+                default:
+                    int v = m.pop();
+                    ((IntArray) f.aux).set(m.pop(), v);
+                    m.done();
+            }
+        }
+    }
+
+    /**
+     * An array declaration whose size contains a procedure call.
+     */
+    static final class Allocate extends Task
+    {
+        private final String name;
+        private final Task size;
+
+        /**
+         * Constructs an Allocate.
+         *
+         * @param name the name of the array
+         * @param size the size
+         */
+        Allocate(String name, Task size)
+        {
+            this.name = name;
+            this.size = size;
+        }
+
+        @Override
+        void step(StacklessInterpreter m, Frame f)
+        {
+            if (f.state == 0)
+            {
+                f.state = 1;
+                if (m.operand(size, f.env))
+                {
+                    return;
+                }
+            }
+            f.env.declareArray(name, IntArray.allocate(m.pop()));
+            m.done();
+        }
+    }
+}
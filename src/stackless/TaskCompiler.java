@@ -0,0 +1,248 @@
+package stackless;
+
+import ast.*;
+import ast.Number;
+import java.util.Map;
+
+/**
+ * Turns the AST into tasks for the StacklessInterpreter. A node none of whose children
+ * call a procedure becomes a Value or Direct wrapping the node itself, so it runs as fast
+ * as the tree interpreter; only the nodes on the path to a call become state machines.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+class TaskCompiler implements ExpressionVisitor<Task>, StatementVisitor<Task>
+{
+    private final Map<String, Task.Procedure> procedures;
+
+    /**
+     * Constructs a TaskCompiler.
+     *
+     * @param procedures the procedures calls can refer to, by name
+     */
+    TaskCompiler(Map<String, Task.Procedure> procedures)
+    {
+        this.procedures = procedures;
+    }
+
+    /**
+     * Returns the task for an expression.
+     *
+     * @param e the expression
+     * @return the task that pushes its value
+     */
+    Task expression(Expression e)
+    {
+        return e.accept(this);
+    }
+
+    /**
+     * Returns the task for a statement.
+     *
+     * @param s the statement
+     * @return the task that executes it
+     */
+    Task statement(Statement s)
+    {
+        return s.accept(this);
+    }
+
+    /**
+     * Returns whether every task runs directly in the AST.
+     *
+     * @param tasks the tasks, some of which may be null
+     * @return true if none of them needs a frame of its own
+     */
+    private static boolean direct(Task... tasks)
+    {
+        for (Task t : tasks)
+        {
+            if (t != null && !(t instanceof Task.Value) && !(t instanceof Task.Direct))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Task visitNumber(Number n)
+    {
+        return new Task.Value(n);
+    }
+
+    @Override
+    public Task visitVariable(Variable v)
+    {
+        return new Task.Value(v);
+    }
+
+    @Override
+    public Task visitBinOp(BinOp b)
+    {
+        Task left = expression(b.getExp1());
+        Task right = expression(b.getExp2());
+        return direct(left, right) ? new Task.Value(b) : new Task.Arithmetic(b.getOp(), left, right);
+    }
+
+    @Override
+    public Task visitCondition(Condition c)
+    {
+        Task left = expression(c.getExp1());
+        Task right = expression(c.getExp2());
+        return direct(left, right) ? new Task.Value(c) : new Task.Comparison(c.getOp(), left, right);
+    }
+
+    @Override
+    public Task visitBoolOp(BoolOp b)
+    {
+        Task left = expression(b.getExp1());
+        Task right = expression(b.getExp2());
+        if (direct(left, right))
+        {
+            return new Task.Value(b);
+        }
+        return new Task.Logical(b.getOp().equals(BoolOp.AND), left, right);
+    }
+
+    @Override
+    public Task visitNot(Not n)
+    {
+        Task operand = expression(n.getExp());
+        return direct(operand) ? new Task.Value(n) : new Task.Negation(operand);
+    }
+
+    @Override
+    public Task visitProcedureCall(ProcedureCall p)
+    {
+        Expression[] argVals = p.getArgVals();
+        Task[] args = new Task[argVals.length];
+        for (int i = 0; i < args.length; i++)
+        {
+            args[i] = expression(argVals[i]);
+        }
+        return new Task.Call(p.getName(), procedures.get(p.getName()), args, p.isTail());
+    }
+
+    @Override
+    public Task visitArrayElement(ArrayElement a)
+    {
+        Task index = expression(a.getIndex());
+        return direct(index) ? new Task.Value(a) : new Task.Element(a.getName(), index);
+    }
+
+    @Override
+    public Task visitBlock(Block b)
+    {
+        Task[] statements = new Task[b.getStatements().size()];
+        for (int i = 0; i < statements.length; i++)
+        {
+            statements[i] = statement(b.getStatements().get(i));
+        }
+        return direct(statements) ? new Task.Direct(b) : new Task.Sequence(statements);
+    }
+
+    @Override
+    public Task visitAssignment(Assignment a)
+    {
+        Task value = expression(a.getExpr());
+        return direct(value) ? new Task.Direct(a) : new Task.Store(a.getVar(), value);
+    }
+
+    @Override
+    public Task visitWriteln(Writeln w)
+    {
+        Task value = expression(w.getExpr());
+        return direct(value) ? new Task.Direct(w) : new Task.Print(value);
+    }
+
+    @Override
+    public Task visitReadln(Readln r)
+    {
+        return new Task.Direct(r);
+    }
+
+    @Override
+    public Task visitIf(If i)
+    {
+        Task condition = expression(i.getCondition());
+        Task then = statement(i.getStatement());
+        Task otherwise = i.getElse() == null ? null : statement(i.getElse());
+        if (direct(condition, then, otherwise))
+        {
+            return new Task.Direct(i);
+        }
+        return new Task.Branch(condition, then, otherwise);
+    }
+
+    @Override
+    public Task visitCase(Case c)
+    {
+        Task selector = expression(c.getSelector());
+        Task[] arms = new Task[c.getArms().length];
+        for (int k = 0; k < arms.length; k++)
+        {
+            arms[k] = statement(c.getArms()[k]);
+        }
+        Task otherwise = c.getElse() == null ? null : statement(c.getElse());
+        if (direct(selector, otherwise) && direct(arms))
+        {
+            return new Task.Direct(c);
+        }
+        return new Task.Dispatch(c, selector, arms, otherwise);
+    }
+
+    @Override
+    public Task visitWhile(While w)
+    {
+        Task condition = expression(w.getCondition());
+        Task body = statement(w.getBody());
+        return direct(condition, body) ? new Task.Direct(w) : new Task.Loop(condition, body);
+    }
+
+    @Override
+    public Task visitFor(For f)
+    {
+        Task initialization = statement(f.getInitialization());
+        Task condition = expression(f.getCondition());
+        Task body = statement(f.getBody());
+        Task update = statement(f.getVarUpdate());
+        if (direct(initialization, condition, body, update))
+        {
+            return new Task.Direct(f);
+        }
+        return new Task.Count(initialization, condition, body, update);
+    }
+
+    @Override
+    public Task visitProcedureDeclaration(ProcedureDeclaration p)
+    {
+        return new Task.Direct(p);
+    }
+
+    @Override
+    public Task visitArrayDeclaration(ArrayDeclaration a)
+    {
+        Task size = expression(a.getSize());
+        return direct(size) ? new Task.Direct(a) : new Task.Allocate(a.getName(), size);
+    }
+
+    @Override
+    public Task visitArrayAssignment(ArrayAssignment a)
+    {
+        Task index = expression(a.getIndex());
+        Task value = expression(a.getExpr());
+        if (direct(index, value))
+        {
+            return new Task.Direct(a);
+        }
+        return new Task.ElementStore(a.getName(), index, value);
+    }
+
+    @Override
+    public Task visitVarDeclaration(VarDeclaration v)
+    {
+        return new Task.Direct(v);
+    }
+}
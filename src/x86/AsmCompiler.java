@@ -0,0 +1,280 @@
+package x86;
+
+import ast.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Compiles a whole program ahead of time into x86-64 GNU assembly for Linux, which the C
+ * compiler driver assembles and links with the C library into an executable, as in
+ * gcc -o program program.s. It does not need the JVM.
+ *
+ * Each procedure becomes a System V function that takes its arguments as ints and returns
+ * its result in EAX, and the main body becomes main. The InstructionSelector lowers each
+ * body to code over virtual registers, LinearScan allocates machine registers for them and
+ * the AsmWriter writes the assembly. AsmRuntime supplies WRITELN, READLN, arrays and
+ * run-time errors.
+ *
+ * Global slot variables, and the root value of each variable the parser could not resolve
+ * together with whether the root has defined it, are ints in the data of the program, as
+ * are the addresses of the arrays declared in the root. Messages of run-time errors are
+ * strings in the read-only data.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class AsmCompiler
+{
+    private final Map<String, ProcedureDeclaration> procedures = new HashMap<>();
+    private final Map<ProcedureDeclaration, String> symbols = new HashMap<>();
+    private final Map<String, Integer> globalArrays = new LinkedHashMap<>();
+    private final Set<String> data = new TreeSet<>();
+    private final Map<String, Integer> variables = new HashMap<>();
+    private final Map<String, Integer> arrays = new HashMap<>();
+    private final Map<String, String> strings = new LinkedHashMap<>();
+    private int functions;
+    private int registers;
+    private int spilled;
+
+    /**
+     * Compiles a program and writes it as an assembly file.
+     *
+     * Precondition: The program was produced by the Parser.
+     * Postcondition: The executable linked from the file produces the same output as
+     * program.exec.
+     *
+     * @param program the program to compile
+     * @param file the assembly file to write
+     * @return the compiler, for its report
+     * @throws IOException if the file cannot be written
+     */
+    public static AsmCompiler writeAssembly(Program program, Path file) throws IOException
+    {
+        AsmCompiler compiler = new AsmCompiler();
+        Files.writeString(file, compiler.compile(program));
+        return compiler;
+    }
+
+    /**
+     * Compiles a program into assembly.
+     *
+     * @param program the program to compile
+     * @return the assembly
+     */
+    public String compile(Program program)
+    {
+        List<ProcedureDeclaration> order = new ArrayList<>();
+        Program p = program;
+        while (p.getMainBody() == null)
+        {
+            if (p.getDeclarations() != null)
+            {
+                globalArrays.putAll(p.getDeclarations().getArrays());
+            }
+            else
+            {
+                // a later declaration with the same name replaces an earlier one
+                ProcedureDeclaration earlier = procedures.put(p.getProcedure().getName(),
+                        p.getProcedure());
+                order.remove(earlier);
+                order.add(p.getProcedure());
+            }
+            p = p.getChildProgram();
+        }
+
+        StringBuilder text = new StringBuilder();
+        text.append("\t.text\n");
+        Set<Integer> sharedSlots = new HashSet<>();
+        Set<String> sharedNames = new HashSet<>();
+        for (ProcedureDeclaration proc : order)
+        {
+            InstructionSelector selector = new InstructionSelector(this, proc, Set.of(),
+                    Set.of());
+            List<Instruction> code = selector.select(proc.getBody());
+            sharedSlots.addAll(selector.getSlotsUsed());
+            sharedNames.addAll(selector.getNamesUsed());
+            text.append("# PROCEDURE ").append(proc.getName()).append('\n');
+            write(text, procedureSymbol(proc), proc.getArgs().length, code,
+                    selector.getRegisterCount(), false);
+        }
+        InstructionSelector selector = new InstructionSelector(this, null, sharedSlots,
+                sharedNames);
+        List<Instruction> code = selector.select(p.getMainBody());
+        text.append("# main body\n");
+        write(text, "main", 0, code, selector.getRegisterCount(), true);
+
+        text.append(AsmRuntime.TEXT);
+        text.append("\n\t.section .rodata\n");
+        for (Map.Entry<String, String> s : strings.entrySet())
+        {
+            text.append(s.getValue()).append(":\n\t.string\t\"");
+            for (char c : s.getKey().toCharArray())
+            {
+                if (c == '\n')
+                {
+                    text.append("\\n");
+                }
+                else
+                {
+                    if (c == '"' || c == '\\')
+                    {
+                        text.append('\\');
+                    }
+                    text.append(c);
+                }
+            }
+            text.append("\"\n");
+        }
+        text.append("\n\t.bss\n\t.align\t8\n");
+        for (String symbol : data)
+        {
+            text.append(symbol).append(":\n\t.zero\t8\n");
+        }
+        text.append("\n\t.section .note.GNU-stack,\"\",@progbits\n");
+        return text.toString();
+    }
+
+    /**
+     * Allocates registers for a body and writes its function.
+     *
+     * @param text where to write the assembly
+     * @param symbol the symbol of the function
+     * @param params the number of parameters
+     * @param code the code of the body
+     * @param count the number of virtual registers the code uses
+     * @param main true for the main body
+     */
+    private void write(StringBuilder text, String symbol, int params, List<Instruction> code,
+            int count, boolean main)
+    {
+        LinearScan allocation = new LinearScan(code, count);
+        new AsmWriter(this, text, symbol, params, code, allocation, main).write();
+        functions++;
+        registers += count;
+        spilled += allocation.getSpillSlots();
+    }
+
+    /**
+     * Finds the procedure a call refers to.
+     *
+     * @param name the name of the procedure
+     * @return the procedure, or null if there is none
+     */
+    public ProcedureDeclaration resolve(String name)
+    {
+        return procedures.get(name);
+    }
+
+    /**
+     * @return the arrays the VAR section of the program declares, and their lengths
+     */
+    public Map<String, Integer> getGlobalArrays()
+    {
+        return globalArrays;
+    }
+
+    /**
+     * Returns the symbol of the function a procedure is compiled to.
+     *
+     * @param p the procedure
+     * @return the symbol
+     */
+    public String procedureSymbol(ProcedureDeclaration p)
+    {
+        return symbols.computeIfAbsent(p, k -> "p" + symbols.size());
+    }
+
+    /**
+     * Returns a symbol in the data of the program, adding it the first time.
+     *
+     * @param name the symbol
+     * @return the symbol
+     */
+    private String data(String name)
+    {
+        data.add(name);
+        return name;
+    }
+
+    /**
+     * Returns the int in the data that holds a global slot variable.
+     *
+     * @param slot the global slot
+     * @return the symbol
+     */
+    public String globalSymbol(int slot)
+    {
+        return data("g_" + slot);
+    }
+
+    /**
+     * Returns the int in the data that holds the root value of a variable the parser could
+     * not resolve.
+     *
+     * @param name the variable name
+     * @return the symbol
+     */
+    public String valueSymbol(String name)
+    {
+        return data("v_" + variables.computeIfAbsent(name, k -> variables.size()));
+    }
+
+    /**
+     * Returns the int in the data that records whether the root has defined a variable the
+     * parser could not resolve.
+     *
+     * @param name the variable name
+     * @return the symbol
+     */
+    public String definedSymbol(String name)
+    {
+        return data("d_" + variables.computeIfAbsent(name, k -> variables.size()));
+    }
+
+    /**
+     * Returns the address in the data of an array declared in the root.
+     *
+     * @param name the array name
+     * @return the symbol
+     */
+    public String arraySymbol(String name)
+    {
+        return data("a_" + arrays.computeIfAbsent(name, k -> arrays.size()));
+    }
+
+    /**
+     * Returns the label of a printf format in the read-only data, adding it the first time.
+     *
+     * @param format the format
+     * @return the label
+     */
+    public String format(String format)
+    {
+        return strings.computeIfAbsent(format, k -> ".Lstr" + strings.size());
+    }
+
+    /**
+     * Returns the label of the format that reports a run-time error with a fixed message.
+     *
+     * @param message the message
+     * @return the label
+     */
+    public String message(String message)
+    {
+        return format("Runtime error: " + message.replace("%", "%%") + "\n");
+    }
+
+    /**
+     * Describes what the compiler did.
+     *
+     * @return the report, one item per line
+     */
+    public String getReport()
+    {
+        return "x86 functions compiled: " + functions + "\n"
+                + "virtual registers allocated: " + registers + "\n"
+                + "virtual registers spilled to the stack: " + spilled + "\n";
+    }
+}
@@ -0,0 +1,226 @@
+package x86;
+
+/**
+ * The run-time support the AsmCompiler appends to every assembly file, written in x86-64
+ * GNU assembly against the C library, so the file only needs to be assembled and linked
+ * with a C compiler driver, as in gcc -o program program.s.
+ *
+ * rt_write prints a number on its own line through the buffered standard output. rt_read
+ * flushes the output and reads the next whitespace separated token, which must be a number,
+ * like AotRuntime.read. rt_new_array allocates a zero-filled array with the same checks as
+ * IntArray.allocate: the length is kept in the first int and element i is int i + 1.
+ * rt_fail flushes the output, prints a run-time error the way ParserTester does, and exits
+ * with status 1.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class AsmRuntime
+{
+    /** the assembly of the run-time support */
+    public static final String TEXT = """
+            # run-time support
+            \t.text
+            rt_write:
+            \tsubq\t$8, %rsp
+            \tmovl\t%edi, %esi
+            \tleaq\t.Lrt_number(%rip), %rdi
+            \txorl\t%eax, %eax
+            \tcall\tprintf@PLT
+            \taddq\t$8, %rsp
+            \tret
+
+            # sets eax to 1 if edi is an ASCII letter or digit, else to 0
+            .Lrt_alnum:
+            \tleal\t-48(%rdi), %ecx
+            \tcmpl\t$9, %ecx
+            \tjbe\t1f
+            \tmovl\t%edi, %ecx
+            \torl\t$32, %ecx
+            \tsubl\t$97, %ecx
+            \tcmpl\t$25, %ecx
+            \tjbe\t1f
+            \txorl\t%eax, %eax
+            \tret
+            1:\tmovl\t$1, %eax
+            \tret
+
+            rt_read:
+            \tpushq\t%rbx
+            \tpushq\t%r12
+            \tpushq\t%r13
+            \tmovq\tstdout@GOTPCREL(%rip), %rax
+            \tmovq\t(%rax), %rdi
+            \tcall\tfflush@PLT
+            .Lrt_skip:
+            \tcall\tgetchar@PLT
+            \tcmpl\t$-1, %eax
+            \tje\t.Lrt_eof
+            \tcmpl\t$32, %eax
+            \tje\t.Lrt_skip
+            \tleal\t-9(%rax), %ecx
+            \tcmpl\t$4, %ecx
+            \tjbe\t.Lrt_skip
+            \tleal\t-28(%rax), %ecx
+            \tcmpl\t$3, %ecx
+            \tjbe\t.Lrt_skip
+            \t# ebx is the character, r12 the length of the token, r13 whether it is a number
+            \tmovl\t%eax, %ebx
+            \txorl\t%r13d, %r13d
+            \tleal\t-48(%rax), %ecx
+            \tcmpl\t$9, %ecx
+            \tsetbe\t%r13b
+            \tleaq\trt_token(%rip), %rdx
+            \tmovb\t%bl, (%rdx)
+            \tmovl\t$1, %r12d
+            \tmovl\t%ebx, %edi
+            \tcall\t.Lrt_alnum
+            \ttestl\t%eax, %eax
+            \tjz\t.Lrt_end
+            .Lrt_next:
+            \tcall\tgetchar@PLT
+            \tcmpl\t$-1, %eax
+            \tje\t.Lrt_end
+            \tmovl\t%eax, %ebx
+            \ttestl\t%r13d, %r13d
+            \tjz\t1f
+            \tleal\t-48(%rbx), %ecx
+            \tcmpl\t$9, %ecx
+            \tjbe\t2f
+            \tjmp\t.Lrt_unget
+            1:\tmovl\t%ebx, %edi
+            \tcall\t.Lrt_alnum
+            \ttestl\t%eax, %eax
+            \tjz\t.Lrt_unget
+            2:\tcmpq\t$255, %r12
+            \tjae\t3f
+            \tleaq\trt_token(%rip), %rdx
+            \tmovb\t%bl, (%rdx,%r12)
+            3:\tincq\t%r12
+            \tjmp\t.Lrt_next
+            .Lrt_unget:
+            \tmovl\t%ebx, %edi
+            \tmovq\tstdin@GOTPCREL(%rip), %rax
+            \tmovq\t(%rax), %rsi
+            \tcall\tungetc@PLT
+            .Lrt_end:
+            \tcmpq\t$255, %r12
+            \tjbe\t1f
+            \tmovl\t$255, %r12d
+            1:\tleaq\trt_token(%rip), %rdx
+            \tmovb\t$0, (%rdx,%r12)
+            \ttestl\t%r13d, %r13d
+            \tjz\t.Lrt_word
+            \txorl\t%eax, %eax
+            \txorl\t%ecx, %ecx
+            2:\tmovzbl\t(%rdx,%rcx), %esi
+            \ttestl\t%esi, %esi
+            \tjz\t3f
+            \timulq\t$10, %rax
+            \tleaq\t-48(%rax,%rsi), %rax
+            \tcmpq\t$2147483647, %rax
+            \tja\t.Lrt_range
+            \tincq\t%rcx
+            \tjmp\t2b
+            3:\tpopq\t%r13
+            \tpopq\t%r12
+            \tpopq\t%rbx
+            \tret
+            .Lrt_eof:
+            \tleaq\t.Lrt_eof_message(%rip), %rdi
+            \txorl\t%eax, %eax
+            \tcall\trt_fail
+            .Lrt_word:
+            \tleaq\t.Lrt_word_message(%rip), %rdi
+            \tleaq\trt_token(%rip), %rsi
+            \txorl\t%eax, %eax
+            \tcall\trt_fail
+            .Lrt_range:
+            \tleaq\t.Lrt_range_message(%rip), %rdi
+            \tleaq\trt_token(%rip), %rsi
+            \txorl\t%eax, %eax
+            \tcall\trt_fail
+
+            rt_new_array:
+            \ttestl\t%edi, %edi
+            \tjs\t.Lrt_negative
+            \tcmpl\t$536870911, %edi
+            \tja\t.Lrt_large
+            \tpushq\t%rbx
+            \tmovl\t%edi, %ebx
+            \tmovl\t%edi, %edi
+            \tincq\t%rdi
+            \tmovl\t$4, %esi
+            \tcall\tcalloc@PLT
+            \ttestq\t%rax, %rax
+            \tjz\t.Lrt_memory
+            \tmovl\t%ebx, (%rax)
+            \tpopq\t%rbx
+            \tret
+            .Lrt_negative:
+            \tsubq\t$8, %rsp
+            \tmovl\t%edi, %esi
+            \tleaq\t.Lrt_negative_message(%rip), %rdi
+            \txorl\t%eax, %eax
+            \tcall\trt_fail
+            .Lrt_large:
+            \tsubq\t$8, %rsp
+            \tmovl\t%edi, %esi
+            \tleaq\t.Lrt_large_message(%rip), %rdi
+            \txorl\t%eax, %eax
+            \tcall\trt_fail
+            .Lrt_memory:
+            \tleaq\t.Lrt_memory_message(%rip), %rdi
+            \txorl\t%eax, %eax
+            \tcall\trt_fail
+
+            # prints the format in rdi with the ints or strings in rsi and rdx, then exits
+            rt_fail:
+            \tpushq\t%rbx
+            \tpushq\t%r12
+            \tpushq\t%r13
+            \tmovq\t%rdi, %rbx
+            \tmovq\t%rsi, %r12
+            \tmovq\t%rdx, %r13
+            \tmovq\tstdout@GOTPCREL(%rip), %rax
+            \tmovq\t(%rax), %rdi
+            \tcall\tfflush@PLT
+            \tmovq\tstderr@GOTPCREL(%rip), %rax
+            \tmovq\t(%rax), %rdi
+            \tmovq\t%rbx, %rsi
+            \tmovq\t%r12, %rdx
+            \tmovq\t%r13, %rcx
+            \txorl\t%eax, %eax
+            \tcall\tfprintf@PLT
+            \tmovl\t$1, %edi
+            \tcall\texit@PLT
+
+            \t.section .rodata
+            .Lrt_number:
+            \t.string\t"%d\\n"
+            .Lrt_eof_message:
+            \t.string\t"Runtime error: Error reading input: Expected a number, got: EOF\\n"
+            .Lrt_word_message:
+            \t.string\t"Runtime error: Error reading input: Expected a number, got: %s\\n"
+            .Lrt_range_message:
+            \t.string\t"Runtime error: For input string: \\"%s\\"\\n"
+            .Lrt_negative_message:
+            \t.string\t"Runtime error: Invalid array length %d\\n"
+            .Lrt_large_message:
+            \t.string\t"Runtime error: Array length %d is too large\\n"
+            .Lrt_memory_message:
+            \t.string\t"Runtime error: Out of memory\\n"
+
+            \t.bss
+            \t.align\t16
+            rt_token:
+            \t.zero\t256
+            """;
+
+    /**
+     * AsmRuntime only holds the text of the run-time support.
+     */
+    private AsmRuntime()
+    {
+    }
+}
@@ -0,0 +1,210 @@
+package x86;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A tester class for the AsmCompiler. Each program is run in the AST interpreter, then
+ * compiled to assembly, assembled and linked with gcc and run as a native executable with
+ * the same input, and the output of the two runs, standard output and standard error
+ * together, must be the same.
+ *
+ * @author Vouk
+ * @version October 19, 2026
+ */
+public class AsmTester
+{
+    /**
+     * The folder whose parserTest files are tested when no file is given.
+     */
+    public static final String TEST_FOLDER = "src/parser";
+
+    /**
+     * How long a run may take before it counts as a failure, in seconds.
+     */
+    public static final int TIMEOUT = 60;
+
+    /**
+     * Runs the test on each program.
+     *
+     * Precondition: gcc is on the path and the classes of the compiler are on the class path.
+     * Postcondition: Each program is reported as passed or failed, and the tester exits with
+     * status 1 if any failed.
+     *
+     * Usage: AsmTester [-O] [-input text] [file ...]
+     *
+     * -O optimizes the program before it is compiled to assembly; the interpreter always
+     * runs it as written. -input sets what both runs read, by default 5 and a newline.
+     * Without files, every parserTest file in src/parser is tested.
+     *
+     * @param args command line arguments
+     * @throws IOException if a file cannot be read or written
+     * @throws InterruptedException if the tester is interrupted while a run is waiting
+     */
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        boolean optimize = false;
+        String input = "5\n";
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++)
+        {
+            switch (args[i])
+            {
+                case "-O" -> optimize = true;
+                case "-input" -> input = args[++i] + "\n";
+                default -> files.add(Paths.get(args[i]));
+            }
+        }
+        if (files.isEmpty())
+        {
+            try (Stream<Path> folder = Files.list(Paths.get(TEST_FOLDER)))
+            {
+                folder.filter(f -> f.getFileName().toString().matches("parserTest\\d+\\.txt"))
+                        .sorted((a, b) -> Integer.compare(number(a), number(b)))
+                        .forEach(files::add);
+            }
+        }
+
+        Path dir = Files.createTempDirectory("asmtest");
+        int failed = 0;
+        for (Path file : files)
+        {
+            String failure = test(file, optimize, input, dir);
+            if (failure == null)
+            {
+                System.out.println("PASS " + file);
+            }
+            else
+            {
+                System.out.println("FAIL " + file + ": " + failure);
+                failed++;
+            }
+        }
+        System.out.println((files.size() - failed) + " of " + files.size() + " programs passed");
+        if (failed > 0)
+        {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Tests one program.
+     *
+     * @param file the program
+     * @param optimize true to optimize the program before it is compiled to assembly
+     * @param input what both runs read
+     * @param dir the folder for the assembly and the executable
+     * @return why the test failed, or null if it passed
+     * @throws IOException if a file cannot be read or written
+     * @throws InterruptedException if the tester is interrupted while a run is waiting
+     */
+    private static String test(Path file, boolean optimize, String input, Path dir)
+            throws IOException, InterruptedException
+    {
+        String name = file.getFileName().toString().replace(".txt", "");
+        Path assembly = dir.resolve(name + ".s");
+        Path executable = dir.resolve(name);
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        String classPath = System.getProperty("java.class.path");
+
+        String expected = run(input, java, "-Xss8m", "-cp", classPath, "parser.ParserTester",
+                file.toString());
+        List<String> compile = new ArrayList<>(Arrays.asList(java, "-cp", classPath,
+                "parser.ParserTester", file.toString(), "-asm", assembly.toString()));
+        if (optimize)
+        {
+            compile.add("-O");
+        }
+        String output = run("", compile.toArray(new String[0]));
+        if (!Files.exists(assembly))
+        {
+            return "not compiled: " + output.strip();
+        }
+        output = run("", "gcc", "-o", executable.toString(), assembly.toString());
+        if (!Files.exists(executable))
+        {
+            return "not linked: " + output.strip();
+        }
+        String actual = run(input, executable.toString());
+        if (actual.equals(expected))
+        {
+            return null;
+        }
+        String[] want = expected.split("\n", -1);
+        String[] got = actual.split("\n", -1);
+        int line = 0;
+        while (line < want.length && line < got.length && want[line].equals(got[line]))
+        {
+            line++;
+        }
+        return "line " + (line + 1) + " is " + (line < got.length ? "\"" + got[line] + "\""
+                : "missing") + ", the interpreter printed " + (line < want.length ? "\""
+                + want[line] + "\"" : "nothing");
+    }
+
+    /**
+     * Runs a command and returns what it prints.
+     *
+     * @param input what the command reads
+     * @param command the command and its arguments
+     * @return the standard output and standard error of the command, with a line that
+     *         describes how it ended if it did not exit normally
+     * @throws IOException if the command cannot be started
+     * @throws InterruptedException if the tester is interrupted while the command is waiting
+     */
+    private static String run(String input, String... command)
+            throws IOException, InterruptedException
+    {
+        Path out = File.createTempFile("asmtest", ".out").toPath();
+        try
+        {
+            Process process = new ProcessBuilder(command).redirectErrorStream(true)
+                    .redirectOutput(out.toFile()).start();
+            try
+            {
+                process.getOutputStream().write(input.getBytes(StandardCharsets.UTF_8));
+                process.getOutputStream().close();
+            }
+            catch (IOException e)
+            {
+                // the command ended without reading all of its input
+            }
+            String status = "";
+            if (!process.waitFor(TIMEOUT, TimeUnit.SECONDS))
+            {
+                process.destroyForcibly();
+                status = "timed out after " + TIMEOUT + " seconds\n";
+            }
+            else if (process.exitValue() > 128)
+            {
+                // Java reports a process killed by a signal as 128 plus the signal, as in 139
+                status = "killed by signal " + (process.exitValue() - 128) + "\n";
+            }
+            return Files.readString(out) + status;
+        }
+        finally
+        {
+            Files.delete(out);
+        }
+    }
+
+    /**
+     * Returns the number of a parserTest file, so parserTest10 comes after parserTest9.
+     *
+     * @param file the file
+     * @return its number
+     */
+    private static int number(Path file)
+    {
+        return Integer.parseInt(file.getFileName().toString().replaceAll("\\D", ""));
+    }
+}
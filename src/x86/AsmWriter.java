@@ -0,0 +1,602 @@
+package x86;
+
+import java.util.*;
+
+/**
+ * Writes the x86-64 GNU assembly of one body, once LinearScan has allocated its registers.
+ *
+ * The body is a System V function. It keeps RBP as the frame pointer and saves the
+ * preserved registers it uses below it, followed by the stack slots of the spilled
+ * registers and one slot for each argument that came in a register, where the PARAMs read
+ * it. RSP stays 16-byte aligned everywhere in the body, so it can call a C function at any
+ * point.
+ *
+ * A call passes its first six arguments in EDI, ESI, EDX, ECX, R8D and R9D and the rest on
+ * the stack. The arguments are pushed and the first six popped into their registers, since
+ * some of them may be in registers that other arguments go to. No register a call may
+ * change holds anything live across it, so nothing is saved around it. A TAIL_CALL moves
+ * its arguments into their registers, restores what the function saved and jumps to the
+ * procedure, which then returns to the caller of this function.
+ *
+ * Errors are reported by stubs at the end of the function that call rt_fail: division by
+ * zero and an index out of bounds share one stub each, and each lookup of an array that may
+ * not exist has its own. The jump tables of SWITCHes follow the function in the read-only
+ * data, as offsets from the table to each label, so the code stays position independent.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class AsmWriter
+{
+    private static final String[] ARGUMENTS = {"rdi", "rsi", "rdx", "rcx", "r8", "r9"};
+    private static final String[] ARGUMENTS32 = {"edi", "esi", "edx", "ecx", "r8d", "r9d"};
+
+    private final AsmCompiler unit;
+    private final StringBuilder out;
+    private final String symbol;
+    private final List<Instruction> code;
+    private final LinearScan allocation;
+    private final boolean main;
+    private final List<Integer> saved;
+    private final int homes;
+    private final List<String> stubs = new ArrayList<>();
+    private final List<int[]> tables = new ArrayList<>();
+    private boolean divides;
+    private boolean indexes;
+
+    /**
+     * Constructs an AsmWriter.
+     *
+     * @param unit the program being compiled
+     * @param out where to write the assembly
+     * @param symbol the symbol of the function
+     * @param params the number of parameters, 0 for the main body
+     * @param code the code of the body
+     * @param allocation the registers allocated for the code
+     * @param main true if the body is the main body, which returns 0 to the C library
+     */
+    public AsmWriter(AsmCompiler unit, StringBuilder out, String symbol, int params,
+            List<Instruction> code, LinearScan allocation, boolean main)
+    {
+        this.unit = unit;
+        this.out = out;
+        this.symbol = symbol;
+        this.code = code;
+        this.allocation = allocation;
+        this.main = main;
+        this.saved = allocation.getCalleeSaved();
+        this.homes = Math.min(params, ARGUMENTS.length);
+    }
+
+    /**
+     * Writes the function.
+     */
+    public void write()
+    {
+        int slots = allocation.getSpillSlots() + homes;
+        int frame = 8 * slots;
+        if ((8 * saved.size() + frame) % 16 != 0)
+        {
+            frame += 8;
+        }
+        if (main)
+        {
+            out.append("\t.globl\tmain\n");
+        }
+        out.append("\t.type\t").append(symbol).append(", @function\n");
+        out.append(symbol).append(":\n");
+        emit("pushq\t%rbp");
+        emit("movq\t%rsp, %rbp");
+        for (int r : saved)
+        {
+            emit("pushq\t%" + LinearScan.REGISTERS[r]);
+        }
+        if (frame > 0)
+        {
+            emit("subq\t$" + frame + ", %rsp");
+        }
+        for (int i = 0; i < homes; i++)
+        {
+            emit("movl\t%" + ARGUMENTS32[i] + ", " + slot(allocation.getSpillSlots() + i));
+        }
+
+        for (int i = 0; i < code.size(); i++)
+        {
+            Instruction in = code.get(i);
+            if (in.getOpcode() == Opcode.JUMP && fallsThrough(i, in.getLabel()))
+            {
+                continue;
+            }
+            write(in);
+        }
+
+        if (divides)
+        {
+            out.append(".L").append(symbol).append("_zero:\n");
+            fail(unit.message("/ by zero"));
+        }
+        if (indexes)
+        {
+            out.append(".L").append(symbol).append("_bounds:\n");
+            emit("movl\t%edx, %esi");
+            emit("movl\t(%rax), %edx");
+            fail(unit.format("Runtime error: Index %d out of bounds for length %d\n"));
+        }
+        for (int k = 0; k < stubs.size(); k++)
+        {
+            out.append(".L").append(symbol).append("_array").append(k).append(":\n");
+            fail(stubs.get(k));
+        }
+        out.append("\t.size\t").append(symbol).append(", .-").append(symbol).append("\n");
+        if (!tables.isEmpty())
+        {
+            out.append("\t.section .rodata\n\t.align\t4\n");
+            for (int k = 0; k < tables.size(); k++)
+            {
+                String table = ".L" + symbol + "_table" + k;
+                out.append(table).append(":\n");
+                for (int target : tables.get(k))
+                {
+                    emit(".long\t" + label(target) + "-" + table);
+                }
+            }
+            out.append("\t.text\n");
+        }
+        out.append('\n');
+    }
+
+    /**
+     * Returns whether a jump goes to where control would fall anyway.
+     *
+     * @param i the index of the jump
+     * @param label the label it jumps to
+     * @return true if only labels lie between the jump and its label
+     */
+    private boolean fallsThrough(int i, int label)
+    {
+        for (int k = i + 1; k < code.size() && code.get(k).getOpcode() == Opcode.LABEL; k++)
+        {
+            if (code.get(k).getLabel() == label)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Appends one instruction of assembly.
+     *
+     * @param text the instruction
+     */
+    private void emit(String text)
+    {
+        out.append('\t').append(text).append('\n');
+    }
+
+    /**
+     * Appends a call to rt_fail with a format already in the data.
+     *
+     * @param format the label of the format
+     */
+    private void fail(String format)
+    {
+        emit("leaq\t" + format + "(%rip), %rdi");
+        emit("xorl\t%eax, %eax");
+        emit("call\trt_fail");
+    }
+
+    /**
+     * @param label a label of the body
+     * @return its assembly label
+     */
+    private String label(int label)
+    {
+        return ".L" + symbol + "_" + label;
+    }
+
+    /**
+     * @param n a stack slot
+     * @return its address
+     */
+    private String slot(int n)
+    {
+        return -(8 * saved.size() + 8 * (n + 1)) + "(%rbp)";
+    }
+
+    /**
+     * @param r a virtual register
+     * @return true if it is kept in a machine register
+     */
+    private boolean inRegister(int r)
+    {
+        return allocation.getLocation(r) >= 0;
+    }
+
+    /**
+     * @param r a virtual register
+     * @return its location as a 64-bit operand
+     */
+    private String q(int r)
+    {
+        int location = allocation.getLocation(r);
+        return location >= 0 ? "%" + LinearScan.REGISTERS[location] : slot(-1 - location);
+    }
+
+    /**
+     * @param r a virtual register
+     * @return its location as a 32-bit operand
+     */
+    private String d(int r)
+    {
+        int location = allocation.getLocation(r);
+        return location >= 0 ? "%" + LinearScan.REGISTERS32[location] : slot(-1 - location);
+    }
+
+    /**
+     * Appends a 32-bit move into a virtual register.
+     *
+     * @param source the operand to move, which may be in memory
+     * @param r the virtual register
+     */
+    private void moveTo(String source, int r)
+    {
+        if (inRegister(r) || source.startsWith("%") || source.startsWith("$"))
+        {
+            emit("movl\t" + source + ", " + d(r));
+        }
+        else
+        {
+            emit("movl\t" + source + ", %eax");
+            emit("movl\t%eax, " + d(r));
+        }
+    }
+
+    /**
+     * Appends the comparison of a SET or BRANCH.
+     *
+     * @param in the instruction
+     */
+    private void compare(Instruction in)
+    {
+        int a = in.getUses()[0];
+        if (in.isImmediate())
+        {
+            if (in.getValue() == 0 && inRegister(a))
+            {
+                emit("testl\t" + d(a) + ", " + d(a));
+            }
+            else
+            {
+                emit("cmpl\t$" + in.getValue() + ", " + d(a));
+            }
+            return;
+        }
+        int b = in.getUses()[1];
+        if (!inRegister(a) && !inRegister(b))
+        {
+            emit("movl\t" + d(a) + ", %eax");
+            emit("cmpl\t" + d(b) + ", %eax");
+        }
+        else
+        {
+            emit("cmpl\t" + d(b) + ", " + d(a));
+        }
+    }
+
+    /**
+     * Appends the assembly of an instruction.
+     *
+     * @param in the instruction
+     */
+    private void write(Instruction in)
+    {
+        int[] uses = in.getUses();
+        int def = in.getDef();
+        switch (in.getOpcode())
+        {
+            case Opcode.CONST ->
+            {
+                if (in.getValue() == 0 && inRegister(def))
+                {
+                    emit("xorl\t" + d(def) + ", " + d(def));
+                }
+                else if (inRegister(def))
+                {
+                    emit("movl\t$" + in.getValue() + ", " + d(def));
+                }
+                else
+                {
+                    // a stack slot can hold an array address, so all eight bytes are set
+                    emit("movq\t$" + in.getValue() + ", " + q(def));
+                }
+            }
+            case Opcode.MOVE ->
+            {
+                if (allocation.getLocation(def) == allocation.getLocation(uses[0]))
+                {
+                    return;
+                }
+                if (inRegister(def) || inRegister(uses[0]))
+                {
+                    emit("movq\t" + q(uses[0]) + ", " + q(def));
+                }
+                else
+                {
+                    emit("movq\t" + q(uses[0]) + ", %rax");
+                    emit("movq\t%rax, " + q(def));
+                }
+            }
+            case Opcode.PARAM ->
+            {
+                int i = in.getValue();
+                moveTo(i < ARGUMENTS.length ? slot(allocation.getSpillSlots() + i)
+                        : 16 + 8 * (i - ARGUMENTS.length) + "(%rbp)", def);
+            }
+            case Opcode.ADD, Opcode.SUB, Opcode.MUL ->
+            {
+                String op = in.getOpcode() == Opcode.ADD ? "addl"
+                        : in.getOpcode() == Opcode.SUB ? "subl" : "imull";
+                String source = in.isImmediate() ? "$" + in.getValue() : d(uses[1]);
+                int location = allocation.getLocation(def);
+                boolean clobbers = !in.isImmediate()
+                        && allocation.getLocation(uses[1]) == location
+                        && allocation.getLocation(uses[0]) != location;
+                if (location >= 0 && !clobbers)
+                {
+                    if (allocation.getLocation(uses[0]) != location)
+                    {
+                        emit("movl\t" + d(uses[0]) + ", " + d(def));
+                    }
+                    emit(op + "\t" + source + ", " + d(def));
+                }
+                else
+                {
+                    emit("movl\t" + d(uses[0]) + ", %eax");
+                    emit(op + "\t" + source + ", %eax");
+                    emit("movl\t%eax, " + d(def));
+                }
+            }
+            case Opcode.DIV ->
+            {
+                // Java defines MIN_VALUE / -1 as MIN_VALUE, where IDIV would fault
+                divides = true;
+                emit("movl\t" + d(uses[1]) + ", %r11d");
+                emit("testl\t%r11d, %r11d");
+                emit("jz\t.L" + symbol + "_zero");
+                emit("movl\t" + d(uses[0]) + ", %eax");
+                emit("cmpl\t$-1, %r11d");
+                emit("je\t1f");
+                emit("cltd");
+                emit("idivl\t%r11d");
+                emit("jmp\t2f");
+                out.append("1:");
+                emit("negl\t%eax");
+                out.append("2:");
+                emit("movl\t%eax, " + d(def));
+            }
+            case Opcode.SET ->
+            {
+                compare(in);
+                emit("set" + Opcode.SUFFIXES[in.getCondition()] + "\t%al");
+                if (inRegister(def))
+                {
+                    emit("movzbl\t%al, " + d(def));
+                }
+                else
+                {
+                    emit("movzbl\t%al, %eax");
+                    emit("movl\t%eax, " + d(def));
+                }
+            }
+            case Opcode.BRANCH ->
+            {
+                compare(in);
+                emit("j" + Opcode.SUFFIXES[in.getCondition()] + "\t" + label(in.getLabel()));
+            }
+            case Opcode.JUMP -> emit("jmp\t" + label(in.getLabel()));
+            case Opcode.SWITCH ->
+            {
+                int[] targets = in.getTargets();
+                emit("movl\t" + d(uses[0]) + ", %eax");
+                if (in.getValue() != 0)
+                {
+                    emit("subl\t$" + in.getValue() + ", %eax");
+                }
+                // below the lowest label the difference wraps around to a large unsigned int
+                emit("cmpl\t$" + (targets.length - 1) + ", %eax");
+                emit("ja\t" + label(in.getLabel()));
+                emit("leaq\t.L" + symbol + "_table" + tables.size() + "(%rip), %rdx");
+                emit("movslq\t(%rdx,%rax,4), %rax");
+                emit("addq\t%rdx, %rax");
+                emit("jmp\t*%rax");
+                tables.add(targets);
+            }
+            case Opcode.LABEL -> out.append(label(in.getLabel())).append(":\n");
+            case Opcode.LOAD -> moveTo(in.getSymbol() + "(%rip)", def);
+            case Opcode.STORE ->
+            {
+                if (inRegister(uses[0]))
+                {
+                    emit("movl\t" + d(uses[0]) + ", " + in.getSymbol() + "(%rip)");
+                }
+                else
+                {
+                    emit("movl\t" + d(uses[0]) + ", %eax");
+                    emit("movl\t%eax, " + in.getSymbol() + "(%rip)");
+                }
+            }
+            case Opcode.LOAD_ADDRESS ->
+            {
+                emit("movq\t" + in.getSymbol() + "(%rip), %rax");
+                emit("movq\t%rax, " + q(def));
+            }
+            case Opcode.STORE_ADDRESS ->
+            {
+                emit("movq\t" + q(uses[0]) + ", %rax");
+                emit("movq\t%rax, " + in.getSymbol() + "(%rip)");
+            }
+            case Opcode.ARRAY ->
+            {
+                String name = in.getSymbol();
+                if (uses.length > 0)
+                {
+                    emit("movq\t" + q(uses[0]) + ", %rax");
+                    emit("testq\t%rax, %rax");
+                    emit("jnz\t1f");
+                }
+                emit("movq\t" + unit.arraySymbol(name) + "(%rip), %rax");
+                emit("testq\t%rax, %rax");
+                emit("jz\t.L" + symbol + "_array" + stubs.size());
+                stubs.add(unit.message("Array " + name + " not found."));
+                out.append("1:");
+                emit("movq\t%rax, " + q(def));
+            }
+            case Opcode.ELEMENT_LOAD ->
+            {
+                index(uses[0], uses[1]);
+                moveTo("4(%rax,%rdx,4)", def);
+            }
+            case Opcode.ELEMENT_STORE ->
+            {
+                index(uses[0], uses[1]);
+                if (inRegister(uses[2]))
+                {
+                    emit("movl\t" + d(uses[2]) + ", 4(%rax,%rdx,4)");
+                }
+                else
+                {
+                    emit("movl\t" + d(uses[2]) + ", %r11d");
+                    emit("movl\t%r11d, 4(%rax,%rdx,4)");
+                }
+            }
+            case Opcode.CALL -> call(in);
+            case Opcode.WRITE ->
+            {
+                emit("movl\t" + d(uses[0]) + ", %edi");
+                emit("call\trt_write");
+            }
+            case Opcode.READ ->
+            {
+                emit("call\trt_read");
+                emit("movl\t%eax, " + d(def));
+            }
+            case Opcode.NEW_ARRAY ->
+            {
+                emit("movl\t" + d(uses[0]) + ", %edi");
+                emit("call\trt_new_array");
+                emit("movq\t%rax, " + q(def));
+            }
+            case Opcode.FREE ->
+            {
+                emit("movq\t" + q(uses[0]) + ", %rdi");
+                emit("call\tfree@PLT");
+            }
+            case Opcode.FAIL -> fail(unit.message(in.getSymbol()));
+            case Opcode.RETURN ->
+            {
+                if (main)
+                {
+                    emit("xorl\t%eax, %eax");
+                }
+                else
+                {
+                    emit("movl\t" + d(uses[0]) + ", %eax");
+                }
+                leave();
+                emit("ret");
+            }
+            case Opcode.TAIL_CALL ->
+            {
+                arguments(uses);
+                leave();
+                emit("jmp\t" + in.getSymbol());
+            }
+            default -> throw new IllegalArgumentException("Unknown opcode " + in.getOpcode());
+        }
+    }
+
+    /**
+     * Appends the epilogue that restores the preserved registers and the frame pointer of
+     * the caller, leaving RSP at the return address.
+     */
+    private void leave()
+    {
+        if (saved.isEmpty())
+        {
+            emit("movq\t%rbp, %rsp");
+        }
+        else
+        {
+            emit("leaq\t" + -8 * saved.size() + "(%rbp), %rsp");
+            for (int k = saved.size() - 1; k >= 0; k--)
+            {
+                emit("popq\t%" + LinearScan.REGISTERS[saved.get(k)]);
+            }
+        }
+        emit("popq\t%rbp");
+    }
+
+    /**
+     * Appends the check of an index against the length of an array, leaving the array in RAX
+     * and the index in RDX.
+     *
+     * @param array the virtual register holding the array
+     * @param index the virtual register holding the index
+     */
+    private void index(int array, int index)
+    {
+        indexes = true;
+        emit("movq\t" + q(array) + ", %rax");
+        emit("movl\t" + d(index) + ", %edx");
+        emit("cmpl\t(%rax), %edx");
+        emit("jae\t.L" + symbol + "_bounds"); // a negative index is a large unsigned one
+    }
+
+    /**
+     * Appends the moves of the first six arguments of a call into their registers. They are
+     * pushed and then popped, since some of them may be in registers that other arguments
+     * go to.
+     *
+     * @param args the virtual registers holding the arguments
+     */
+    private void arguments(int[] args)
+    {
+        int inRegisters = Math.min(args.length, ARGUMENTS.length);
+        for (int i = 0; i < inRegisters; i++)
+        {
+            emit("pushq\t" + q(args[i]));
+        }
+        for (int i = inRegisters - 1; i >= 0; i--)
+        {
+            emit("popq\t%" + ARGUMENTS[i]);
+        }
+    }
+
+    /**
+     * Appends a call to a procedure.
+     *
+     * @param in the CALL
+     */
+    private void call(Instruction in)
+    {
+        int[] args = in.getUses();
+        int onStack = Math.max(0, args.length - ARGUMENTS.length);
+        int pad = onStack % 2 == 1 ? 8 : 0;
+        if (pad > 0)
+        {
+            emit("subq\t$8, %rsp");
+        }
+        for (int i = args.length - 1; i >= ARGUMENTS.length; i--)
+        {
+            emit("pushq\t" + q(args[i]));
+        }
+        arguments(args);
+        emit("call\t" + in.getSymbol());
+        if (onStack > 0)
+        {
+            emit("addq\t$" + (8 * onStack + pad) + ", %rsp");
+        }
+        emit("movl\t%eax, " + d(in.getDef()));
+    }
+}
@@ -0,0 +1,188 @@
+package x86;
+
+/**
+ * An instruction of the x86-64 backend, before registers are allocated. It defines at most
+ * one virtual register and uses any number of them, in the order its Opcode describes.
+ *
+ * A binary operation, SET or BRANCH whose second operand is a constant holds it as its int
+ * instead of using a register for it. A SWITCH also holds the table of labels it jumps
+ * through.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class Instruction
+{
+    private final int opcode;
+    private final int def;
+    private final int[] uses;
+    private final int value;
+    private final boolean immediate;
+    private final int condition;
+    private final int label;
+    private final String symbol;
+    private final int[] targets;
+
+    /**
+     * Creates an instruction.
+     *
+     * @param opcode the operation
+     * @param def the register it defines, or -1
+     * @param uses the registers it uses
+     * @param value the int of a CONST, the index of a PARAM, or the second operand
+     * @param immediate true if the second operand is the int rather than a register
+     * @param condition the condition of a SET or BRANCH
+     * @param label the label of a BRANCH, JUMP or LABEL, or -1
+     * @param symbol the data symbol, procedure or message, or null
+     */
+    Instruction(int opcode, int def, int[] uses, int value, boolean immediate, int condition,
+            int label, String symbol)
+    {
+        this(opcode, def, uses, value, immediate, condition, label, symbol, new int[0]);
+    }
+
+    /**
+     * Creates an instruction with a table of labels.
+     *
+     * @param opcode the operation
+     * @param def the register it defines, or -1
+     * @param uses the registers it uses
+     * @param value the int of a CONST, the index of a PARAM, or the second operand
+     * @param immediate true if the second operand is the int rather than a register
+     * @param condition the condition of a SET or BRANCH
+     * @param label the label of a BRANCH, JUMP, LABEL or SWITCH, or -1
+     * @param symbol the data symbol, procedure or message, or null
+     * @param targets the labels of the table of a SWITCH
+     */
+    Instruction(int opcode, int def, int[] uses, int value, boolean immediate, int condition,
+            int label, String symbol, int[] targets)
+    {
+        this.opcode = opcode;
+        this.def = def;
+        this.uses = uses;
+        this.value = value;
+        this.immediate = immediate;
+        this.condition = condition;
+        this.label = label;
+        this.symbol = symbol;
+        this.targets = targets;
+    }
+
+    /**
+     * @return the operation
+     */
+    public int getOpcode()
+    {
+        return opcode;
+    }
+
+    /**
+     * @return the register the instruction defines, or -1 if it defines none
+     */
+    public int getDef()
+    {
+        return def;
+    }
+
+    /**
+     * @return the registers the instruction uses
+     */
+    public int[] getUses()
+    {
+        return uses;
+    }
+
+    /**
+     * @return the int of a CONST, the index of a PARAM, or the constant second operand
+     */
+    public int getValue()
+    {
+        return value;
+    }
+
+    /**
+     * @return true if the second operand is the int rather than a register
+     */
+    public boolean isImmediate()
+    {
+        return immediate;
+    }
+
+    /**
+     * @return the condition of a SET or BRANCH
+     */
+    public int getCondition()
+    {
+        return condition;
+    }
+
+    /**
+     * @return the label of a BRANCH, JUMP, LABEL or SWITCH, or -1
+     */
+    public int getLabel()
+    {
+        return label;
+    }
+
+    /**
+     * @return the labels of the table of a SWITCH, or none
+     */
+    public int[] getTargets()
+    {
+        return targets;
+    }
+
+    /**
+     * @return the data symbol, procedure or message the instruction refers to, or null
+     */
+    public String getSymbol()
+    {
+        return symbol;
+    }
+
+    /**
+     * Prints the instruction, as in r3 = add r1 r2.
+     *
+     * @return the text
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder text = new StringBuilder();
+        if (opcode == Opcode.LABEL)
+        {
+            return "L" + label + ":";
+        }
+        if (def >= 0)
+        {
+            text.append('r').append(def).append(" = ");
+        }
+        text.append(Opcode.NAMES[opcode]);
+        if (opcode == Opcode.SET || opcode == Opcode.BRANCH)
+        {
+            text.append(' ').append(Opcode.SUFFIXES[condition]);
+        }
+        if (symbol != null)
+        {
+            text.append(' ').append(symbol);
+        }
+        for (int u : uses)
+        {
+            text.append(" r").append(u);
+        }
+        if (immediate || opcode == Opcode.CONST || opcode == Opcode.PARAM
+                || opcode == Opcode.SWITCH)
+        {
+            text.append(' ').append(value);
+        }
+        if (label >= 0)
+        {
+            text.append(" L").append(label);
+        }
+        for (int t : targets)
+        {
+            text.append(" L").append(t);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,960 @@
+package x86;
+
+import ast.*;
+import ast.Number;
+import java.util.*;
+
+/**
+ * Lowers a procedure body, or the main body, to a list of Instructions over virtual
+ * registers, for the AsmCompiler to allocate registers for and write out.
+ *
+ * In a procedure, every slot of the frame is a register: the parameters, the return
+ * variable and the VAR locals. A variable the parser could not resolve gets a pair of
+ * registers, its value in the frame and whether the frame has defined it, and is read and
+ * written like Environment does: the frame if it has the variable, else the root if it has
+ * it, else the variable is created in the frame. Arrays declared in a procedure are
+ * registers that hold null until the declaration runs, and are freed when it returns.
+ *
+ * In the main body, global slots live in memory, where procedures can see them, and so do
+ * the value of each variable the parser could not resolve and whether the root has defined
+ * it. A slot no procedure uses, or a name no procedure looks up, is a register instead.
+ *
+ * Conditions that decide a jump are compared and jumped on directly, with AND and OR
+ * jumping past their right operand when the left one decides them. Loops test their
+ * condition at the bottom, so each iteration takes one jump. A CASE jumps through a table
+ * when its labels are dense, and otherwise searches them. A call in tail position to the
+ * procedure itself starts the body over, and one to another procedure that takes at most
+ * six arguments is a TAIL_CALL, so neither grows the stack.
+ *
+ * @author Vouk
+ * @version October 19, 2026
+ */
+public class InstructionSelector implements ExpressionVisitor<Integer>, StatementVisitor<Void>
+{
+    private static final int REGISTER_ARGUMENTS = 6; // the arguments System V passes in registers
+
+    private final AsmCompiler unit;
+    private final ProcedureDeclaration procedure;
+    private final Set<Integer> sharedSlots;
+    private final Set<String> sharedNames;
+    private final List<Instruction> code = new ArrayList<>();
+    private final BitSet variables = new BitSet(); // registers that hold variables
+    private final Map<Integer, Integer> globals = new HashMap<>();
+    private final Map<String, Integer> names = new HashMap<>();
+    private final Map<String, int[]> dynamic = new HashMap<>();
+    private final Map<String, Integer> arrays = new LinkedHashMap<>();
+    private final Set<Integer> slotsUsed = new HashSet<>();
+    private final Set<String> namesUsed = new HashSet<>();
+    private int registers;
+    private int labels;
+    private int[] params;
+    private int release;
+    private boolean tail;
+
+    /**
+     * Constructs an InstructionSelector.
+     *
+     * @param unit the program being compiled
+     * @param procedure the procedure to lower, or null for the main body
+     * @param sharedSlots the global slots some procedure uses, which the main body must keep
+     *                    in memory
+     * @param sharedNames the names some procedure looks up, which the main body must keep
+     *                    in memory
+     */
+    public InstructionSelector(AsmCompiler unit, ProcedureDeclaration procedure,
+            Set<Integer> sharedSlots, Set<String> sharedNames)
+    {
+        this.unit = unit;
+        this.procedure = procedure;
+        this.sharedSlots = sharedSlots;
+        this.sharedNames = sharedNames;
+        if (procedure != null)
+        {
+            registers = procedure.getFrameLayout().size();
+            variables.set(0, registers);
+        }
+    }
+
+    /**
+     * Lowers the whole body.
+     *
+     * Postcondition: A procedure's code returns the value of its return variable, like
+     * ProcedureDeclaration.runProcedure; the main body's code returns nothing.
+     *
+     * @param body the procedure or main body
+     * @return the code
+     */
+    public List<Instruction> select(Statement body)
+    {
+        int restart = -1;
+        if (procedure != null)
+        {
+            String[] args = procedure.getArgs();
+            params = new int[args.length];
+            for (int i = 0; i < args.length; i++)
+            {
+                params[i] = newRegister();
+                variables.set(params[i]);
+                add(Opcode.PARAM, params[i], new int[0], i);
+            }
+            restart = newLabel();
+            release = newLabel();
+            bind(restart);
+            if (procedure.getLocals() != null)
+            {
+                for (String a : procedure.getLocals().getArrays().keySet())
+                {
+                    arrayRegister(a);
+                }
+            }
+            // a call in tail position to another procedure frees every array of the body
+            for (ProcedureCall call : procedure.getTailCalls())
+            {
+                if (isTailJump(call))
+                {
+                    for (String a : new TreeSet<>(VariableUses.of(body).getArrayWrites()))
+                    {
+                        arrayRegister(a);
+                    }
+                    break;
+                }
+            }
+        }
+        int start = code.size();
+        body.accept(this);
+        // the registers to initialize are only known now, so the body moves after them
+        List<Instruction> statements = new ArrayList<>(code.subList(start, code.size()));
+        code.subList(start, code.size()).clear();
+        if (procedure == null)
+        {
+            for (int r : globals.values())
+            {
+                add(Opcode.CONST, r, new int[0], 0);
+            }
+            for (int r : names.values())
+            {
+                add(Opcode.CONST, r, new int[0], 0);
+            }
+            for (Map.Entry<String, Integer> a : unit.getGlobalArrays().entrySet())
+            {
+                int size = constant(a.getValue());
+                int array = newRegister();
+                add(Opcode.NEW_ARRAY, array, new int[] {size}, 0);
+                add(Opcode.STORE_ADDRESS, -1, new int[] {array}, 0, false, 0, -1,
+                        unit.arraySymbol(a.getKey()));
+            }
+            code.addAll(statements);
+            add(Opcode.RETURN, -1, new int[0], 0);
+            return code;
+        }
+        String[] args = procedure.getArgs();
+        Map<String, Integer> layout = procedure.getFrameLayout();
+        Set<Integer> argSlots = new HashSet<>();
+        for (String arg : args)
+        {
+            argSlots.add(layout.get(arg));
+        }
+        for (int slot = 0; slot < layout.size(); slot++)
+        {
+            if (!argSlots.contains(slot))
+            {
+                add(Opcode.CONST, slot, new int[0], 0);
+            }
+        }
+        for (int i = 0; i < args.length; i++)
+        {
+            add(Opcode.MOVE, layout.get(args[i]), new int[] {params[i]}, 0);
+        }
+        add(Opcode.CONST, procedure.getReturnSlot(), new int[0], 0);
+        for (int[] v : dynamic.values())
+        {
+            add(Opcode.CONST, v[0], new int[0], 0);
+            add(Opcode.CONST, v[1], new int[0], 0);
+        }
+        for (int a : arrays.values())
+        {
+            add(Opcode.CONST, a, new int[0], 0);
+        }
+        if (procedure.getLocals() != null)
+        {
+            for (Map.Entry<String, Integer> a : procedure.getLocals().getArrays().entrySet())
+            {
+                int size = constant(a.getValue());
+                add(Opcode.NEW_ARRAY, arrays.get(a.getKey()), new int[] {size}, 0);
+            }
+        }
+        code.addAll(statements);
+        for (int a : arrays.values())
+        {
+            add(Opcode.FREE, -1, new int[] {a}, 0);
+        }
+        add(Opcode.RETURN, -1, new int[] {procedure.getReturnSlot()}, 0);
+        if (!tail)
+        {
+            return code;
+        }
+
+        // a call in tail position sets the parameters and comes here to start over
+        bind(release);
+        for (int a : arrays.values())
+        {
+            add(Opcode.FREE, -1, new int[] {a}, 0);
+        }
+        add(Opcode.JUMP, -1, new int[0], 0, false, 0, restart, null);
+        return code;
+    }
+
+    /**
+     * @return the number of virtual registers the code uses
+     */
+    public int getRegisterCount()
+    {
+        return registers;
+    }
+
+    /**
+     * @return the global slots the code keeps in memory
+     */
+    public Set<Integer> getSlotsUsed()
+    {
+        return slotsUsed;
+    }
+
+    /**
+     * @return the names of the variables the parser could not resolve that the code uses
+     */
+    public Set<String> getNamesUsed()
+    {
+        return namesUsed;
+    }
+
+    /**
+     * @return a new virtual register
+     */
+    private int newRegister()
+    {
+        return registers++;
+    }
+
+    /**
+     * @return a new label
+     */
+    private int newLabel()
+    {
+        return labels++;
+    }
+
+    /**
+     * Appends an instruction.
+     *
+     * @param opcode the operation
+     * @param def the register it defines, or -1
+     * @param uses the registers it uses
+     * @param value the int of a CONST, the index of a PARAM, or the constant operand
+     * @param immediate true if the second operand is the int
+     * @param condition the condition of a SET or BRANCH
+     * @param label the label of a BRANCH, JUMP or LABEL, or -1
+     * @param symbol the data symbol, procedure or message, or null
+     */
+    private void add(int opcode, int def, int[] uses, int value, boolean immediate,
+            int condition, int label, String symbol)
+    {
+        code.add(new Instruction(opcode, def, uses, value, immediate, condition, label, symbol));
+    }
+
+    /**
+     * Appends an instruction that needs no condition, label or symbol.
+     *
+     * @param opcode the operation
+     * @param def the register it defines, or -1
+     * @param uses the registers it uses
+     * @param value the int of a CONST or the index of a PARAM
+     */
+    private void add(int opcode, int def, int[] uses, int value)
+    {
+        add(opcode, def, uses, value, false, 0, -1, null);
+    }
+
+    /**
+     * Appends a label.
+     *
+     * @param label the label
+     */
+    private void bind(int label)
+    {
+        add(Opcode.LABEL, -1, new int[0], 0, false, 0, label, null);
+    }
+
+    /**
+     * Appends a jump.
+     *
+     * @param label the label to jump to
+     */
+    private void jump(int label)
+    {
+        add(Opcode.JUMP, -1, new int[0], 0, false, 0, label, null);
+    }
+
+    /**
+     * Appends a stop with a run-time error.
+     *
+     * @param message the message of the error
+     */
+    private void fail(String message)
+    {
+        add(Opcode.FAIL, -1, new int[0], 0, false, 0, -1, message);
+    }
+
+    /**
+     * Puts an int in a new register.
+     *
+     * @param value the int
+     * @return the register
+     */
+    private int constant(int value)
+    {
+        int r = newRegister();
+        add(Opcode.CONST, r, new int[0], value);
+        return r;
+    }
+
+    /**
+     * Returns the register of an array declared in this procedure.
+     *
+     * @param name the array name
+     * @return the register
+     */
+    private int arrayRegister(String name)
+    {
+        return arrays.computeIfAbsent(name, k ->
+        {
+            int r = newRegister();
+            variables.set(r);
+            return r;
+        });
+    }
+
+    /**
+     * Returns the pair of registers of a variable the parser could not resolve.
+     *
+     * @param name the variable name
+     * @return the register holding the value and the one recording whether it is defined
+     */
+    private int[] dynamicRegisters(String name)
+    {
+        return dynamic.computeIfAbsent(name, k ->
+        {
+            int[] r = {newRegister(), newRegister()};
+            variables.set(r[0]);
+            variables.set(r[1]);
+            return r;
+        });
+    }
+
+    /**
+     * Returns the register that holds a variable, if one does.
+     *
+     * @param v the variable
+     * @return the register, or -1 if the variable is in memory or is looked up by name
+     */
+    private int register(Variable v)
+    {
+        if (v.getSlot() < 0)
+        {
+            namesUsed.add(v.getName());
+            if (procedure != null || sharedNames.contains(v.getName()))
+            {
+                return -1;
+            }
+            return names.computeIfAbsent(v.getName(), k ->
+            {
+                int r = newRegister();
+                variables.set(r);
+                return r;
+            });
+        }
+        if (procedure != null)
+        {
+            if (v.isLocal())
+            {
+                return v.getSlot();
+            }
+            slotsUsed.add(v.getSlot());
+            return -1;
+        }
+        if (sharedSlots.contains(v.getSlot()))
+        {
+            slotsUsed.add(v.getSlot());
+            return -1;
+        }
+        return globals.computeIfAbsent(v.getSlot(), k ->
+        {
+            int r = newRegister();
+            variables.set(r);
+            return r;
+        });
+    }
+
+    /**
+     * Reads a variable.
+     *
+     * @param v the variable
+     * @return the register holding its value
+     */
+    private int load(Variable v)
+    {
+        int r = register(v);
+        if (r >= 0)
+        {
+            return r;
+        }
+        r = newRegister();
+        if (v.getSlot() >= 0)
+        {
+            add(Opcode.LOAD, r, new int[0], 0, false, 0, -1, unit.globalSymbol(v.getSlot()));
+            return r;
+        }
+        String value = unit.valueSymbol(v.getName());
+        String defined = unit.definedSymbol(v.getName());
+        if (procedure == null)
+        {
+            int one = constant(1); // reading an undefined variable defines it as 0
+            add(Opcode.STORE, -1, new int[] {one}, 0, false, 0, -1, defined);
+            add(Opcode.LOAD, r, new int[0], 0, false, 0, -1, value);
+            return r;
+        }
+        int[] local = dynamicRegisters(v.getName());
+        int notLocal = newLabel();
+        int notGlobal = newLabel();
+        int done = newLabel();
+        add(Opcode.BRANCH, -1, new int[] {local[1]}, 0, true, Opcode.EQ, notLocal, null);
+        add(Opcode.MOVE, r, new int[] {local[0]}, 0);
+        jump(done);
+        bind(notLocal);
+        int isDefined = newRegister();
+        add(Opcode.LOAD, isDefined, new int[0], 0, false, 0, -1, defined);
+        add(Opcode.BRANCH, -1, new int[] {isDefined}, 0, true, Opcode.EQ, notGlobal, null);
+        add(Opcode.LOAD, r, new int[0], 0, false, 0, -1, value);
+        jump(done);
+        bind(notGlobal);
+        add(Opcode.CONST, local[1], new int[0], 1); // defined as 0 in the frame
+        add(Opcode.CONST, r, new int[0], 0);
+        bind(done);
+        return r;
+    }
+
+    /**
+     * Assigns a value to a variable.
+     *
+     * @param v the variable
+     * @param value the register holding the value
+     */
+    private void store(Variable v, int value)
+    {
+        int r = register(v);
+        if (r >= 0)
+        {
+            Instruction last = code.isEmpty() ? null : code.get(code.size() - 1);
+            if (last != null && last.getDef() == value && !variables.get(value))
+            {
+                // the value was computed just now for this assignment, so compute it in place
+                code.set(code.size() - 1, new Instruction(last.getOpcode(), r, last.getUses(),
+                        last.getValue(), last.isImmediate(), last.getCondition(),
+                        last.getLabel(), last.getSymbol()));
+            }
+            else if (r != value)
+            {
+                add(Opcode.MOVE, r, new int[] {value}, 0);
+            }
+            return;
+        }
+        if (v.getSlot() >= 0)
+        {
+            add(Opcode.STORE, -1, new int[] {value}, 0, false, 0, -1,
+                    unit.globalSymbol(v.getSlot()));
+            return;
+        }
+        String field = unit.valueSymbol(v.getName());
+        String defined = unit.definedSymbol(v.getName());
+        if (procedure == null)
+        {
+            add(Opcode.STORE, -1, new int[] {value}, 0, false, 0, -1, field);
+            int one = constant(1);
+            add(Opcode.STORE, -1, new int[] {one}, 0, false, 0, -1, defined);
+            return;
+        }
+        int[] local = dynamicRegisters(v.getName());
+        int inFrame = newLabel();
+        int done = newLabel();
+        add(Opcode.BRANCH, -1, new int[] {local[1]}, 0, true, Opcode.NE, inFrame, null);
+        int isDefined = newRegister();
+        add(Opcode.LOAD, isDefined, new int[0], 0, false, 0, -1, defined);
+        add(Opcode.BRANCH, -1, new int[] {isDefined}, 0, true, Opcode.EQ, inFrame, null);
+        add(Opcode.STORE, -1, new int[] {value}, 0, false, 0, -1, field);
+        jump(done);
+        bind(inFrame);
+        add(Opcode.MOVE, local[0], new int[] {value}, 0);
+        add(Opcode.CONST, local[1], new int[0], 1);
+        bind(done);
+    }
+
+    /**
+     * Puts the array with the given name in a new register, looked up like
+     * Environment.getArray.
+     *
+     * @param name the name of the array
+     * @return the register
+     */
+    private int array(String name)
+    {
+        int r = newRegister();
+        int[] local = procedure == null ? new int[0] : new int[] {arrayRegister(name)};
+        add(Opcode.ARRAY, r, local, 0, false, 0, -1, name);
+        return r;
+    }
+
+    /**
+     * Appends a jump to label that is taken when the condition has the given truth value.
+     *
+     * @param e the condition
+     * @param when the truth value on which to jump
+     * @param label the label to jump to
+     */
+    private void branch(Expression e, boolean when, int label)
+    {
+        if (e instanceof BoolOp b)
+        {
+            boolean and = b.getOp().equals(BoolOp.AND);
+            if (and == when)
+            {
+                // the left operand alone can only decide the opposite of when
+                int skip = newLabel();
+                branch(b.getExp1(), !when, skip);
+                branch(b.getExp2(), when, label);
+                bind(skip);
+            }
+            else
+            {
+                branch(b.getExp1(), when, label);
+                branch(b.getExp2(), when, label);
+            }
+            return;
+        }
+        if (e instanceof Not n)
+        {
+            branch(n.getExp(), !when, label);
+            return;
+        }
+        if (!(e instanceof Condition c))
+        {
+            int v = e.accept(this);
+            add(Opcode.BRANCH, -1, new int[] {v}, 1, true, when ? Opcode.EQ : Opcode.NE, label,
+                    null);
+            return;
+        }
+        int condition = Opcode.condition(c.getOp());
+        compare(Opcode.BRANCH, -1, c, when ? condition : Opcode.negate(condition), label);
+    }
+
+    /**
+     * Appends a SET or BRANCH that compares the operands of a condition, with the second
+     * operand as the int of the instruction when it is a number.
+     *
+     * @param opcode SET or BRANCH
+     * @param def the register a SET defines, or -1
+     * @param c the condition
+     * @param condition the condition to test
+     * @param label the label of a BRANCH, or -1
+     */
+    private void compare(int opcode, int def, Condition c, int condition, int label)
+    {
+        int a = c.getExp1().accept(this);
+        if (c.getExp2() instanceof Number n)
+        {
+            add(opcode, def, new int[] {a}, n.getValue(), true, condition, label, null);
+        }
+        else
+        {
+            int b = c.getExp2().accept(this);
+            add(opcode, def, new int[] {a, b}, 0, false, condition, label, null);
+        }
+    }
+
+    @Override
+    public Integer visitNumber(Number n)
+    {
+        return constant(n.getValue());
+    }
+
+    @Override
+    public Integer visitVariable(Variable v)
+    {
+        return load(v);
+    }
+
+    @Override
+    public Integer visitBinOp(BinOp b)
+    {
+        int opcode = switch (b.getOp())
+        {
+            case "+" -> Opcode.ADD;
+            case "-" -> Opcode.SUB;
+            case "*" -> Opcode.MUL;
+            case "/" -> Opcode.DIV;
+            default -> throw new IllegalArgumentException("Unknown operator '" + b.getOp() + "'");
+        };
+        int a = b.getExp1().accept(this);
+        int r = newRegister();
+        if (opcode != Opcode.DIV && b.getExp2() instanceof Number n)
+        {
+            add(opcode, r, new int[] {a}, n.getValue(), true, 0, -1, null);
+        }
+        else
+        {
+            int c = b.getExp2().accept(this);
+            add(opcode, r, new int[] {a, c}, 0);
+        }
+        return r;
+    }
+
+    @Override
+    public Integer visitCondition(Condition c)
+    {
+        int r = newRegister();
+        compare(Opcode.SET, r, c, Opcode.condition(c.getOp()), -1);
+        return r;
+    }
+
+    @Override
+    public Integer visitBoolOp(BoolOp b)
+    {
+        return test(b);
+    }
+
+    @Override
+    public Integer visitNot(Not n)
+    {
+        return test(n);
+    }
+
+    /**
+     * Puts 1 in a new register if a condition holds and 0 otherwise.
+     *
+     * @param e the condition
+     * @return the register
+     */
+    private int test(Expression e)
+    {
+        int r = newRegister();
+        int yes = newLabel();
+        int done = newLabel();
+        branch(e, true, yes);
+        add(Opcode.CONST, r, new int[0], 0);
+        jump(done);
+        bind(yes);
+        add(Opcode.CONST, r, new int[0], 1);
+        bind(done);
+        return r;
+    }
+
+    @Override
+    public Integer visitProcedureCall(ProcedureCall p)
+    {
+        ProcedureDeclaration target = unit.resolve(p.getName());
+        if (target == null)
+        {
+            fail("Procedure " + p.getName() + " not found.");
+            return constant(0);
+        }
+        if (target.getArgs().length != p.getArgVals().length)
+        {
+            fail("Invalid number of arguments passed to procedure " + p.getName());
+            return constant(0);
+        }
+        Expression[] args = p.getArgVals();
+        int[] values = new int[args.length];
+        for (int i = 0; i < args.length; i++)
+        {
+            values[i] = args[i].accept(this);
+        }
+        int r = newRegister();
+        add(Opcode.CALL, r, values, 0, false, 0, -1, unit.procedureSymbol(target));
+        return r;
+    }
+
+    @Override
+    public Integer visitArrayElement(ArrayElement a)
+    {
+        int array = array(a.getName());
+        int index = a.getIndex().accept(this);
+        int r = newRegister();
+        add(Opcode.ELEMENT_LOAD, r, new int[] {array, index}, 0);
+        return r;
+    }
+
+    @Override
+    public Void visitBlock(Block b)
+    {
+        for (Statement s : b.getStatements())
+        {
+            s.accept(this);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitAssignment(Assignment a)
+    {
+        if (a.getExpr() instanceof ProcedureCall call && call.isTail() && procedure != null
+                && unit.resolve(call.getName()) == procedure
+                && call.getArgVals().length == params.length)
+        {
+            // the procedure starts over with the new arguments instead of calling itself
+            Expression[] args = call.getArgVals();
+            int[] values = new int[args.length];
+            for (int i = 0; i < args.length; i++)
+            {
+                values[i] = args[i].accept(this);
+            }
+            for (int i = 0; i < args.length; i++)
+            {
+                add(Opcode.MOVE, params[i], new int[] {values[i]}, 0);
+            }
+            jump(release);
+            tail = true;
+            return null;
+        }
+        if (a.getExpr() instanceof ProcedureCall call && call.isTail() && isTailJump(call))
+        {
+            // the procedure called returns straight to the caller of this one
+            Expression[] args = call.getArgVals();
+            int[] values = new int[args.length];
+            for (int i = 0; i < args.length; i++)
+            {
+                values[i] = args[i].accept(this);
+            }
+            for (int array : arrays.values())
+            {
+                add(Opcode.FREE, -1, new int[] {array}, 0);
+            }
+            add(Opcode.TAIL_CALL, -1, values, 0, false, 0, -1,
+                    unit.procedureSymbol(unit.resolve(call.getName())));
+            return null;
+        }
+        store(a.getVar(), a.getExpr().accept(this));
+        return null;
+    }
+
+    /**
+     * Returns whether a call in tail position to another procedure can be a jump: the
+     * procedure exists, takes as many arguments as the call passes, and takes them all in
+     * registers, so nothing has to be left on the stack for it.
+     *
+     * @param call the call in tail position
+     * @return true if the call is a TAIL_CALL
+     */
+    private boolean isTailJump(ProcedureCall call)
+    {
+        ProcedureDeclaration target = unit.resolve(call.getName());
+        return procedure != null && target != null && target != procedure
+                && target.getArgs().length == call.getArgVals().length
+                && target.getArgs().length <= REGISTER_ARGUMENTS;
+    }
+
+    @Override
+    public Void visitWriteln(Writeln w)
+    {
+        add(Opcode.WRITE, -1, new int[] {w.getExpr().accept(this)}, 0);
+        return null;
+    }
+
+    @Override
+    public Void visitReadln(Readln r)
+    {
+        int value = newRegister();
+        add(Opcode.READ, value, new int[0], 0);
+        store(r.getVar(), value);
+        return null;
+    }
+
+    @Override
+    public Void visitIf(If i)
+    {
+        int otherwise = newLabel();
+        branch(i.getCondition(), false, otherwise);
+        i.getStatement().accept(this);
+        if (i.getElse() == null)
+        {
+            bind(otherwise);
+            return null;
+        }
+        int done = newLabel();
+        jump(done);
+        bind(otherwise);
+        i.getElse().accept(this);
+        bind(done);
+        return null;
+    }
+
+    /**
+     * Appends a CASE statement. Dense labels jump to their arms through the table of a
+     * SWITCH, and sparse ones are found by a binary search that compares the selector with
+     * the middle label of what is left.
+     *
+     * @param c the statement
+     * @return null
+     */
+    @Override
+    public Void visitCase(Case c)
+    {
+        int selector = c.getSelector().accept(this);
+        int[] arms = new int[c.getArms().length];
+        for (int k = 0; k < arms.length; k++)
+        {
+            arms[k] = newLabel();
+        }
+        int otherwise = newLabel();
+        int done = newLabel();
+        int[] labels = c.getLabels();
+        if (c.isDense())
+        {
+            int[] table = new int[labels[labels.length - 1] - labels[0] + 1];
+            Arrays.fill(table, otherwise);
+            for (int k = 0; k < labels.length; k++)
+            {
+                table[labels[k] - labels[0]] = arms[c.getTargets()[k]];
+            }
+            code.add(new Instruction(Opcode.SWITCH, -1, new int[] {selector}, labels[0], false,
+                    0, otherwise, null, table));
+        }
+        else
+        {
+            search(selector, c, 0, labels.length, arms, otherwise);
+        }
+        for (int k = 0; k < arms.length; k++)
+        {
+            bind(arms[k]);
+            c.getArms()[k].accept(this);
+            jump(done);
+        }
+        bind(otherwise);
+        if (c.getElse() != null)
+        {
+            c.getElse().accept(this);
+        }
+        bind(done);
+        return null;
+    }
+
+    /**
+     * Appends the binary search for a selector among some of the labels of a CASE
+     * statement, which jumps to the arm of the label it finds or else to otherwise.
+     *
+     * @param selector the register of the selector
+     * @param c the statement
+     * @param from the index of the first label to search
+     * @param to the index after the last label to search
+     * @param arms the label of each arm
+     * @param otherwise the label to jump to if no label matches
+     */
+    private void search(int selector, Case c, int from, int to, int[] arms, int otherwise)
+    {
+        if (from == to)
+        {
+            jump(otherwise);
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        int label = c.getLabels()[middle];
+        add(Opcode.BRANCH, -1, new int[] {selector}, label, true, Opcode.EQ,
+                arms[c.getTargets()[middle]], null);
+        if (middle > from)
+        {
+            int above = newLabel();
+            add(Opcode.BRANCH, -1, new int[] {selector}, label, true, Opcode.GT, above, null);
+            search(selector, c, from, middle, arms, otherwise);
+            bind(above);
+        }
+        search(selector, c, middle + 1, to, arms, otherwise);
+    }
+
+    /**
+     * Appends a loop that runs the body and the update until the condition fails, testing
+     * the condition first.
+     *
+     * @param condition the condition
+     * @param body the body
+     * @param update the statement run after the body, or null
+     */
+    private void loop(Expression condition, Statement body, Statement update)
+    {
+        int top = newLabel();
+        int test = newLabel();
+        jump(test);
+        bind(top);
+        body.accept(this);
+        if (update != null)
+        {
+            update.accept(this);
+        }
+        bind(test);
+        branch(condition, true, top);
+    }
+
+    @Override
+    public Void visitWhile(While w)
+    {
+        loop(w.getCondition(), w.getBody(), null);
+        return null;
+    }
+
+    @Override
+    public Void visitFor(For f)
+    {
+        f.getInitialization().accept(this);
+        loop(f.getCondition(), f.getBody(), f.getVarUpdate());
+        return null;
+    }
+
+    @Override
+    public Void visitProcedureDeclaration(ProcedureDeclaration p)
+    {
+        // the parser only accepts procedures at the program level
+        throw new IllegalStateException("unreachable: " + p);
+    }
+
+    @Override
+    public Void visitArrayDeclaration(ArrayDeclaration a)
+    {
+        int size = a.getSize().accept(this);
+        if (procedure == null)
+        {
+            int array = newRegister();
+            add(Opcode.NEW_ARRAY, array, new int[] {size}, 0);
+            add(Opcode.STORE_ADDRESS, -1, new int[] {array}, 0, false, 0, -1,
+                    unit.arraySymbol(a.getName()));
+            return null;
+        }
+        int array = arrayRegister(a.getName());
+        add(Opcode.FREE, -1, new int[] {array}, 0);
+        add(Opcode.NEW_ARRAY, array, new int[] {size}, 0);
+        return null;
+    }
+
+    @Override
+    public Void visitArrayAssignment(ArrayAssignment a)
+    {
+        int index = a.getIndex().accept(this);
+        int array = array(a.getName());
+        int value = a.getExpr().accept(this);
+        add(Opcode.ELEMENT_STORE, -1, new int[] {array, index, value}, 0);
+        return null;
+    }
+
+    @Override
+    public Void visitVarDeclaration(VarDeclaration v)
+    {
+        // the parser keeps VAR sections out of program and procedure bodies
+        throw new IllegalStateException("unreachable: " + v);
+    }
+}
@@ -0,0 +1,350 @@
+package x86;
+
+import java.util.*;
+
+/**
+ * Allocates machine registers to the virtual registers of a body with the linear scan of
+ * Poletto and Sarkar, "Linear Scan Register Allocation".
+ *
+ * Liveness is found over the basic blocks of the code, and each virtual register gets one
+ * interval, from the first instruction where it is live to the last. The intervals are
+ * visited in order of their start, and each takes a free register, or else the active
+ * interval that ends last, which is spilled to a stack slot, if it ends after this one does.
+ * An interval that ends where another starts keeps its register until then, so an
+ * instruction never writes its result over an operand it has not read.
+ *
+ * An interval that is live across a call may only take one of the registers a System V
+ * function must preserve, so a call never has to save anything. The others go first to the
+ * registers a call may change, then to the preserved ones.
+ *
+ * RAX, RDX and R11 are never allocated: the AsmWriter uses them as scratch registers, and
+ * IDIV needs RAX and RDX.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public class LinearScan
+{
+    /** the 64-bit names of the registers allocated, those a call may change first */
+    public static final String[] REGISTERS = {
+        "rcx", "rsi", "rdi", "r8", "r9", "r10", "rbx", "r12", "r13", "r14", "r15"
+    };
+    /** the 32-bit names of the registers allocated */
+    public static final String[] REGISTERS32 = {
+        "ecx", "esi", "edi", "r8d", "r9d", "r10d", "ebx", "r12d", "r13d", "r14d", "r15d"
+    };
+    /** how many of the registers, at the start of REGISTERS, a call may change */
+    public static final int CALLER_SAVED = 6;
+
+    private final List<Instruction> code;
+    private final int[] start;
+    private final int[] end;
+    private final int[] locations;
+    private final boolean[] used = new boolean[REGISTERS.length];
+    private int slots;
+
+    /**
+     * Allocates registers for a body.
+     *
+     * Postcondition: No two virtual registers that are live at the same time share a
+     * location, and no location a call may change holds a virtual register live across it.
+     *
+     * @param code the code of the body
+     * @param registers the number of virtual registers it uses
+     */
+    public LinearScan(List<Instruction> code, int registers)
+    {
+        this.code = code;
+        start = new int[registers];
+        end = new int[registers];
+        locations = new int[registers];
+        Arrays.fill(start, Integer.MAX_VALUE);
+        Arrays.fill(end, -1);
+        buildIntervals();
+        allocate();
+    }
+
+    /**
+     * Returns where a virtual register is kept.
+     *
+     * @param register the virtual register
+     * @return the index in REGISTERS, or -1 - n for stack slot n
+     */
+    public int getLocation(int register)
+    {
+        return locations[register];
+    }
+
+    /**
+     * @return the number of stack slots the spilled registers need
+     */
+    public int getSpillSlots()
+    {
+        return slots;
+    }
+
+    /**
+     * Returns the registers a System V function must preserve that the body uses.
+     *
+     * @return their indices in REGISTERS
+     */
+    public List<Integer> getCalleeSaved()
+    {
+        List<Integer> saved = new ArrayList<>();
+        for (int r = CALLER_SAVED; r < REGISTERS.length; r++)
+        {
+            if (used[r])
+            {
+                saved.add(r);
+            }
+        }
+        return saved;
+    }
+
+    /**
+     * Includes an instruction in the interval of a virtual register.
+     *
+     * @param register the virtual register
+     * @param position the index of the instruction
+     */
+    private void extend(int register, int position)
+    {
+        start[register] = Math.min(start[register], position);
+        end[register] = Math.max(end[register], position);
+    }
+
+    /**
+     * Finds the interval of every virtual register from the liveness of the basic blocks.
+     */
+    private void buildIntervals()
+    {
+        // a block starts at each label and after each jump
+        Map<Integer, Integer> labels = new HashMap<>();
+        List<Integer> leaders = new ArrayList<>();
+        leaders.add(0);
+        for (int i = 0; i < code.size(); i++)
+        {
+            Instruction in = code.get(i);
+            if (in.getOpcode() == Opcode.LABEL)
+            {
+                labels.put(in.getLabel(), i);
+                if (leaders.get(leaders.size() - 1) != i)
+                {
+                    leaders.add(i);
+                }
+            }
+            else if ((in.getLabel() >= 0 || Opcode.endsFlow(in.getOpcode()))
+                    && i + 1 < code.size())
+            {
+                leaders.add(i + 1);
+            }
+        }
+        int blocks = leaders.size();
+        int[] first = new int[blocks];
+        int[] last = new int[blocks];
+        Map<Integer, Integer> blockAt = new HashMap<>();
+        for (int b = 0; b < blocks; b++)
+        {
+            first[b] = leaders.get(b);
+            last[b] = (b + 1 < blocks ? leaders.get(b + 1) : code.size()) - 1;
+            blockAt.put(first[b], b);
+        }
+
+        List<List<Integer>> successors = new ArrayList<>();
+        BitSet[] uses = new BitSet[blocks];
+        BitSet[] defs = new BitSet[blocks];
+        for (int b = 0; b < blocks; b++)
+        {
+            List<Integer> next = new ArrayList<>();
+            Instruction tail = code.get(last[b]);
+            if (tail.getOpcode() != Opcode.LABEL && tail.getLabel() >= 0)
+            {
+                next.add(blockAt.get(labels.get(tail.getLabel())));
+            }
+            for (int t : tail.getTargets())
+            {
+                next.add(blockAt.get(labels.get(t)));
+            }
+            if (!Opcode.endsFlow(tail.getOpcode()) && b + 1 < blocks)
+            {
+                next.add(b + 1);
+            }
+            successors.add(next);
+            uses[b] = new BitSet();
+            defs[b] = new BitSet();
+            for (int i = first[b]; i <= last[b]; i++)
+            {
+                Instruction in = code.get(i);
+                for (int u : in.getUses())
+                {
+                    if (!defs[b].get(u))
+                    {
+                        uses[b].set(u);
+                    }
+                }
+                if (in.getDef() >= 0)
+                {
+                    defs[b].set(in.getDef());
+                }
+            }
+        }
+
+        BitSet[] liveIn = new BitSet[blocks];
+        BitSet[] liveOut = new BitSet[blocks];
+        for (int b = 0; b < blocks; b++)
+        {
+            liveIn[b] = new BitSet();
+            liveOut[b] = new BitSet();
+        }
+        boolean changed = true;
+        while (changed)
+        {
+            changed = false;
+            for (int b = blocks - 1; b >= 0; b--)
+            {
+                BitSet out = new BitSet();
+                for (int s : successors.get(b))
+                {
+                    out.or(liveIn[s]);
+                }
+                BitSet in = (BitSet) out.clone();
+                in.andNot(defs[b]);
+                in.or(uses[b]);
+                if (!in.equals(liveIn[b]) || !out.equals(liveOut[b]))
+                {
+                    liveIn[b] = in;
+                    liveOut[b] = out;
+                    changed = true;
+                }
+            }
+        }
+
+        for (int b = 0; b < blocks; b++)
+        {
+            BitSet live = liveOut[b];
+            for (int r = live.nextSetBit(0); r >= 0; r = live.nextSetBit(r + 1))
+            {
+                extend(r, last[b]);
+            }
+            for (int i = last[b]; i >= first[b]; i--)
+            {
+                Instruction in = code.get(i);
+                if (in.getDef() >= 0)
+                {
+                    extend(in.getDef(), i);
+                }
+                for (int u : in.getUses())
+                {
+                    extend(u, i);
+                }
+            }
+            live = liveIn[b];
+            for (int r = live.nextSetBit(0); r >= 0; r = live.nextSetBit(r + 1))
+            {
+                extend(r, first[b]);
+            }
+        }
+    }
+
+    /**
+     * Assigns a location to every interval.
+     */
+    private void allocate()
+    {
+        List<Integer> calls = new ArrayList<>();
+        for (int i = 0; i < code.size(); i++)
+        {
+            if (Opcode.isCall(code.get(i).getOpcode()))
+            {
+                calls.add(i);
+            }
+        }
+        List<Integer> intervals = new ArrayList<>();
+        for (int r = 0; r < start.length; r++)
+        {
+            if (end[r] >= 0)
+            {
+                intervals.add(r);
+            }
+        }
+        intervals.sort(Comparator.comparingInt((Integer r) -> start[r]).thenComparingInt(r -> r));
+
+        List<Integer> active = new ArrayList<>(); // ordered by end
+        boolean[] free = new boolean[REGISTERS.length];
+        Arrays.fill(free, true);
+        for (int r : intervals)
+        {
+            Iterator<Integer> it = active.iterator();
+            while (it.hasNext())
+            {
+                int a = it.next();
+                if (end[a] >= start[r])
+                {
+                    break;
+                }
+                free[locations[a]] = true;
+                it.remove();
+            }
+
+            boolean acrossCall = crossesCall(calls, r);
+            int register = -1;
+            for (int m = acrossCall ? CALLER_SAVED : 0; m < REGISTERS.length; m++)
+            {
+                if (free[m])
+                {
+                    register = m;
+                    break;
+                }
+            }
+            if (register < 0)
+            {
+                // spill whichever ends last: this interval or an active one it could replace
+                int victim = -1;
+                for (int k = active.size() - 1; k >= 0; k--)
+                {
+                    int a = active.get(k);
+                    if (!acrossCall || locations[a] >= CALLER_SAVED)
+                    {
+                        victim = a;
+                        break;
+                    }
+                }
+                if (victim < 0 || end[victim] <= end[r])
+                {
+                    locations[r] = -1 - slots++;
+                    continue;
+                }
+                register = locations[victim];
+                locations[victim] = -1 - slots++;
+                active.remove(Integer.valueOf(victim));
+            }
+            free[register] = false;
+            used[register] = true;
+            locations[r] = register;
+            int k = 0;
+            while (k < active.size() && end[active.get(k)] <= end[r])
+            {
+                k++;
+            }
+            active.add(k, r);
+        }
+    }
+
+    /**
+     * Returns whether a call happens while a virtual register is live, other than at the
+     * call that uses it last or the one that defines it.
+     *
+     * @param calls the indices of the calls, in order
+     * @param register the virtual register
+     * @return true if the register must survive a call
+     */
+    private boolean crossesCall(List<Integer> calls, int register)
+    {
+        int i = Collections.binarySearch(calls, start[register] + 1);
+        if (i < 0)
+        {
+            i = -i - 1;
+        }
+        return i < calls.size() && calls.get(i) < end[register];
+    }
+}
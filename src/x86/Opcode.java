@@ -0,0 +1,164 @@
+package x86;
+
+/**
+ * The operations of the code the InstructionSelector produces for the x86-64 backend. Each
+ * Instruction has one of them. Operands are virtual registers, numbered from 0, that the
+ * LinearScan allocator later maps to machine registers or stack slots. Every virtual
+ * register holds 64 bits: an int in its low half, or the address of an array.
+ *
+ * @author Vouk
+ * @version October 18, 2026
+ */
+public final class Opcode
+{
+    /** defines the register as the int in the instruction */
+    public static final int CONST = 0;
+    /** copies use 0 into the register */
+    public static final int MOVE = 1;
+    /** defines the register as the argument whose index is the int in the instruction */
+    public static final int PARAM = 2;
+    /** use 0 + use 1, or + the int, wrapping */
+    public static final int ADD = 3;
+    /** use 0 - use 1, or - the int, wrapping */
+    public static final int SUB = 4;
+    /** use 0 * use 1, or * the int, wrapping */
+    public static final int MUL = 5;
+    /** use 0 / use 1, failing if use 1 is 0 */
+    public static final int DIV = 6;
+    /** 1 if use 0 compares to use 1, or to the int, by the condition, else 0 */
+    public static final int SET = 7;
+    /** jumps to the label if use 0 compares to use 1, or to the int, by the condition */
+    public static final int BRANCH = 8;
+    /** jumps to the label */
+    public static final int JUMP = 9;
+    /** marks where the label is */
+    public static final int LABEL = 10;
+    /** defines the register as the int in the named data symbol */
+    public static final int LOAD = 11;
+    /** stores use 0 in the int of the named data symbol */
+    public static final int STORE = 12;
+    /** defines the register as the address in the named data symbol */
+    public static final int LOAD_ADDRESS = 13;
+    /** stores the address in use 0 in the named data symbol */
+    public static final int STORE_ADDRESS = 14;
+    /**
+     * defines the register as the array in use 0, if there is one and it is not null, or
+     * else the array in the named data symbol, failing with the message if that is null
+     */
+    public static final int ARRAY = 15;
+    /** element use 1 of the array in use 0, failing if the index is out of bounds */
+    public static final int ELEMENT_LOAD = 16;
+    /** stores use 2 in element use 1 of the array in use 0, failing if out of bounds */
+    public static final int ELEMENT_STORE = 17;
+    /** the result of calling the named procedure with the uses as arguments */
+    public static final int CALL = 18;
+    /** prints use 0 */
+    public static final int WRITE = 19;
+    /** reads a number from the input */
+    public static final int READ = 20;
+    /** allocates a zero-filled array with use 0 elements */
+    public static final int NEW_ARRAY = 21;
+    /** frees the array in use 0, if it is not null */
+    public static final int FREE = 22;
+    /** stops the program with the message */
+    public static final int FAIL = 23;
+    /** ends the body, returning use 0 if there is one */
+    public static final int RETURN = 24;
+    /**
+     * jumps to target use 0 - the int of the instruction's table, or to the label if that
+     * is not an index in the table
+     */
+    public static final int SWITCH = 25;
+    /**
+     * ends the body by calling the named procedure with the uses as arguments, which
+     * returns straight to the caller of the body
+     */
+    public static final int TAIL_CALL = 26;
+
+    /** the name of each opcode, for printing */
+    public static final String[] NAMES = {
+        "const", "move", "param", "add", "sub", "mul", "div", "set", "branch", "jump",
+        "label", "load", "store", "loadaddr", "storeaddr", "array", "aload", "astore", "call",
+        "write", "read", "newarray", "free", "fail", "return", "switch", "tailcall"
+    };
+
+    /** the condition holds if the operands are equal */
+    public static final int EQ = 0;
+    /** the condition holds if the operands differ */
+    public static final int NE = 1;
+    /** the condition holds if the first operand is less */
+    public static final int LT = 2;
+    /** the condition holds if the first operand is greater or equal */
+    public static final int GE = 3;
+    /** the condition holds if the first operand is less or equal */
+    public static final int LE = 4;
+    /** the condition holds if the first operand is greater */
+    public static final int GT = 5;
+
+    /** the suffix of the x86 jcc and setcc instructions for each condition */
+    public static final String[] SUFFIXES = {"e", "ne", "l", "ge", "le", "g"};
+
+    /**
+     * Opcode only holds constants.
+     */
+    private Opcode()
+    {
+    }
+
+    /**
+     * Returns the condition that holds exactly when another does not. The conditions come
+     * in pairs of opposites, so this flips the lowest bit.
+     *
+     * @param condition the condition
+     * @return the opposite condition
+     */
+    public static int negate(int condition)
+    {
+        return condition ^ 1;
+    }
+
+    /**
+     * Returns the condition a comparison operator of the language tests.
+     *
+     * @param op the operator
+     * @return the condition
+     * @throws IllegalArgumentException if the operator is not a comparison
+     */
+    public static int condition(String op)
+    {
+        return switch (op)
+        {
+            case "=" -> EQ;
+            case "<>" -> NE;
+            case "<" -> LT;
+            case "<=" -> LE;
+            case ">" -> GT;
+            case ">=" -> GE;
+            default -> throw new IllegalArgumentException("Unknown operator '" + op + "'");
+        };
+    }
+
+    /**
+     * Returns whether an operation calls a function, which under the System V convention
+     * may change every caller-saved register.
+     *
+     * @param opcode the operation
+     * @return true for CALL, WRITE, READ, NEW_ARRAY and FREE
+     */
+    public static boolean isCall(int opcode)
+    {
+        return opcode >= CALL && opcode <= FREE;
+    }
+
+    /**
+     * Returns whether control never continues to the next instruction after an operation.
+     *
+     * @param opcode the operation
+     * @return true for JUMP, FAIL, RETURN, SWITCH and TAIL_CALL
+     */
+    public static boolean endsFlow(int opcode)
+    {
+        return opcode == JUMP || opcode == FAIL || opcode == RETURN || opcode == SWITCH
+                || opcode == TAIL_CALL;
+    }
+}